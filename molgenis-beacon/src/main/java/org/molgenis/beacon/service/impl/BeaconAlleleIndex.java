@@ -0,0 +1,146 @@
+package org.molgenis.beacon.service.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable index of the alleles in a beacon dataset. The alleles of each chromosome are sorted by
+ * position, so that an allele is found with a binary search on its position.
+ */
+final class BeaconAlleleIndex {
+  private final ImmutableMap<String, Chromosome> chromosomes;
+  private final int size;
+
+  private BeaconAlleleIndex(ImmutableMap<String, Chromosome> chromosomes, int size) {
+    this.chromosomes = chromosomes;
+    this.size = size;
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  /** @return number of alleles in the index, including duplicates */
+  int size() {
+    return size;
+  }
+
+  boolean contains(String chrom, long pos, String ref, String alt) {
+    Chromosome chromosome = chromosomes.get(chrom);
+    return chromosome != null && chromosome.contains(pos, ref, alt);
+  }
+
+  private static class Chromosome {
+    private final long[] positions;
+    private final String[] refs;
+    private final String[] alts;
+
+    private Chromosome(long[] positions, String[] refs, String[] alts) {
+      this.positions = positions;
+      this.refs = refs;
+      this.alts = alts;
+    }
+
+    private boolean contains(long pos, String ref, String alt) {
+      int index = Arrays.binarySearch(positions, pos);
+      if (index < 0) {
+        return false;
+      }
+
+      // multiple alleles can exist at the same position
+      int first = index;
+      while (first > 0 && positions[first - 1] == pos) {
+        first--;
+      }
+      for (int i = first; i < positions.length && positions[i] == pos; i++) {
+        if (refs[i].equals(ref) && alts[i].equals(alt)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static class Builder {
+    private final Map<String, ChromosomeBuilder> chromosomes = new LinkedHashMap<>();
+    /** Reference and alternate bases repeat a lot, so equal strings are shared */
+    private final Map<String, String> bases = new HashMap<>();
+
+    private int size;
+
+    private Builder() {}
+
+    Builder addAllele(String chrom, long pos, String ref, String alt) {
+      requireNonNull(chrom);
+      chromosomes
+          .computeIfAbsent(chrom, key -> new ChromosomeBuilder())
+          .add(pos, share(requireNonNull(ref)), share(requireNonNull(alt)));
+      size++;
+      return this;
+    }
+
+    private String share(String base) {
+      return bases.computeIfAbsent(base, key -> key);
+    }
+
+    BeaconAlleleIndex build() {
+      ImmutableMap.Builder<String, Chromosome> builder = ImmutableMap.builder();
+      chromosomes.forEach(
+          (chrom, chromosomeBuilder) -> builder.put(chrom, chromosomeBuilder.build()));
+      return new BeaconAlleleIndex(builder.build(), size);
+    }
+  }
+
+  private static class ChromosomeBuilder {
+    private long[] positions = new long[16];
+    private String[] refs = new String[16];
+    private String[] alts = new String[16];
+    private int size;
+    private boolean sorted = true;
+
+    private void add(long pos, String ref, String alt) {
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, 2 * size);
+        refs = Arrays.copyOf(refs, 2 * size);
+        alts = Arrays.copyOf(alts, 2 * size);
+      }
+      if (size > 0 && positions[size - 1] > pos) {
+        sorted = false;
+      }
+      positions[size] = pos;
+      refs[size] = ref;
+      alts[size] = alt;
+      size++;
+    }
+
+    private Chromosome build() {
+      // datasets imported from VCF files are usually sorted already
+      if (sorted) {
+        return new Chromosome(
+            Arrays.copyOf(positions, size), Arrays.copyOf(refs, size), Arrays.copyOf(alts, size));
+      }
+
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingLong(i -> positions[i]));
+
+      long[] sortedPositions = new long[size];
+      String[] sortedRefs = new String[size];
+      String[] sortedAlts = new String[size];
+      for (int i = 0; i < size; i++) {
+        sortedPositions[i] = positions[order[i]];
+        sortedRefs[i] = refs[order[i]];
+        sortedAlts[i] = alts[order[i]];
+      }
+      return new Chromosome(sortedPositions, sortedRefs, sortedAlts);
+    }
+  }
+}
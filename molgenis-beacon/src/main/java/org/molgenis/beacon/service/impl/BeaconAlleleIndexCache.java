@@ -0,0 +1,133 @@
+package org.molgenis.beacon.service.impl;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.security.EntityTypePermission.COUNT_DATA;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.security.EntityIdentityUtils;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lazily builds {@link BeaconAlleleIndex}es of beacon datasets and keeps them until a transaction
+ * on this or another node changes the data of an indexed dataset.
+ *
+ * <p>Indices contain all alleles of a dataset and are shared between users. Datasets with row level
+ * security and datasets with more alleles than the maximum index size are therefore never indexed.
+ * The least recently used index is evicted if more indices than the maximum index count are cached.
+ */
+@Component
+public class BeaconAlleleIndexCache {
+  private final DataService dataService;
+  private final UserPermissionEvaluator userPermissionEvaluator;
+  private final MutableAclClassService mutableAclClassService;
+  private final TransactionInformation transactionInformation;
+  private final int maxIndexSize;
+
+  /** Entity types of datasets that are or were being indexed */
+  private final Set<String> indexedEntityTypeIds = ConcurrentHashMap.newKeySet();
+
+  private final TransactionAwareCache<BeaconDatasetAlleleAttributes, Optional<BeaconAlleleIndex>>
+      cachedIndices;
+
+  BeaconAlleleIndexCache(
+      DataService dataService,
+      UserPermissionEvaluator userPermissionEvaluator,
+      MutableAclClassService mutableAclClassService,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus,
+      @Value("${beacon.index.size:1000000}") int maxIndexSize,
+      @Value("${beacon.index.count:10}") int maxIndexCount) {
+    this.dataService = requireNonNull(dataService);
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    this.mutableAclClassService = requireNonNull(mutableAclClassService);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    if (maxIndexSize < 0) {
+      throw new IllegalArgumentException("Beacon index size must be at least 0");
+    }
+    this.maxIndexSize = maxIndexSize;
+    if (maxIndexCount < 1) {
+      throw new IllegalArgumentException("Beacon index count must be at least 1");
+    }
+    this.cachedIndices =
+        new TransactionAwareCache<>(
+            indexedEntityTypeIds::contains,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus,
+            maxIndexCount);
+  }
+
+  /**
+   * Returns the allele index of a beacon dataset. No index is returned if the current user is not
+   * allowed to count the dataset, so that the caller queries the dataset and fails as usual.
+   *
+   * @return allele index or <tt>null</tt> if the dataset cannot be queried using an index
+   */
+  @Nullable
+  @CheckForNull
+  BeaconAlleleIndex getIndex(BeaconDatasetAlleleAttributes datasetAttributes) {
+    String entityTypeId = datasetAttributes.getEntityTypeId();
+    if (!userPermissionEvaluator.hasPermission(new EntityTypeIdentity(entityTypeId), COUNT_DATA)
+        || transactionInformation.getDirtyRepositories().contains(entityTypeId)) {
+      return null;
+    }
+
+    indexedEntityTypeIds.add(entityTypeId);
+    return cachedIndices
+        .get(datasetAttributes, attributes -> runAsSystem(() -> createIndex(attributes)))
+        .orElse(null);
+  }
+
+  private Optional<BeaconAlleleIndex> createIndex(BeaconDatasetAlleleAttributes datasetAttributes) {
+    String entityTypeId = datasetAttributes.getEntityTypeId();
+    if (mutableAclClassService.hasAclClass(EntityIdentityUtils.toType(entityTypeId))
+        || dataService.count(entityTypeId) > maxIndexSize) {
+      return Optional.empty();
+    }
+
+    String chromAttribute = datasetAttributes.getChrom();
+    String posAttribute = datasetAttributes.getPos();
+    String refAttribute = datasetAttributes.getRef();
+    String altAttribute = datasetAttributes.getAlt();
+    Fetch fetch =
+        new Fetch()
+            .field(chromAttribute)
+            .field(posAttribute)
+            .field(refAttribute)
+            .field(altAttribute);
+
+    BeaconAlleleIndex.Builder builder = BeaconAlleleIndex.builder();
+    dataService
+        .findAll(entityTypeId, new QueryImpl<>().fetch(fetch))
+        .forEach(
+            entity -> {
+              Object chrom = entity.get(chromAttribute);
+              Object pos = entity.get(posAttribute);
+              Object ref = entity.get(refAttribute);
+              Object alt = entity.get(altAttribute);
+              // alleles with missing values can only be matched by a query
+              if (chrom != null && pos instanceof Number && ref != null && alt != null) {
+                builder.addAllele(
+                    chrom.toString(), ((Number) pos).longValue(), ref.toString(), alt.toString());
+              }
+            });
+    return Optional.of(builder.build());
+  }
+}
@@ -0,0 +1,49 @@
+package org.molgenis.beacon.service.impl;
+
+import com.google.auto.value.AutoValue;
+import org.molgenis.beacon.config.BeaconDataset;
+import org.molgenis.genomebrowser.meta.GenomeBrowserAttributes;
+
+/** Entity type of a beacon dataset and the names of the attributes that describe its alleles. */
+@AutoValue
+@SuppressWarnings("java:S1610") // Abstract classes without fields should be converted to interfaces
+abstract class BeaconDatasetAlleleAttributes {
+  private static final String DEFAULT_REF = "REF";
+  private static final String DEFAULT_ALT = "ALT";
+
+  abstract String getEntityTypeId();
+
+  abstract String getChrom();
+
+  abstract String getPos();
+
+  abstract String getRef();
+
+  abstract String getAlt();
+
+  static BeaconDatasetAlleleAttributes create(
+      String entityTypeId, String chrom, String pos, String ref, String alt) {
+    return new AutoValue_BeaconDatasetAlleleAttributes(entityTypeId, chrom, pos, ref, alt);
+  }
+
+  static BeaconDatasetAlleleAttributes create(BeaconDataset beaconDataset) {
+    GenomeBrowserAttributes genomeBrowserAttributes = beaconDataset.getGenomeBrowserAttributes();
+
+    String ref = genomeBrowserAttributes.getRef();
+    if (ref == null || ref.isEmpty()) {
+      ref = DEFAULT_REF;
+    }
+
+    String alt = genomeBrowserAttributes.getAlt();
+    if (alt == null || alt.isEmpty()) {
+      alt = DEFAULT_ALT;
+    }
+
+    return create(
+        beaconDataset.getDatasetEntityType().getId(),
+        genomeBrowserAttributes.getChrom(),
+        genomeBrowserAttributes.getPos(),
+        ref,
+        alt);
+  }
+}
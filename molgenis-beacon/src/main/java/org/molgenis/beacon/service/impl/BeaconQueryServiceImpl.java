@@ -2,6 +2,16 @@ package org.molgenis.beacon.service.impl;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PreDestroy;
 import org.molgenis.beacon.config.Beacon;
 import org.molgenis.beacon.config.BeaconDataset;
 import org.molgenis.beacon.config.BeaconMetadata;
@@ -11,18 +21,44 @@ import org.molgenis.beacon.controller.model.exceptions.NestedBeaconException;
 import org.molgenis.beacon.controller.model.exceptions.UnknownBeaconException;
 import org.molgenis.beacon.service.BeaconQueryService;
 import org.molgenis.data.DataService;
+import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.util.ExecutorServiceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.stereotype.Component;
 
 @Component
 public class BeaconQueryServiceImpl implements BeaconQueryService {
   private static final Logger LOG = LoggerFactory.getLogger(BeaconQueryServiceImpl.class);
   private final DataService dataService;
+  private final BeaconAlleleIndexCache beaconAlleleIndexCache;
+  private final ExecutorService executorService;
 
-  public BeaconQueryServiceImpl(DataService dataService) {
+  public BeaconQueryServiceImpl(
+      DataService dataService,
+      BeaconAlleleIndexCache beaconAlleleIndexCache,
+      @Value("${beacon.query.threads:4}") int nrThreads) {
     this.dataService = requireNonNull(dataService);
+    this.beaconAlleleIndexCache = requireNonNull(beaconAlleleIndexCache);
+    if (nrThreads < 1) {
+      throw new IllegalArgumentException("Number of beacon query threads must be at least 1");
+    }
+    this.executorService =
+        new DelegatingSecurityContextExecutorService(
+            Executors.newFixedThreadPool(
+                nrThreads,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("molgenis-beacon-query-%d")
+                    .setDaemon(true)
+                    .build()));
+  }
+
+  @PreDestroy
+  void preDestroy() {
+    ExecutorServiceUtils.shutdownAndAwaitTermination(executorService);
   }
 
   @Override
@@ -70,50 +106,89 @@ public class BeaconQueryServiceImpl implements BeaconQueryService {
       String referenceBases,
       String alternateBases,
       String beaconId) {
-    boolean exists = false;
     Beacon beacon = dataService.findOneById(BeaconMetadata.BEACON, beaconId, Beacon.class);
-    if (beacon != null) {
-      for (BeaconDataset beaconDataset : beacon.getDataSets()) {
-        exists =
-            queryBeaconDataset(beaconDataset, referenceName, start, referenceBases, alternateBases);
-      }
-    } else {
+    if (beacon == null) {
       throw new UnknownBeaconException(
           beaconId,
           BeaconAlleleRequest.create(referenceName, start, referenceBases, alternateBases));
     }
-    return exists;
+
+    // resolve the datasets in the current thread, the workers only query dataset data
+    List<BeaconDatasetAlleleAttributes> datasets = new ArrayList<>();
+    for (BeaconDataset beaconDataset : beacon.getDataSets()) {
+      datasets.add(BeaconDatasetAlleleAttributes.create(beaconDataset));
+    }
+
+    if (datasets.size() == 1) {
+      return queryBeaconDataset(
+          datasets.get(0), referenceName, start, referenceBases, alternateBases);
+    }
+    return queryBeaconDatasets(datasets, referenceName, start, referenceBases, alternateBases);
   }
 
-  private boolean queryBeaconDataset(
-      BeaconDataset beaconDataset,
+  /** Queries the datasets concurrently and stops as soon as one of them contains the allele */
+  private boolean queryBeaconDatasets(
+      List<BeaconDatasetAlleleAttributes> datasets,
       String referenceName,
       Long start,
       String referenceBases,
       String alternateBases) {
-    /* Use a count query to determine if a variation exists */
-
-    String alt = beaconDataset.getGenomeBrowserAttributes().getAlt();
-    String ref = beaconDataset.getGenomeBrowserAttributes().getRef();
-
-    if (alt == null || alt.isEmpty()) {
-      alt = "ALT";
+    CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executorService);
+    List<Future<Boolean>> futures = new ArrayList<>(datasets.size());
+    try {
+      for (BeaconDatasetAlleleAttributes dataset : datasets) {
+        futures.add(
+            completionService.submit(
+                () ->
+                    queryBeaconDataset(
+                        dataset, referenceName, start, referenceBases, alternateBases)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        if (Boolean.TRUE.equals(completionService.take().get())) {
+          return true;
+        }
+      }
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException("Interrupted while querying beacon datasets", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new MolgenisDataException(e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
     }
+  }
 
-    if (ref == null || ref.isEmpty()) {
-      ref = "REF";
+  private boolean queryBeaconDataset(
+      BeaconDatasetAlleleAttributes dataset,
+      String referenceName,
+      Long start,
+      String referenceBases,
+      String alternateBases) {
+    if (referenceName != null
+        && start != null
+        && referenceBases != null
+        && alternateBases != null) {
+      BeaconAlleleIndex alleleIndex = beaconAlleleIndexCache.getIndex(dataset);
+      if (alleleIndex != null) {
+        return alleleIndex.contains(referenceName, start, referenceBases, alternateBases);
+      }
     }
 
+    /* Use a count query to determine if a variation exists */
     return dataService.count(
-            beaconDataset.getDatasetEntityType().getId(),
+            dataset.getEntityTypeId(),
             new QueryImpl<>()
-                .eq(beaconDataset.getGenomeBrowserAttributes().getChrom(), referenceName)
+                .eq(dataset.getChrom(), referenceName)
                 .and()
-                .eq(beaconDataset.getGenomeBrowserAttributes().getPos(), start)
+                .eq(dataset.getPos(), start)
                 .and()
-                .eq(ref, referenceBases)
+                .eq(dataset.getRef(), referenceBases)
                 .and()
-                .eq(alt, alternateBases))
+                .eq(dataset.getAlt(), alternateBases))
         > 0;
   }
 }
@@ -18,6 +18,7 @@ import org.molgenis.beacon.controller.model.BeaconAlleleRequest;
 import org.molgenis.beacon.controller.model.BeaconAlleleResponse;
 import org.molgenis.beacon.controller.model.exceptions.BeaconException;
 import org.molgenis.beacon.controller.model.exceptions.NestedBeaconException;
+import org.molgenis.beacon.service.impl.BeaconAlleleIndexCache;
 import org.molgenis.beacon.service.impl.BeaconQueryServiceImpl;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
@@ -29,6 +30,7 @@ class BeaconQueryServiceTest {
   private BeaconQueryService beaconQueryService;
 
   @Mock private DataService dataService;
+  @Mock private BeaconAlleleIndexCache beaconAlleleIndexCache;
 
   private Query<Entity> query1;
   private Query<Entity> query2;
@@ -78,7 +80,7 @@ class BeaconQueryServiceTest {
             .and()
             .eq(dataset2.getGenomeBrowserAttributes().getAlt(), "T");
 
-    beaconQueryService = new BeaconQueryServiceImpl(dataService);
+    beaconQueryService = new BeaconQueryServiceImpl(dataService, beaconAlleleIndexCache, 2);
   }
 
   @Test
@@ -121,6 +123,26 @@ class BeaconQueryServiceTest {
     assertEquals(expectedResponse, actualResponse);
   }
 
+  @Test
+  void queryExistsInFirstDatasetTest() {
+    Beacon beacon = mock(Beacon.class);
+    when(beacon.getDataSets()).thenReturn(Lists.newArrayList(dataset1, dataset2));
+
+    when(dataService.findOneById(BeaconMetadata.BEACON, BEACON_ID, Beacon.class))
+        .thenReturn(beacon);
+
+    doReturn(1L).when(dataService).count("dataset1", query1);
+    doReturn(0L).when(dataService).count("dataset2", query2);
+
+    BeaconAlleleRequest request = BeaconAlleleRequest.create("1", 100L, "A", "T");
+
+    BeaconAlleleResponse actualResponse = beaconQueryService.query(BEACON_ID, request);
+    BeaconAlleleResponse expectedResponse =
+        BeaconAlleleResponse.create(BEACON_ID, true, null, request);
+
+    assertEquals(expectedResponse, actualResponse);
+  }
+
   @Test
   void queryNotExistsTest() {
     Beacon beacon = mock(Beacon.class);
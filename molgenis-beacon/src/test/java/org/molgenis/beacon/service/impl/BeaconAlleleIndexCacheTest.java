@@ -0,0 +1,213 @@
+package org.molgenis.beacon.service.impl;
+
+import static java.util.Collections.singleton;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.security.EntityTypePermission.COUNT_DATA;
+
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.molgenis.test.AbstractMockitoTest;
+
+class BeaconAlleleIndexCacheTest extends AbstractMockitoTest {
+  private static final BeaconDatasetAlleleAttributes DATASET =
+      BeaconDatasetAlleleAttributes.create("dataset", "#CHROM", "POS", "REF", "ALT");
+  private static final BeaconDatasetAlleleAttributes OTHER_DATASET =
+      BeaconDatasetAlleleAttributes.create("dataset", "#CHROM", "POS", "REF", "OTHER_ALT");
+
+  @Mock private DataService dataService;
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+  @Mock private MutableAclClassService mutableAclClassService;
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+  private BeaconAlleleIndexCache beaconAlleleIndexCache;
+  private TransactionAwareCache<?, ?> cachedIndices;
+
+  @SuppressWarnings("unchecked")
+  @BeforeEach
+  void setUpBeforeEach() {
+    beaconAlleleIndexCache =
+        new BeaconAlleleIndexCache(
+            dataService,
+            userPermissionEvaluator,
+            mutableAclClassService,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus,
+            2,
+            1);
+
+    ArgumentCaptor<TransactionAwareCache<?, ?>> cacheCaptor =
+        ArgumentCaptor.forClass(TransactionAwareCache.class);
+    verify(transactionManager).addTransactionListener(cacheCaptor.capture());
+    cachedIndices = cacheCaptor.getValue();
+  }
+
+  @Test
+  void testBeaconAlleleIndexCacheInvalidSize() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new BeaconAlleleIndexCache(
+                dataService,
+                userPermissionEvaluator,
+                mutableAclClassService,
+                transactionManager,
+                transactionInformation,
+                cacheInvalidationBus,
+                -1,
+                1));
+  }
+
+  @Test
+  void testBeaconAlleleIndexCacheInvalidCount() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new BeaconAlleleIndexCache(
+                dataService,
+                userPermissionEvaluator,
+                mutableAclClassService,
+                transactionManager,
+                transactionInformation,
+                cacheInvalidationBus,
+                2,
+                0));
+  }
+
+  @Test
+  void testGetIndex() {
+    setUpDataset(2L);
+
+    BeaconAlleleIndex index = beaconAlleleIndexCache.getIndex(DATASET);
+    assertTrue(index.contains("1", 100L, "A", "T"));
+    assertFalse(index.contains("1", 100L, "A", "C"));
+    assertSame(index, beaconAlleleIndexCache.getIndex(DATASET));
+  }
+
+  @Test
+  void testGetIndexEvictsLeastRecentlyUsed() {
+    setUpDataset(2L);
+
+    BeaconAlleleIndex index = beaconAlleleIndexCache.getIndex(DATASET);
+    beaconAlleleIndexCache.getIndex(OTHER_DATASET);
+
+    assertNotSame(index, beaconAlleleIndexCache.getIndex(DATASET));
+  }
+
+  @Test
+  void testGetIndexNoPermission() {
+    assertNull(beaconAlleleIndexCache.getIndex(DATASET));
+    verifyNoInteractions(dataService);
+  }
+
+  @Test
+  void testGetIndexRowLevelSecured() {
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("dataset"), COUNT_DATA))
+        .thenReturn(true);
+    when(mutableAclClassService.hasAclClass("entity-dataset")).thenReturn(true);
+
+    assertNull(beaconAlleleIndexCache.getIndex(DATASET));
+    verifyNoInteractions(dataService);
+  }
+
+  @Test
+  void testGetIndexDatasetTooLarge() {
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("dataset"), COUNT_DATA))
+        .thenReturn(true);
+    when(dataService.count("dataset")).thenReturn(3L);
+
+    assertNull(beaconAlleleIndexCache.getIndex(DATASET));
+  }
+
+  @Test
+  void testGetIndexDatasetChangedInTransaction() {
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("dataset"), COUNT_DATA))
+        .thenReturn(true);
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton("dataset"));
+
+    assertNull(beaconAlleleIndexCache.getIndex(DATASET));
+    verifyNoInteractions(dataService);
+  }
+
+  @Test
+  void testAfterCommitTransaction() {
+    setUpDataset(2L);
+
+    BeaconAlleleIndex index = beaconAlleleIndexCache.getIndex(DATASET);
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton("dataset"), Set.of());
+    cachedIndices.afterCommitTransaction("transactionId");
+    cachedIndices.doCleanupAfterCompletion("transactionId");
+
+    assertNotSame(index, beaconAlleleIndexCache.getIndex(DATASET));
+  }
+
+  @Test
+  void testOnCacheInvalidation() {
+    setUpDataset(2L);
+
+    BeaconAlleleIndex index = beaconAlleleIndexCache.getIndex(DATASET);
+    CacheInvalidation cacheInvalidation = mock(CacheInvalidation.class);
+    when(cacheInvalidation.getDirtyRepositories()).thenReturn(singleton("dataset"));
+    cachedIndices.onCacheInvalidation(cacheInvalidation);
+
+    assertNotSame(index, beaconAlleleIndexCache.getIndex(DATASET));
+  }
+
+  @Test
+  void testOnCacheInvalidationOtherRepository() {
+    setUpDataset(2L);
+
+    BeaconAlleleIndex index = beaconAlleleIndexCache.getIndex(DATASET);
+    CacheInvalidation cacheInvalidation = mock(CacheInvalidation.class);
+    when(cacheInvalidation.getDirtyRepositories()).thenReturn(singleton("otherDataset"));
+    cachedIndices.onCacheInvalidation(cacheInvalidation);
+
+    assertSame(index, beaconAlleleIndexCache.getIndex(DATASET));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setUpDataset(long count) {
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("dataset"), COUNT_DATA))
+        .thenReturn(true);
+    when(dataService.count("dataset")).thenReturn(count);
+
+    Entity allele = mock(Entity.class);
+    when(allele.get("#CHROM")).thenReturn("1");
+    when(allele.get("POS")).thenReturn(100);
+    when(allele.get("REF")).thenReturn("A");
+    when(allele.get("ALT")).thenReturn("T");
+    Entity alleleWithoutAlt = mock(Entity.class);
+    when(alleleWithoutAlt.get("#CHROM")).thenReturn("1");
+    when(alleleWithoutAlt.get("POS")).thenReturn(100);
+    when(alleleWithoutAlt.get("REF")).thenReturn("A");
+    when(dataService.findAll(eq("dataset"), any(Query.class)))
+        .thenAnswer(invocation -> Stream.of(allele, alleleWithoutAlt));
+  }
+}
@@ -0,0 +1,67 @@
+package org.molgenis.beacon.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BeaconAlleleIndexTest {
+  @Test
+  void testContains() {
+    BeaconAlleleIndex index =
+        BeaconAlleleIndex.builder()
+            .addAllele("1", 100L, "A", "T")
+            .addAllele("1", 200L, "C", "G")
+            .addAllele("X", 100L, "G", "A")
+            .build();
+
+    assertEquals(3, index.size());
+    assertTrue(index.contains("1", 100L, "A", "T"));
+    assertTrue(index.contains("1", 200L, "C", "G"));
+    assertTrue(index.contains("X", 100L, "G", "A"));
+    assertFalse(index.contains("1", 100L, "A", "C"));
+    assertFalse(index.contains("1", 150L, "A", "T"));
+    assertFalse(index.contains("2", 100L, "A", "T"));
+  }
+
+  @Test
+  void testContainsMultipleAllelesAtPosition() {
+    BeaconAlleleIndex index =
+        BeaconAlleleIndex.builder()
+            .addAllele("1", 100L, "A", "T")
+            .addAllele("1", 100L, "A", "C")
+            .addAllele("1", 100L, "AT", "A")
+            .addAllele("1", 101L, "T", "G")
+            .build();
+
+    assertTrue(index.contains("1", 100L, "A", "T"));
+    assertTrue(index.contains("1", 100L, "A", "C"));
+    assertTrue(index.contains("1", 100L, "AT", "A"));
+    assertFalse(index.contains("1", 100L, "T", "G"));
+  }
+
+  @Test
+  void testContainsUnsortedAlleles() {
+    BeaconAlleleIndex index =
+        BeaconAlleleIndex.builder()
+            .addAllele("1", 300L, "A", "T")
+            .addAllele("1", 100L, "C", "G")
+            .addAllele("1", 200L, "G", "A")
+            .addAllele("1", 100L, "C", "T")
+            .build();
+
+    assertTrue(index.contains("1", 100L, "C", "G"));
+    assertTrue(index.contains("1", 100L, "C", "T"));
+    assertTrue(index.contains("1", 200L, "G", "A"));
+    assertTrue(index.contains("1", 300L, "A", "T"));
+    assertFalse(index.contains("1", 300L, "G", "A"));
+  }
+
+  @Test
+  void testContainsEmptyIndex() {
+    BeaconAlleleIndex index = BeaconAlleleIndex.builder().build();
+    assertEquals(0, index.size());
+    assertFalse(index.contains("1", 100L, "A", "T"));
+  }
+}
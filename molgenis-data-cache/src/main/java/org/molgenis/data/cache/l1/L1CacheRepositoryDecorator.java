@@ -2,6 +2,7 @@ package org.molgenis.data.cache.l1;
 
 import static com.google.common.collect.Iterators.partition;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 import static org.molgenis.data.RepositoryCapability.CACHEABLE;
 
 import com.google.common.collect.Maps;
@@ -172,6 +173,20 @@ public class L1CacheRepositoryDecorator extends AbstractRepositoryDecorator<Enti
     delegate().update(entities);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    if (useCache()) {
+      // entities that are not yet cached are treated as updates of unknown entities, which cleans
+      // the cache for added entities as well
+      entities =
+          l1CacheJanitor
+              .cleanCacheBeforeUpdate(getEntityType(), entities.stream())
+              .filter(this::putCache)
+              .collect(toList());
+    }
+    delegate().upsertBatch(entities);
+  }
+
   @Override
   public void delete(Entity entity) {
     if (useCache()) {
@@ -100,6 +100,11 @@ public class L2CacheRepositoryDecorator extends AbstractRepositoryDecorator<Enti
     return delegate().findOneById(id, fetch);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   private boolean doRetrieveFromCache() {
     return cacheable
         && (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
@@ -21,6 +21,9 @@ import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.CacheInvalidationListener;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionListener;
 import org.molgenis.data.transaction.TransactionManager;
@@ -28,9 +31,13 @@ import org.slf4j.Logger;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-/** In-memory Query cache containing Queries and resulting ids from cacheable repositories */
+/**
+ * In-memory Query cache containing Queries and resulting ids from cacheable repositories. Queries
+ * on repositories changed by transactions on other nodes are evicted through the {@link
+ * CacheInvalidationBus}.
+ */
 @Service
-public class L3Cache implements TransactionListener {
+public class L3Cache implements TransactionListener, CacheInvalidationListener {
   private static final Logger LOG = getLogger(L3Cache.class);
   private static final int MAX_CACHE_SIZE_PER_QUERY = 1000;
 
@@ -45,10 +52,12 @@ public class L3Cache implements TransactionListener {
   public L3Cache(
       TransactionManager transactionManager,
       TransactionInformation transactionInformation,
-      MeterRegistry meterRegistry) {
+      MeterRegistry meterRegistry,
+      CacheInvalidationBus cacheInvalidationBus) {
     this.transactionInformation = requireNonNull(transactionInformation);
     this.meterRegistry = requireNonNull(meterRegistry);
     requireNonNull(transactionManager).addTransactionListener(this);
+    requireNonNull(cacheInvalidationBus).addCacheInvalidationListener(this);
   }
 
   @Override
@@ -56,6 +65,15 @@ public class L3Cache implements TransactionListener {
     transactionInformation.getDirtyRepositories().forEach(caches::remove);
   }
 
+  @Override
+  public void onCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isInvalidateAll()) {
+      caches.clear();
+    } else {
+      cacheInvalidation.getDirtyRepositories().forEach(caches::remove);
+    }
+  }
+
   public List<Object> get(Repository<Entity> repository, Query<Entity> query) {
     // Set fetch to null because we are only caching identifiers
     LoadingCache<Query<Entity>, List<Object>> cache = getQueryCache(repository);
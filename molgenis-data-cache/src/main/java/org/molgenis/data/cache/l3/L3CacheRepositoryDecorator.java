@@ -86,4 +86,9 @@ public class L3CacheRepositoryDecorator extends AbstractRepositoryDecorator<Enti
     }
     return delegate().findOne(query);
   }
+
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
 }
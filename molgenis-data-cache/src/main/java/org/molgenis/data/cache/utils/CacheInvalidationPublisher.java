@@ -0,0 +1,38 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Objects.requireNonNull;
+
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionListener;
+import org.molgenis.data.transaction.TransactionManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the entities and repositories dirtied by a transaction on the {@link
+ * CacheInvalidationBus} so that other nodes can evict them from their caches. Publication happens
+ * as part of the transaction so that other nodes are only notified if the transaction commits.
+ */
+@Component
+public class CacheInvalidationPublisher implements TransactionListener {
+  private final TransactionInformation transactionInformation;
+  private final CacheInvalidationBus cacheInvalidationBus;
+
+  public CacheInvalidationPublisher(
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus) {
+    this.transactionInformation = requireNonNull(transactionInformation);
+    this.cacheInvalidationBus = requireNonNull(cacheInvalidationBus);
+    requireNonNull(transactionManager).addTransactionListener(this);
+  }
+
+  @Override
+  public void commitTransaction(String transactionId) {
+    CacheInvalidation cacheInvalidation = CacheInvalidation.create(transactionInformation);
+    if (!cacheInvalidation.isEmpty()) {
+      cacheInvalidationBus.publish(cacheInvalidation);
+    }
+  }
+}
@@ -221,6 +221,23 @@ class L1CacheRepositoryDecoratorTest extends AbstractMockitoTest {
     verifyNoMoreInteractions(l1Cache, delegateRepository);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  void testUpsertBatch() {
+    EntityType entityType = mock(EntityType.class);
+    when(delegateRepository.getEntityType()).thenReturn(entityType);
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+    doAnswer(invocation -> invocation.getArguments()[1])
+        .when(l1CacheJanitor)
+        .cleanCacheBeforeUpdate(eq(entityType), any(Stream.class));
+    l1CacheRepositoryDecorator.upsertBatch(asList(entity0, entity1));
+    verify(l1Cache).put(entity0);
+    verify(l1Cache).put(entity1);
+    verify(delegateRepository).upsertBatch(asList(entity0, entity1));
+    verifyNoMoreInteractions(l1Cache, delegateRepository);
+  }
+
   @Test
   void testDelete() {
     Entity entity = mock(Entity.class);
@@ -42,6 +42,8 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.support.EntityWithComputedAttributes;
 import org.molgenis.data.support.PartialEntity;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.data.util.EntityUtils;
@@ -65,6 +67,7 @@ class L2CacheTest extends AbstractMolgenisSpringTest {
   @Mock private TransactionManager transactionManager;
   @Mock private Repository<Entity> repository;
   @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
   @Captor private ArgumentCaptor<Stream<Object>> idStreamCaptor;
 
   private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
@@ -91,7 +94,61 @@ class L2CacheTest extends AbstractMolgenisSpringTest {
     when(repository.getName()).thenReturn(emd.getId());
 
     l2Cache =
-        new L2Cache(transactionManager, entityHydration, transactionInformation, meterRegistry);
+        new L2Cache(
+            transactionManager,
+            entityHydration,
+            transactionInformation,
+            meterRegistry,
+            cacheInvalidationBus);
+  }
+
+  @Test
+  void testConstructorRegistersCacheInvalidationListener() {
+    verify(cacheInvalidationBus).addCacheInvalidationListener(l2Cache);
+  }
+
+  @Test
+  void testOnCacheInvalidationRemovesEntityForDirtyEntity() {
+    Entity entity2 = testEntities.get(2);
+    Entity entity3 = testEntities.get(3);
+    when(repository.findOneById("2")).thenReturn(entity2);
+    when(repository.findOneById("3")).thenReturn(entity3);
+
+    l2Cache.get(repository, "2");
+    l2Cache.get(repository, "3");
+
+    // Another node committed a transaction that has dirtied entity3, but not entity2
+    l2Cache.onCacheInvalidation(
+        CacheInvalidation.create(emptySet(), singleton(EntityKey.create(entity3))));
+
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "3"), entity3));
+    verify(repository, times(1)).findOneById("2");
+    verify(repository, times(2)).findOneById("3");
+  }
+
+  @Test
+  void testOnCacheInvalidationRemovesCacheForDirtyRepository() {
+    Entity entity2 = testEntities.get(2);
+    when(repository.findOneById("2")).thenReturn(entity2);
+    l2Cache.get(repository, "2");
+
+    l2Cache.onCacheInvalidation(CacheInvalidation.create(singleton(emd.getId()), emptySet()));
+
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    verify(repository, times(2)).findOneById("2");
+  }
+
+  @Test
+  void testOnCacheInvalidationInvalidateAll() {
+    Entity entity2 = testEntities.get(2);
+    when(repository.findOneById("2")).thenReturn(entity2);
+    l2Cache.get(repository, "2");
+
+    l2Cache.onCacheInvalidation(CacheInvalidation.createInvalidateAll());
+
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    verify(repository, times(2)).findOneById("2");
   }
 
   @Test
@@ -0,0 +1,59 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.test.AbstractMockitoTest;
+
+class CacheInvalidationPublisherTest extends AbstractMockitoTest {
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+  private CacheInvalidationPublisher cacheInvalidationPublisher;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    cacheInvalidationPublisher =
+        new CacheInvalidationPublisher(
+            transactionManager, transactionInformation, cacheInvalidationBus);
+  }
+
+  @Test
+  void testConstructorRegistersTransactionListener() {
+    verify(transactionManager).addTransactionListener(cacheInvalidationPublisher);
+  }
+
+  @Test
+  void testCommitTransaction() {
+    EntityKey entityKey = EntityKey.create("MyEntityType", "id0");
+    when(transactionInformation.getEntirelyDirtyRepositories())
+        .thenReturn(singleton("MyOtherEntityType"));
+    when(transactionInformation.getDirtyEntities()).thenReturn(singleton(entityKey));
+
+    cacheInvalidationPublisher.commitTransaction("transactionId");
+
+    verify(cacheInvalidationBus)
+        .publish(CacheInvalidation.create(singleton("MyOtherEntityType"), singleton(entityKey)));
+  }
+
+  @Test
+  void testCommitTransactionNothingDirty() {
+    when(transactionInformation.getEntirelyDirtyRepositories()).thenReturn(emptySet());
+    when(transactionInformation.getDirtyEntities()).thenReturn(emptySet());
+
+    cacheInvalidationPublisher.commitTransaction("transactionId");
+
+    verifyNoInteractions(cacheInvalidationBus);
+  }
+}
@@ -1,10 +1,10 @@
 package org.molgenis.data.elasticsearch;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 import static org.molgenis.data.util.EntityTypeUtils.createFetchForReindexing;
 
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Streams;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
@@ -14,13 +14,14 @@ import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisQueryException;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
 import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.elasticsearch.client.ClientFacade;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
-import org.molgenis.data.elasticsearch.client.model.SearchHits;
+import org.molgenis.data.elasticsearch.client.model.SearchQuery;
 import org.molgenis.data.elasticsearch.generator.ContentGenerators;
 import org.molgenis.data.elasticsearch.generator.model.Document;
 import org.molgenis.data.elasticsearch.generator.model.DocumentAction;
@@ -46,12 +47,17 @@ public class ElasticsearchService implements SearchService, IndexService {
   private final ClientFacade clientFacade;
   private final ContentGenerators contentGenerators;
   private final DataService dataService;
+  private final PartitionedIndexRebuilder partitionedIndexRebuilder;
 
   public ElasticsearchService(
-      ClientFacade clientFacade, ContentGenerators contentGenerators, DataService dataService) {
+      ClientFacade clientFacade,
+      ContentGenerators contentGenerators,
+      DataService dataService,
+      PartitionedIndexRebuilder partitionedIndexRebuilder) {
     this.clientFacade = requireNonNull(clientFacade);
     this.contentGenerators = requireNonNull(contentGenerators);
     this.dataService = requireNonNull(dataService);
+    this.partitionedIndexRebuilder = requireNonNull(partitionedIndexRebuilder);
   }
 
   @Override
@@ -76,6 +82,11 @@ public class ElasticsearchService implements SearchService, IndexService {
 
   @Override
   public void rebuildIndex(Repository<? extends Entity> repository) {
+    if (partitionedIndexRebuilder.isApplicable(repository)) {
+      partitionedIndexRebuilder.rebuildIndex(repository);
+      return;
+    }
+
     EntityType entityType = repository.getEntityType();
 
     if (hasIndex(entityType)) {
@@ -114,32 +125,47 @@ public class ElasticsearchService implements SearchService, IndexService {
     return search(entityType, q, from, q.getPageSize());
   }
 
+  /**
+   * Searches entity ids. Results that do not fit in a single batch are streamed with search_after
+   * paging, so that the cost per batch remains constant.
+   */
   private Stream<Object> search(EntityType entityType, Query<Entity> q, int offset, int pageSize) {
     QueryBuilder query = contentGenerators.createQuery(q, entityType);
     Sort sort = q.getSort() != null ? contentGenerators.createSorts(q.getSort(), entityType) : null;
     Index index = contentGenerators.createIndex(entityType);
-    Stream<SearchHit> searchHits = Stream.empty();
 
-    boolean done = false;
-    int currentOffset;
-    int i = 0;
-    while (!done) {
-      int batchSize = pageSize < MAX_BATCH_SIZE && pageSize != 0 ? pageSize : MAX_BATCH_SIZE;
-      currentOffset = offset + (i * MAX_BATCH_SIZE);
-
-      SearchHits currentSearchHits =
-          clientFacade.search(query, currentOffset, batchSize, sort, index);
-      searchHits = Streams.concat(searchHits, currentSearchHits.getHits().stream());
+    Stream<SearchHit> searchHits;
+    if (pageSize != 0 && pageSize <= MAX_BATCH_SIZE) {
+      searchHits = clientFacade.search(query, offset, pageSize, sort, index).getHits().stream();
+    } else {
+      searchHits = clientFacade.searchAll(query, offset, pageSize, sort, index);
+    }
+    return toEntityIds(entityType, searchHits.map(SearchHit::getId));
+  }
 
-      if (currentSearchHits.getHits().size() < MAX_BATCH_SIZE) {
-        done = true;
-      }
+  @Override
+  public List<List<Object>> multiSearch(EntityType entityType, List<Query<Entity>> queries) {
+    Index index = contentGenerators.createIndex(entityType);
+    List<SearchQuery> searchQueries =
+        queries.stream().map(q -> createSearchQuery(entityType, q)).collect(toList());
+    return clientFacade.multiSearch(searchQueries, index).stream()
+        .map(searchHits -> toEntityIds(entityType, searchHits.getHits()))
+        .collect(toList());
+  }
 
-      if (pageSize != 0) pageSize -= MAX_BATCH_SIZE;
-      i++;
+  private SearchQuery createSearchQuery(EntityType entityType, Query<Entity> q) {
+    if (q.getPageSize() == 0) {
+      throw new MolgenisQueryException("Multi search queries require a page size");
     }
+    QueryBuilder query = contentGenerators.createQuery(q, entityType);
+    Sort sort = q.getSort() != null ? contentGenerators.createSorts(q.getSort(), entityType) : null;
+    return SearchQuery.create(query, q.getOffset(), q.getPageSize(), sort);
+  }
 
-    return toEntityIds(entityType, searchHits.map(SearchHit::getId));
+  private static List<Object> toEntityIds(EntityType entityType, List<SearchHit> searchHits) {
+    return searchHits.stream()
+        .map(searchHit -> toEntityId(entityType, searchHit.getId()))
+        .collect(toList());
   }
 
   private static Stream<Object> toEntityIds(
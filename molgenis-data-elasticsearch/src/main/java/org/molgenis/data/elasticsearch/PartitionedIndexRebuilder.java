@@ -0,0 +1,256 @@
+package org.molgenis.data.elasticsearch;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.RepositoryCapability.QUERYABLE;
+import static org.molgenis.data.util.EntityTypeUtils.createFetchForReindexing;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.Repository;
+import org.molgenis.data.Sort;
+import org.molgenis.data.elasticsearch.client.ClientFacade;
+import org.molgenis.data.elasticsearch.generator.ContentGenerators;
+import org.molgenis.data.elasticsearch.generator.model.DocumentAction;
+import org.molgenis.data.elasticsearch.generator.model.Index;
+import org.molgenis.data.elasticsearch.generator.model.IndexSettings;
+import org.molgenis.data.index.exception.IndexException;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.QueryCursors;
+import org.molgenis.util.ExecutorServiceUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Rebuilds the index of a large repository by splitting its id space into ranges and indexing these
+ * partitions in parallel into a new index. The index name of an entity type is an alias that is
+ * moved to the new index once it is complete, so the repository remains searchable during the
+ * rebuild. Each partition is read from a single query cursor in its own read-only transaction.
+ */
+@Component
+public class PartitionedIndexRebuilder {
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionedIndexRebuilder.class);
+
+  private final ClientFacade clientFacade;
+  private final ContentGenerators contentGenerators;
+  private final PlatformTransactionManager transactionManager;
+  private final int partitionSize;
+  private final ExecutorService executorService;
+
+  PartitionedIndexRebuilder(
+      ClientFacade clientFacade,
+      ContentGenerators contentGenerators,
+      PlatformTransactionManager transactionManager,
+      @Value("${elasticsearch.rebuild.threads:4}") int nrThreads,
+      @Value("${elasticsearch.rebuild.partition.size:100000}") int partitionSize) {
+    this.clientFacade = requireNonNull(clientFacade);
+    this.contentGenerators = requireNonNull(contentGenerators);
+    this.transactionManager = requireNonNull(transactionManager);
+    if (nrThreads < 1) {
+      throw new IllegalArgumentException("Number of rebuild threads must be at least 1");
+    }
+    if (partitionSize < 1) {
+      throw new IllegalArgumentException("Rebuild partition size must be at least 1");
+    }
+    this.partitionSize = partitionSize;
+    this.executorService =
+        new DelegatingSecurityContextExecutorService(
+            Executors.newFixedThreadPool(
+                nrThreads,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("molgenis-index-rebuild-%d")
+                    .setDaemon(true)
+                    .build()));
+  }
+
+  @PreDestroy
+  void preDestroy() {
+    ExecutorServiceUtils.shutdownAndAwaitTermination(executorService);
+  }
+
+  /** Returns whether the repository is queryable and contains more than one partition. */
+  boolean isApplicable(Repository<? extends Entity> repository) {
+    return repository.getCapabilities().contains(QUERYABLE) && repository.count() > partitionSize;
+  }
+
+  <E extends Entity> void rebuildIndex(Repository<E> repository) {
+    EntityType entityType = repository.getEntityType();
+    Index alias = contentGenerators.createIndex(entityType);
+    Index index = Index.create(alias.getName() + '_' + System.currentTimeMillis());
+
+    // replicas are created when the index is complete, which is cheaper than replicating each bulk
+    IndexSettings bulkIndexSettings =
+        IndexSettings.builder().setNumberOfReplicas(0).setRefreshEnabled(false).build();
+    clientFacade.createIndex(
+        index, bulkIndexSettings, Stream.of(contentGenerators.createMapping(entityType)));
+    try {
+      List<Query<E>> partitionQueries = createPartitionQueries(repository);
+      long count = indexPartitions(repository, partitionQueries, alias, index);
+      LOG.debug(
+          "Indexed {} entities of '{}' in {} partitions",
+          count,
+          entityType.getId(),
+          partitionQueries.size());
+      clientFacade.updateIndexSettings(index, IndexSettings.create());
+    } catch (RuntimeException e) {
+      clientFacade.deleteIndex(index);
+      throw e;
+    }
+    replaceIndex(alias, index);
+  }
+
+  /**
+   * Creates queries for consecutive id ranges of at most partitionSize entities based on a sorted
+   * scan of the entity ids.
+   */
+  private <E extends Entity> List<Query<E>> createPartitionQueries(Repository<E> repository) {
+    EntityType entityType = repository.getEntityType();
+    String idAttributeName = entityType.getIdAttribute().getName();
+
+    List<Object> boundaries = new ArrayList<>();
+    Query<E> idQuery =
+        new QueryImpl<E>()
+            .sort(new Sort(idAttributeName))
+            .fetch(new Fetch().field(idAttributeName));
+    readInTransaction(
+        () -> {
+          try (Stream<E> entities = repository.findAll(idQuery)) {
+            Iterator<E> iterator = entities.iterator();
+            for (long i = 0; iterator.hasNext(); i++) {
+              E entity = iterator.next();
+              if (i > 0 && i % partitionSize == 0) {
+                boundaries.add(entity.getIdValue());
+              }
+            }
+          }
+          return null;
+        });
+
+    Fetch fetch = createFetchForReindexing(entityType);
+    List<Query<E>> partitionQueries = new ArrayList<>(boundaries.size() + 1);
+    for (int i = 0; i <= boundaries.size(); i++) {
+      Object lowerBound = i > 0 ? boundaries.get(i - 1) : null;
+      Object upperBound = i < boundaries.size() ? boundaries.get(i) : null;
+
+      Query<E> query = new QueryImpl<>();
+      if (lowerBound != null) {
+        query.ge(idAttributeName, lowerBound);
+      }
+      if (upperBound != null) {
+        if (lowerBound != null) {
+          query.and();
+        }
+        query.lt(idAttributeName, upperBound);
+      }
+      query.fetch(fetch);
+      partitionQueries.add(query);
+    }
+    return partitionQueries;
+  }
+
+  private <E extends Entity> long indexPartitions(
+      Repository<E> repository, List<Query<E>> partitionQueries, Index alias, Index index) {
+    List<Future<Long>> futures =
+        partitionQueries.stream()
+            .map(
+                query ->
+                    executorService.submit(() -> indexPartition(repository, query, alias, index)))
+            .collect(toList());
+
+    long count = 0;
+    try {
+      for (Future<Long> future : futures) {
+        count += future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IndexException(format("Interrupted while rebuilding index '%s'.", alias.getName()));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IndexException(format("Error rebuilding index '%s'.", alias.getName()), e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    return count;
+  }
+
+  /** Indexes the entities of one partition, documents are written using the type of the alias. */
+  private <E extends Entity> long indexPartition(
+      Repository<E> repository, Query<E> query, Index alias, Index index) {
+    AtomicLong count = new AtomicLong(0L);
+    readInTransaction(
+        () -> {
+          try (Stream<E> entities = repository.findAll(query)) {
+            Stream<DocumentAction> documentActions =
+                entities.map(
+                    entity -> {
+                      count.incrementAndGet();
+                      return DocumentAction.create(
+                          alias,
+                          contentGenerators.createDocument(entity),
+                          DocumentAction.Operation.INDEX);
+                    });
+            clientFacade.processDocumentActions(documentActions, index);
+          }
+          return null;
+        });
+    return count.get();
+  }
+
+  /**
+   * Reads in a read-only transaction in which query results are streamed from cursors, the reader
+   * has to consume all streams before it returns.
+   */
+  private <T> T readInTransaction(Supplier<T> reader) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+    return transactionTemplate.execute(
+        status -> {
+          QueryCursors.allowInCurrentTransaction();
+          return reader.get();
+        });
+  }
+
+  /**
+   * Points the alias to the new index and deletes the indexes it pointed to before. An index that
+   * was created with the alias name, e.g. by a non-partitioned rebuild, is deleted in the same
+   * request that creates the alias. The new index is deleted if the alias can't be moved.
+   */
+  private void replaceIndex(Index alias, Index index) {
+    List<Index> aliasedIndexes;
+    try {
+      aliasedIndexes = clientFacade.getAliasedIndexes(alias);
+      if (aliasedIndexes.isEmpty() && clientFacade.indexesExist(alias)) {
+        clientFacade.replaceIndexWithAlias(alias, index);
+      } else {
+        clientFacade.swapAlias(alias, index, aliasedIndexes);
+      }
+    } catch (RuntimeException e) {
+      clientFacade.deleteIndex(index);
+      throw e;
+    }
+    aliasedIndexes.forEach(clientFacade::deleteIndex);
+  }
+}
@@ -2,6 +2,8 @@ package org.molgenis.data.elasticsearch.client;
 
 import static java.lang.String.format;
 import static java.util.Arrays.stream;
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
@@ -10,18 +12,30 @@ import static org.elasticsearch.action.DocWriteRequest.OpType.INDEX;
 import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
 import static org.molgenis.util.stream.MapCollectors.toLinkedMap;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Streams;
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.apache.lucene.search.Explanation;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.ResourceAlreadyExistsException;
 import org.elasticsearch.ResourceNotFoundException;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.ShardOperationFailedException;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesResponse;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequestBuilder;
@@ -30,6 +44,8 @@ import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsReques
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequestBuilder;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsResponse;
 import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.delete.DeleteResponse;
@@ -37,21 +53,29 @@ import org.elasticsearch.action.explain.ExplainRequestBuilder;
 import org.elasticsearch.action.explain.ExplainResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.action.support.replication.ReplicationResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.Requests;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.mapper.UidFieldMapper;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.MolgenisQueryException;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
 import org.molgenis.data.elasticsearch.client.model.SearchHits;
+import org.molgenis.data.elasticsearch.client.model.SearchQuery;
 import org.molgenis.data.elasticsearch.generator.model.Document;
 import org.molgenis.data.elasticsearch.generator.model.DocumentAction;
 import org.molgenis.data.elasticsearch.generator.model.Index;
@@ -234,6 +258,135 @@ public class ClientFacade implements Closeable {
     }
   }
 
+  /** Updates the dynamic settings (number of replicas, refresh) of an existing index. */
+  public void updateIndexSettings(Index index, IndexSettings indexSettings) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Updating settings of index '{}' ...", index.getName());
+    }
+
+    Settings.Builder settings =
+        Settings.builder().put("index.number_of_replicas", indexSettings.getNumberOfReplicas());
+    if (indexSettings.isRefreshEnabled()) {
+      settings.putNull("index.refresh_interval");
+    } else {
+      settings.put("index.refresh_interval", SettingsContentBuilder.REFRESH_DISABLED);
+    }
+    UpdateSettingsRequestBuilder updateSettingsRequest =
+        client.admin().indices().prepareUpdateSettings(index.getName()).setSettings(settings);
+
+    UpdateSettingsResponse updateSettingsResponse;
+    try {
+      updateSettingsResponse = updateSettingsRequest.get();
+    } catch (ResourceNotFoundException e) {
+      LOG.debug("", e);
+      throw new UnknownIndexException(index.getName());
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(format("Error updating settings of index '%s'.", index.getName()));
+    }
+
+    if (!updateSettingsResponse.isAcknowledged()) {
+      throw new IndexException(format("Error updating settings of index '%s'.", index.getName()));
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Updated settings of index '{}'.", index.getName());
+    }
+  }
+
+  /** Returns the indexes that the given alias points to or an empty list if it is no alias. */
+  public List<Index> getAliasedIndexes(Index alias) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Retrieving indexes of alias '{}' ...", alias.getName());
+    }
+
+    GetAliasesRequestBuilder getAliasesRequest =
+        client.admin().indices().prepareGetAliases(alias.getName());
+
+    GetAliasesResponse getAliasesResponse;
+    try {
+      getAliasesResponse = getAliasesRequest.get();
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(format("Error retrieving indexes of alias '%s'.", alias.getName()));
+    }
+
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases = getAliasesResponse.getAliases();
+    List<Index> indexes =
+        Streams.stream(aliases.keysIt())
+            .filter(indexName -> !aliases.get(indexName).isEmpty())
+            .map(Index::create)
+            .collect(toList());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Retrieved indexes '{}' of alias '{}'.", toString(indexes), alias.getName());
+    }
+    return indexes;
+  }
+
+  /**
+   * Atomically moves an alias from the indexes it currently points to to the given index.
+   *
+   * @param aliasedIndexes indexes that the alias currently points to, see {@link
+   *     #getAliasedIndexes(Index)}
+   */
+  public void swapAlias(Index alias, Index index, List<Index> aliasedIndexes) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+          "Moving alias '{}' from index(es) '{}' to index '{}' ...",
+          alias.getName(),
+          toString(aliasedIndexes),
+          index.getName());
+    }
+
+    IndicesAliasesRequestBuilder aliasesRequest = client.admin().indices().prepareAliases();
+    aliasedIndexes.forEach(
+        aliasedIndex -> aliasesRequest.removeAlias(aliasedIndex.getName(), alias.getName()));
+    aliasesRequest.addAlias(index.getName(), alias.getName());
+    updateAliases(aliasesRequest, alias, index);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Moved alias '{}' to index '{}'.", alias.getName(), index.getName());
+    }
+  }
+
+  /**
+   * Atomically deletes the index that has the name of the alias and creates the alias for the
+   * given index, so that the name always resolves to one of both indexes.
+   */
+  public void replaceIndexWithAlias(Index alias, Index index) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+          "Replacing index '{}' with alias to index '{}' ...", alias.getName(), index.getName());
+    }
+
+    IndicesAliasesRequestBuilder aliasesRequest = client.admin().indices().prepareAliases();
+    aliasesRequest.addAlias(index.getName(), alias.getName());
+    aliasesRequest.addAliasAction(AliasActions.removeIndex().index(alias.getName()));
+    updateAliases(aliasesRequest, alias, index);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Replaced index '{}' with alias to index '{}'.", alias.getName(), index.getName());
+    }
+  }
+
+  private void updateAliases(IndicesAliasesRequestBuilder aliasesRequest, Index alias, Index index) {
+    IndicesAliasesResponse aliasesResponse;
+    try {
+      aliasesResponse = aliasesRequest.get();
+    } catch (ResourceNotFoundException e) {
+      LOG.debug("", e);
+      throw new UnknownIndexException(index.getName());
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(
+          format("Error moving alias '%s' to index '%s'.", alias.getName(), index.getName()));
+    }
+
+    if (!aliasesResponse.isAcknowledged()) {
+      throw new IndexException(
+          format("Error moving alias '%s' to index '%s'.", alias.getName(), index.getName()));
+    }
+  }
+
   public long getCount(Index index) {
     return getCount(singletonList(index));
   }
@@ -340,10 +493,42 @@ public class ClientFacade implements Closeable {
 
     SearchRequestBuilder searchRequest =
         createSearchRequest(query, from, size, sort, null, indexes);
+    SearchResponse searchResponse = executeSearch(searchRequest, query, sort, indexes);
+    return createSearchResponse(searchResponse);
+  }
 
-    SearchResponse searchResponse;
+  /**
+   * Executes the queries on an index in a single multi search request.
+   *
+   * @return search hits for each query, in the order of the queries
+   */
+  public List<SearchHits> multiSearch(List<SearchQuery> queries, Index index) {
+    if (queries.isEmpty()) {
+      return emptyList();
+    }
+
+    List<Index> indexes = singletonList(index);
+    MultiSearchRequestBuilder multiSearchRequest = client.prepareMultiSearch();
+    for (SearchQuery query : queries) {
+      if (query.getSize() > MAX_BATCH_SIZE) {
+        throw new MolgenisQueryException(
+            String.format(
+                "Batch size of %s exceeds the maximum batch size of %s for search queries",
+                query.getSize(), MAX_BATCH_SIZE));
+      }
+      multiSearchRequest.add(
+          createSearchRequest(
+              query.getQuery(), query.getFrom(), query.getSize(), query.getSort(), null, indexes));
+    }
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+          "Searching docs in index(es) '{}' with {} queries ...", toString(indexes), queries.size());
+    }
+
+    MultiSearchResponse multiSearchResponse;
     try {
-      searchResponse = searchRequest.get();
+      multiSearchResponse = multiSearchRequest.get();
     } catch (ResourceNotFoundException e) {
       LOG.error("", e);
       throw new UnknownIndexException(toIndexNames(indexes));
@@ -351,25 +536,71 @@ public class ClientFacade implements Closeable {
       LOG.error("", e);
       throw new IndexException(
           format(
-              "Error searching docs in index(es) '%s' with query '%s'.", toString(indexes), query));
+              "Error searching docs in index(es) '%s' with %d queries.",
+              toString(indexes), queries.size()));
     }
-    if (searchResponse.getFailedShards() > 0) {
-      if (LOG.isErrorEnabled()) {
-        LOG.error(
-            stream(searchResponse.getShardFailures())
-                .map(ShardSearchFailure::toString)
-                .collect(joining("\n")));
+
+    MultiSearchResponse.Item[] items = multiSearchResponse.getResponses();
+    List<SearchHits> searchHitsList = new ArrayList<>(items.length);
+    for (int i = 0; i < items.length; i++) {
+      QueryBuilder query = queries.get(i).getQuery();
+      SearchResponse searchResponse = getSearchResponse(items[i], query, indexes);
+      validateSearchResponse(searchResponse, query, indexes);
+      searchHitsList.add(createSearchResponse(searchResponse));
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Searched docs in index(es) '{}' with {} queries.", toString(indexes), items.length);
+    }
+    return searchHitsList;
+  }
+
+  private SearchResponse getSearchResponse(
+      MultiSearchResponse.Item item, QueryBuilder query, List<Index> indexes) {
+    if (item.isFailure()) {
+      Throwable failure = ExceptionsHelper.unwrapCause(item.getFailure());
+      LOG.error("", failure);
+      if (failure instanceof ResourceNotFoundException) {
+        throw new UnknownIndexException(toIndexNames(indexes));
       }
       throw new IndexException(
           format(
               "Error searching docs in index(es) '%s' with query '%s'.", toString(indexes), query));
     }
-    if (searchResponse.isTimedOut()) {
+    return item.getResponse();
+  }
+
+  /**
+   * Returns all hits of a query starting at the given offset, retrieving the hits in pages of at
+   * most MAX_BATCH_SIZE hits while the returned stream is consumed.
+   *
+   * <p>Pages after the first page are retrieved with search_after using the sort values of the last
+   * hit of the previous page, with the document uid as tiebreaker. Unlike from/size paging, the
+   * cost of retrieving a page does not grow with the number of preceding hits and the number of
+   * hits is not limited by the index max_result_window setting.
+   *
+   * @param size maximum number of hits or 0 to return all hits
+   */
+  public Stream<SearchHit> searchAll(
+      QueryBuilder query, int from, int size, @Nullable Sort sort, Index index) {
+    return Streams.stream(new SearchAfterIterator(query, from, size, sort, singletonList(index)));
+  }
+
+  private SearchResponse executeSearch(
+      SearchRequestBuilder searchRequest, QueryBuilder query, Sort sort, List<Index> indexes) {
+    SearchResponse searchResponse;
+    try {
+      searchResponse = searchRequest.get();
+    } catch (ResourceNotFoundException e) {
+      LOG.error("", e);
+      throw new UnknownIndexException(toIndexNames(indexes));
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
       throw new IndexException(
           format(
-              "Timeout searching counting docs in index(es) '%s'  with query '%s'.",
-              toString(indexes), query));
+              "Error searching docs in index(es) '%s' with query '%s'.", toString(indexes), query));
     }
+    validateSearchResponse(searchResponse, query, indexes);
 
     if (LOG.isDebugEnabled()) {
       if (sort != null) {
@@ -389,7 +620,28 @@ public class ClientFacade implements Closeable {
             searchResponse.getTookInMillis());
       }
     }
-    return createSearchResponse(searchResponse);
+    return searchResponse;
+  }
+
+  private void validateSearchResponse(
+      SearchResponse searchResponse, QueryBuilder query, List<Index> indexes) {
+    if (searchResponse.getFailedShards() > 0) {
+      if (LOG.isErrorEnabled()) {
+        LOG.error(
+            stream(searchResponse.getShardFailures())
+                .map(ShardSearchFailure::toString)
+                .collect(joining("\n")));
+      }
+      throw new IndexException(
+          format(
+              "Error searching docs in index(es) '%s' with query '%s'.", toString(indexes), query));
+    }
+    if (searchResponse.isTimedOut()) {
+      throw new IndexException(
+          format(
+              "Timeout searching counting docs in index(es) '%s'  with query '%s'.",
+              toString(indexes), query));
+    }
   }
 
   private SearchRequestBuilder createSearchRequest(
@@ -420,6 +672,77 @@ public class ClientFacade implements Closeable {
     return searchRequest;
   }
 
+  /** Iterates over the hits of a query using search_after to retrieve pages after the first */
+  private class SearchAfterIterator extends AbstractIterator<SearchHit> {
+    private final QueryBuilder query;
+    private final int from;
+    private final Sort sort;
+    private final List<Index> indexes;
+
+    private int remaining;
+    private Iterator<org.elasticsearch.search.SearchHit> pageIterator;
+    private Object[] searchAfter;
+    private boolean lastPage;
+
+    SearchAfterIterator(
+        QueryBuilder query, int from, int size, @Nullable Sort sort, List<Index> indexes) {
+      this.query = query;
+      this.from = from;
+      this.sort = sort;
+      this.indexes = indexes;
+      this.remaining = size != 0 ? size : Integer.MAX_VALUE;
+      this.pageIterator = emptyIterator();
+    }
+
+    @Override
+    protected SearchHit computeNext() {
+      if (!pageIterator.hasNext()) {
+        if (lastPage || remaining == 0) {
+          return endOfData();
+        }
+        pageIterator = searchPage();
+        if (!pageIterator.hasNext()) {
+          return endOfData();
+        }
+      }
+      org.elasticsearch.search.SearchHit hit = pageIterator.next();
+      searchAfter = hit.getSortValues();
+      remaining--;
+      return SearchHit.create(hit.getId(), hit.getIndex());
+    }
+
+    private Iterator<org.elasticsearch.search.SearchHit> searchPage() {
+      int size = Math.min(remaining, MAX_BATCH_SIZE);
+      if (LOG.isTraceEnabled()) {
+        LOG.trace(
+            "Searching {} docs after {} in index(es) '{}' with query '{}' sorted by '{}' ...",
+            size,
+            searchAfter != null ? Arrays.toString(searchAfter) : from,
+            ClientFacade.this.toString(indexes),
+            query,
+            sort);
+      }
+
+      SearchRequestBuilder searchRequest;
+      if (searchAfter == null) {
+        searchRequest = createSearchRequest(query, from, size, sort, null, indexes);
+      } else {
+        searchRequest = createSearchRequest(query, null, size, sort, null, indexes);
+        searchRequest.searchAfter(searchAfter);
+      }
+      if (sort == null) {
+        // explicit sorts replace the default sort on relevance
+        searchRequest.addSort(SortBuilders.scoreSort());
+      }
+      searchRequest.addSort(SortBuilders.fieldSort(UidFieldMapper.NAME));
+
+      SearchResponse searchResponse = executeSearch(searchRequest, query, sort, indexes);
+      org.elasticsearch.search.SearchHit[] hits = searchResponse.getHits().getHits();
+      lastPage = hits.length < size;
+      return Iterators.forArray(hits);
+    }
+  }
+
   private SearchHits createSearchResponse(SearchResponse searchResponse) {
     org.elasticsearch.search.SearchHits searchHits = searchResponse.getHits();
     List<SearchHit> searchHitList =
@@ -613,12 +936,22 @@ public class ClientFacade implements Closeable {
   }
 
   public void processDocumentActions(Stream<DocumentAction> documentActions) {
+    processDocumentActions(documentActions, null);
+  }
+
+  /**
+   * Processes document actions in the given target index instead of the index of the actions. The
+   * document type remains the name of the action index, which allows populating a new index that
+   * will replace the action index behind an alias.
+   */
+  public void processDocumentActions(
+      Stream<DocumentAction> documentActions, @Nullable Index targetIndex) {
     LOG.trace("Processing document actions ...");
     BulkProcessor bulkProcessor = bulkProcessorFactory.create(client);
     try {
       documentActions.forEachOrdered(
           documentAction -> {
-            DocWriteRequest docWriteRequest = toDocWriteRequest(documentAction);
+            DocWriteRequest docWriteRequest = toDocWriteRequest(documentAction, targetIndex);
             bulkProcessor.add(docWriteRequest);
           });
     } finally {
@@ -627,8 +960,10 @@ public class ClientFacade implements Closeable {
     }
   }
 
-  private DocWriteRequest toDocWriteRequest(DocumentAction documentAction) {
-    String indexName = documentAction.getIndex().getName();
+  private DocWriteRequest toDocWriteRequest(
+      DocumentAction documentAction, @Nullable Index targetIndex) {
+    String typeName = documentAction.getIndex().getName();
+    String indexName = targetIndex != null ? targetIndex.getName() : typeName;
     String documentId = documentAction.getDocument().getId();
 
     DocWriteRequest docWriteRequest;
@@ -641,13 +976,13 @@ public class ClientFacade implements Closeable {
         }
         docWriteRequest =
             Requests.indexRequest(indexName)
-                .type(indexName)
+                .type(typeName)
                 .id(documentId)
                 .source(source)
                 .opType(INDEX);
         break;
       case DELETE:
-        docWriteRequest = Requests.deleteRequest(indexName).type(indexName).id(documentId);
+        docWriteRequest = Requests.deleteRequest(indexName).type(typeName).id(documentId);
         break;
       default:
         throw new UnexpectedEnumException(documentAction.getOperation());
@@ -16,6 +16,7 @@ class SettingsContentBuilder {
   public static final String CI_NORMALIZER = "lowercase_asciifold";
   private static final String DEFAULT_STEMMER = "default_stemmer";
   public static final String FILTER = "filter";
+  static final String REFRESH_DISABLED = "-1";
 
   private final XContentType xContentType;
 
@@ -49,6 +50,9 @@ class SettingsContentBuilder {
 
     contentBuilder.field("number_of_shards", indexSettings.getNumberOfShards());
     contentBuilder.field("number_of_replicas", indexSettings.getNumberOfReplicas());
+    if (!indexSettings.isRefreshEnabled()) {
+      contentBuilder.field("refresh_interval", REFRESH_DISABLED);
+    }
     createMapperSettings(contentBuilder);
     createMappingSettings(contentBuilder);
     createAnalysisSettings(contentBuilder);
@@ -0,0 +1,43 @@
+package org.molgenis.data.elasticsearch.client.model;
+
+import com.google.auto.value.AutoValue;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.molgenis.data.elasticsearch.generator.model.Sort;
+
+/** Query that is part of a multi search request. */
+@AutoValue
+@SuppressWarnings("java:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class SearchQuery {
+  public abstract QueryBuilder getQuery();
+
+  public abstract int getFrom();
+
+  public abstract int getSize();
+
+  @Nullable
+  @CheckForNull
+  public abstract Sort getSort();
+
+  public static SearchQuery create(QueryBuilder newQuery, int newFrom, int newSize, Sort newSort) {
+    return builder().setQuery(newQuery).setFrom(newFrom).setSize(newSize).setSort(newSort).build();
+  }
+
+  public static Builder builder() {
+    return new AutoValue_SearchQuery.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setQuery(QueryBuilder newQuery);
+
+    public abstract Builder setFrom(int newFrom);
+
+    public abstract Builder setSize(int newSize);
+
+    public abstract Builder setSort(Sort newSort);
+
+    public abstract SearchQuery build();
+  }
+}
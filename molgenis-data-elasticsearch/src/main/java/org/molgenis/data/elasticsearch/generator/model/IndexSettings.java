@@ -14,6 +14,9 @@ public abstract class IndexSettings {
   /** The number of replica shards. */
   public abstract int getNumberOfReplicas();
 
+  /** Whether changes are periodically made visible to search, disable while bulk indexing. */
+  public abstract boolean isRefreshEnabled();
+
   public static IndexSettings create() {
     return builder().build();
   }
@@ -28,7 +31,8 @@ public abstract class IndexSettings {
   public static Builder builder() {
     return new AutoValue_IndexSettings.Builder()
         .setNumberOfShards(DEFAULT_NUMBER_OF_SHARDS)
-        .setNumberOfReplicas(DEFAULT_NUMBER_OF_REPLICAS);
+        .setNumberOfReplicas(DEFAULT_NUMBER_OF_REPLICAS)
+        .setRefreshEnabled(true);
   }
 
   @AutoValue.Builder
@@ -37,6 +41,8 @@ public abstract class IndexSettings {
 
     public abstract Builder setNumberOfReplicas(int newNumberOfReplicas);
 
+    public abstract Builder setRefreshEnabled(boolean newRefreshEnabled);
+
     public abstract IndexSettings build();
   }
 }
@@ -1,16 +1,22 @@
 package org.molgenis.data.elasticsearch;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
-import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
+import static org.molgenis.data.meta.AttributeType.INT;
 
+import java.util.List;
+import java.util.stream.Stream;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -18,10 +24,16 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisQueryException;
+import org.molgenis.data.Query;
+import org.molgenis.data.Repository;
 import org.molgenis.data.elasticsearch.client.ClientFacade;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
 import org.molgenis.data.elasticsearch.client.model.SearchHits;
+import org.molgenis.data.elasticsearch.client.model.SearchQuery;
 import org.molgenis.data.elasticsearch.generator.ContentGenerators;
+import org.molgenis.data.elasticsearch.generator.model.Index;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.test.AbstractMockitoTest;
@@ -38,9 +50,13 @@ class ElasticsearchServiceTest extends AbstractMockitoTest {
 
   @Mock private EntityType entityType;
 
+  @Mock private PartitionedIndexRebuilder partitionedIndexRebuilder;
+
   @BeforeEach
   void setUpBeforeMethod() {
-    elasticsearchService = new ElasticsearchService(clientFacade, contentGenerators, dataService);
+    elasticsearchService =
+        new ElasticsearchService(
+            clientFacade, contentGenerators, dataService, partitionedIndexRebuilder);
   }
 
   @Test
@@ -50,22 +66,11 @@ class ElasticsearchServiceTest extends AbstractMockitoTest {
     when(query.getPageSize()).thenReturn(0);
     when(query.getOffset()).thenReturn(0);
 
-    SearchHits searchHitsBatch = mock(SearchHits.class);
-    when(searchHitsBatch.getHits()).thenReturn(asList(new SearchHit[10000]));
-
-    SearchHits finalSearchHitsBatch = mock(SearchHits.class);
-    when(finalSearchHitsBatch.getHits()).thenReturn(asList(new SearchHit[5000]));
-
-    when(clientFacade.search(any(), eq(0), eq(10000), any(), any())).thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(10000), anyInt(), any(), any())).thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(20000), anyInt(), any(), any()))
-        .thenReturn(finalSearchHitsBatch);
+    when(clientFacade.searchAll(any(), eq(0), eq(0), any(), any())).thenReturn(Stream.empty());
 
     elasticsearchService.search(entityType, query);
 
-    verify(clientFacade, times(1)).search(any(), eq(0), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(10000), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(20000), eq(MAX_BATCH_SIZE), any(), any());
+    verify(clientFacade, times(1)).searchAll(any(), eq(0), eq(0), any(), any());
     verifyNoMoreInteractions(clientFacade);
   }
 
@@ -94,21 +99,62 @@ class ElasticsearchServiceTest extends AbstractMockitoTest {
     when(query.getPageSize()).thenReturn(10001);
     when(query.getOffset()).thenReturn(5000);
 
-    SearchHits searchHitsBatch = mock(SearchHits.class);
-    when(searchHitsBatch.getHits()).thenReturn(asList(new SearchHit[10000]));
+    when(clientFacade.searchAll(any(), eq(5000), eq(10001), any(), any()))
+        .thenReturn(Stream.empty());
 
-    SearchHits finalSearchHitsBatch = mock(SearchHits.class);
-    when(finalSearchHitsBatch.getHits()).thenReturn(asList(new SearchHit[1]));
+    elasticsearchService.search(entityType, query);
 
-    when(clientFacade.search(any(), eq(5000), eq(MAX_BATCH_SIZE), any(), any()))
-        .thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(15000), eq(1), any(), any()))
-        .thenReturn(finalSearchHitsBatch);
+    verify(clientFacade, times(1)).searchAll(any(), eq(5000), eq(10001), any(), any());
+    verifyNoMoreInteractions(clientFacade);
+  }
 
-    elasticsearchService.search(entityType, query);
+  @Test
+  void testMultiSearch() {
+    Attribute idAttribute = mock(Attribute.class);
+    when(idAttribute.getDataType()).thenReturn(INT);
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    Query<Entity> query = new QueryImpl<Entity>().eq("attr", "value").pageSize(10);
+    Query<Entity> otherQuery =
+        new QueryImpl<Entity>().eq("attr", "otherValue").offset(5).pageSize(20);
+    QueryBuilder queryBuilder = mock(QueryBuilder.class);
+    QueryBuilder otherQueryBuilder = mock(QueryBuilder.class);
+    when(contentGenerators.createQuery(query, entityType)).thenReturn(queryBuilder);
+    when(contentGenerators.createQuery(otherQuery, entityType)).thenReturn(otherQueryBuilder);
+    List<SearchQuery> searchQueries =
+        asList(
+            SearchQuery.create(queryBuilder, 0, 10, null),
+            SearchQuery.create(otherQueryBuilder, 5, 20, null));
+    when(clientFacade.multiSearch(searchQueries, index))
+        .thenReturn(
+            asList(
+                SearchHits.create(
+                    2, asList(SearchHit.create("1", "index"), SearchHit.create("2", "index"))),
+                SearchHits.create(0, emptyList())));
+
+    assertEquals(
+        asList(asList(1, 2), emptyList()),
+        elasticsearchService.multiSearch(entityType, asList(query, otherQuery)));
+  }
+
+  @Test
+  void testMultiSearchPageSizeZero() {
+    List<Query<Entity>> queries = singletonList(new QueryImpl<Entity>().eq("attr", "value"));
+    assertThrows(
+        MolgenisQueryException.class, () -> elasticsearchService.multiSearch(entityType, queries));
+    verifyNoMoreInteractions(clientFacade);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testRebuildIndexPartitioned() {
+    Repository<Entity> repository = mock(Repository.class);
+    when(partitionedIndexRebuilder.isApplicable(repository)).thenReturn(true);
+
+    elasticsearchService.rebuildIndex(repository);
 
-    verify(clientFacade, times(1)).search(any(), eq(5000), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(15000), eq(1), any(), any());
+    verify(partitionedIndexRebuilder).rebuildIndex(repository);
     verifyNoMoreInteractions(clientFacade);
   }
 }
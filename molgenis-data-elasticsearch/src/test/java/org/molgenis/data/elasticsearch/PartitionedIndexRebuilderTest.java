@@ -0,0 +1,273 @@
+package org.molgenis.data.elasticsearch;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.RepositoryCapability.QUERYABLE;
+import static org.molgenis.data.RepositoryCapability.WRITABLE;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.QueryRule.Operator;
+import org.molgenis.data.Repository;
+import org.molgenis.data.elasticsearch.client.ClientFacade;
+import org.molgenis.data.elasticsearch.generator.ContentGenerators;
+import org.molgenis.data.elasticsearch.generator.model.Index;
+import org.molgenis.data.elasticsearch.generator.model.IndexSettings;
+import org.molgenis.data.elasticsearch.generator.model.Mapping;
+import org.molgenis.data.index.exception.IndexException;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.QueryCursors;
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+class PartitionedIndexRebuilderTest extends AbstractMockitoTest {
+  @Mock private ClientFacade clientFacade;
+  @Mock private ContentGenerators contentGenerators;
+  @Mock private Repository<Entity> repository;
+  private ReadOnlyTransactionManager transactionManager;
+  private AtomicInteger nrCursorQueries;
+  private PartitionedIndexRebuilder partitionedIndexRebuilder;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    transactionManager = new ReadOnlyTransactionManager();
+    nrCursorQueries = new AtomicInteger();
+    partitionedIndexRebuilder =
+        new PartitionedIndexRebuilder(clientFacade, contentGenerators, transactionManager, 2, 2);
+  }
+
+  @AfterEach
+  void tearDownAfterEach() {
+    partitionedIndexRebuilder.preDestroy();
+  }
+
+  @Test
+  void testPartitionedIndexRebuilderInvalidThreads() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new PartitionedIndexRebuilder(
+                clientFacade, contentGenerators, transactionManager, 0, 2));
+  }
+
+  @Test
+  void testIsApplicable() {
+    when(repository.getCapabilities()).thenReturn(ImmutableSet.of(QUERYABLE));
+    when(repository.count()).thenReturn(3L);
+    assertTrue(partitionedIndexRebuilder.isApplicable(repository));
+  }
+
+  @Test
+  void testIsApplicableSinglePartition() {
+    when(repository.getCapabilities()).thenReturn(ImmutableSet.of(QUERYABLE));
+    when(repository.count()).thenReturn(2L);
+    assertFalse(partitionedIndexRebuilder.isApplicable(repository));
+  }
+
+  @Test
+  void testIsApplicableNotQueryable() {
+    when(repository.getCapabilities()).thenReturn(ImmutableSet.of(WRITABLE));
+    assertFalse(partitionedIndexRebuilder.isApplicable(repository));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testRebuildIndex() {
+    Index alias = setUpRepository();
+    Index oldIndex = Index.create("entity_0");
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(singletonList(oldIndex));
+
+    partitionedIndexRebuilder.rebuildIndex(repository);
+
+    ArgumentCaptor<Index> indexCaptor = ArgumentCaptor.forClass(Index.class);
+    verify(clientFacade)
+        .createIndex(
+            indexCaptor.capture(),
+            eq(IndexSettings.builder().setRefreshEnabled(false).build()),
+            any(Stream.class));
+    Index index = indexCaptor.getValue();
+    assertTrue(index.getName().startsWith("entity_"));
+    verify(clientFacade, times(3)).processDocumentActions(any(Stream.class), eq(index));
+    verify(clientFacade).updateIndexSettings(index, IndexSettings.create());
+    verify(clientFacade).swapAlias(alias, index, singletonList(oldIndex));
+    verify(clientFacade).deleteIndex(oldIndex);
+
+    ArgumentCaptor<Query<Entity>> queryCaptor = ArgumentCaptor.forClass(Query.class);
+    verify(repository, times(4)).findAll(queryCaptor.capture());
+    // partitions are queried concurrently after the id query
+    Set<List<QueryRule>> partitionRules =
+        queryCaptor.getAllValues().subList(1, 4).stream().map(Query::getRules).collect(toSet());
+    assertEquals(
+        Set.of(
+            singletonList(new QueryRule("id", Operator.LESS, "c")),
+            List.of(
+                new QueryRule("id", Operator.GREATER_EQUAL, "c"),
+                new QueryRule(Operator.AND),
+                new QueryRule("id", Operator.LESS, "e")),
+            singletonList(new QueryRule("id", Operator.GREATER_EQUAL, "e"))),
+        partitionRules);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testRebuildIndexQueryCursors() {
+    Index alias = setUpRepository();
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(List.of());
+
+    partitionedIndexRebuilder.rebuildIndex(repository);
+
+    // a single cursor query for the id scan and for each of the three partitions
+    verify(repository, times(4)).findAll(any(Query.class));
+    assertEquals(4, nrCursorQueries.get());
+    assertEquals(4, transactionManager.getNrTransactions());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testRebuildIndexReplacesIndexWithAliasName() {
+    Index alias = setUpRepository();
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(List.of());
+    when(clientFacade.indexesExist(alias)).thenReturn(true);
+
+    partitionedIndexRebuilder.rebuildIndex(repository);
+
+    // the index with the alias name is only deleted when the alias is created
+    verify(clientFacade).replaceIndexWithAlias(eq(alias), any(Index.class));
+    verify(clientFacade, never()).deleteIndex(any());
+    verify(clientFacade, never()).swapAlias(any(), any(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testRebuildIndexSwapAliasFails() {
+    Index alias = setUpRepository();
+    Index oldIndex = Index.create("entity_0");
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(singletonList(oldIndex));
+    IndexException indexException = new IndexException("error");
+    doThrow(indexException)
+        .when(clientFacade)
+        .swapAlias(eq(alias), any(Index.class), eq(singletonList(oldIndex)));
+
+    Exception exception =
+        assertThrows(
+            IndexException.class, () -> partitionedIndexRebuilder.rebuildIndex(repository));
+    assertSame(indexException, exception);
+
+    // the new index is deleted and the index the alias points to is kept
+    ArgumentCaptor<Index> indexCaptor = ArgumentCaptor.forClass(Index.class);
+    verify(clientFacade)
+        .createIndex(indexCaptor.capture(), any(IndexSettings.class), any(Stream.class));
+    verify(clientFacade).deleteIndex(indexCaptor.getValue());
+    verify(clientFacade, never()).deleteIndex(oldIndex);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testRebuildIndexPartitionFails() {
+    setUpRepository();
+    IndexException indexException = new IndexException("error");
+    doThrow(indexException)
+        .when(clientFacade)
+        .processDocumentActions(any(Stream.class), any(Index.class));
+
+    Exception exception =
+        assertThrows(
+            IndexException.class, () -> partitionedIndexRebuilder.rebuildIndex(repository));
+    assertSame(indexException, exception);
+
+    ArgumentCaptor<Index> indexCaptor = ArgumentCaptor.forClass(Index.class);
+    verify(clientFacade).deleteIndex(indexCaptor.capture());
+    assertTrue(indexCaptor.getValue().getName().startsWith("entity_"));
+    verify(clientFacade, never()).swapAlias(any(), any(), any());
+  }
+
+  /** Sets up a repository with ids 'a' to 'e', which results in three partitions of size two */
+  private Index setUpRepository() {
+    EntityType entityType = mock(EntityType.class);
+    Attribute idAttribute = mock(Attribute.class);
+    when(idAttribute.getName()).thenReturn("id");
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(repository.getEntityType()).thenReturn(entityType);
+
+    Index alias = Index.create("entity");
+    when(contentGenerators.createIndex(entityType)).thenReturn(alias);
+    when(contentGenerators.createMapping(entityType)).thenReturn(mock(Mapping.class));
+
+    // only the ids of the first entity of each partition after the first partition are retrieved
+    Entity[] entities = {
+      mock(Entity.class),
+      mock(Entity.class),
+      createEntity("c"),
+      mock(Entity.class),
+      createEntity("e")
+    };
+    when(repository.findAll(any(Query.class)))
+        .thenAnswer(
+            invocation -> {
+              if (QueryCursors.isAllowed()) {
+                nrCursorQueries.incrementAndGet();
+              }
+              Query<Entity> query = invocation.getArgument(0);
+              return query.getSort() != null ? Stream.of(entities) : Stream.empty();
+            });
+    return alias;
+  }
+
+  private Entity createEntity(String id) {
+    Entity entity = mock(Entity.class);
+    when(entity.getIdValue()).thenReturn(id);
+    return entity;
+  }
+
+  /** Transaction manager that only manages transaction synchronization and is thread-safe */
+  private static class ReadOnlyTransactionManager extends AbstractPlatformTransactionManager {
+    private final AtomicInteger nrTransactions = new AtomicInteger();
+
+    int getNrTransactions() {
+      return nrTransactions.get();
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+      return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+      assertTrue(definition.isReadOnly());
+      nrTransactions.incrementAndGet();
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {}
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {}
+  }
+}
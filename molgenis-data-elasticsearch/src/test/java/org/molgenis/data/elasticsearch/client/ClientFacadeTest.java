@@ -4,26 +4,40 @@ import static ch.qos.logback.classic.Level.DEBUG;
 import static ch.qos.logback.classic.Level.ERROR;
 import static ch.qos.logback.classic.Level.TRACE;
 import static ch.qos.logback.classic.Level.WARN;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import java.util.stream.Stream;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ResourceAlreadyExistsException;
 import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequestBuilder;
@@ -31,12 +45,15 @@ import org.elasticsearch.action.admin.indices.delete.DeleteIndexResponse;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequestBuilder;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequestBuilder;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.explain.ExplainRequestBuilder;
 import org.elasticsearch.action.explain.ExplainResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.ShardSearchFailure;
@@ -46,17 +63,23 @@ import org.elasticsearch.client.AdminClient;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
+import org.molgenis.data.elasticsearch.client.model.SearchQuery;
 import org.molgenis.data.elasticsearch.generator.model.Document;
 import org.molgenis.data.elasticsearch.generator.model.FieldMapping;
 import org.molgenis.data.elasticsearch.generator.model.Index;
@@ -93,6 +116,12 @@ class ClientFacadeTest {
 
   @Mock private RefreshResponse refreshResponse;
 
+  @Mock private UpdateSettingsRequestBuilder updateSettingsRequestBuilder;
+
+  @Mock private IndicesAliasesRequestBuilder indicesAliasesRequestBuilder;
+
+  @Mock private IndicesAliasesResponse indicesAliasesResponse;
+
   @Mock private SearchRequestBuilder searchRequestBuilder;
 
   @Mock private SearchResponse searchResponse;
@@ -166,6 +195,9 @@ class ClientFacadeTest {
         deleteIndexResponse,
         refreshRequestBuilder,
         refreshResponse,
+        updateSettingsRequestBuilder,
+        indicesAliasesRequestBuilder,
+        indicesAliasesResponse,
         searchRequestBuilder,
         searchResponse,
         queryBuilder,
@@ -452,6 +484,114 @@ class ClientFacadeTest {
         .containsPattern("Error searching docs in index\\(es\\) 'index' with query 'a == b'\\.");
   }
 
+  @Test
+  void testMultiSearch() {
+    Index index = Index.create("index");
+
+    SearchResponse otherSearchResponse = mock(SearchResponse.class);
+    MultiSearchRequestBuilder multiSearchRequestBuilder = mock(MultiSearchRequestBuilder.class);
+    MultiSearchResponse multiSearchResponse = mock(MultiSearchResponse.class);
+    when(client.prepareMultiSearch()).thenReturn(multiSearchRequestBuilder);
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(multiSearchRequestBuilder.get()).thenReturn(multiSearchResponse);
+    when(multiSearchResponse.getResponses())
+        .thenReturn(
+            new MultiSearchResponse.Item[] {
+              new MultiSearchResponse.Item(searchResponse, null),
+              new MultiSearchResponse.Item(otherSearchResponse, null)
+            });
+    when(searchResponse.getHits())
+        .thenReturn(
+            new SearchHits(
+                new org.elasticsearch.search.SearchHit[] {createSearchHit("id0", new Object[0])},
+                1,
+                1f));
+    when(otherSearchResponse.getHits())
+        .thenReturn(new SearchHits(new org.elasticsearch.search.SearchHit[0], 0, 1f));
+
+    List<org.molgenis.data.elasticsearch.client.model.SearchHits> searchHits =
+        clientFacade.multiSearch(
+            asList(
+                SearchQuery.create(queryBuilder, 0, 10, null),
+                SearchQuery.create(queryBuilder, 5, 20, null)),
+            index);
+
+    assertEquals(
+        asList(
+            org.molgenis.data.elasticsearch.client.model.SearchHits.create(
+                1, singletonList(SearchHit.create("id0", "index"))),
+            org.molgenis.data.elasticsearch.client.model.SearchHits.create(0, emptyList())),
+        searchHits);
+    verify(multiSearchRequestBuilder, times(2)).add(searchRequestBuilder);
+    verify(searchRequestBuilder).setFrom(5);
+    verify(searchRequestBuilder).setSize(20);
+  }
+
+  @Test
+  void testMultiSearchNoQueries() {
+    assertEquals(emptyList(), clientFacade.multiSearch(emptyList(), Index.create("index")));
+  }
+
+  @Test
+  void testMultiSearchItemIndexNotFound() {
+    Index index = Index.create("index");
+
+    MultiSearchRequestBuilder multiSearchRequestBuilder = mock(MultiSearchRequestBuilder.class);
+    MultiSearchResponse multiSearchResponse = mock(MultiSearchResponse.class);
+    when(client.prepareMultiSearch()).thenReturn(multiSearchRequestBuilder);
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(multiSearchRequestBuilder.get()).thenReturn(multiSearchResponse);
+    when(multiSearchResponse.getResponses())
+        .thenReturn(
+            new MultiSearchResponse.Item[] {
+              new MultiSearchResponse.Item(null, new ResourceNotFoundException("Exception"))
+            });
+
+    List<SearchQuery> queries = singletonList(SearchQuery.create(queryBuilder, 0, 10, null));
+    Exception exception =
+        assertThrows(UnknownIndexException.class, () -> clientFacade.multiSearch(queries, index));
+    assertThat(exception.getMessage()).containsPattern("One or more indexes 'index' not found\\.");
+  }
+
+  @Test
+  void testMultiSearchItemFailedShards() {
+    Index index = Index.create("index");
+
+    MultiSearchRequestBuilder multiSearchRequestBuilder = mock(MultiSearchRequestBuilder.class);
+    MultiSearchResponse multiSearchResponse = mock(MultiSearchResponse.class);
+    when(client.prepareMultiSearch()).thenReturn(multiSearchRequestBuilder);
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(multiSearchRequestBuilder.get()).thenReturn(multiSearchResponse);
+    when(multiSearchResponse.getResponses())
+        .thenReturn(
+            new MultiSearchResponse.Item[] {new MultiSearchResponse.Item(searchResponse, null)});
+    when(searchResponse.getFailedShards()).thenReturn(1);
+    when(searchResponse.getShardFailures()).thenReturn(singleShardSearchFailure);
+    when(queryBuilder.toString()).thenReturn("a == b");
+
+    List<SearchQuery> queries = singletonList(SearchQuery.create(queryBuilder, 0, 10, null));
+    Exception exception =
+        assertThrows(IndexException.class, () -> clientFacade.multiSearch(queries, index));
+    assertThat(exception.getMessage())
+        .containsPattern("Error searching docs in index\\(es\\) 'index' with query 'a == b'\\.");
+  }
+
+  @Test
+  void testMultiSearchThrowsException() {
+    Index index = Index.create("index");
+
+    MultiSearchRequestBuilder multiSearchRequestBuilder = mock(MultiSearchRequestBuilder.class);
+    when(client.prepareMultiSearch()).thenReturn(multiSearchRequestBuilder);
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(multiSearchRequestBuilder.get()).thenThrow(new ElasticsearchException("Exception"));
+
+    List<SearchQuery> queries = singletonList(SearchQuery.create(queryBuilder, 0, 10, null));
+    Exception exception =
+        assertThrows(IndexException.class, () -> clientFacade.multiSearch(queries, index));
+    assertThat(exception.getMessage())
+        .containsPattern("Error searching docs in index\\(es\\) 'index' with 1 queries\\.");
+  }
+
   @Test
   void testAggregateThrowsException() {
     Index index = Index.create("index");
@@ -642,6 +782,129 @@ class ClientFacadeTest {
     assertThat(exception.getMessage()).containsPattern("Index 'index' not found\\.");
   }
 
+  @Test
+  void testUpdateIndexSettingsThrowsException() {
+    Index index = Index.create("index");
+
+    when(indicesAdminClient.prepareUpdateSettings("index"))
+        .thenReturn(updateSettingsRequestBuilder);
+    when(updateSettingsRequestBuilder.setSettings(any(Settings.Builder.class)))
+        .thenReturn(updateSettingsRequestBuilder);
+    when(updateSettingsRequestBuilder.get()).thenThrow(new ElasticsearchException("exception"));
+
+    Exception exception =
+        assertThrows(
+            IndexException.class,
+            () -> clientFacade.updateIndexSettings(index, IndexSettings.create()));
+    assertThat(exception.getMessage())
+        .containsPattern("Error updating settings of index 'index'\\.");
+  }
+
+  @Test
+  void testSwapAliasNotAcknowledged() {
+    Index alias = Index.create("alias");
+    Index index = Index.create("index");
+
+    when(indicesAdminClient.prepareAliases()).thenReturn(indicesAliasesRequestBuilder);
+    when(indicesAliasesRequestBuilder.get()).thenReturn(indicesAliasesResponse);
+    when(indicesAliasesResponse.isAcknowledged()).thenReturn(false);
+
+    Exception exception =
+        assertThrows(
+            IndexException.class,
+            () -> clientFacade.swapAlias(alias, index, singletonList(Index.create("old"))));
+    assertThat(exception.getMessage())
+        .containsPattern("Error moving alias 'alias' to index 'index'\\.");
+    verify(indicesAliasesRequestBuilder).removeAlias("old", "alias");
+    verify(indicesAliasesRequestBuilder).addAlias("index", "alias");
+  }
+
+  @Test
+  void testReplaceIndexWithAlias() {
+    Index alias = Index.create("alias");
+    Index index = Index.create("index");
+
+    when(indicesAdminClient.prepareAliases()).thenReturn(indicesAliasesRequestBuilder);
+    when(indicesAliasesRequestBuilder.get()).thenReturn(indicesAliasesResponse);
+    when(indicesAliasesResponse.isAcknowledged()).thenReturn(true);
+
+    clientFacade.replaceIndexWithAlias(alias, index);
+
+    verify(indicesAliasesRequestBuilder).addAlias("index", "alias");
+    ArgumentCaptor<AliasActions> aliasActionsCaptor = ArgumentCaptor.forClass(AliasActions.class);
+    verify(indicesAliasesRequestBuilder).addAliasAction(aliasActionsCaptor.capture());
+    AliasActions aliasActions = aliasActionsCaptor.getValue();
+    assertEquals(AliasActions.Type.REMOVE_INDEX, aliasActions.actionType());
+    assertArrayEquals(new String[] {"alias"}, aliasActions.indices());
+  }
+
+  @Test
+  void testSearchAll() {
+    Index index = Index.create("index");
+
+    org.elasticsearch.search.SearchHit[] firstPageHits =
+        new org.elasticsearch.search.SearchHit[MAX_BATCH_SIZE];
+    for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+      firstPageHits[i] = createSearchHit("id" + i, new Object[] {i});
+    }
+    org.elasticsearch.search.SearchHit[] secondPageHits = {
+      createSearchHit("id" + MAX_BATCH_SIZE, new Object[] {MAX_BATCH_SIZE})
+    };
+
+    SearchResponse secondSearchResponse = mock(SearchResponse.class);
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenReturn(searchResponse, secondSearchResponse);
+    when(searchResponse.getHits())
+        .thenReturn(new SearchHits(firstPageHits, MAX_BATCH_SIZE + 1L, 1f));
+    when(secondSearchResponse.getHits())
+        .thenReturn(new SearchHits(secondPageHits, MAX_BATCH_SIZE + 1L, 1f));
+
+    List<SearchHit> searchHits =
+        clientFacade.searchAll(queryBuilder, 5, 0, null, index).collect(toList());
+
+    assertEquals(MAX_BATCH_SIZE + 1, searchHits.size());
+    assertEquals(SearchHit.create("id10000", "index"), searchHits.get(MAX_BATCH_SIZE));
+    verify(searchRequestBuilder).setFrom(5);
+    verify(searchRequestBuilder, times(2)).setSize(MAX_BATCH_SIZE);
+    verify(searchRequestBuilder).searchAfter(aryEq(new Object[] {MAX_BATCH_SIZE - 1}));
+    verify(searchRequestBuilder, times(2)).addSort(SortBuilders.scoreSort());
+    verify(searchRequestBuilder, times(2)).addSort(SortBuilders.fieldSort("_uid"));
+  }
+
+  @Test
+  void testSearchAllSize() {
+    Index index = Index.create("index");
+
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenReturn(searchResponse);
+    when(searchResponse.getHits())
+        .thenReturn(
+            new SearchHits(
+                new org.elasticsearch.search.SearchHit[] {
+                  createSearchHit("id0", new Object[] {0}), createSearchHit("id1", new Object[] {1})
+                },
+                3,
+                1f));
+
+    List<SearchHit> searchHits =
+        clientFacade.searchAll(queryBuilder, 0, 2, null, index).collect(toList());
+
+    assertEquals(
+        asList(SearchHit.create("id0", "index"), SearchHit.create("id1", "index")), searchHits);
+    verify(searchRequestBuilder).setSize(2);
+    verify(searchRequestBuilder).get();
+  }
+
+  private static org.elasticsearch.search.SearchHit createSearchHit(
+      String id, Object[] sortValues) {
+    org.elasticsearch.search.SearchHit searchHit =
+        new org.elasticsearch.search.SearchHit(0, id, new Text("type"), emptyMap());
+    searchHit.shard(
+        new SearchShardTarget("node", new org.elasticsearch.index.Index("index", "uuid"), 0));
+    searchHit.sortValues(sortValues, new DocValueFormat[] {DocValueFormat.RAW});
+    return searchHit;
+  }
+
   @Test
   void testCloseThrowsException() throws Exception {
     doThrow(new ElasticsearchException("exception")).when(client).close();
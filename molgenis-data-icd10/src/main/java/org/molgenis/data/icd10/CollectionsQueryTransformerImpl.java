@@ -7,9 +7,8 @@ import static java.util.stream.Collectors.toList;
 
 import com.google.common.collect.Streams;
 import com.google.common.graph.Traverser;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
-import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
@@ -20,11 +19,9 @@ public class CollectionsQueryTransformerImpl implements CollectionsQueryTransfor
   private static final Traverser<QueryRule> RULE_TRAVERSER = forTree(QueryRule::getNestedRules);
 
   private final Icd10ClassExpander icd10ClassExpander;
-  private final DataService dataService;
 
-  CollectionsQueryTransformerImpl(Icd10ClassExpander icd10ClassExpander, DataService dataService) {
+  CollectionsQueryTransformerImpl(Icd10ClassExpander icd10ClassExpander) {
     this.icd10ClassExpander = requireNonNull(icd10ClassExpander);
-    this.dataService = requireNonNull(dataService);
   }
 
   @Override
@@ -59,10 +56,14 @@ public class CollectionsQueryTransformerImpl implements CollectionsQueryTransfor
         throw new IllegalStateException("Can't expand queries other than IN or EQUALS");
     }
 
-    List<Entity> diseaseTypes =
-        dataService.findAll(icd10EntityTypeId, queryValues.stream()).collect(toList());
+    List<Object> diseaseClassIds =
+        queryValues.stream().map(CollectionsQueryTransformerImpl::toId).collect(toList());
+    rule.setValue(
+        new ArrayList<>(icd10ClassExpander.expandClassIds(icd10EntityTypeId, diseaseClassIds)));
+  }
 
-    rule.setValue(expandDiseaseTypes(diseaseTypes));
+  private static Object toId(Object queryValue) {
+    return queryValue instanceof Entity ? ((Entity) queryValue).getIdValue() : queryValue;
   }
 
   /**
@@ -76,9 +77,4 @@ public class CollectionsQueryTransformerImpl implements CollectionsQueryTransfor
         && (nestedRule.getOperator() == QueryRule.Operator.IN
             || nestedRule.getOperator() == QueryRule.Operator.EQUALS);
   }
-
-  /** Expand ICD-10 entities with all their children, grandchildren, etc. */
-  private Collection<Entity> expandDiseaseTypes(List<Entity> diseaseTypes) {
-    return icd10ClassExpander.expandClasses(diseaseTypes);
-  }
 }
@@ -1,9 +1,14 @@
 package org.molgenis.data.icd10;
 
 import java.util.Collection;
-import org.molgenis.data.Entity;
+import java.util.Set;
 
-/** Expands a list of 'eu_bbmri_eric_disease_types' entities to include all of their children. */
+/** Expands ICD-10 disease classes to include all of their children. */
 public interface Icd10ClassExpander {
-  Collection<Entity> expandClasses(Collection<Entity> diseaseClasses);
+  /**
+   * @param icd10EntityTypeId the EntityType that contains the ICD-10 identifiers
+   * @param diseaseClassIds identifiers of disease classes
+   * @return identifiers of the existing disease classes and all of their (indirect) children
+   */
+  Set<Object> expandClassIds(String icd10EntityTypeId, Collection<Object> diseaseClassIds);
 }
@@ -1,75 +1,167 @@
 package org.molgenis.data.icd10;
 
-import static java.util.stream.Collectors.toList;
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
 
-import com.google.common.collect.Streams;
-import com.google.common.collect.TreeTraverser;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.stream.Stream;
-import javax.annotation.Nonnull;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.security.exception.EntityTypePermissionDeniedException;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.security.core.UserPermissionEvaluator;
 import org.springframework.stereotype.Component;
 
+/**
+ * Expands disease classes using the transitive closure of the disease class hierarchy. The closure
+ * of an ICD-10 entity type is created with a single query and kept until a transaction on this or
+ * another node changes the entity type.
+ *
+ * <p>Closures contain all disease classes and are shared between users, so they are created as
+ * system user and the current user needs permission to read the ICD-10 entity type to use them.
+ */
 @Component
 public class Icd10ClassExpanderImpl implements Icd10ClassExpander {
   private static final String DISEASE_CLASS_CHILDREN_ATTRIBUTE_NAME = "children";
 
-  @Override
-  public Collection<Entity> expandClasses(Collection<Entity> diseaseClasses) {
-    return diseaseClasses.stream()
-        .flatMap(this::expandClass)
-        .map(this::toDiseaseClass)
-        .distinct()
-        .map(this::toEntity)
-        .collect(toList());
-  }
+  private final DataService dataService;
+  private final UserPermissionEvaluator userPermissionEvaluator;
 
-  private Stream<Entity> expandClass(Entity diseaseClass) {
-    Iterable<Entity> diseaseClasses =
-        new DiseaseClassTreeTraverser().postOrderTraversal(diseaseClass);
-    return Streams.stream(diseaseClasses);
-  }
+  /** ICD-10 entity types for which a closure was requested */
+  private final Set<String> icd10EntityTypeIds = ConcurrentHashMap.newKeySet();
 
-  private DiseaseClass toDiseaseClass(Entity entity) {
-    return new DiseaseClass(entity);
-  }
+  private final TransactionAwareCache<String, Map<Object, ImmutableSet<Object>>> cachedClosures;
 
-  private Entity toEntity(DiseaseClass diseaseClass) {
-    return diseaseClass.getEntity();
+  Icd10ClassExpanderImpl(
+      DataService dataService,
+      UserPermissionEvaluator userPermissionEvaluator,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus) {
+    this.dataService = requireNonNull(dataService);
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    this.cachedClosures =
+        new TransactionAwareCache<>(
+            icd10EntityTypeIds::contains,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus);
   }
 
-  /** Disease class entity wrapper with equals and hashCode implementation. */
-  private static class DiseaseClass {
-    private final Entity entity;
+  @Override
+  public Set<Object> expandClassIds(String icd10EntityTypeId, Collection<Object> diseaseClassIds) {
+    Map<Object, ImmutableSet<Object>> closure = getClosure(icd10EntityTypeId);
 
-    private DiseaseClass(Entity entity) {
-      this.entity = entity;
+    Set<Object> expandedClassIds = new LinkedHashSet<>();
+    for (Object diseaseClassId : diseaseClassIds) {
+      expandedClassIds.addAll(closure.getOrDefault(diseaseClassId, ImmutableSet.of()));
     }
+    return expandedClassIds;
+  }
 
-    private Entity getEntity() {
-      return entity;
+  /**
+   * Returns the closure of an ICD-10 entity type. Closures are not cached in transactions that
+   * changed the entity type, since the cache would otherwise contain uncommitted disease classes.
+   */
+  private Map<Object, ImmutableSet<Object>> getClosure(String icd10EntityTypeId) {
+    if (!userPermissionEvaluator.hasPermission(
+        new EntityTypeIdentity(icd10EntityTypeId), READ_DATA)) {
+      throw new EntityTypePermissionDeniedException(READ_DATA, icd10EntityTypeId);
     }
 
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) return true;
-      if (o == null || getClass() != o.getClass()) return false;
+    icd10EntityTypeIds.add(icd10EntityTypeId);
+    return cachedClosures.get(icd10EntityTypeId, id -> runAsSystem(() -> createClosure(id)));
+  }
 
-      DiseaseClass that = (DiseaseClass) o;
+  /** @return map of disease class id to the ids of the disease class and all its descendants */
+  private Map<Object, ImmutableSet<Object>> createClosure(String icd10EntityTypeId) {
+    String idAttributeName =
+        dataService.getEntityType(icd10EntityTypeId).getIdAttribute().getName();
+    Fetch fetch =
+        new Fetch()
+            .field(idAttributeName)
+            .field(DISEASE_CLASS_CHILDREN_ATTRIBUTE_NAME, new Fetch().field(idAttributeName));
 
-      return entity.getIdValue().equals(that.entity.getIdValue());
-    }
+    Map<Object, List<Object>> childIds = new HashMap<>();
+    dataService
+        .findAll(icd10EntityTypeId, new QueryImpl<>().fetch(fetch))
+        .forEach(
+            diseaseClass -> {
+              List<Object> diseaseClassChildIds = new ArrayList<>();
+              for (Entity child : diseaseClass.getEntities(DISEASE_CLASS_CHILDREN_ATTRIBUTE_NAME)) {
+                diseaseClassChildIds.add(child.getIdValue());
+              }
+              childIds.put(diseaseClass.getIdValue(), diseaseClassChildIds);
+            });
 
-    @Override
-    public int hashCode() {
-      return entity.getIdValue().hashCode();
-    }
+    ImmutableMap.Builder<Object, ImmutableSet<Object>> closure = ImmutableMap.builder();
+    Map<Object, ImmutableSet<Object>> descendants = new HashMap<>();
+    childIds.keySet().forEach(id -> closure.put(id, getDescendants(id, childIds, descendants)));
+    return closure.build();
   }
 
-  private static class DiseaseClassTreeTraverser extends TreeTraverser<Entity> {
-    @Override
-    public Iterable<Entity> children(@Nonnull Entity diseaseClassEntity) {
-      return diseaseClassEntity.getEntities(DISEASE_CLASS_CHILDREN_ATTRIBUTE_NAME);
+  /**
+   * Returns the disease class and all its descendants, reusing the descendants of children that
+   * were already resolved. Disease classes can have multiple parents, so a child is resolved before
+   * its descendants are added to any of its parents.
+   */
+  private static ImmutableSet<Object> getDescendants(
+      Object id,
+      Map<Object, List<Object>> childIds,
+      Map<Object, ImmutableSet<Object>> descendants) {
+    ImmutableSet<Object> idDescendants = descendants.get(id);
+    if (idDescendants != null) {
+      return idDescendants;
+    }
+
+    // depth-first post-order traversal, children that are on the current path are ignored to guard
+    // against cyclic hierarchies
+    Deque<Object> path = new ArrayDeque<>();
+    Deque<Iterator<Object>> pathChildIds = new ArrayDeque<>();
+    Set<Object> visiting = new HashSet<>();
+    path.push(id);
+    pathChildIds.push(childIds.getOrDefault(id, List.of()).iterator());
+    visiting.add(id);
+    while (!path.isEmpty()) {
+      Iterator<Object> currentChildIds = pathChildIds.peek();
+      if (currentChildIds.hasNext()) {
+        Object childId = currentChildIds.next();
+        if (!descendants.containsKey(childId) && visiting.add(childId)) {
+          path.push(childId);
+          pathChildIds.push(childIds.getOrDefault(childId, List.of()).iterator());
+        }
+      } else {
+        Object currentId = path.pop();
+        pathChildIds.pop();
+        visiting.remove(currentId);
+
+        ImmutableSet.Builder<Object> currentDescendants = ImmutableSet.builder();
+        currentDescendants.add(currentId);
+        for (Object childId : childIds.getOrDefault(currentId, List.of())) {
+          currentDescendants.addAll(descendants.getOrDefault(childId, ImmutableSet.of(childId)));
+        }
+        descendants.put(currentId, currentDescendants.build());
+      }
     }
+    return descendants.get(id);
   }
 }
@@ -4,29 +4,216 @@ import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.icd10.Icd10ExpanderDecoratorTest.ICD10_ENTITY_TYPE_ID;
+import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.security.exception.EntityTypePermissionDeniedException;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.molgenis.security.core.runas.SystemSecurityToken;
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
-class Icd10ClassExpanderImplTest {
+class Icd10ClassExpanderImplTest extends AbstractMockitoTest {
+  @Mock private DataService dataService;
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
   private Icd10ClassExpanderImpl icd10ClassExpanderImpl;
+  private TransactionAwareCache<?, ?> cachedClosures;
 
+  @SuppressWarnings("unchecked")
   @BeforeEach
   void setUp() {
-    icd10ClassExpanderImpl = new Icd10ClassExpanderImpl();
+    icd10ClassExpanderImpl =
+        new Icd10ClassExpanderImpl(
+            dataService,
+            userPermissionEvaluator,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus);
+
+    ArgumentCaptor<TransactionAwareCache<?, ?>> cacheCaptor =
+        ArgumentCaptor.forClass(TransactionAwareCache.class);
+    verify(transactionManager).addTransactionListener(cacheCaptor.capture());
+    cachedClosures = cacheCaptor.getValue();
   }
 
   @SuppressWarnings("java:S1192") // using literal string multiple times
-  static Iterator<Object[]> testExpandClassesProvider() {
+  static Iterator<Object[]> testExpandClassIdsProvider() {
+    List<Object[]> dataList = new ArrayList<>();
+    dataList.add(new Object[] {singleton("A"), asList("A", "B", "C", "D", "E", "F", "G")});
+    dataList.add(new Object[] {singleton("B"), asList("B", "D", "E")});
+    dataList.add(new Object[] {singleton("C"), asList("C", "F", "G")});
+    dataList.add(new Object[] {singleton("D"), singleton("D")});
+    dataList.add(new Object[] {singleton("G"), singleton("G")});
+    dataList.add(new Object[] {asList("A", "B"), asList("A", "B", "C", "D", "E", "F", "G")});
+    dataList.add(new Object[] {asList("B", "C"), asList("B", "C", "D", "E", "F", "G")});
+    dataList.add(new Object[] {asList("D", "E"), asList("D", "E")});
+    dataList.add(new Object[] {asList("B", "D"), asList("B", "D", "E")});
+    dataList.add(new Object[] {asList("B", "unknown"), asList("B", "D", "E")});
+    return dataList.iterator();
+  }
+
+  @ParameterizedTest
+  @MethodSource("testExpandClassIdsProvider")
+  void testExpandClassIds(
+      Collection<Object> diseaseClassIds, Collection<Object> expectedExpandedDiseaseClassIds) {
+    setUpDiseaseClasses();
+    Set<Object> expandedDiseaseClassIds =
+        icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, diseaseClassIds);
+    assertEquals(newHashSet(expectedExpandedDiseaseClassIds), expandedDiseaseClassIds);
+  }
+
+  @Test
+  void testExpandClassIdsCyclicHierarchy() {
+    Entity entityA = createEntity("A");
+    Entity entityB = createEntity("B");
+    when(entityA.getEntities("children")).thenReturn(singletonList(entityB));
+    when(entityB.getEntities("children")).thenReturn(singletonList(entityA));
+    setUpEntityType();
+    when(dataService.findAll(eq(ICD10_ENTITY_TYPE_ID), any(Query.class)))
+        .thenReturn(Stream.of(entityA, entityB));
+
+    assertEquals(
+        newHashSet("A", "B"),
+        icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("B")));
+  }
+
+  @Test
+  void testExpandClassIdsMultipleParents() {
+    Entity entityA = createEntity("A");
+    Entity entityB = createEntity("B");
+    Entity entityC = createEntity("C");
+    Entity entityD = createEntity("D");
+    when(entityA.getEntities("children")).thenReturn(asList(entityB, entityC));
+    when(entityB.getEntities("children")).thenReturn(singletonList(entityD));
+    when(entityC.getEntities("children")).thenReturn(singletonList(entityB));
+    setUpEntityType();
+    when(dataService.findAll(eq(ICD10_ENTITY_TYPE_ID), any(Query.class)))
+        .thenReturn(Stream.of(entityA, entityB, entityC, entityD));
+
+    assertEquals(
+        newHashSet("C", "B", "D"),
+        icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("C")));
+    assertEquals(
+        newHashSet("A", "B", "C", "D"),
+        icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A")));
+  }
+
+  @Test
+  void testExpandClassIdsPermissionDenied() {
+    Set<Object> diseaseClassIds = singleton("A");
+    assertThrows(
+        EntityTypePermissionDeniedException.class,
+        () -> icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, diseaseClassIds));
+    verifyNoInteractions(dataService);
+  }
+
+  @Test
+  void testExpandClassIdsPermissionDeniedCached() {
+    setUpDiseaseClasses();
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+
+    when(userPermissionEvaluator.hasPermission(
+            new EntityTypeIdentity(ICD10_ENTITY_TYPE_ID), READ_DATA))
+        .thenReturn(false);
+    Set<Object> diseaseClassIds = singleton("A");
+    assertThrows(
+        EntityTypePermissionDeniedException.class,
+        () -> icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, diseaseClassIds));
+  }
+
+  @Test
+  void testExpandClassIdsCreatesClosureAsSystem() {
+    setUpEntityType();
+    List<Authentication> authentications = new ArrayList<>();
+    when(dataService.findAll(eq(ICD10_ENTITY_TYPE_ID), any(Query.class)))
+        .thenAnswer(
+            invocation -> {
+              authentications.add(SecurityContextHolder.getContext().getAuthentication());
+              return Stream.empty();
+            });
+
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+
+    assertEquals(singletonList(SystemSecurityToken.getInstance()), authentications);
+  }
+
+  @Test
+  void testExpandClassIdsCached() {
+    setUpDiseaseClasses();
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("B"));
+    verify(dataService, times(1)).findAll(eq(ICD10_ENTITY_TYPE_ID), any(Query.class));
+  }
+
+  @Test
+  void testExpandClassIdsChangedInTransaction() {
+    setUpDiseaseClasses();
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ICD10_ENTITY_TYPE_ID));
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+    verify(dataService, times(2)).findAll(eq(ICD10_ENTITY_TYPE_ID), any(Query.class));
+  }
+
+  @Test
+  void testAfterCommitTransaction() {
+    setUpDiseaseClasses();
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(ICD10_ENTITY_TYPE_ID), Set.of());
+    cachedClosures.afterCommitTransaction("transactionId");
+    cachedClosures.doCleanupAfterCompletion("transactionId");
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+    verify(dataService, times(2)).findAll(eq(ICD10_ENTITY_TYPE_ID), any(Query.class));
+  }
+
+  @Test
+  void testOnCacheInvalidation() {
+    setUpDiseaseClasses();
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+    cachedClosures.onCacheInvalidation(
+        CacheInvalidation.create(singleton(ICD10_ENTITY_TYPE_ID), Set.of()));
+    icd10ClassExpanderImpl.expandClassIds(ICD10_ENTITY_TYPE_ID, singleton("A"));
+    verify(dataService, times(2)).findAll(eq(ICD10_ENTITY_TYPE_ID), any(Query.class));
+  }
+
+  private void setUpDiseaseClasses() {
     Entity entityA = createEntity("A");
     Entity entityB = createEntity("B");
     Entity entityC = createEntity("C");
@@ -37,45 +224,24 @@ class Icd10ClassExpanderImplTest {
     when(entityA.getEntities("children")).thenReturn(asList(entityB, entityC));
     when(entityB.getEntities("children")).thenReturn(asList(entityD, entityE));
     when(entityC.getEntities("children")).thenReturn(asList(entityF, entityG));
-
-    List<Object[]> dataList = new ArrayList<>();
-    dataList.add(
-        new Object[] {
-          singleton(entityA), asList(entityA, entityB, entityC, entityD, entityE, entityF, entityG)
-        });
-    dataList.add(new Object[] {singleton(entityB), asList(entityB, entityD, entityE)});
-    dataList.add(new Object[] {singleton(entityC), asList(entityC, entityF, entityG)});
-    dataList.add(new Object[] {singleton(entityD), singleton(entityD)});
-    dataList.add(new Object[] {singleton(entityE), singleton(entityE)});
-    dataList.add(new Object[] {singleton(entityF), singleton(entityF)});
-    dataList.add(new Object[] {singleton(entityG), singleton(entityG)});
-    dataList.add(
-        new Object[] {
-          asList(entityA, entityB),
-          asList(entityA, entityB, entityC, entityD, entityE, entityF, entityG)
-        });
-    dataList.add(
-        new Object[] {
-          asList(entityB, entityC), asList(entityB, entityC, entityD, entityE, entityF, entityG)
-        });
-    dataList.add(new Object[] {asList(entityD, entityE), asList(entityD, entityE)});
-    dataList.add(new Object[] {asList(entityB, entityD), asList(entityB, entityD, entityE)});
-    return dataList.iterator();
+    setUpEntityType();
+    when(dataService.findAll(eq(ICD10_ENTITY_TYPE_ID), any(Query.class)))
+        .thenAnswer(
+            invocation -> Stream.of(entityG, entityF, entityE, entityD, entityC, entityB, entityA));
   }
 
-  @ParameterizedTest
-  @MethodSource("testExpandClassesProvider")
-  void testExpandClasses(
-      Collection<Entity> diseaseClasses, Collection<Entity> expectedExpandedDiseaseClasses) {
-    Collection<Entity> expandedDiseaseClasses =
-        icd10ClassExpanderImpl.expandClasses(diseaseClasses);
-    assertEquals(newHashSet(expectedExpandedDiseaseClasses), newHashSet(expandedDiseaseClasses));
+  private void setUpEntityType() {
+    when(userPermissionEvaluator.hasPermission(
+            new EntityTypeIdentity(ICD10_ENTITY_TYPE_ID), READ_DATA))
+        .thenReturn(true);
+    EntityType entityType = mock(EntityType.class, RETURNS_DEEP_STUBS);
+    when(entityType.getIdAttribute().getName()).thenReturn("id");
+    when(dataService.getEntityType(ICD10_ENTITY_TYPE_ID)).thenReturn(entityType);
   }
 
   private static Entity createEntity(String idValue) {
     Entity entity = when(mock(Entity.class).getIdValue()).thenReturn(idValue).getMock();
     when(entity.getEntities("children")).thenReturn(emptyList());
-    when(entity.toString()).thenReturn(idValue);
     return entity;
   }
 }
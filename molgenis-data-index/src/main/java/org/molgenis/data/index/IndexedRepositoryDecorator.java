@@ -12,6 +12,8 @@ import static org.molgenis.data.RepositoryCapability.QUERYABLE;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -26,6 +28,7 @@ import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.index.exception.UnknownIndexException;
 import org.molgenis.data.index.job.IndexJobScheduler;
+import org.molgenis.data.meta.model.Attribute;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -136,9 +139,32 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
     }
   }
 
+  /**
+   * Aggregates using the decorated repository if it is able to, so that the result does not depend
+   * on the state of the index. Otherwise the aggregation is delegated to the index.
+   */
   @Override
   public AggregateResult aggregate(AggregateQuery aggregateQuery) {
-    return tryTwice(() -> searchService.aggregate(getEntityType(), aggregateQuery));
+    if (aggregateSupported(aggregateQuery)) {
+      LOG.debug(
+          "public AggregateResult aggregate({}) entityTypeId: [{}] repository: [{}]",
+          aggregateQuery,
+          getEntityType().getId(),
+          DECORATED_REPOSITORY);
+      return delegate().aggregate(aggregateQuery);
+    } else {
+      LOG.debug(
+          "public AggregateResult aggregate({}) entityTypeId: [{}] repository: [{}]",
+          aggregateQuery,
+          getEntityType().getId(),
+          INDEX_REPOSITORY);
+      return tryTwice(() -> searchService.aggregate(getEntityType(), aggregateQuery));
+    }
+  }
+
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
   }
 
   /**
@@ -179,6 +205,25 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
         && !containsNestedQueryRuleField(q);
   }
 
+  /**
+   * Checks if the underlying repository can handle this aggregate query. Aggregate queries on
+   * attributes with computed values are delegated to the index, as well as aggregate queries with a
+   * query that is not supported by the underlying repository.
+   */
+  private boolean aggregateSupported(AggregateQuery aggregateQuery) {
+    if (!delegate().getCapabilities().contains(AGGREGATEABLE)) {
+      return false;
+    }
+    Query<Entity> q = aggregateQuery.getQuery();
+    return (q == null || querySupported(q))
+        && Stream.of(
+                aggregateQuery.getAttributeX(),
+                aggregateQuery.getAttributeY(),
+                aggregateQuery.getAttributeDistinct())
+            .filter(Objects::nonNull)
+            .noneMatch(Attribute::hasExpression);
+  }
+
   private void waitForIndexToBeStable() {
     try {
       indexJobScheduler.waitForIndexToBeStableIncludingReferences(getEntityType());
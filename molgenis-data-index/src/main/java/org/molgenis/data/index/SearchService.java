@@ -1,5 +1,6 @@
 package org.molgenis.data.index;
 
+import java.util.List;
 import java.util.stream.Stream;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Query;
@@ -16,5 +17,13 @@ public interface SearchService {
 
   Stream<Object> search(EntityType entityType, Query<Entity> q);
 
+  /**
+   * Searches entity ids for multiple queries in a single request.
+   *
+   * @param queries queries with a page size between 1 and the maximum batch size
+   * @return entity ids for each query, in the order of the queries
+   */
+  List<List<Object>> multiSearch(EntityType entityType, List<Query<Entity>> queries);
+
   AggregateResult aggregate(EntityType entityType, AggregateQuery aggregateQuery);
 }
@@ -143,6 +143,40 @@ class IndexedRepositoryDecoratorTest {
     verify(searchService).aggregate(repositoryEntityType, aggregateQuery);
   }
 
+  @Test
+  void aggregateDecoratedRepository() {
+    when(delegateRepository.getCapabilities()).thenReturn(EnumSet.of(QUERYABLE, AGGREGATEABLE));
+    Attribute xAttr = mock(Attribute.class);
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(xAttr).query(query);
+    AggregateResult aggregateResult = mock(AggregateResult.class);
+    when(delegateRepository.aggregate(aggregateQuery)).thenReturn(aggregateResult);
+
+    assertEquals(aggregateResult, indexedRepositoryDecorator.aggregate(aggregateQuery));
+    verifyZeroInteractions(searchService);
+  }
+
+  @Test
+  void aggregateDecoratedRepositoryUnsupportedQuery() {
+    when(delegateRepository.getCapabilities()).thenReturn(EnumSet.of(QUERYABLE, AGGREGATEABLE));
+    Attribute xAttr = mock(Attribute.class);
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(xAttr).query(unsupportedQuery);
+
+    indexedRepositoryDecorator.aggregate(aggregateQuery);
+    verify(searchService).aggregate(repositoryEntityType, aggregateQuery);
+    verify(delegateRepository, never()).aggregate(aggregateQuery);
+  }
+
+  @Test
+  void aggregateDecoratedRepositoryComputedAttribute() {
+    when(delegateRepository.getCapabilities()).thenReturn(EnumSet.of(QUERYABLE, AGGREGATEABLE));
+    Attribute xAttr = when(mock(Attribute.class).hasExpression()).thenReturn(true).getMock();
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(xAttr);
+
+    indexedRepositoryDecorator.aggregate(aggregateQuery);
+    verify(searchService).aggregate(repositoryEntityType, aggregateQuery);
+    verify(delegateRepository, never()).aggregate(aggregateQuery);
+  }
+
   @Test
   void aggregateUnknownIndexExceptionRecoverable() {
     AggregateQuery aggregateQuery = mock(AggregateQuery.class);
@@ -1,7 +1,19 @@
 package org.molgenis.data.platform.decorators;
 
 import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.decorator.meta.DecoratorConfigurationMetadata.DECORATOR_CONFIGURATION;
+import static org.molgenis.data.decorator.meta.DecoratorParametersMetadata.DECORATOR_PARAMETERS;
+import static org.molgenis.data.decorator.meta.DynamicDecoratorMetadata.DYNAMIC_DECORATOR;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
+import static org.molgenis.data.meta.model.TagMetadata.TAG;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.molgenis.data.CascadeDeleteRepositoryDecorator;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
@@ -18,16 +30,21 @@ import org.molgenis.data.cache.l2.L2CacheRepositoryDecorator;
 import org.molgenis.data.cache.l3.L3Cache;
 import org.molgenis.data.cache.l3.L3CacheRepositoryDecorator;
 import org.molgenis.data.decorator.DynamicRepositoryDecoratorRegistry;
+import org.molgenis.data.event.BootstrappingEvent;
 import org.molgenis.data.index.IndexActionRegisterService;
 import org.molgenis.data.index.IndexActionRepositoryDecorator;
 import org.molgenis.data.index.IndexedRepositoryDecoratorFactory;
 import org.molgenis.data.listeners.EntityListenerRepositoryDecorator;
 import org.molgenis.data.listeners.EntityListenersService;
+import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.security.RepositorySecurityDecorator;
 import org.molgenis.data.security.aggregation.AggregateAnonymizer;
 import org.molgenis.data.security.aggregation.AggregateAnonymizerRepositoryDecorator;
 import org.molgenis.data.security.owned.RowLevelSecurityRepositoryDecoratorFactory;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
 import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.data.transaction.TransactionalRepositoryDecorator;
 import org.molgenis.data.validation.DefaultValueReferenceValidator;
 import org.molgenis.data.validation.EntityAttributesValidator;
@@ -37,11 +54,27 @@ import org.molgenis.data.validation.QueryValidator;
 import org.molgenis.data.validation.RepositoryValidationDecorator;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.settings.AppSettings;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.PlatformTransactionManager;
 
+/**
+ * Creates the decorator chain of repositories. The decorators are immutable, so fully decorated
+ * repositories are cached per entity type and reused until the metadata or decorator configuration
+ * of entity types changes.
+ */
 @Component
 public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFactory {
+  /** Entity types whose changes can result in a different decorator chain */
+  private static final Set<String> DECORATOR_CHAIN_ENTITY_TYPE_IDS =
+      ImmutableSet.of(
+          ENTITY_TYPE_META_DATA,
+          ATTRIBUTE_META_DATA,
+          PACKAGE,
+          TAG,
+          DECORATOR_CONFIGURATION,
+          DECORATOR_PARAMETERS,
+          DYNAMIC_DECORATOR);
+
   private final EntityManager entityManager;
   private final EntityAttributesValidator entityAttributesValidator;
   private final AggregateAnonymizer aggregateAnonymizer;
@@ -56,7 +89,7 @@ public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFa
   private final L2Cache l2Cache;
   private final TransactionInformation transactionInformation;
   private final L3Cache l3Cache;
-  private final PlatformTransactionManager transactionManager;
+  private final TransactionManager transactionManager;
   private final QueryValidator queryValidator;
   private final FetchValidator fetchValidator;
   private final DefaultValueReferenceValidator defaultValueReferenceValidator;
@@ -65,6 +98,9 @@ public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFa
       rowLevelSecurityRepositoryDecoratorFactory;
   private final L1CacheJanitor l1CacheJanitor;
 
+  private final TransactionAwareCache<String, CachedRepository> cachedRepositories;
+  private volatile boolean bootstrappingDone = false;
+
   public MolgenisRepositoryDecoratorFactory(
       EntityManager entityManager,
       EntityAttributesValidator entityAttributesValidator,
@@ -80,13 +116,14 @@ public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFa
       TransactionInformation transactionInformation,
       EntityListenersService entityListenersService,
       L3Cache l3Cache,
-      PlatformTransactionManager transactionManager,
+      TransactionManager transactionManager,
       QueryValidator queryValidator,
       FetchValidator fetchValidator,
       DefaultValueReferenceValidator defaultValueReferenceValidator,
       UserPermissionEvaluator permissionService,
       RowLevelSecurityRepositoryDecoratorFactory rowLevelSecurityRepositoryDecoratorFactory,
-      L1CacheJanitor l1CacheJanitor) {
+      L1CacheJanitor l1CacheJanitor,
+      CacheInvalidationBus cacheInvalidationBus) {
 
     this.entityManager = requireNonNull(entityManager);
     this.entityAttributesValidator = requireNonNull(entityAttributesValidator);
@@ -110,10 +147,52 @@ public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFa
     this.rowLevelSecurityRepositoryDecoratorFactory =
         requireNonNull(rowLevelSecurityRepositoryDecoratorFactory);
     this.l1CacheJanitor = requireNonNull(l1CacheJanitor);
+    this.cachedRepositories =
+        new TransactionAwareCache<>(
+            DECORATOR_CHAIN_ENTITY_TYPE_IDS::contains,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus);
   }
 
+  /**
+   * Returns the cached decorator chain for the entity type of the repository or creates a new one.
+   * Backends create a new repository on each lookup, so a cached chain is reused for any repository
+   * of the same entity type in the same backend: the repositories only differ in instance until the
+   * entity type changes, which invalidates the cache. Repositories are not cached during
+   * bootstrapping and in transactions that changed metadata, since the cache would otherwise
+   * contain uncommitted entity types.
+   */
   @Override
   public Repository<Entity> createDecoratedRepository(Repository<Entity> repository) {
+    if (!bootstrappingDone) {
+      return decorateRepository(repository);
+    }
+
+    // row level security can be enabled or disabled without changing the entity type
+    boolean rowLevelSecured =
+        rowLevelSecurityRepositoryDecoratorFactory.isRowLevelSecured(repository);
+
+    EntityType entityType = repository.getEntityType();
+    String backend = entityType.getBackend();
+    CachedRepository cachedRepository =
+        cachedRepositories.get(
+            entityType.getId(),
+            cached ->
+                Objects.equals(cached.backend, backend)
+                    && cached.rowLevelSecured == rowLevelSecured,
+            entityTypeId ->
+                new CachedRepository(decorateRepository(repository), backend, rowLevelSecured));
+    return cachedRepository.repository;
+  }
+
+  @EventListener
+  public void onApplicationEvent(BootstrappingEvent bootstrappingEvent) {
+    bootstrappingDone = bootstrappingEvent.getStatus() == FINISHED;
+    cachedRepositories.invalidate();
+  }
+
+  private Repository<Entity> decorateRepository(Repository<Entity> repository) {
     Repository<Entity> decoratedRepository = repository;
 
     // 15. Query the L2 cache before querying the database
@@ -182,4 +261,19 @@ public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFa
 
     return decoratedRepository;
   }
+
+  private static class CachedRepository {
+    private final Repository<Entity> repository;
+    /** Backend of the decorated repository, a decorator chain is only reused for this backend */
+    @Nullable private final String backend;
+
+    private final boolean rowLevelSecured;
+
+    CachedRepository(
+        Repository<Entity> repository, @Nullable String backend, boolean rowLevelSecured) {
+      this.repository = repository;
+      this.backend = backend;
+      this.rowLevelSecured = rowLevelSecured;
+    }
+  }
 }
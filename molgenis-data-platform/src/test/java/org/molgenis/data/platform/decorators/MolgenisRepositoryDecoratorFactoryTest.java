@@ -0,0 +1,334 @@
+package org.molgenis.data.platform.decorators;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Answers.CALLS_REAL_METHODS;
+import static org.mockito.Answers.RETURNS_MOCKS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.security.EntityTypePermission.ADD_DATA;
+import static org.molgenis.data.security.EntityTypePermission.UPDATE_DATA;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.EntityManager;
+import org.molgenis.data.Repository;
+import org.molgenis.data.RepositoryCollection;
+import org.molgenis.data.RepositoryCollectionDecorator;
+import org.molgenis.data.SystemRepositoryDecoratorRegistry;
+import org.molgenis.data.cache.l1.L1Cache;
+import org.molgenis.data.cache.l1.L1CacheJanitor;
+import org.molgenis.data.cache.l2.L2Cache;
+import org.molgenis.data.cache.l3.L3Cache;
+import org.molgenis.data.decorator.DynamicRepositoryDecoratorRegistry;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.index.IndexActionRegisterService;
+import org.molgenis.data.index.IndexedRepositoryDecoratorFactory;
+import org.molgenis.data.index.SearchService;
+import org.molgenis.data.index.job.IndexJobScheduler;
+import org.molgenis.data.listeners.EntityListenersService;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.security.aggregation.AggregateAnonymizer;
+import org.molgenis.data.security.owned.RowLevelSecurityRepositoryDecoratorFactory;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.data.validation.DefaultValueReferenceValidator;
+import org.molgenis.data.validation.EntityAttributesValidator;
+import org.molgenis.data.validation.FetchValidator;
+import org.molgenis.data.validation.QueryValidator;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.molgenis.settings.AppSettings;
+import org.molgenis.test.AbstractMockitoTest;
+
+class MolgenisRepositoryDecoratorFactoryTest extends AbstractMockitoTest {
+  @Mock private EntityManager entityManager;
+  @Mock private EntityAttributesValidator entityAttributesValidator;
+  @Mock private AggregateAnonymizer aggregateAnonymizer;
+  @Mock private AppSettings appSettings;
+  @Mock private DataService dataService;
+  @Mock private SystemRepositoryDecoratorRegistry systemRepositoryDecoratorRegistry;
+  @Mock private DynamicRepositoryDecoratorRegistry dynamicRepositoryDecoratorRegistry;
+  @Mock private IndexActionRegisterService indexActionRegisterService;
+
+  @Mock(answer = RETURNS_MOCKS)
+  private IndexedRepositoryDecoratorFactory indexedRepositoryDecoratorFactory;
+
+  @Mock private L1Cache l1Cache;
+  @Mock private L2Cache l2Cache;
+  @Mock private TransactionInformation transactionInformation;
+  private final EntityListenersService entityListenersService = new EntityListenersService();
+  @Mock private L3Cache l3Cache;
+  @Mock private TransactionManager transactionManager;
+  @Mock private QueryValidator queryValidator;
+  @Mock private FetchValidator fetchValidator;
+  @Mock private DefaultValueReferenceValidator defaultValueReferenceValidator;
+  @Mock private UserPermissionEvaluator permissionService;
+  @Mock private RowLevelSecurityRepositoryDecoratorFactory rowLevelSecurityDecoratorFactory;
+  @Mock private L1CacheJanitor l1CacheJanitor;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+  @Mock private Repository<Entity> repository;
+  @Mock private SearchService searchService;
+  @Mock private IndexJobScheduler indexJobScheduler;
+  private MolgenisRepositoryDecoratorFactory molgenisRepositoryDecoratorFactory;
+  private TransactionAwareCache<?, ?> cachedRepositories;
+
+  @SuppressWarnings("unchecked")
+  @BeforeEach
+  void setUpBeforeEach() {
+    molgenisRepositoryDecoratorFactory =
+        new MolgenisRepositoryDecoratorFactory(
+            entityManager,
+            entityAttributesValidator,
+            aggregateAnonymizer,
+            appSettings,
+            dataService,
+            systemRepositoryDecoratorRegistry,
+            dynamicRepositoryDecoratorRegistry,
+            indexActionRegisterService,
+            indexedRepositoryDecoratorFactory,
+            l1Cache,
+            l2Cache,
+            transactionInformation,
+            entityListenersService,
+            l3Cache,
+            transactionManager,
+            queryValidator,
+            fetchValidator,
+            defaultValueReferenceValidator,
+            permissionService,
+            rowLevelSecurityDecoratorFactory,
+            l1CacheJanitor,
+            cacheInvalidationBus);
+
+    ArgumentCaptor<TransactionAwareCache<?, ?>> cacheCaptor =
+        ArgumentCaptor.forClass(TransactionAwareCache.class);
+    verify(transactionManager).addTransactionListener(cacheCaptor.capture());
+    cachedRepositories = cacheCaptor.getValue();
+  }
+
+  @Test
+  void testCreateDecoratedRepositoryCached() {
+    setUpDecorators();
+    setUpEntityType();
+    finishBootstrapping();
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    assertSame(
+        decoratedRepository,
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository));
+  }
+
+  @Test
+  void testCreateDecoratedRepositoryNewBackendRepository() {
+    setUpDecorators();
+    setUpEntityType();
+    finishBootstrapping();
+
+    EntityType entityType = repository.getEntityType();
+    @SuppressWarnings("unchecked")
+    Repository<Entity> otherRepository = mock(Repository.class);
+    when(otherRepository.getEntityType()).thenReturn(entityType);
+    RepositoryCollection repositoryCollection = mock(RepositoryCollection.class);
+    // backends create a new repository on each lookup
+    when(repositoryCollection.getRepository(entityType)).thenReturn(repository, otherRepository);
+    RepositoryCollection decoratedRepositoryCollection =
+        new RepositoryCollectionDecorator(repositoryCollection, molgenisRepositoryDecoratorFactory);
+
+    assertSame(
+        decoratedRepositoryCollection.getRepository(entityType),
+        decoratedRepositoryCollection.getRepository(entityType));
+  }
+
+  @Test
+  void testCreateDecoratedRepositoryOtherBackend() {
+    setUpDecorators();
+    setUpEntityType();
+    finishBootstrapping();
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+
+    @SuppressWarnings("unchecked")
+    Repository<Entity> otherRepository = mock(Repository.class);
+    when(otherRepository.getName()).thenReturn("entityTypeId");
+    EntityType otherEntityType = mock(EntityType.class);
+    when(otherEntityType.getId()).thenReturn("entityTypeId");
+    when(otherEntityType.getBackend()).thenReturn("otherBackend");
+    when(otherRepository.getEntityType()).thenReturn(otherEntityType);
+    Repository<Entity> otherDecoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(otherRepository);
+    assertNotSame(decoratedRepository, otherDecoratedRepository);
+    assertSame(
+        otherDecoratedRepository,
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(otherRepository));
+  }
+
+  @Test
+  void testCreateDecoratedRepositoryDuringBootstrapping() {
+    setUpDecorators();
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    assertNotSame(
+        decoratedRepository,
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository));
+  }
+
+  @Test
+  void testCreateDecoratedRepositoryMetadataChangedInTransaction() {
+    setUpDecorators();
+    setUpEntityType();
+    finishBootstrapping();
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ATTRIBUTE_META_DATA));
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    assertNotSame(
+        decoratedRepository,
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository));
+  }
+
+  @Test
+  void testCreateDecoratedRepositoryRowLevelSecurityChanged() {
+    setUpDecorators();
+    setUpEntityType();
+    finishBootstrapping();
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    when(rowLevelSecurityDecoratorFactory.isRowLevelSecured(repository)).thenReturn(true);
+    assertNotSame(
+        decoratedRepository,
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository));
+  }
+
+  @Test
+  void testAfterCommitTransaction() {
+    setUpDecorators();
+    setUpEntityType();
+    finishBootstrapping();
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(ENTITY_TYPE_META_DATA), Set.of());
+    cachedRepositories.afterCommitTransaction("transactionId");
+    cachedRepositories.doCleanupAfterCompletion("transactionId");
+
+    assertNotSame(
+        decoratedRepository,
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository));
+  }
+
+  @Test
+  void testAfterCommitTransactionDataChanged() {
+    setUpDecorators();
+    setUpEntityType();
+    finishBootstrapping();
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton("entityTypeId"));
+    cachedRepositories.afterCommitTransaction("transactionId");
+    cachedRepositories.doCleanupAfterCompletion("transactionId");
+    when(transactionInformation.getDirtyRepositories()).thenReturn(Set.of());
+
+    assertSame(
+        decoratedRepository,
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository));
+  }
+
+  @Test
+  void testOnCacheInvalidation() {
+    setUpDecorators();
+    setUpEntityType();
+    finishBootstrapping();
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    cachedRepositories.onCacheInvalidation(
+        CacheInvalidation.create(singleton(ENTITY_TYPE_META_DATA), Set.of()));
+
+    assertNotSame(
+        decoratedRepository,
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void testCreateDecoratedRepositoryUpsertBatch() {
+    setUpDecorators();
+    setUpEntityType();
+    when(indexedRepositoryDecoratorFactory.create(any()))
+        .thenAnswer(
+            invocation ->
+                mock(
+                    invocation.getMethod().getReturnType(),
+                    withSettings()
+                        .useConstructor(
+                            invocation.getArgument(0), searchService, indexJobScheduler)
+                        .defaultAnswer(CALLS_REAL_METHODS)));
+    EntityType entityType = repository.getEntityType();
+    Attribute idAttribute = mock(Attribute.class);
+    when(idAttribute.getName()).thenReturn("id");
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(entityType.getAtomicAttributes()).thenReturn(emptyList());
+    EntityTypeIdentity entityTypeIdentity = new EntityTypeIdentity("entityTypeId");
+    when(permissionService.hasPermission(entityTypeIdentity, ADD_DATA)).thenReturn(true);
+    when(permissionService.hasPermission(entityTypeIdentity, UPDATE_DATA)).thenReturn(true);
+
+    Repository<Entity> decoratedRepository =
+        molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository);
+    List<Entity> entities = asList(mock(Entity.class), mock(Entity.class));
+    decoratedRepository.upsertBatch(entities);
+
+    // the whole batch reaches the backend as one upsert statement
+    verify(repository).upsertBatch(entities);
+    verify(repository, never()).getExistingIDs(any());
+    verify(repository, never()).add(any(Stream.class));
+    verify(repository, never()).update(any(Stream.class));
+  }
+
+  private void finishBootstrapping() {
+    molgenisRepositoryDecoratorFactory.onApplicationEvent(new BootstrappingEvent(FINISHED));
+  }
+
+  private void setUpEntityType() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(repository.getEntityType()).thenReturn(entityType);
+  }
+
+  private void setUpDecorators() {
+    when(repository.getName()).thenReturn("entityTypeId");
+    when(systemRepositoryDecoratorRegistry.decorate(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    when(rowLevelSecurityDecoratorFactory.createDecoratedRepository(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    when(dynamicRepositoryDecoratorRegistry.decorate(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+  }
+}
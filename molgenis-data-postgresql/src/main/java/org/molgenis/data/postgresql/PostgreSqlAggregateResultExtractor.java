@@ -0,0 +1,175 @@
+package org.molgenis.data.postgresql;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.aggregation.AggregateResult;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.IllegalAttributeTypeException;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.util.EntityUtils;
+import org.molgenis.util.UnexpectedEnumException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+/**
+ * Creates an {@link AggregateResult} from the rows selected by {@link
+ * PostgreSqlQueryGenerator#getSqlAggregate}. Labels and counts are the same as those of the
+ * aggregations of the search index: values are represented like in the index, missing values of
+ * nillable attributes are always labeled and references are labeled with the referenced entities.
+ */
+class PostgreSqlAggregateResultExtractor implements ResultSetExtractor<AggregateResult> {
+  private static final Comparator<Object> LABEL_COMPARATOR =
+      Comparator.nullsLast(Comparator.comparing(Object::toString));
+
+  private final Attribute xAttr;
+  @Nullable private final Attribute yAttr;
+  private final DataService dataService;
+
+  PostgreSqlAggregateResultExtractor(
+      Attribute xAttr, @Nullable Attribute yAttr, DataService dataService) {
+    this.xAttr = requireNonNull(xAttr);
+    this.yAttr = yAttr;
+    this.dataService = requireNonNull(dataService);
+  }
+
+  @Override
+  public AggregateResult extractData(ResultSet resultSet) throws SQLException {
+    Map<Object, Map<Object, Long>> counts = new HashMap<>();
+    Set<Object> yValues = new LinkedHashSet<>();
+    while (resultSet.next()) {
+      Object xValue = getValue(resultSet, 1, xAttr);
+      Object yValue = yAttr != null ? getValue(resultSet, 2, yAttr) : null;
+      long count = resultSet.getLong(yAttr != null ? 3 : 2);
+      counts.computeIfAbsent(xValue, value -> new HashMap<>()).put(yValue, count);
+      yValues.add(yValue);
+    }
+
+    if (xAttr.isNillable()) {
+      counts.computeIfAbsent(null, value -> new HashMap<>());
+    }
+    if (yAttr != null && yAttr.isNillable() && !counts.isEmpty()) {
+      yValues.add(null);
+    }
+
+    List<Object> xLabels = new ArrayList<>(counts.keySet());
+    xLabels.sort(LABEL_COMPARATOR);
+    List<Object> yLabels;
+    if (yAttr != null) {
+      yLabels = new ArrayList<>(yValues);
+      yLabels.sort(LABEL_COMPARATOR);
+    } else {
+      yLabels = Collections.emptyList();
+    }
+
+    List<List<Long>> matrix = new ArrayList<>(xLabels.size());
+    for (Object xLabel : xLabels) {
+      Map<Object, Long> xCounts = counts.get(xLabel);
+      List<Long> row = new ArrayList<>();
+      if (yAttr != null) {
+        yLabels.forEach(yLabel -> row.add(xCounts.getOrDefault(yLabel, 0L)));
+      } else {
+        row.add(xCounts.getOrDefault(null, 0L));
+      }
+      matrix.add(row);
+    }
+
+    if (isReferenceType(xAttr)) {
+      replaceIdsWithReferences(xLabels, xAttr.getRefEntity());
+    }
+    if (yAttr != null && isReferenceType(yAttr)) {
+      replaceIdsWithReferences(yLabels, yAttr.getRefEntity());
+    }
+    return new AggregateResult(matrix, xLabels, yLabels);
+  }
+
+  /**
+   * Returns the value of an attribute as represented in the search index, identifiers are returned
+   * as strings for reference attributes.
+   */
+  @Nullable
+  private static Object getValue(ResultSet resultSet, int columnIndex, Attribute attr)
+      throws SQLException {
+    AttributeType attrType = attr.getDataType();
+    switch (attrType) {
+      case BOOL:
+        boolean boolValue = resultSet.getBoolean(columnIndex);
+        return resultSet.wasNull() ? null : boolValue;
+      case INT:
+      case LONG:
+        long longValue = resultSet.getLong(columnIndex);
+        return resultSet.wasNull() ? null : longValue;
+      case DECIMAL:
+        double doubleValue = resultSet.getDouble(columnIndex);
+        return resultSet.wasNull() ? null : doubleValue;
+      case DATE:
+        LocalDate localDate = resultSet.getObject(columnIndex, LocalDate.class);
+        return localDate != null ? localDate.toString() : null;
+      case DATE_TIME:
+        OffsetDateTime offsetDateTime = resultSet.getObject(columnIndex, OffsetDateTime.class);
+        return offsetDateTime != null ? offsetDateTime.toInstant().toString() : null;
+      case CATEGORICAL:
+      case CATEGORICAL_MREF:
+      case EMAIL:
+      case ENUM:
+      case FILE:
+      case HTML:
+      case HYPERLINK:
+      case MREF:
+      case ONE_TO_MANY:
+      case SCRIPT:
+      case STRING:
+      case TEXT:
+      case XREF:
+        return resultSet.getString(columnIndex);
+      case COMPOUND:
+        throw new IllegalAttributeTypeException(attrType);
+      default:
+        throw new UnexpectedEnumException(attrType);
+    }
+  }
+
+  /**
+   * Replaces identifier labels with the referenced entities, which are retrieved in one batch.
+   * Labels of entities that the current user is not allowed to read are replaced with null.
+   */
+  private void replaceIdsWithReferences(List<Object> labels, EntityType refEntityType) {
+    if (labels.stream().allMatch(Objects::isNull)) {
+      return;
+    }
+
+    Attribute refIdAttr = refEntityType.getIdAttribute();
+    Stream<Object> ids =
+        labels.stream()
+            .filter(Objects::nonNull)
+            .map(label -> EntityUtils.getTypedValue(label.toString(), refIdAttr));
+
+    Map<String, Entity> references = new HashMap<>();
+    dataService
+        .findAll(refEntityType.getId(), ids)
+        .forEach(entity -> references.put(entity.getIdValue().toString(), entity));
+    for (int i = 0; i < labels.size(); i++) {
+      Object label = labels.get(i);
+      if (label != null) {
+        labels.set(i, references.get(label.toString()));
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package org.molgenis.data.postgresql;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.time.temporal.ChronoUnit.MICROS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Writes rows in the PostgreSQL binary COPY format.
+ *
+ * <p>Supports the Java types returned by {@link PostgreSqlUtils#getPostgreSqlValue} for table
+ * columns: {@link Boolean}, {@link Integer}, {@link Long}, {@link Double}, {@link String}, {@link
+ * LocalDate} and {@link OffsetDateTime}. The binary representation of a value must match the column
+ * type exactly, so values are written according to their Java type which matches the column type
+ * created by {@link PostgreSqlQueryGenerator}.
+ *
+ * @see <a href="https://www.postgresql.org/docs/current/sql-copy.html">COPY binary format</a>
+ */
+class PostgreSqlBinaryCopyWriter {
+  private static final byte[] SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0
+  };
+  private static final LocalDate POSTGRES_EPOCH_DATE = LocalDate.of(2000, 1, 1);
+  private static final OffsetDateTime POSTGRES_EPOCH_DATE_TIME =
+      POSTGRES_EPOCH_DATE.atStartOfDay().atOffset(UTC);
+
+  private final int nrColumns;
+  private final ByteArrayOutputStream byteArrayOutputStream;
+  private final DataOutputStream dataOutputStream;
+
+  PostgreSqlBinaryCopyWriter(int nrColumns) {
+    this.nrColumns = nrColumns;
+    this.byteArrayOutputStream = new ByteArrayOutputStream();
+    this.dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    try {
+      dataOutputStream.write(SIGNATURE);
+      dataOutputStream.writeInt(0); // flags
+      dataOutputStream.writeInt(0); // header extension length
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  void writeRow(List<Object> values) {
+    if (values.size() != nrColumns) {
+      throw new IllegalArgumentException(
+          format("Expected %d values but got %d", nrColumns, values.size()));
+    }
+    try {
+      dataOutputStream.writeShort(nrColumns);
+      for (Object value : values) {
+        writeValue(value);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Returns the COPY data including the trailer, no rows can be written afterwards. */
+  byte[] toByteArray() {
+    try {
+      dataOutputStream.writeShort(-1);
+      dataOutputStream.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  private void writeValue(Object value) throws IOException {
+    if (value == null) {
+      dataOutputStream.writeInt(-1);
+    } else if (value instanceof String) {
+      byte[] bytes = ((String) value).getBytes(UTF_8);
+      dataOutputStream.writeInt(bytes.length);
+      dataOutputStream.write(bytes);
+    } else if (value instanceof Integer) {
+      dataOutputStream.writeInt(Integer.BYTES);
+      dataOutputStream.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      dataOutputStream.writeInt(Long.BYTES);
+      dataOutputStream.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      dataOutputStream.writeInt(Double.BYTES);
+      dataOutputStream.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      dataOutputStream.writeInt(1);
+      dataOutputStream.writeByte((Boolean) value ? 1 : 0);
+    } else if (value instanceof LocalDate) {
+      dataOutputStream.writeInt(Integer.BYTES);
+      dataOutputStream.writeInt((int) DAYS.between(POSTGRES_EPOCH_DATE, (LocalDate) value));
+    } else if (value instanceof OffsetDateTime) {
+      dataOutputStream.writeInt(Long.BYTES);
+      dataOutputStream.writeLong(MICROS.between(POSTGRES_EPOCH_DATE_TIME, (OffsetDateTime) value));
+    } else {
+      throw new IllegalArgumentException(
+          format("Unsupported COPY value type [%s]", value.getClass().getSimpleName()));
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package org.molgenis.data.postgresql;
+
+import static java.lang.String.format;
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.sql.DataSource;
+import org.molgenis.data.transaction.QueryCursors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Iterates over the rows of a query result using a server-side cursor on the connection of the
+ * current transaction, so that only {@link #fetchSize} rows are held in memory at any time.
+ *
+ * <p>The PostgreSQL JDBC driver only uses a cursor for forward-only statements with a fetch size on
+ * a connection that is not in auto-commit mode, which is why the cursor can only be opened in a
+ * transaction. The cursor is closed when all rows have been read, when {@link #close()} is called
+ * or when the transaction completes, whichever comes first. Reading from a cursor that was closed
+ * before all rows were read fails instead of silently skipping the remaining rows.
+ */
+class PostgreSqlCursor<T> implements Iterator<T>, AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlCursor.class);
+
+  private final DataSource dataSource;
+  private final String sql;
+  private final List<Object> parameters;
+  private final RowMapper<T> rowMapper;
+  private final int fetchSize;
+  private final SQLExceptionTranslator exceptionTranslator;
+
+  private Connection connection;
+  private PreparedStatement preparedStatement;
+  private ResultSet resultSet;
+  private int rowNum;
+  private boolean hasNextRow;
+  private boolean closed;
+
+  PostgreSqlCursor(
+      DataSource dataSource,
+      String sql,
+      List<Object> parameters,
+      RowMapper<T> rowMapper,
+      int fetchSize,
+      SQLExceptionTranslator exceptionTranslator) {
+    this.dataSource = requireNonNull(dataSource);
+    this.sql = requireNonNull(sql);
+    this.parameters = requireNonNull(parameters);
+    this.rowMapper = requireNonNull(rowMapper);
+    this.fetchSize = fetchSize;
+    this.exceptionTranslator = requireNonNull(exceptionTranslator);
+  }
+
+  /**
+   * Returns whether a cursor can be opened, which requires an active transaction in which cursors
+   * were allowed.
+   *
+   * @see QueryCursors#allowInCurrentTransaction()
+   */
+  static boolean isSupported() {
+    return QueryCursors.isAllowed();
+  }
+
+  /**
+   * Executes the query and registers the cursor to be closed on transaction completion.
+   *
+   * @throws IllegalStateException if no transaction is active
+   */
+  void open() {
+    if (!TransactionSynchronizationManager.isActualTransactionActive()
+        || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      throw new IllegalStateException("Cursor requires an active transaction");
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void beforeCompletion() {
+            close();
+          }
+        });
+
+    connection = DataSourceUtils.getConnection(dataSource);
+    try {
+      preparedStatement = connection.prepareStatement(sql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY);
+      preparedStatement.setFetchSize(fetchSize);
+      new ArgumentPreparedStatementSetter(parameters.toArray()).setValues(preparedStatement);
+      resultSet = preparedStatement.executeQuery();
+      hasNextRow = resultSet.next();
+    } catch (SQLException e) {
+      close();
+      throw translate(e);
+    }
+    if (!hasNextRow) {
+      close();
+    }
+  }
+
+  /** @throws IllegalStateException if the cursor was closed before all rows were read */
+  @Override
+  public boolean hasNext() {
+    if (hasNextRow && closed) {
+      throw new IllegalStateException(
+          format("Cursor was closed after reading %d rows before all rows were read", rowNum));
+    }
+    return hasNextRow;
+  }
+
+  /** @throws IllegalStateException if the cursor was closed before all rows were read */
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      T row = rowMapper.mapRow(resultSet, rowNum++);
+      hasNextRow = resultSet.next();
+      if (!hasNextRow) {
+        close();
+      }
+      return row;
+    } catch (SQLException e) {
+      hasNextRow = false;
+      close();
+      throw translate(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    LOG.trace("Closing cursor after {} rows", rowNum);
+    JdbcUtils.closeResultSet(resultSet);
+    JdbcUtils.closeStatement(preparedStatement);
+    DataSourceUtils.releaseConnection(connection, dataSource);
+    resultSet = null;
+    preparedStatement = null;
+    connection = null;
+  }
+
+  private RuntimeException translate(SQLException e) {
+    RuntimeException translatedException = exceptionTranslator.translate("Cursor", sql, e);
+    return translatedException != null ? translatedException : new IllegalStateException(e);
+  }
+}
@@ -47,6 +47,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -58,6 +59,7 @@ import org.molgenis.data.QueryRule;
 import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.Sort;
 import org.molgenis.data.UnknownAttributeException;
+import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
 import org.molgenis.data.meta.model.Attribute;
@@ -438,6 +440,32 @@ class PostgreSqlQueryGenerator {
     return sql.toString();
   }
 
+  /**
+   * Produces SQL to insert an entity or to update the entity if an entity with the same identifier
+   * exists. The parameters are the same as for {@link #getSqlInsert(EntityType)}.
+   */
+  static String getSqlUpsert(EntityType entityType) {
+    String idColumnName = getColumnName(entityType.getIdAttribute());
+    String updateSql =
+        getTableAttributes(entityType)
+            .map(PostgreSqlNameGenerator::getColumnName)
+            .filter(columnName -> !columnName.equals(idColumnName))
+            .map(columnName -> columnName + " = EXCLUDED." + columnName)
+            .collect(joining(", "));
+
+    StringBuilder sql =
+        new StringBuilder(getSqlInsert(entityType))
+            .append(" ON CONFLICT (")
+            .append(idColumnName)
+            .append(')');
+    if (updateSql.isEmpty()) {
+      sql.append(" DO NOTHING");
+    } else {
+      sql.append(" DO UPDATE SET ").append(updateSql);
+    }
+    return sql.toString();
+  }
+
   static String getSqlInsertJunction(EntityType entityType, Attribute attr) {
     String junctionTableName = getJunctionTableName(entityType, attr);
     return "INSERT INTO "
@@ -451,6 +479,102 @@ class PostgreSqlQueryGenerator {
         + ") VALUES (?,?,?)";
   }
 
+  /**
+   * Produces SQL to copy rows in the PostgreSQL binary format into the entity table, the columns
+   * are in the same order as in {@link #getSqlInsert(EntityType)}.
+   */
+  static String getSqlCopy(EntityType entityType) {
+    String columns =
+        getTableAttributes(entityType)
+            .map(PostgreSqlNameGenerator::getColumnName)
+            .collect(joining(", "));
+    return "COPY " + getTableName(entityType) + " (" + columns + ") FROM STDIN (FORMAT binary)";
+  }
+
+  /**
+   * Produces SQL to copy rows in the PostgreSQL binary format into the junction table of the given
+   * attribute, the columns are in the same order as in {@link #getSqlInsertJunction(EntityType,
+   * Attribute)}.
+   */
+  static String getSqlCopyJunction(EntityType entityType, Attribute attr) {
+    return "COPY "
+        + getJunctionTableName(entityType, attr)
+        + " ("
+        + getJunctionTableOrderColumnName()
+        + ','
+        + getColumnName(entityType.getIdAttribute())
+        + ','
+        + getColumnName(attr)
+        + ") FROM STDIN (FORMAT binary)";
+  }
+
+  /**
+   * Produces SQL to copy all rows of the entity table of the source entity type into the entity
+   * table of the target entity type. Columns are matched by attribute name, so that the source and
+   * target entity type can have different attribute identifiers.
+   */
+  static String getSqlInsertSelect(EntityType sourceEntityType, EntityType targetEntityType) {
+    List<Attribute> targetAttrs = getTableAttributes(targetEntityType).collect(toList());
+    String targetColumns =
+        targetAttrs.stream().map(PostgreSqlNameGenerator::getColumnName).collect(joining(", "));
+    String sourceColumns =
+        targetAttrs.stream()
+            .map(
+                targetAttr ->
+                    getColumnName(
+                        getCopySourceAttribute(sourceEntityType, targetEntityType, targetAttr)))
+            .collect(joining(", "));
+    return "INSERT INTO "
+        + getTableName(targetEntityType)
+        + " ("
+        + targetColumns
+        + ") SELECT "
+        + sourceColumns
+        + " FROM "
+        + getTableName(sourceEntityType);
+  }
+
+  /**
+   * Produces SQL to copy all rows of the junction table of an attribute of the source entity type
+   * into the junction table of the attribute with the same name of the target entity type.
+   */
+  static String getSqlInsertSelectJunction(
+      EntityType sourceEntityType, EntityType targetEntityType, Attribute targetAttr) {
+    Attribute sourceAttr = getCopySourceAttribute(sourceEntityType, targetEntityType, targetAttr);
+    return "INSERT INTO "
+        + getJunctionTableName(targetEntityType, targetAttr)
+        + " ("
+        + getJunctionTableOrderColumnName()
+        + ','
+        + getColumnName(targetEntityType.getIdAttribute())
+        + ','
+        + getColumnName(targetAttr)
+        + ") SELECT "
+        + getJunctionTableOrderColumnName()
+        + ','
+        + getColumnName(sourceEntityType.getIdAttribute())
+        + ','
+        + getColumnName(sourceAttr)
+        + " FROM "
+        + getJunctionTableName(sourceEntityType, sourceAttr);
+  }
+
+  private static Attribute getCopySourceAttribute(
+      EntityType sourceEntityType, EntityType targetEntityType, Attribute targetAttr) {
+    Attribute sourceAttr = sourceEntityType.getAttribute(targetAttr.getName());
+    if (sourceAttr == null) {
+      throw new UnknownAttributeException(sourceEntityType, targetAttr.getName());
+    }
+    if (sourceAttr.getDataType() != targetAttr.getDataType()
+        || sourceAttr.getExpression() != null) {
+      throw new MolgenisDataException(
+          format(
+              "Attribute [%s] of entity type [%s] can't be copied to entity type [%s]",
+              sourceAttr.getName(), sourceEntityType.getId(), targetEntityType.getId()));
+    }
+    return sourceAttr;
+  }
+
   static String getSqlDeleteAll(EntityType entityType) {
     return "DELETE FROM " + getTableName(entityType);
   }
@@ -542,6 +666,25 @@ class PostgreSqlQueryGenerator {
 
   static <E extends Entity> String getSqlSelect(
       EntityType entityType, Query<E> q, List<Object> parameters, boolean includeMrefs) {
+    return getSqlSelect(entityType, q, parameters, includeMrefs, null);
+  }
+
+  /**
+   * Produces SQL to select the entities that match the given query.
+   *
+   * <p>If keyset values are given, the query offset is ignored and only rows that come after the
+   * row with the given values for the attributes of {@link #getSortWithUniqueOrder(EntityType,
+   * Query)} are selected (keyset pagination). Only use keyset values if {@link
+   * #isKeysetPaginationSupported(EntityType, Query)} holds.
+   *
+   * @param keysetValues sort column values of the last row of the previous page or null
+   */
+  static <E extends Entity> String getSqlSelect(
+      EntityType entityType,
+      Query<E> q,
+      List<Object> parameters,
+      boolean includeMrefs,
+      @Nullable List<Object> keysetValues) {
     final StringBuilder select = new StringBuilder("SELECT ");
     if (isDistinctSelectRequired(entityType, q)) {
       select.append("DISTINCT ");
@@ -617,6 +760,10 @@ class PostgreSqlQueryGenerator {
     StringBuilder result = new StringBuilder().append(select).append(getSqlFrom(entityType, q));
     // where
     String where = getSqlWhere(entityType, q, parameters, new AtomicInteger());
+    if (keysetValues != null) {
+      String keysetWhere = getSqlKeysetWhere(entityType, q, keysetValues, parameters);
+      where = where.length() > 0 ? '(' + where + ") AND " + keysetWhere : keysetWhere;
+    }
     if (where.length() > 0) {
       result.append(" WHERE ").append(where);
     }
@@ -627,7 +774,7 @@ class PostgreSqlQueryGenerator {
     if (q.getPageSize() > 0) {
       result.append(" LIMIT ").append(q.getPageSize());
     }
-    if (q.getOffset() > 0) {
+    if (keysetValues == null && q.getOffset() > 0) {
       result.append(" OFFSET ").append(q.getOffset());
     }
 
@@ -688,6 +835,129 @@ class PostgreSqlQueryGenerator {
     return sqlBuilder.toString();
   }
 
+  /**
+   * Produces SQL to count the entities that match the query of an aggregate query per value of the
+   * x attribute and, if specified, the y attribute. If a distinct attribute is specified, the
+   * number of distinct values of that attribute is counted instead. Entities are counted once per
+   * entity they refer to for multiple reference attributes, entities without references are not
+   * counted.
+   *
+   * @param aggregateQuery aggregate query
+   * @param parameters prepared statement parameters
+   * @return SQL string that selects the x value, the y value and the count
+   */
+  static String getSqlAggregate(
+      EntityType entityType, AggregateQuery aggregateQuery, List<Object> parameters) {
+    Attribute xAttr = aggregateQuery.getAttributeX();
+    Attribute yAttr = aggregateQuery.getAttributeY();
+    Attribute distinctAttr = aggregateQuery.getAttributeDistinct();
+    validateAggregateAttributes(xAttr, yAttr, distinctAttr);
+
+    Query<Entity> q = aggregateQuery.getQuery();
+    if (q == null) {
+      q = new QueryImpl<>();
+    }
+
+    StringBuilder joins = new StringBuilder();
+    StringBuilder select =
+        new StringBuilder("SELECT ")
+            .append(getSqlAggregateColumn(entityType, xAttr, "x_aggregate", joins));
+    if (yAttr != null) {
+      select.append(", ").append(getSqlAggregateColumn(entityType, yAttr, "y_aggregate", joins));
+    }
+
+    // joined tables and rules on multiple reference attributes result in duplicate entity rows
+    if (distinctAttr != null) {
+      select
+          .append(", COUNT(DISTINCT ")
+          .append(getSqlAggregateColumn(entityType, distinctAttr, "distinct_aggregate", joins))
+          .append(')');
+    } else if (joins.length() > 0 || isDistinctSelectRequired(entityType, q)) {
+      select
+          .append(", COUNT(DISTINCT this.")
+          .append(getColumnName(entityType.getIdAttribute()))
+          .append(')');
+    } else {
+      select.append(", COUNT(*)");
+    }
+
+    StringBuilder sql = select.append(getSqlFrom(entityType, q)).append(joins);
+    String where = getSqlWhere(entityType, q, parameters, new AtomicInteger());
+    if (where.length() > 0) {
+      sql.append(" WHERE ").append(where);
+    }
+    sql.append(yAttr != null ? " GROUP BY 1, 2" : " GROUP BY 1");
+    return sql.toString();
+  }
+
+  /** Applies the same restrictions as the aggregations of the search index */
+  private static void validateAggregateAttributes(
+      @Nullable Attribute xAttr, @Nullable Attribute yAttr, @Nullable Attribute distinctAttr) {
+    if (xAttr == null) {
+      throw new IllegalArgumentException(
+          "Aggregation requires at least one isAggregatable attribute");
+    }
+    for (Attribute attr : Stream.of(xAttr, yAttr).filter(Objects::nonNull).collect(toList())) {
+      if (!attr.isAggregatable()) {
+        throw new IllegalArgumentException(
+            "Attribute is not isAggregatable [ " + attr.getName() + "]");
+      }
+      if (attr.isNillable() && EntityTypeUtils.isReferenceType(attr)) {
+        throw new IllegalArgumentException(
+            "Aggregatable attribute of type [" + attr.getDataType() + "] cannot be nillable");
+      }
+    }
+    if (distinctAttr != null && distinctAttr.isNillable()) {
+      throw new IllegalArgumentException("Distinct isAggregatable attribute cannot be nillable");
+    }
+  }
+
+  /**
+   * Returns the column that contains the values of an attribute to aggregate. The junction table or
+   * referenced entity table of multiple reference attributes is joined using the given alias.
+   */
+  private static String getSqlAggregateColumn(
+      EntityType entityType, Attribute attr, String alias, StringBuilder joins) {
+    if (attr.getExpression() != null) {
+      throw new IllegalArgumentException(
+          "Computed attribute cannot be aggregated [ " + attr.getName() + "]");
+    }
+
+    String idColumnName = getColumnName(entityType.getIdAttribute());
+    if (attr.getDataType() == ONE_TO_MANY && attr.isMappedBy()) {
+      EntityType refEntityType = attr.getRefEntity();
+      joins
+          .append(" INNER JOIN ")
+          .append(getTableName(refEntityType))
+          .append(" AS ")
+          .append(alias)
+          .append(" ON (this.")
+          .append(idColumnName)
+          .append(" = ")
+          .append(alias)
+          .append('.')
+          .append(getColumnName(attr.getMappedBy()))
+          .append(')');
+      return alias + '.' + getColumnName(refEntityType.getIdAttribute());
+    } else if (isMultipleReferenceType(attr)) {
+      joins
+          .append(" INNER JOIN ")
+          .append(getJunctionTableName(entityType, attr))
+          .append(" AS ")
+          .append(alias)
+          .append(" ON (this.")
+          .append(idColumnName)
+          .append(" = ")
+          .append(alias)
+          .append('.')
+          .append(idColumnName)
+          .append(')');
+      return alias + '.' + getColumnName(attr);
+    } else {
+      return "this." + getColumnName(attr);
+    }
+  }
+
   private static String getSqlColumn(EntityType entityType, Attribute attr, ColumnMode columnMode) {
     StringBuilder sqlBuilder = new StringBuilder(getColumnName(attr)).append(' ');
 
@@ -1122,6 +1392,29 @@ class PostgreSqlQueryGenerator {
     // the tenth through twentieth rows,
     // but tenth through twentieth in what ordering? The ordering is unknown, unless you specified
     // ORDER BY.
+    Sort sort = getSortWithUniqueOrder(entityType, q);
+    for (Sort.Order o : sort) {
+      Attribute attr = entityType.getAttribute(o.getAttr());
+      sortSql.append(", ").append(getColumnName(attr));
+      if (o.getDirection().equals(Sort.Direction.DESC)) {
+        sortSql.append(" DESC");
+      } else {
+        sortSql.append(" ASC");
+      }
+    }
+
+    if (sortSql.length() > 0) {
+      sortSql = new StringBuilder("ORDER BY ").append(sortSql.substring(2));
+    }
+
+    return sortSql.toString();
+  }
+
+  /**
+   * Returns the query sort extended with the id attribute if the query sort does not contain a
+   * unique attribute, so that the sort constrains the result rows into a unique order.
+   */
+  static <E extends Entity> Sort getSortWithUniqueOrder(EntityType entityType, Query<E> q) {
     Sort sort;
     if (q.getSort() != null && !hasUniqueSortAttribute(entityType, q.getSort())) {
       LOG.debug("Query with sort without unique attribute detected: {}", q);
@@ -1133,29 +1426,85 @@ class PostgreSqlQueryGenerator {
     } else {
       sort = q.getSort();
     }
+    return sort;
+  }
 
-    for (Sort.Order o : sort) {
-      Attribute attr = entityType.getAttribute(o.getAttr());
-      sortSql.append(", ").append(getColumnName(attr));
-      if (o.getDirection().equals(Sort.Direction.DESC)) {
-        sortSql.append(" DESC");
-      } else {
-        sortSql.append(" ASC");
+  /**
+   * Returns whether the rows of the query result can be paged with keyset pagination: all sort
+   * attributes must be non-nillable columns in the entity table, because NULL values cannot be
+   * compared.
+   */
+  static <E extends Entity> boolean isKeysetPaginationSupported(EntityType entityType, Query<E> q) {
+    for (Sort.Order order : getSortWithUniqueOrder(entityType, q)) {
+      Attribute attr = entityType.getAttribute(order.getAttr());
+      if (attr == null
+          || attr.isNillable()
+          || attr.hasExpression()
+          || isPersistedInOtherTable(attr)) {
+        return false;
       }
     }
+    return true;
+  }
 
-    if (sortSql.length() > 0) {
-      sortSql = new StringBuilder("ORDER BY ").append(sortSql.substring(2));
+  /**
+   * Produces the SQL condition that selects the rows that come after the row with the given sort
+   * column values. A row value comparison is used if all sort orders have the same direction,
+   * because PostgreSQL can use a multi-column index for it.
+   */
+  private static <E extends Entity> String getSqlKeysetWhere(
+      EntityType entityType, Query<E> q, List<Object> keysetValues, List<Object> parameters) {
+    List<Sort.Order> orders = Lists.newArrayList(getSortWithUniqueOrder(entityType, q));
+    if (orders.size() != keysetValues.size()) {
+      throw new IllegalArgumentException(
+          format("Expected %d keyset values but got %d", orders.size(), keysetValues.size()));
+    }
+    List<String> columns =
+        orders.stream()
+            .map(order -> "this." + getColumnName(entityType.getAttribute(order.getAttr())))
+            .collect(toList());
+
+    Sort.Direction direction = orders.get(0).getDirection();
+    if (orders.stream().allMatch(order -> order.getDirection() == direction)) {
+      parameters.addAll(keysetValues);
+      return format(
+          "(%s) %s (%s)",
+          String.join(", ", columns),
+          getKeysetOperator(direction),
+          columns.stream().map(column -> "?").collect(joining(", ")));
     }
 
-    return sortSql.toString();
+    // (c0 > ?) OR (c0 = ? AND c1 > ?) OR ...
+    StringBuilder keysetWhere = new StringBuilder();
+    for (int i = 0; i < orders.size(); i++) {
+      if (i > 0) {
+        keysetWhere.append(" OR ");
+      }
+      keysetWhere.append('(');
+      for (int j = 0; j < i; j++) {
+        keysetWhere.append(columns.get(j)).append(" = ? AND ");
+        parameters.add(keysetValues.get(j));
+      }
+      keysetWhere
+          .append(columns.get(i))
+          .append(' ')
+          .append(getKeysetOperator(orders.get(i).getDirection()))
+          .append(" ?)");
+      parameters.add(keysetValues.get(i));
+    }
+    return '(' + keysetWhere.toString() + ')';
+  }
+
+  private static String getKeysetOperator(Sort.Direction direction) {
+    return direction == Sort.Direction.DESC ? "<" : ">";
   }
 
   private static boolean hasUniqueSortAttribute(EntityType entityType, Sort sort) {
+    String idAttributeName = entityType.getIdAttribute().getName();
     for (Sort.Order order : sort) {
       String attributeName = order.getAttr();
       Attribute attribute = entityType.getAttribute(attributeName);
-      if (attribute.isUnique()) {
+      if (attribute.isUnique() || attributeName.equals(idAttributeName)) {
         return true;
       }
     }
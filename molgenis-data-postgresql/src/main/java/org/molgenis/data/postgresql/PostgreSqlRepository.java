@@ -5,10 +5,12 @@ import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Streams.stream;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.molgenis.data.QueryRule.Operator.AND;
@@ -23,6 +25,7 @@ import static org.molgenis.data.QueryRule.Operator.NESTED;
 import static org.molgenis.data.QueryRule.Operator.NOT;
 import static org.molgenis.data.QueryRule.Operator.OR;
 import static org.molgenis.data.QueryRule.Operator.RANGE;
+import static org.molgenis.data.RepositoryCapability.AGGREGATEABLE;
 import static org.molgenis.data.RepositoryCapability.CACHEABLE;
 import static org.molgenis.data.RepositoryCapability.MANAGABLE;
 import static org.molgenis.data.RepositoryCapability.QUERYABLE;
@@ -33,7 +36,12 @@ import static org.molgenis.data.RepositoryCapability.VALIDATE_UNIQUE_CONSTRAINT;
 import static org.molgenis.data.RepositoryCapability.WRITABLE;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.postgresql.PostgreSqlExceptionTranslator.VALUE_TOO_LONG_MSG;
+import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getColumnName;
 import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getJunctionTableOrderColumnName;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSortWithUniqueOrder;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlAggregate;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCopy;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCopyJunction;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCount;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDelete;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDeleteAll;
@@ -42,6 +50,8 @@ import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlInsert
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlJunctionTableSelect;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSelect;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlUpdate;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlUpsert;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.isKeysetPaginationSupported;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getJunctionTableAttributes;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getTableAttributes;
 import static org.molgenis.data.postgresql.PostgreSqlUtils.getPostgreSqlValue;
@@ -54,13 +64,18 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -68,11 +83,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import javax.sql.DataSource;
+import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.RepositoryCapability;
+import org.molgenis.data.Sort;
+import org.molgenis.data.aggregation.AggregateQuery;
+import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
@@ -80,12 +99,16 @@ import org.molgenis.data.postgresql.PostgreSqlEntityFactory.EntityMapper;
 import org.molgenis.data.support.AbstractRepository;
 import org.molgenis.data.support.BatchingQueryResult;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.util.KeysetBatchingIterable;
 import org.molgenis.data.validation.MolgenisValidationException;
 import org.molgenis.util.UnexpectedEnumException;
 import org.molgenis.validation.ConstraintViolation;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
@@ -105,6 +128,9 @@ class PostgreSqlRepository extends AbstractRepository {
 
   /** JDBC batch operation size */
   static final int BATCH_SIZE = 1000;
+
+  /** Minimum number of rows for which rows are inserted with COPY instead of batched inserts */
+  static final int COPY_THRESHOLD = 100;
   /** Repository capabilities */
   private static final Set<RepositoryCapability> REPO_CAPABILITIES =
       unmodifiableSet(
@@ -112,6 +138,7 @@ class PostgreSqlRepository extends AbstractRepository {
               WRITABLE,
               MANAGABLE,
               QUERYABLE,
+              AGGREGATEABLE,
               VALIDATE_REFERENCE_CONSTRAINT,
               VALIDATE_UNIQUE_CONSTRAINT,
               VALIDATE_NOTNULL_CONSTRAINT,
@@ -138,16 +165,19 @@ class PostgreSqlRepository extends AbstractRepository {
   private final PostgreSqlEntityFactory postgreSqlEntityFactory;
   private final JdbcTemplate jdbcTemplate;
   private final DataSource dataSource;
+  private final DataService dataService;
   private final EntityType entityType;
 
   PostgreSqlRepository(
       PostgreSqlEntityFactory postgreSqlEntityFactory,
       JdbcTemplate jdbcTemplate,
       DataSource dataSource,
+      DataService dataService,
       EntityType entityType) {
     this.postgreSqlEntityFactory = requireNonNull(postgreSqlEntityFactory);
     this.jdbcTemplate = requireNonNull(jdbcTemplate);
     this.dataSource = requireNonNull(dataSource);
+    this.dataService = requireNonNull(dataService);
     this.entityType = requireNonNull(entityType);
   }
 
@@ -187,18 +217,44 @@ class PostgreSqlRepository extends AbstractRepository {
         sql, parameters.toArray(new Object[parameters.size()]), Long.class);
   }
 
+  @Override
+  public AggregateResult aggregate(AggregateQuery aggregateQuery) {
+    List<Object> parameters = Lists.newArrayList();
+    String sql = getSqlAggregate(entityType, aggregateQuery, parameters);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Aggregating [{}] rows for query [{}]", getName(), aggregateQuery);
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("SQL: {}, parameters: {}", sql, parameters);
+      }
+    }
+    return jdbcTemplate.query(
+        sql,
+        parameters.toArray(new Object[parameters.size()]),
+        new PostgreSqlAggregateResultExtractor(
+            aggregateQuery.getAttributeX(), aggregateQuery.getAttributeY(), dataService));
+  }
+
+  /**
+   * Returns the query result as a stream. Unpaged query results are streamed from a single
+   * server-side cursor if cursors were allowed in the current transaction, callers should close the
+   * stream if they do not consume all entities.
+   *
+   * @see org.molgenis.data.transaction.QueryCursors
+   */
   @Override
   public Stream<Entity> findAll(Query<Entity> q) {
+    if (q.getPageSize() == 0 && PostgreSqlCursor.isSupported()) {
+      return findAllCursor(q);
+    }
     return stream(findAllBatching(q));
   }
 
   @Override
   public Entity findOne(Query<Entity> q) {
-    Iterator<Entity> iterator = findAll(q).iterator();
-    if (iterator.hasNext()) {
-      return iterator.next();
+    try (Stream<Entity> entities = findAll(new QueryImpl<>(q).setPageSize(1))) {
+      return entities.findFirst().orElse(null);
     }
-    return null;
   }
 
   @Override
@@ -283,16 +339,57 @@ class PostgreSqlRepository extends AbstractRepository {
     return addBatching(entities.iterator());
   }
 
+  /**
+   * Adds entities that do not exist and updates entities that exist using INSERT ... ON CONFLICT
+   * statements, so that no query is required to determine which entities exist. Junction table rows
+   * are only rewritten for entities of which the referenced entities changed.
+   */
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    final Attribute idAttr = entityType.getIdAttribute();
+    final List<Attribute> tableAttrs = getTableAttributes(entityType).collect(toList());
+    final List<Attribute> junctionTableAttrs =
+        getJunctionTableAttributes(entityType).collect(toList());
+    final String upsertSql = getSqlUpsert(entityType);
+
+    Iterators.partition(entities.iterator(), BATCH_SIZE)
+        .forEachRemaining(
+            entitiesBatch -> {
+              if (LOG.isDebugEnabled()) {
+                LOG.debug("Upserting {} [{}] entities", entitiesBatch.size(), getName());
+                if (LOG.isTraceEnabled()) {
+                  LOG.trace("SQL: {}", upsertSql);
+                }
+              }
+
+              // persist values in entity table
+              jdbcTemplate.batchUpdate(
+                  upsertSql, new BatchAddPreparedStatementSetter(entitiesBatch, tableAttrs));
+
+              // persist changed values in entity junction table
+              if (!junctionTableAttrs.isEmpty()) {
+                upsertMrefs(idAttr, junctionTableAttrs, entitiesBatch);
+              }
+            });
+  }
+
   @Override
   public void forEachBatched(Fetch fetch, Consumer<List<Entity>> consumer, int batchSize) {
     final Stopwatch stopwatch = createStarted();
-    final JdbcTemplate template = new JdbcTemplate(dataSource);
-    template.setFetchSize(batchSize);
-
     final Query<Entity> query = new QueryImpl<>();
     if (fetch != null) {
       query.fetch(fetch);
     }
+    if (PostgreSqlCursor.isSupported()) {
+      try (Stream<Entity> entities = findAllCursor(query)) {
+        Iterators.partition(entities.iterator(), batchSize).forEachRemaining(consumer);
+      }
+      LOG.debug("Streamed entire repository in batches of size {} in {}.", batchSize, stopwatch);
+      return;
+    }
+
+    final JdbcTemplate template = new JdbcTemplate(dataSource);
+    template.setFetchSize(batchSize);
     final String allRowsSelect = getSqlSelect(entityType, query, emptyList(), false);
     LOG.debug("Fetching [{}] data...", getName());
     LOG.trace("SQL: {}", allRowsSelect);
@@ -448,7 +545,81 @@ class PostgreSqlRepository extends AbstractRepository {
     };
   }
 
-  private BatchingQueryResult<Entity> findAllBatching(Query<Entity> q) {
+  private Stream<Entity> findAllCursor(Query<Entity> q) {
+    List<Object> parameters = Lists.newArrayList();
+    String sql = getSqlSelect(getEntityType(), q, parameters, true);
+    EntityMapper entityMapper =
+        postgreSqlEntityFactory.createRowMapper(getEntityType(), q.getFetch());
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Streaming [{}] data for query [{}]", getName(), q);
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("SQL: {}, parameters: {}", sql, parameters);
+      }
+    }
+    PostgreSqlCursor<Entity> cursor =
+        new PostgreSqlCursor<>(
+            dataSource,
+            sql,
+            parameters,
+            entityMapper,
+            BATCH_SIZE,
+            jdbcTemplate.getExceptionTranslator());
+    cursor.open();
+    return stream(cursor).onClose(cursor::close);
+  }
+
+  /**
+   * Returns the query result in batches. Results spanning multiple batches are retrieved with
+   * keyset pagination if possible, because the cost of retrieving a batch with LIMIT/OFFSET grows
+   * with the offset.
+   */
+  private Iterable<Entity> findAllBatching(Query<Entity> q) {
+    if ((q.getPageSize() == 0 || q.getPageSize() > BATCH_SIZE)
+        && isKeysetPaginationSupported(entityType, q)) {
+      return findAllKeysetBatching(q);
+    }
+    return findAllOffsetBatching(q);
+  }
+
+  private KeysetBatchingIterable<Entity, List<Object>> findAllKeysetBatching(Query<Entity> q) {
+    Sort sort = getSortWithUniqueOrder(entityType, q);
+    List<String> sortColumnNames =
+        stream(sort)
+            .map(order -> getColumnName(entityType.getAttribute(order.getAttr()), false))
+            .collect(toList());
+
+    return new KeysetBatchingIterable<Entity, List<Object>>(BATCH_SIZE, q.getPageSize()) {
+      @Override
+      protected Batch<Entity, List<Object>> getBatch(List<Object> keysetValues, int batchSize) {
+        Query<Entity> batchQuery = new QueryImpl<>(q).setPageSize(batchSize);
+        batchQuery.sort(sort);
+
+        List<Object> parameters = new ArrayList<>();
+        String sql = getSqlSelect(getEntityType(), batchQuery, parameters, true, keysetValues);
+        EntityMapper entityMapper =
+            postgreSqlEntityFactory.createRowMapper(getEntityType(), batchQuery.getFetch());
+        LOG.debug("Fetching [{}] data for query [{}]", getName(), batchQuery);
+        LOG.trace("SQL: {}, parameters: {}", sql, parameters);
+        Stopwatch sw = createStarted();
+        Object[] lastKeysetValues = new Object[sortColumnNames.size()];
+        List<Entity> result =
+            jdbcTemplate.query(
+                sql,
+                parameters.toArray(new Object[parameters.size()]),
+                (resultSet, rowNum) -> {
+                  for (int i = 0; i < lastKeysetValues.length; i++) {
+                    lastKeysetValues[i] = resultSet.getObject(sortColumnNames.get(i));
+                  }
+                  return entityMapper.mapRow(resultSet, rowNum);
+                });
+        LOG.trace("That took {}", sw);
+        return new Batch<>(result, result.isEmpty() ? null : asList(lastKeysetValues));
+      }
+    };
+  }
+
+  private BatchingQueryResult<Entity> findAllOffsetBatching(Query<Entity> q) {
     return new BatchingQueryResult<Entity>(BATCH_SIZE, q) {
       @Override
       protected List<Entity> getBatch(Query<Entity> batchQuery) {
@@ -477,6 +648,7 @@ class PostgreSqlRepository extends AbstractRepository {
     final List<Attribute> junctionTableAttrs =
         getJunctionTableAttributes(entityType).collect(toList());
     final String insertSql = getSqlInsert(entityType);
+    final String copySql = getSqlCopy(entityType);
 
     Iterators.partition(entities, BATCH_SIZE)
         .forEachRemaining(
@@ -489,8 +661,12 @@ class PostgreSqlRepository extends AbstractRepository {
               }
 
               // persist values in entity table
-              jdbcTemplate.batchUpdate(
-                  insertSql, new BatchAddPreparedStatementSetter(entitiesBatch, tableAttrs));
+              if (entitiesBatch.size() >= COPY_THRESHOLD) {
+                copyIn(copySql, tableAttrs.size(), createRows(entitiesBatch, tableAttrs));
+              } else {
+                jdbcTemplate.batchUpdate(
+                    insertSql, new BatchAddPreparedStatementSetter(entitiesBatch, tableAttrs));
+              }
 
               // persist values in entity junction table
               if (!junctionTableAttrs.isEmpty()) {
@@ -596,6 +772,57 @@ class PostgreSqlRepository extends AbstractRepository {
             });
   }
 
+  /**
+   * Replaces the junction table rows of entities of which the referenced entities differ from the
+   * persisted referenced entities. The junction table rows of read-only attributes are only written
+   * for entities without junction table rows, like for added entities.
+   */
+  private void upsertMrefs(
+      Attribute idAttr, List<Attribute> junctionTableAttrs, List<Entity> entitiesBatch) {
+    Map<String, List<Map<String, Object>>> mrefs =
+        createMrefMap(idAttr, junctionTableAttrs, entitiesBatch);
+    Set<Object> ids =
+        entitiesBatch.stream()
+            .map(entity -> getPostgreSqlValue(entity, idAttr))
+            .collect(toCollection(LinkedHashSet::new));
+
+    for (Attribute attr : junctionTableAttrs) {
+      Attribute refIdAttr = attr.getRefEntity().getIdAttribute();
+      Multimap<Object, Object> persistedMrefIds =
+          selectMrefIDsForAttribute(
+              entityType, idAttr.getDataType(), attr, ids, refIdAttr.getDataType());
+      Multimap<Object, Map<String, Object>> attrMrefs = ArrayListMultimap.create();
+      mrefs.get(attr.getName()).forEach(mref -> attrMrefs.put(mref.get(idAttr.getName()), mref));
+
+      List<Object> changedIds = new ArrayList<>();
+      List<Map<String, Object>> changedMrefs = new ArrayList<>();
+      for (Object id : ids) {
+        List<Object> persistedRefIds = new ArrayList<>(persistedMrefIds.get(id));
+        if (attr.isReadOnly() && !persistedRefIds.isEmpty()) {
+          continue;
+        }
+        Collection<Map<String, Object>> entityMrefs = attrMrefs.get(id);
+        List<Object> refIds =
+            entityMrefs.stream()
+                .map(mref -> getPostgreSqlValue((Entity) mref.get(attr.getName()), refIdAttr))
+                .collect(toList());
+        if (!refIds.equals(persistedRefIds)) {
+          if (!persistedRefIds.isEmpty()) {
+            changedIds.add(id);
+          }
+          changedMrefs.addAll(entityMrefs);
+        }
+      }
+
+      if (!changedIds.isEmpty()) {
+        removeMrefs(changedIds, attr);
+      }
+      if (!changedMrefs.isEmpty()) {
+        addMrefs(changedMrefs, attr);
+      }
+    }
+  }
+
   private void verifyUpdate(List<? extends Entity> entitiesBatch, int[] counts, Attribute idAttr) {
     int nrUpdatedEntities = Arrays.stream(counts).sum();
     if (nrUpdatedEntities < entitiesBatch.size()) {
@@ -648,9 +875,15 @@ class PostgreSqlRepository extends AbstractRepository {
     }
 
     try {
-      jdbcTemplate.batchUpdate(
-          insertMrefSql, new BatchJunctionTableAddPreparedStatementSetter(mrefs, attr, idAttr));
-
+      if (mrefs.size() >= COPY_THRESHOLD) {
+        copyIn(
+            getSqlCopyJunction(entityType, attr),
+            3,
+            mrefs.stream().map(mref -> getJunctionTableValues(mref, attr, idAttr)));
+      } else {
+        jdbcTemplate.batchUpdate(
+            insertMrefSql, new BatchJunctionTableAddPreparedStatementSetter(mrefs, attr, idAttr));
+      }
     } catch (MolgenisValidationException mve) {
       if (mve.getMessage().equals(VALUE_TOO_LONG_MSG)) {
         mve =
@@ -664,6 +897,41 @@ class PostgreSqlRepository extends AbstractRepository {
     }
   }
 
+  private static Stream<List<Object>> createRows(
+      List<? extends Entity> entities, List<Attribute> tableAttrs) {
+    return entities.stream()
+        .map(
+            entity ->
+                tableAttrs.stream()
+                    .map(attr -> getPostgreSqlValue(entity, attr))
+                    .collect(toList()));
+  }
+
+  /**
+   * Copies rows into a table with the PostgreSQL COPY command, which is considerably faster than
+   * batched inserts for larger numbers of rows. Constraint violations are translated by the
+   * exception translator of the {@link JdbcTemplate}, like violations caused by batched inserts.
+   */
+  private void copyIn(String copySql, int nrColumns, Stream<List<Object>> rows) {
+    PostgreSqlBinaryCopyWriter copyWriter = new PostgreSqlBinaryCopyWriter(nrColumns);
+    rows.forEach(copyWriter::writeRow);
+    byte[] copyData = copyWriter.toByteArray();
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("SQL: {}, bytes: {}", copySql, copyData.length);
+    }
+    jdbcTemplate.execute(
+        (ConnectionCallback<Long>)
+            connection -> {
+              CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+              try {
+                return copyManager.copyIn(copySql, new ByteArrayInputStream(copyData));
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
   private void removeMrefs(final List<Object> ids, final Attribute attr) {
     final Attribute idAttr = attr.isMappedBy() ? attr.getMappedBy() : entityType.getIdAttribute();
     String deleteMrefSql =
@@ -757,6 +1025,23 @@ class PostgreSqlRepository extends AbstractRepository {
     }
   }
 
+  /** Returns the order, entity id and referenced entity id values of a junction table row */
+  private static List<Object> getJunctionTableValues(
+      Map<String, Object> mref, Attribute attr, Attribute idAttr) {
+    Object idValue0;
+    Object idValue1;
+    if (attr.isMappedBy()) {
+      Entity mrefEntity = (Entity) mref.get(attr.getName());
+      idValue0 = getPostgreSqlValue(mrefEntity, attr.getRefEntity().getIdAttribute());
+      idValue1 = mref.get(idAttr.getName());
+    } else {
+      idValue0 = mref.get(idAttr.getName());
+      Entity mrefEntity = (Entity) mref.get(attr.getName());
+      idValue1 = getPostgreSqlValue(mrefEntity, mrefEntity.getEntityType().getIdAttribute());
+    }
+    return asList(mref.get(getJunctionTableOrderColumnName()), idValue0, idValue1);
+  }
+
   private static class BatchJunctionTableAddPreparedStatementSetter
       implements BatchPreparedStatementSetter {
     private final List<Map<String, Object>> mrefs;
@@ -772,22 +1057,10 @@ class PostgreSqlRepository extends AbstractRepository {
 
     @Override
     public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
-      Map<String, Object> mref = mrefs.get(i);
-
-      Object idValue0;
-      Object idValue1;
-      if (attr.isMappedBy()) {
-        Entity mrefEntity = (Entity) mref.get(attr.getName());
-        idValue0 = getPostgreSqlValue(mrefEntity, attr.getRefEntity().getIdAttribute());
-        idValue1 = mref.get(idAttr.getName());
-      } else {
-        idValue0 = mref.get(idAttr.getName());
-        Entity mrefEntity = (Entity) mref.get(attr.getName());
-        idValue1 = getPostgreSqlValue(mrefEntity, mrefEntity.getEntityType().getIdAttribute());
-      }
-      preparedStatement.setInt(1, (int) mref.get(getJunctionTableOrderColumnName()));
-      preparedStatement.setObject(2, idValue0);
-      preparedStatement.setObject(3, idValue1);
+      List<Object> values = getJunctionTableValues(mrefs.get(i), attr, idAttr);
+      preparedStatement.setInt(1, (int) values.get(0));
+      preparedStatement.setObject(2, values.get(1));
+      preparedStatement.setObject(3, values.get(2));
     }
 
     @Override
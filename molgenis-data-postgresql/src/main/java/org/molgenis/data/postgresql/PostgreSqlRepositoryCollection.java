@@ -5,6 +5,7 @@ import static java.lang.String.format;
 import static java.util.EnumSet.of;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.RepositoryCollectionCapability.COPYABLE;
 import static org.molgenis.data.RepositoryCollectionCapability.META_DATA_PERSISTABLE;
 import static org.molgenis.data.RepositoryCollectionCapability.UPDATABLE;
 import static org.molgenis.data.RepositoryCollectionCapability.WRITABLE;
@@ -13,7 +14,6 @@ import static org.molgenis.data.meta.AttributeType.ENUM;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.BACKEND;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
-import static org.molgenis.data.meta.model.EntityTypeMetadata.ID;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.IS_ABSTRACT;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.ColumnMode;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.generateSqlColumnDefaultConstraint;
@@ -36,6 +36,8 @@ import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDropNo
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDropTable;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDropUniqueKey;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDropUpdateTrigger;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlInsertSelect;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlInsertSelectJunction;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSetDataType;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSetNotNull;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlUpdate;
@@ -115,7 +117,7 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
 
   @Override
   public Set<RepositoryCollectionCapability> getCapabilities() {
-    return immutableEnumSet(of(WRITABLE, UPDATABLE, META_DATA_PERSISTABLE));
+    return immutableEnumSet(of(WRITABLE, UPDATABLE, META_DATA_PERSISTABLE, COPYABLE));
   }
 
   @Override
@@ -152,14 +154,10 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
   public Repository<Entity> getRepository(String id) {
     EntityType entityType =
         dataService
-            .query(ENTITY_TYPE_META_DATA, EntityType.class)
-            .eq(BACKEND, POSTGRESQL)
-            .and()
-            .eq(ID, id)
-            .and()
-            .eq(IS_ABSTRACT, false)
-            .fetch(getEntityTypeFetch())
-            .findOne();
+            .getMeta()
+            .getEntityType(id)
+            .filter(type -> POSTGRESQL.equals(type.getBackend()) && !type.isAbstract())
+            .orElse(null);
     return getRepository(entityType);
   }
 
@@ -278,6 +276,42 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
     }
   }
 
+  /**
+   * Copies the rows of the entity table and junction tables of the source entity type with one
+   * statement per table. Values of reference attributes are copied as is, so references to entities
+   * that were copied along with the source entity type must keep their identifiers.
+   */
+  @Override
+  public void copyEntities(EntityType sourceEntityType, EntityType targetEntityType) {
+    if (targetEntityType.isAbstract()) {
+      throw new MolgenisDataException(
+          format("Cannot copy entities to abstract entity type [%s].", targetEntityType.getId()));
+    }
+
+    String insertSelectSql = getSqlInsertSelect(sourceEntityType, targetEntityType);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Copying entities from entity [{}] to entity [{}]",
+          sourceEntityType.getId(),
+          targetEntityType.getId());
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("SQL: {}", insertSelectSql);
+      }
+    }
+    jdbcTemplate.update(insertSelectSql);
+
+    getJunctionTableAttributes(targetEntityType)
+        .forEach(
+            targetAttr -> {
+              String insertSelectJunctionSql =
+                  getSqlInsertSelectJunction(sourceEntityType, targetEntityType, targetAttr);
+              if (LOG.isTraceEnabled()) {
+                LOG.trace("SQL: {}", insertSelectJunctionSql);
+              }
+              jdbcTemplate.update(insertSelectJunctionSql);
+            });
+  }
+
   /**
    * Add attribute to entityType.
    *
@@ -698,7 +732,8 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
 
   /** Return a new PostgreSQL repository */
   private PostgreSqlRepository createPostgreSqlRepository(EntityType entityType) {
-    return new PostgreSqlRepository(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType);
+    return new PostgreSqlRepository(
+        postgreSqlEntityFactory, jdbcTemplate, dataSource, dataService, entityType);
   }
 
   private boolean isTableExists(EntityType entityType) {
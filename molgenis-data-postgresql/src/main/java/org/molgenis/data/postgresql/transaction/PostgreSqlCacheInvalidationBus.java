@@ -0,0 +1,282 @@
+package org.molgenis.data.postgresql.transaction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptySet;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.util.ExecutorServiceUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link CacheInvalidationBus} based on PostgreSQL LISTEN/NOTIFY.
+ *
+ * <p>Invalidations are published with pg_notify on the connection of the current transaction, so
+ * PostgreSQL only delivers them to other nodes after the transaction commits. Each node listens on
+ * a dedicated connection and notifies its listeners of invalidations published by other nodes. On
+ * (re)connecting a node invalidates all its caches, because notifications published while it was
+ * not listening are lost.
+ */
+@Component
+class PostgreSqlCacheInvalidationBus implements CacheInvalidationBus {
+  private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlCacheInvalidationBus.class);
+
+  static final String CHANNEL = "molgenis_cache_invalidation";
+  /** PostgreSQL rejects payloads of 8000 bytes or more in the default configuration */
+  static final int MAX_PAYLOAD_BYTES = 7999;
+
+  private static final int POLL_TIMEOUT_MILLIS = 1000;
+  private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+  private static final String ID_TYPE_STRING = "string";
+  private static final String ID_TYPE_INT = "int";
+  private static final String ID_TYPE_LONG = "long";
+
+  private final DataSource dataSource;
+  private final JdbcTemplate jdbcTemplate;
+  private final Gson gson;
+  private final String nodeId;
+  private final List<CacheInvalidationListener> listeners;
+
+  private ExecutorService executorService;
+  private volatile boolean listening;
+
+  PostgreSqlCacheInvalidationBus(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+    this.dataSource = requireNonNull(dataSource);
+    this.jdbcTemplate = requireNonNull(jdbcTemplate);
+    this.gson = new Gson();
+    this.nodeId = UUID.randomUUID().toString();
+    this.listeners = new CopyOnWriteArrayList<>();
+  }
+
+  @Override
+  public void publish(CacheInvalidation cacheInvalidation) {
+    String payload = toPayload(cacheInvalidation);
+    LOG.trace("Publishing cache invalidation {}", payload);
+    jdbcTemplate.execute(
+        "SELECT pg_notify(?, ?)",
+        (PreparedStatementCallback<Boolean>)
+            preparedStatement -> {
+              preparedStatement.setString(1, CHANNEL);
+              preparedStatement.setString(2, payload);
+              return preparedStatement.execute();
+            });
+  }
+
+  @Override
+  public void addCacheInvalidationListener(CacheInvalidationListener cacheInvalidationListener) {
+    listeners.add(requireNonNull(cacheInvalidationListener));
+  }
+
+  @EventListener
+  public synchronized void onApplicationEvent(BootstrappingEvent bootstrappingEvent) {
+    if (bootstrappingEvent.getStatus() == FINISHED && executorService == null) {
+      listening = true;
+      executorService =
+          Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("molgenis-cache-invalidation-%d")
+                  .setDaemon(true)
+                  .build());
+      executorService.execute(this::listen);
+    }
+  }
+
+  @PreDestroy
+  synchronized void preDestroy() {
+    listening = false;
+    if (executorService != null) {
+      ExecutorServiceUtils.shutdownAndAwaitTermination(executorService);
+      executorService = null;
+    }
+  }
+
+  private void listen() {
+    while (listening) {
+      try (Connection connection = dataSource.getConnection()) {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        LOG.debug("Listening for cache invalidations on channel '{}'", CHANNEL);
+        notifyListeners(CacheInvalidation.createInvalidateAll());
+
+        while (listening) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              handleNotification(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException e) {
+        LOG.warn("Error listening for cache invalidations, reconnecting", e);
+        sleepBeforeReconnect();
+      }
+    }
+  }
+
+  private void sleepBeforeReconnect() {
+    try {
+      TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+    } catch (InterruptedException e) {
+      listening = false;
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  void handleNotification(String payload) {
+    Message message;
+    try {
+      message = gson.fromJson(payload, Message.class);
+    } catch (JsonParseException e) {
+      LOG.error("Invalid cache invalidation '{}', invalidating all caches", payload, e);
+      notifyListeners(CacheInvalidation.createInvalidateAll());
+      return;
+    }
+    if (nodeId.equals(message.origin)) {
+      return;
+    }
+    LOG.trace("Received cache invalidation {}", payload);
+    notifyListeners(toCacheInvalidation(message));
+  }
+
+  private void notifyListeners(CacheInvalidation cacheInvalidation) {
+    for (CacheInvalidationListener listener : listeners) {
+      try {
+        listener.onCacheInvalidation(cacheInvalidation);
+      } catch (RuntimeException e) {
+        LOG.error("Error invalidating cache", e);
+      }
+    }
+    for (CacheInvalidationListener listener : listeners) {
+      try {
+        listener.afterCacheInvalidation(cacheInvalidation);
+      } catch (RuntimeException e) {
+        LOG.error("Error invalidating cache", e);
+      }
+    }
+  }
+
+  /**
+   * Creates a notification payload that fits within the PostgreSQL payload limit by coarsening the
+   * invalidation from entities to repositories to everything if necessary.
+   */
+  String toPayload(CacheInvalidation cacheInvalidation) {
+    String payload = gson.toJson(toMessage(cacheInvalidation));
+    if (payload.getBytes(UTF_8).length > MAX_PAYLOAD_BYTES) {
+      payload =
+          gson.toJson(
+              toMessage(
+                  CacheInvalidation.create(cacheInvalidation.getDirtyRepositories(), emptySet())));
+    }
+    if (payload.getBytes(UTF_8).length > MAX_PAYLOAD_BYTES) {
+      payload = gson.toJson(toMessage(CacheInvalidation.createInvalidateAll()));
+    }
+    return payload;
+  }
+
+  private Message toMessage(CacheInvalidation cacheInvalidation) {
+    Message message = new Message();
+    message.origin = nodeId;
+    message.all = cacheInvalidation.isInvalidateAll();
+    message.repositories = new ArrayList<>(cacheInvalidation.getEntirelyDirtyRepositories());
+    message.entities = new HashMap<>();
+    cacheInvalidation.getDirtyEntities().stream()
+        .collect(groupingBy(EntityKey::getEntityTypeId))
+        .forEach(
+            (entityTypeId, entityKeys) -> {
+              TypedIds typedIds = new TypedIds();
+              typedIds.type = getIdType(entityKeys.get(0).getId());
+              typedIds.ids =
+                  entityKeys.stream().map(key -> key.getId().toString()).collect(toList());
+              message.entities.put(entityTypeId, typedIds);
+            });
+    return message;
+  }
+
+  private CacheInvalidation toCacheInvalidation(Message message) {
+    if (message.all) {
+      return CacheInvalidation.createInvalidateAll();
+    }
+    Set<EntityKey> dirtyEntities =
+        message.entities.entrySet().stream()
+            .flatMap(
+                entry ->
+                    entry.getValue().ids.stream()
+                        .map(
+                            id ->
+                                EntityKey.create(entry.getKey(), toId(entry.getValue().type, id))))
+            .collect(toSet());
+    return CacheInvalidation.create(new HashSet<>(message.repositories), dirtyEntities);
+  }
+
+  private static String getIdType(Object id) {
+    if (id instanceof Integer) {
+      return ID_TYPE_INT;
+    } else if (id instanceof Long) {
+      return ID_TYPE_LONG;
+    } else {
+      return ID_TYPE_STRING;
+    }
+  }
+
+  private static Object toId(String idType, String id) {
+    switch (idType) {
+      case ID_TYPE_INT:
+        return Integer.valueOf(id);
+      case ID_TYPE_LONG:
+        return Long.valueOf(id);
+      default:
+        return id;
+    }
+  }
+
+  /** JSON notification payload */
+  private static class Message {
+    private String origin;
+    private boolean all;
+    private List<String> repositories;
+    private Map<String, TypedIds> entities;
+  }
+
+  /** Entity ids of one entity type, serialized as strings together with their type */
+  private static class TypedIds {
+    private String type;
+    private List<String> ids;
+  }
+}
@@ -0,0 +1,141 @@
+package org.molgenis.data.postgresql;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.BOOL;
+import static org.molgenis.data.meta.AttributeType.INT;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.aggregation.AggregateResult;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.test.AbstractMockitoTest;
+
+class PostgreSqlAggregateResultExtractorTest extends AbstractMockitoTest {
+  @Mock private DataService dataService;
+  @Mock private ResultSet resultSet;
+
+  @Test
+  void testExtractData() throws SQLException {
+    Attribute xAttr = when(mock(Attribute.class).getDataType()).thenReturn(STRING).getMock();
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getString(1)).thenReturn("b", "a");
+    when(resultSet.getLong(2)).thenReturn(3L, 5L);
+
+    AggregateResult aggregateResult =
+        new PostgreSqlAggregateResultExtractor(xAttr, null, dataService)
+            .extractData(resultSet);
+    assertEquals(
+        new AggregateResult(
+            asList(singletonList(5L), singletonList(3L)), asList("a", "b"), emptyList()),
+        aggregateResult);
+  }
+
+  @Test
+  void testExtractDataNillable() throws SQLException {
+    Attribute xAttr = when(mock(Attribute.class).getDataType()).thenReturn(INT).getMock();
+    when(xAttr.isNillable()).thenReturn(true);
+    Attribute yAttr = when(mock(Attribute.class).getDataType()).thenReturn(BOOL).getMock();
+    when(yAttr.isNillable()).thenReturn(true);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getLong(1)).thenReturn(2L, 1L);
+    when(resultSet.getBoolean(2)).thenReturn(true, false);
+    when(resultSet.wasNull()).thenReturn(false);
+    when(resultSet.getLong(3)).thenReturn(4L, 6L);
+
+    AggregateResult aggregateResult =
+        new PostgreSqlAggregateResultExtractor(xAttr, yAttr, dataService)
+            .extractData(resultSet);
+    assertEquals(
+        new AggregateResult(
+            asList(asList(6L, 0L, 0L), asList(0L, 4L, 0L), asList(0L, 0L, 0L)),
+            asList(1L, 2L, null),
+            asList(false, true, null)),
+        aggregateResult);
+  }
+
+  @Test
+  void testExtractDataReference() throws SQLException {
+    Attribute refIdAttr = when(mock(Attribute.class).getDataType()).thenReturn(INT).getMock();
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+    Attribute xAttr = when(mock(Attribute.class).getDataType()).thenReturn(XREF).getMock();
+    when(xAttr.getRefEntity()).thenReturn(refEntityType);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getString(1)).thenReturn("2", "10");
+    when(resultSet.getLong(2)).thenReturn(1L, 7L);
+    when(refEntityType.getId()).thenReturn("refEntityTypeId");
+    Entity refEntity10 = when(mock(Entity.class).getIdValue()).thenReturn(10).getMock();
+    Entity refEntity2 = when(mock(Entity.class).getIdValue()).thenReturn(2).getMock();
+    List<Object> ids = new ArrayList<>();
+    when(dataService.findAll(eq("refEntityTypeId"), any(Stream.class)))
+        .thenAnswer(
+            invocation -> {
+              Stream<Object> idStream = invocation.getArgument(1);
+              idStream.forEach(ids::add);
+              return Stream.of(refEntity2, refEntity10);
+            });
+
+    AggregateResult aggregateResult =
+        new PostgreSqlAggregateResultExtractor(xAttr, null, dataService)
+            .extractData(resultSet);
+    assertEquals(
+        new AggregateResult(
+            asList(singletonList(7L), singletonList(1L)),
+            asList(refEntity10, refEntity2),
+            emptyList()),
+        aggregateResult);
+    assertEquals(asList(10, 2), ids);
+  }
+
+  @Test
+  void testExtractDataReferenceNotPermitted() throws SQLException {
+    Attribute refIdAttr = when(mock(Attribute.class).getDataType()).thenReturn(INT).getMock();
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+    when(refEntityType.getId()).thenReturn("refEntityTypeId");
+    Attribute xAttr = when(mock(Attribute.class).getDataType()).thenReturn(XREF).getMock();
+    when(xAttr.getRefEntity()).thenReturn(refEntityType);
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getString(1)).thenReturn("2");
+    when(resultSet.getLong(2)).thenReturn(1L);
+    when(dataService.findAll(eq("refEntityTypeId"), any(Stream.class))).thenReturn(Stream.empty());
+
+    AggregateResult aggregateResult =
+        new PostgreSqlAggregateResultExtractor(xAttr, null, dataService).extractData(resultSet);
+    assertEquals(
+        new AggregateResult(singletonList(singletonList(1L)), singletonList(null), emptyList()),
+        aggregateResult);
+  }
+
+  @Test
+  void testExtractDataReferenceNoValues() throws SQLException {
+    Attribute xAttr = when(mock(Attribute.class).getDataType()).thenReturn(XREF).getMock();
+    when(xAttr.isNillable()).thenReturn(true);
+    when(resultSet.next()).thenReturn(false);
+
+    AggregateResult aggregateResult =
+        new PostgreSqlAggregateResultExtractor(xAttr, null, dataService).extractData(resultSet);
+    assertEquals(
+        new AggregateResult(singletonList(singletonList(0L)), singletonList(null), emptyList()),
+        aggregateResult);
+    verifyNoInteractions(dataService);
+  }
+}
@@ -0,0 +1,90 @@
+package org.molgenis.data.postgresql;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class PostgreSqlBinaryCopyWriterTest {
+  @Test
+  void testToByteArrayNoRows() throws IOException {
+    DataInputStream dataInputStream = toDataInputStream(new PostgreSqlBinaryCopyWriter(1));
+    assertHeader(dataInputStream);
+    assertEquals(-1, dataInputStream.readShort());
+    assertEquals(-1, dataInputStream.read());
+  }
+
+  @Test
+  void testWriteRow() throws IOException {
+    PostgreSqlBinaryCopyWriter copyWriter = new PostgreSqlBinaryCopyWriter(8);
+    copyWriter.writeRow(
+        asList(
+            "str",
+            null,
+            123,
+            456L,
+            1.5,
+            true,
+            LocalDate.of(2000, 1, 3),
+            LocalDateTime.of(2000, 1, 1, 0, 0, 2).atOffset(UTC)));
+
+    DataInputStream dataInputStream = toDataInputStream(copyWriter);
+    assertHeader(dataInputStream);
+    assertEquals(8, dataInputStream.readShort());
+    assertEquals(3, dataInputStream.readInt());
+    byte[] str = new byte[3];
+    dataInputStream.readFully(str);
+    assertArrayEquals("str".getBytes(UTF_8), str);
+    assertEquals(-1, dataInputStream.readInt());
+    assertEquals(4, dataInputStream.readInt());
+    assertEquals(123, dataInputStream.readInt());
+    assertEquals(8, dataInputStream.readInt());
+    assertEquals(456L, dataInputStream.readLong());
+    assertEquals(8, dataInputStream.readInt());
+    assertEquals(1.5, dataInputStream.readDouble());
+    assertEquals(1, dataInputStream.readInt());
+    assertEquals(1, dataInputStream.readByte());
+    assertEquals(4, dataInputStream.readInt());
+    assertEquals(2, dataInputStream.readInt());
+    assertEquals(8, dataInputStream.readInt());
+    assertEquals(2000000L, dataInputStream.readLong());
+    assertEquals(-1, dataInputStream.readShort());
+    assertEquals(-1, dataInputStream.read());
+  }
+
+  @Test
+  void testWriteRowInvalidNumberOfValues() {
+    PostgreSqlBinaryCopyWriter copyWriter = new PostgreSqlBinaryCopyWriter(2);
+    assertThrows(IllegalArgumentException.class, () -> copyWriter.writeRow(singletonList("str")));
+  }
+
+  @Test
+  void testWriteRowUnsupportedType() {
+    PostgreSqlBinaryCopyWriter copyWriter = new PostgreSqlBinaryCopyWriter(1);
+    assertThrows(
+        IllegalArgumentException.class, () -> copyWriter.writeRow(singletonList(new Object())));
+  }
+
+  private static DataInputStream toDataInputStream(PostgreSqlBinaryCopyWriter copyWriter) {
+    return new DataInputStream(new ByteArrayInputStream(copyWriter.toByteArray()));
+  }
+
+  private static void assertHeader(DataInputStream dataInputStream) throws IOException {
+    byte[] signature = new byte[11];
+    dataInputStream.readFully(signature);
+    assertArrayEquals(
+        new byte[] {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0}, signature);
+    assertEquals(0, dataInputStream.readInt());
+    assertEquals(0, dataInputStream.readInt());
+  }
+}
@@ -0,0 +1,160 @@
+package org.molgenis.data.postgresql;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.molgenis.data.transaction.QueryCursors;
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class PostgreSqlCursorTest extends AbstractMockitoTest {
+  private static final String SQL = "SELECT \"id\" FROM \"entity\" WHERE \"id\" > ?";
+
+  @Mock private DataSource dataSource;
+  @Mock private Connection connection;
+  @Mock private PreparedStatement preparedStatement;
+  @Mock private ResultSet resultSet;
+  @Mock private RowMapper<String> rowMapper;
+  @Mock private SQLExceptionTranslator exceptionTranslator;
+  private PostgreSqlCursor<String> cursor;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    cursor =
+        new PostgreSqlCursor<>(
+            dataSource, SQL, singletonList(1), rowMapper, 1000, exceptionTranslator);
+  }
+
+  @AfterEach
+  void tearDownAfterEach() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clear();
+    }
+    TransactionSynchronizationManager.unbindResourceIfPossible(dataSource);
+    TransactionSynchronizationManager.unbindResourceIfPossible("queryCursorsAllowed");
+  }
+
+  @Test
+  void testIsSupportedNoTransaction() {
+    assertFalse(PostgreSqlCursor.isSupported());
+  }
+
+  @Test
+  void testIsSupportedNotAllowed() {
+    startTransaction();
+    assertFalse(PostgreSqlCursor.isSupported());
+  }
+
+  @Test
+  void testIsSupported() {
+    startTransaction();
+    QueryCursors.allowInCurrentTransaction();
+    assertTrue(PostgreSqlCursor.isSupported());
+  }
+
+  @Test
+  void testOpenNoTransaction() {
+    assertThrows(IllegalStateException.class, () -> cursor.open());
+  }
+
+  @Test
+  void testIterate() throws SQLException {
+    startTransaction();
+    when(connection.prepareStatement(SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY))
+        .thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(rowMapper.mapRow(resultSet, 0)).thenReturn("row0");
+    when(rowMapper.mapRow(resultSet, 1)).thenReturn("row1");
+
+    cursor.open();
+    assertEquals(newArrayList("row0", "row1"), newArrayList(cursor));
+
+    verify(preparedStatement).setFetchSize(1000);
+    verify(preparedStatement).setObject(1, 1);
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+  }
+
+  @Test
+  void testCloseOnTransactionCompletion() throws SQLException {
+    startTransaction();
+    when(connection.prepareStatement(SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY))
+        .thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+
+    cursor.open();
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    synchronizations.forEach(TransactionSynchronization::beforeCompletion);
+
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+    assertThrows(IllegalStateException.class, () -> cursor.hasNext());
+    assertThrows(IllegalStateException.class, () -> cursor.next());
+  }
+
+  @Test
+  void testCloseAfterLastRow() throws SQLException {
+    startTransaction();
+    when(connection.prepareStatement(SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY))
+        .thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, false);
+    when(rowMapper.mapRow(resultSet, 0)).thenReturn("row0");
+
+    cursor.open();
+    assertEquals("row0", cursor.next());
+    cursor.close();
+
+    assertFalse(cursor.hasNext());
+    assertThrows(NoSuchElementException.class, () -> cursor.next());
+  }
+
+  @Test
+  void testOpenTranslatesException() throws SQLException {
+    startTransaction();
+    SQLException sqlException = new SQLException("error");
+    when(connection.prepareStatement(SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY))
+        .thenThrow(sqlException);
+    DataAccessException dataAccessException = new DataRetrievalFailureException("error");
+    when(exceptionTranslator.translate("Cursor", SQL, sqlException))
+        .thenReturn(dataAccessException);
+
+    Exception exception = assertThrows(DataAccessException.class, () -> cursor.open());
+    assertSame(dataAccessException, exception);
+  }
+
+  private void startTransaction() {
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(connection));
+  }
+}
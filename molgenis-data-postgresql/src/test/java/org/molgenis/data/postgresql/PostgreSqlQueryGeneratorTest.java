@@ -3,8 +3,11 @@ package org.molgenis.data.postgresql;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.QueryRule.Operator.AND;
@@ -52,12 +55,14 @@ import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.Sort;
+import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.postgresql.PostgreSqlQueryGenerator.ColumnMode;
+import org.molgenis.data.support.AggregateQueryImpl;
 import org.molgenis.data.support.QueryImpl;
 
 class PostgreSqlQueryGeneratorTest {
@@ -449,6 +454,100 @@ class PostgreSqlQueryGeneratorTest {
         PostgreSqlQueryGenerator.getSqlInsertJunction(entityType, attr));
   }
 
+  @Test
+  void getSqlCopy() {
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute intAttr = when(mock(Attribute.class).getName()).thenReturn("intAttr").getMock();
+    when(intAttr.getDataType()).thenReturn(INT);
+    Attribute mrefAttr = when(mock(Attribute.class).getName()).thenReturn("mrefAttr").getMock();
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(idAttr, intAttr, mrefAttr));
+    assertEquals(
+        "COPY \"entityTypeId#c34894ba\" (\"idAttr\", \"intAttr\") FROM STDIN (FORMAT binary)",
+        PostgreSqlQueryGenerator.getSqlCopy(entityType));
+  }
+
+  @Test
+  void getSqlCopyJunction() {
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    assertEquals(
+        "COPY \"entityTypeId#c34894ba_attr\" (\"order\",\"idAttr\",\"attr\") FROM STDIN (FORMAT binary)",
+        PostgreSqlQueryGenerator.getSqlCopyJunction(entityType, attr));
+  }
+
+  @Test
+  void getSqlInsertSelect() {
+    EntityType sourceEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    Attribute sourceIdAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(sourceIdAttr.getDataType()).thenReturn(STRING);
+    Attribute sourceIntAttr = when(mock(Attribute.class).getName()).thenReturn("intAttr").getMock();
+    when(sourceIntAttr.getDataType()).thenReturn(INT);
+    when(sourceEntityType.getAttribute("idAttr")).thenReturn(sourceIdAttr);
+    when(sourceEntityType.getAttribute("intAttr")).thenReturn(sourceIntAttr);
+    EntityType targetEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("targetEntityTypeId").getMock();
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute intAttr = when(mock(Attribute.class).getName()).thenReturn("intAttr").getMock();
+    when(intAttr.getDataType()).thenReturn(INT);
+    Attribute mrefAttr = when(mock(Attribute.class).getName()).thenReturn("mrefAttr").getMock();
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    when(targetEntityType.getAtomicAttributes()).thenReturn(asList(idAttr, intAttr, mrefAttr));
+    assertEquals(
+        "INSERT INTO \"targetEntityTypeId#cf6e227b\" (\"idAttr\", \"intAttr\") SELECT \"idAttr\", \"intAttr\" FROM \"entityTypeId#c34894ba\"",
+        PostgreSqlQueryGenerator.getSqlInsertSelect(sourceEntityType, targetEntityType));
+  }
+
+  @Test
+  void getSqlInsertSelectIncompatibleAttribute() {
+    EntityType sourceEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    Attribute sourceAttr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(sourceAttr.getDataType()).thenReturn(STRING);
+    when(sourceEntityType.getAttribute("attr")).thenReturn(sourceAttr);
+    EntityType targetEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("targetEntityTypeId").getMock();
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getDataType()).thenReturn(INT);
+    when(targetEntityType.getAtomicAttributes()).thenReturn(singletonList(attr));
+    Exception exception =
+        assertThrows(
+            MolgenisDataException.class,
+            () -> PostgreSqlQueryGenerator.getSqlInsertSelect(sourceEntityType, targetEntityType));
+    assertEquals(
+        "Attribute [attr] of entity type [entityTypeId] can't be copied to entity type [targetEntityTypeId]",
+        exception.getMessage());
+  }
+
+  @Test
+  void getSqlInsertSelectJunction() {
+    EntityType sourceEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    Attribute sourceIdAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    Attribute sourceAttr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(sourceAttr.getDataType()).thenReturn(MREF);
+    when(sourceEntityType.getIdAttribute()).thenReturn(sourceIdAttr);
+    when(sourceEntityType.getAttribute("attr")).thenReturn(sourceAttr);
+    EntityType targetEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("targetEntityTypeId").getMock();
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getDataType()).thenReturn(MREF);
+    when(targetEntityType.getIdAttribute()).thenReturn(idAttr);
+    assertEquals(
+        "INSERT INTO \"targetEntityTypeId#cf6e227b_attr\" (\"order\",\"idAttr\",\"attr\") SELECT \"order\",\"idAttr\",\"attr\" FROM \"entityTypeId#c34894ba_attr\"",
+        PostgreSqlQueryGenerator.getSqlInsertSelectJunction(
+            sourceEntityType, targetEntityType, attr));
+  }
+
   @Test
   void getSqlInsertJunctionInversedBy() {
     EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
@@ -711,6 +810,66 @@ class PostgreSqlQueryGeneratorTest {
     assertEquals("ORDER BY \"attr\" ASC, \"idAttr\" ASC", getSqlSort(entityType, q));
   }
 
+  @Test
+  void getSqlSelectKeyset() {
+    EntityType entityType = createKeysetEntityType(false);
+
+    Query<Entity> q = new QueryImpl<>().eq("attr", "value").pageSize(1000).offset(2000);
+    q.sort(new Sort("attr"));
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE (this.\"attr\" = ?) AND (this.\"attr\", this.\"idAttr\") > (?, ?) ORDER BY \"attr\" ASC, \"idAttr\" ASC LIMIT 1000",
+        getSqlSelect(entityType, q, parameters, true, asList("lastValue", "lastId")));
+    assertEquals(asList("value", "lastValue", "lastId"), parameters);
+  }
+
+  @Test
+  void getSqlSelectKeysetMixedDirections() {
+    EntityType entityType = createKeysetEntityType(false);
+
+    Query<Entity> q = new QueryImpl<>().pageSize(1000);
+    q.sort(new Sort("attr", Sort.Direction.DESC).on("idAttr"));
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE ((this.\"attr\" < ?) OR (this.\"attr\" = ? AND this.\"idAttr\" > ?)) ORDER BY \"attr\" DESC, \"idAttr\" ASC LIMIT 1000",
+        getSqlSelect(entityType, q, parameters, true, asList("lastValue", "lastId")));
+    assertEquals(asList("lastValue", "lastValue", "lastId"), parameters);
+  }
+
+  @Test
+  void isKeysetPaginationSupported() {
+    EntityType entityType = createKeysetEntityType(false);
+    Query<Entity> q = new QueryImpl<>().sort(new Sort("attr"));
+    assertTrue(PostgreSqlQueryGenerator.isKeysetPaginationSupported(entityType, q));
+  }
+
+  @Test
+  void isKeysetPaginationSupportedNillableSortAttribute() {
+    EntityType entityType = createKeysetEntityType(true);
+    Query<Entity> q = new QueryImpl<>().sort(new Sort("attr"));
+    assertFalse(PostgreSqlQueryGenerator.isKeysetPaginationSupported(entityType, q));
+  }
+
+  private static EntityType createKeysetEntityType(boolean nillable) {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(STRING);
+    when(attr.isNillable()).thenReturn(nillable);
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr));
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+    return entityType;
+  }
+
   @Test
   void getSqlSortOnUnselectedMref() {
     Package package_ = when(mock(Package.class).getId()).thenReturn("org_molgenis").getMock();
@@ -1392,6 +1551,40 @@ class PostgreSqlQueryGeneratorTest {
     assertEquals(expectedSqlUpdate, sqlUpdate);
   }
 
+  @Test
+  void testGetSqlUpsert() {
+    String idAttributeName = "MyIdAttribute";
+    Attribute idAttribute =
+        when(mock(Attribute.class).getName()).thenReturn(idAttributeName).getMock();
+    when(idAttribute.getDataType()).thenReturn(STRING);
+    String labelAttributeName = "MyLabelAttribute";
+    Attribute labelAttribute =
+        when(mock(Attribute.class).getName()).thenReturn(labelAttributeName).getMock();
+    when(labelAttribute.getDataType()).thenReturn(STRING);
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("MyEntityTypeId").getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(idAttribute, labelAttribute));
+    String expectedSqlUpsert =
+        "INSERT INTO \"MyEntityTypeId#55dde9c3\" (\"MyIdAttribute\", \"MyLabelAttribute\") VALUES (?, ?) ON CONFLICT (\"MyIdAttribute\") DO UPDATE SET \"MyLabelAttribute\" = EXCLUDED.\"MyLabelAttribute\"";
+    assertEquals(expectedSqlUpsert, PostgreSqlQueryGenerator.getSqlUpsert(entityType));
+  }
+
+  @Test
+  void testGetSqlUpsertIdAttributeOnly() {
+    String idAttributeName = "MyIdAttribute";
+    Attribute idAttribute =
+        when(mock(Attribute.class).getName()).thenReturn(idAttributeName).getMock();
+    when(idAttribute.getDataType()).thenReturn(STRING);
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("MyEntityTypeId").getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttribute));
+    String expectedSqlUpsert =
+        "INSERT INTO \"MyEntityTypeId#55dde9c3\" (\"MyIdAttribute\") VALUES (?) ON CONFLICT (\"MyIdAttribute\") DO NOTHING";
+    assertEquals(expectedSqlUpsert, PostgreSqlQueryGenerator.getSqlUpsert(entityType));
+  }
+
   @Test
   void testGetSqlUpdateAttribute() {
     String idAttributeName = "MyIdAttribute";
@@ -1407,6 +1600,95 @@ class PostgreSqlQueryGeneratorTest {
     assertEquals(expectedSqlUpdate, sqlUpdate);
   }
 
+  @Test
+  void getSqlAggregate() {
+    Attribute idAttr = createIdAttribute("idAttr");
+    EntityType entityType = createMockEntityWithIdAttribute("entityTypeId", idAttr, "idAttr");
+    Attribute stringAttr = createAggregatableAttribute("stringAttr", STRING);
+    when(entityType.getAttribute("stringAttr")).thenReturn(stringAttr);
+
+    Query<Entity> q = new QueryImpl<>().eq("stringAttr", "str");
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        "SELECT this.\"stringAttr\", COUNT(*) FROM \"entityTypeId#c34894ba\" AS this WHERE this.\"stringAttr\" = ? GROUP BY 1",
+        PostgreSqlQueryGenerator.getSqlAggregate(
+            entityType, new AggregateQueryImpl().attrX(stringAttr).query(q), parameters));
+    assertEquals(singletonList("str"), parameters);
+  }
+
+  @Test
+  void getSqlAggregateMrefAndDistinct() {
+    Attribute idAttr = createIdAttribute("idAttr");
+    EntityType entityType = createMockEntityWithIdAttribute("entityTypeId", idAttr, "idAttr");
+    Attribute refIdAttr = createIdAttribute("refIdAttr");
+    EntityType refEntityType = createMockEntityWithIdAttribute("refEntity", refIdAttr, "refIdAttr");
+    Attribute xrefAttr = createAggregatableAttribute("xrefAttr", XREF);
+    when(xrefAttr.getRefEntity()).thenReturn(refEntityType);
+    Attribute mrefAttr = createMrefAttribute("mrefAttr", refEntityType);
+    when(mrefAttr.isAggregatable()).thenReturn(true);
+    Attribute distinctAttr = createAggregatableAttribute("distinctAttr", STRING);
+
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        "SELECT this.\"xrefAttr\", y_aggregate.\"mrefAttr\", COUNT(DISTINCT this.\"distinctAttr\") FROM \"entityTypeId#c34894ba\" AS this INNER JOIN \"entityTypeId#c34894ba_mrefAttr\" AS y_aggregate ON (this.\"idAttr\" = y_aggregate.\"idAttr\") GROUP BY 1, 2",
+        PostgreSqlQueryGenerator.getSqlAggregate(
+            entityType,
+            new AggregateQueryImpl().attrX(xrefAttr).attrY(mrefAttr).attrDistinct(distinctAttr),
+            parameters));
+    assertEquals(emptyList(), parameters);
+  }
+
+  @Test
+  void getSqlAggregateMrefQuery() {
+    Attribute idAttr = createIdAttribute("idAttr");
+    EntityType entityType = createMockEntityWithIdAttribute("entityTypeId", idAttr, "idAttr");
+    Attribute refIdAttr = createIdAttribute("refIdAttr");
+    EntityType refEntityType = createMockEntityWithIdAttribute("refEntity", refIdAttr, "refIdAttr");
+    Attribute mrefAttr = createMrefAttribute("mrefAttr", refEntityType);
+    when(entityType.getAttribute("mrefAttr")).thenReturn(mrefAttr);
+    Attribute boolAttr = createAggregatableAttribute("boolAttr", BOOL);
+    when(boolAttr.isNillable()).thenReturn(true);
+
+    Query<Entity> q = new QueryImpl<>().eq("mrefAttr", "ref0");
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        "SELECT this.\"boolAttr\", COUNT(DISTINCT this.\"idAttr\") FROM \"entityTypeId#c34894ba\" AS this LEFT JOIN \"entityTypeId#c34894ba_mrefAttr\" AS \"mrefAttr_filter1\" ON (this.\"idAttr\" = \"mrefAttr_filter1\".\"idAttr\") WHERE \"mrefAttr_filter1\".\"mrefAttr\" = ? GROUP BY 1",
+        PostgreSqlQueryGenerator.getSqlAggregate(
+            entityType, new AggregateQueryImpl().attrX(boolAttr).query(q), parameters));
+    assertEquals(singletonList("ref0"), parameters);
+  }
+
+  @Test
+  void getSqlAggregateNotAggregatable() {
+    EntityType entityType = mock(EntityType.class);
+    Attribute stringAttr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(stringAttr);
+    List<Object> parameters = emptyList();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> PostgreSqlQueryGenerator.getSqlAggregate(entityType, aggregateQuery, parameters));
+  }
+
+  @Test
+  void getSqlAggregateNillableReference() {
+    EntityType entityType = mock(EntityType.class);
+    Attribute xrefAttr = createAggregatableAttribute("xrefAttr", XREF);
+    when(xrefAttr.isNillable()).thenReturn(true);
+    AggregateQuery aggregateQuery = new AggregateQueryImpl().attrX(xrefAttr);
+    List<Object> parameters = emptyList();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> PostgreSqlQueryGenerator.getSqlAggregate(entityType, aggregateQuery, parameters));
+  }
+
+  private Attribute createAggregatableAttribute(String attributeName, AttributeType type) {
+    Attribute result = when(mock(Attribute.class).getName()).thenReturn(attributeName).getMock();
+    when(result.getIdentifier()).thenReturn(attributeName + "AttrId");
+    when(result.getDataType()).thenReturn(type);
+    when(result.isAggregatable()).thenReturn(true);
+    return result;
+  }
+
   private Attribute createIdAttribute(String idAttributeName) {
     final String idAttributeIdentifier = idAttributeName + "AttrId";
     Attribute idAttribute =
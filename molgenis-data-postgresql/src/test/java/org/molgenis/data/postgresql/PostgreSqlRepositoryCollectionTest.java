@@ -14,6 +14,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.RepositoryCollectionCapability.COPYABLE;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL_MREF;
 import static org.molgenis.data.meta.AttributeType.COMPOUND;
@@ -878,6 +879,53 @@ class PostgreSqlRepositoryCollectionTest {
     verifyNoMoreInteractions(jdbcTemplate);
   }
 
+  @Test
+  void copyEntities() {
+    Attribute sourceIdAttr = when(mock(Attribute.class).getName()).thenReturn("id").getMock();
+    when(sourceIdAttr.getDataType()).thenReturn(STRING);
+    Attribute sourceMrefAttr = when(mock(Attribute.class).getName()).thenReturn("mref").getMock();
+    when(sourceMrefAttr.getDataType()).thenReturn(MREF);
+    EntityType sourceEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(sourceEntityType.getIdAttribute()).thenReturn(sourceIdAttr);
+    when(sourceEntityType.getAttribute("id")).thenReturn(sourceIdAttr);
+    when(sourceEntityType.getAttribute("mref")).thenReturn(sourceMrefAttr);
+
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("id").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute mrefAttr = when(mock(Attribute.class).getName()).thenReturn("mref").getMock();
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    EntityType targetEntityType = when(mock(EntityType.class).getId()).thenReturn("copy").getMock();
+    when(targetEntityType.getIdAttribute()).thenReturn(idAttr);
+    when(targetEntityType.getAtomicAttributes()).thenReturn(asList(idAttr, mrefAttr));
+
+    postgreSqlRepoCollection.copyEntities(sourceEntityType, targetEntityType);
+
+    ArgumentCaptor<String> captor = forClass(String.class);
+    verify(jdbcTemplate, times(2)).update(captor.capture());
+    assertEquals(
+        asList(
+            "INSERT INTO \"copy#82bbba4d\" (\"id\") SELECT \"id\" FROM \"entity#6844280e\"",
+            "INSERT INTO \"copy#82bbba4d_mref\" (\"order\",\"id\",\"mref\") SELECT \"order\",\"id\",\"mref\" FROM \"entity#6844280e_mref\""),
+        captor.getAllValues());
+  }
+
+  @Test
+  void copyEntitiesAbstract() {
+    EntityType sourceEntityType = mock(EntityType.class);
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetEntityType.isAbstract()).thenReturn(true);
+    assertThrows(
+        MolgenisDataException.class,
+        () -> postgreSqlRepoCollection.copyEntities(sourceEntityType, targetEntityType));
+    verifyZeroInteractions(jdbcTemplate);
+  }
+
+  @Test
+  void getCapabilities() {
+    assertThat(postgreSqlRepoCollection.getCapabilities()).contains(COPYABLE);
+  }
+
   // Regression test #2 for https://github.com/molgenis/molgenis/issues/6253
   @Test
   void deleteRepositoryWithoutReadOnlyAttribute() {
@@ -2,16 +2,22 @@ package org.molgenis.data.postgresql;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.isNull;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockitoSession;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -29,11 +35,14 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import javax.sql.DataSource;
 import org.junit.jupiter.api.AfterEach;
@@ -41,8 +50,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoSession;
+import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
@@ -50,19 +61,26 @@ import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.postgresql.PostgreSqlEntityFactory.EntityMapper;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.QueryCursors;
 import org.molgenis.data.validation.MolgenisValidationException;
 import org.molgenis.util.UnexpectedEnumException;
 import org.molgenis.validation.ConstraintViolation;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 class PostgreSqlRepositoryTest {
   private PostgreSqlRepository postgreSqlRepo;
   @Mock private JdbcTemplate jdbcTemplate;
   @Mock private PostgreSqlEntityFactory postgreSqlEntityFactory;
   @Mock private DataSource dataSource;
+  @Mock private DataService dataService;
   @Mock private EntityType entityType;
   @Mock private Query<Entity> query;
   @Mock private EntityMapper rowMapper;
@@ -73,7 +91,8 @@ class PostgreSqlRepositoryTest {
   void setUpBeforeMethod() throws Exception {
     mockitoSession = mockitoSession().initMocks(this).strictness(STRICT_STUBS).startMocking();
     postgreSqlRepo =
-        new PostgreSqlRepository(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType);
+        new PostgreSqlRepository(
+            postgreSqlEntityFactory, jdbcTemplate, dataSource, dataService, entityType);
   }
 
   @AfterEach
@@ -162,7 +181,8 @@ class PostgreSqlRepositoryTest {
     when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, oneToManyAttr));
     EntityType entityType = this.entityType;
     postgreSqlRepo =
-        new PostgreSqlRepository(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType);
+        new PostgreSqlRepository(
+            postgreSqlEntityFactory, jdbcTemplate, dataSource, dataService, entityType);
 
     int queryValue = 2;
     QueryRule queryRule = new QueryRule(oneToManyAttrName, EQUALS, queryValue);
@@ -173,11 +193,236 @@ class PostgreSqlRepositoryTest {
 
     when(postgreSqlEntityFactory.createRowMapper(entityType, null)).thenReturn(rowMapper);
     Entity entity0 = mock(Entity.class);
-    when(jdbcTemplate.query(sql, new Object[] {queryValue}, rowMapper))
+    when(jdbcTemplate.query(eq(sql), eq(new Object[] {queryValue}), any(RowMapper.class)))
         .thenReturn(singletonList(entity0));
     assertEquals(singletonList(entity0), postgreSqlRepo.findAll(query).collect(toList()));
   }
 
+  @Test
+  void findAllQueryCursor() throws Exception {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("id");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(entityType.getId()).thenReturn("entity");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("id")).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+
+    Connection connection = mock(Connection.class);
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    String sql = "SELECT this.\"id\" FROM \"entity#6844280e\" AS this ORDER BY \"id\" ASC";
+    when(connection.prepareStatement(sql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY))
+        .thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, false);
+    when(postgreSqlEntityFactory.createRowMapper(entityType, null)).thenReturn(rowMapper);
+    Entity entity0 = mock(Entity.class);
+    when(rowMapper.mapRow(resultSet, 0)).thenReturn(entity0);
+    when(jdbcTemplate.getExceptionTranslator()).thenReturn(mock(SQLExceptionTranslator.class));
+
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(connection));
+    QueryCursors.allowInCurrentTransaction();
+    try (Stream<Entity> entities = postgreSqlRepo.findAll(new QueryImpl<>())) {
+      assertEquals(singletonList(entity0), entities.collect(toList()));
+    } finally {
+      TransactionSynchronizationManager.unbindResource(dataSource);
+      TransactionSynchronizationManager.unbindResource("queryCursorsAllowed");
+      TransactionSynchronizationManager.clear();
+    }
+    verify(preparedStatement).setFetchSize(1000);
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+  }
+
+  @Test
+  void forEachBatchedCursor() throws Exception {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("id");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(entityType.getId()).thenReturn("entity");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("id")).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+
+    Connection connection = mock(Connection.class);
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    String sql = "SELECT this.\"id\" FROM \"entity#6844280e\" AS this ORDER BY \"id\" ASC";
+    when(connection.prepareStatement(sql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY))
+        .thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, true, false);
+    when(postgreSqlEntityFactory.createRowMapper(entityType, null)).thenReturn(rowMapper);
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+    Entity entity2 = mock(Entity.class);
+    when(rowMapper.mapRow(resultSet, 0)).thenReturn(entity0);
+    when(rowMapper.mapRow(resultSet, 1)).thenReturn(entity1);
+    when(rowMapper.mapRow(resultSet, 2)).thenReturn(entity2);
+    when(jdbcTemplate.getExceptionTranslator()).thenReturn(mock(SQLExceptionTranslator.class));
+
+    List<List<Entity>> batches = newArrayList();
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(connection));
+    QueryCursors.allowInCurrentTransaction();
+    try {
+      postgreSqlRepo.forEachBatched(null, batches::add, 2);
+    } finally {
+      TransactionSynchronizationManager.unbindResource(dataSource);
+      TransactionSynchronizationManager.unbindResource("queryCursorsAllowed");
+      TransactionSynchronizationManager.clear();
+    }
+    assertEquals(asList(asList(entity0, entity1), singletonList(entity2)), batches);
+    verify(connection).prepareStatement(sql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY);
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+  }
+
+  @Test
+  void findAllQueryTransactionWithoutCursors() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("id");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(entityType.getId()).thenReturn("entity");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("id")).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    when(postgreSqlEntityFactory.createRowMapper(eq(entityType), any())).thenReturn(rowMapper);
+    when(jdbcTemplate.query(any(String.class), any(Object[].class), any(RowMapper.class)))
+        .thenReturn(emptyList());
+
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try (Stream<Entity> entities = postgreSqlRepo.findAll(new QueryImpl<>())) {
+      assertEquals(emptyList(), entities.collect(toList()));
+    } finally {
+      TransactionSynchronizationManager.clear();
+    }
+    verify(dataSource, never()).getConnection();
+  }
+
+  @Test
+  void testAddCopy() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("attr");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    when(entityType.getId()).thenReturn("entity");
+
+    List<Entity> entities =
+        IntStream.range(0, PostgreSqlRepository.COPY_THRESHOLD)
+            .mapToObj(
+                i -> {
+                  Entity entity = mock(Entity.class);
+                  when(entity.getString("attr")).thenReturn("id" + i);
+                  return entity;
+                })
+            .collect(toList());
+
+    assertEquals(PostgreSqlRepository.COPY_THRESHOLD, postgreSqlRepo.add(entities.stream()));
+    verify(jdbcTemplate).execute(any(ConnectionCallback.class));
+    verifyNoMoreInteractions(jdbcTemplate);
+  }
+
+  @Test
+  void testUpsertBatch() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("attr");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    when(entityType.getId()).thenReturn("entity");
+
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+
+    postgreSqlRepo.upsertBatch(asList(entity0, entity1));
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(
+                "INSERT INTO \"entity#6844280e\" (\"attr\") VALUES (?) ON CONFLICT (\"attr\") DO NOTHING"),
+            any(BatchPreparedStatementSetter.class));
+    verifyNoMoreInteractions(jdbcTemplate);
+  }
+
+  @Test
+  void testUpsertBatchMrefChanged() throws SQLException {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("id");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute refIdAttr = mock(Attribute.class);
+    when(refIdAttr.getName()).thenReturn("refId");
+    when(refIdAttr.getDataType()).thenReturn(STRING);
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+    Attribute mrefAttr = mock(Attribute.class);
+    when(mrefAttr.getName()).thenReturn("mref");
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    when(mrefAttr.getRefEntity()).thenReturn(refEntityType);
+    when(mrefAttr.isNillable()).thenReturn(true);
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(idAttr, mrefAttr));
+    when(entityType.getId()).thenReturn("entity");
+
+    Entity refEntity0 = mock(Entity.class);
+    when(refEntity0.getString("refId")).thenReturn("ref0");
+    Entity refEntity1 = mock(Entity.class);
+    when(refEntity1.getString("refId")).thenReturn("ref1");
+    Entity unchangedEntity = mock(Entity.class);
+    when(unchangedEntity.getString("id")).thenReturn("id0");
+    when(unchangedEntity.get("id")).thenReturn("id0");
+    when(unchangedEntity.getEntities("mref")).thenReturn(singletonList(refEntity0));
+    Entity changedEntity = mock(Entity.class);
+    when(changedEntity.getString("id")).thenReturn("id1");
+    when(changedEntity.get("id")).thenReturn("id1");
+    when(changedEntity.getEntities("mref")).thenReturn(singletonList(refEntity1));
+
+    doAnswer(
+            invocation -> {
+              RowCallbackHandler rowCallbackHandler = invocation.getArgument(1);
+              for (String[] row : new String[][] {{"id0", "ref0"}, {"id1", "ref0"}}) {
+                ResultSet resultSet = mock(ResultSet.class);
+                when(resultSet.getString(1)).thenReturn(row[0]);
+                when(resultSet.getString(3)).thenReturn(row[1]);
+                rowCallbackHandler.processRow(resultSet);
+              }
+              return null;
+            })
+        .when(jdbcTemplate)
+        .query(
+            eq(
+                "SELECT \"id\",\"order\",\"mref\" FROM \"entity#6844280e_mref\" WHERE \"id\" in (?, ?) ORDER BY \"id\",\"order\""),
+            any(RowCallbackHandler.class),
+            eq("id0"),
+            eq("id1"));
+
+    postgreSqlRepo.upsertBatch(asList(unchangedEntity, changedEntity));
+
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(
+                "INSERT INTO \"entity#6844280e\" (\"id\") VALUES (?) ON CONFLICT (\"id\") DO NOTHING"),
+            any(BatchPreparedStatementSetter.class));
+    ArgumentCaptor<BatchPreparedStatementSetter> deleteCaptor =
+        ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq("DELETE FROM \"entity#6844280e_mref\" WHERE \"id\" = ?"), deleteCaptor.capture());
+    assertEquals(1, deleteCaptor.getValue().getBatchSize());
+    ArgumentCaptor<BatchPreparedStatementSetter> insertCaptor =
+        ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq("INSERT INTO \"entity#6844280e_mref\" (\"order\",\"id\",\"mref\") VALUES (?,?,?)"),
+            insertCaptor.capture());
+    assertEquals(1, insertCaptor.getValue().getBatchSize());
+  }
+
   @Test
   void testUpdateEntitiesExist() {
     Attribute idAttr = mock(Attribute.class);
@@ -216,7 +461,7 @@ class PostgreSqlRepositoryTest {
     Entity entity1 = mock(Entity.class);
     when(entity1.getIdValue()).thenReturn("id1");
 
-    when(jdbcTemplate.query(any(String.class), any(Object[].class), (RowMapper) isNull()))
+    when(jdbcTemplate.query(any(String.class), any(Object[].class), any(RowMapper.class)))
         .thenReturn(singletonList(entity0));
     when(jdbcTemplate.batchUpdate(any(String.class), any(BatchPreparedStatementSetter.class)))
         .thenReturn(new int[] {1});
@@ -0,0 +1,97 @@
+package org.molgenis.data.postgresql.transaction;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.molgenis.data.postgresql.transaction.PostgreSqlCacheInvalidationBus.MAX_PAYLOAD_BYTES;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+
+class PostgreSqlCacheInvalidationBusTest extends AbstractMockitoTest {
+  @Mock private DataSource dataSource;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private CacheInvalidationListener cacheInvalidationListener;
+  private PostgreSqlCacheInvalidationBus cacheInvalidationBus;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    cacheInvalidationBus = new PostgreSqlCacheInvalidationBus(dataSource, jdbcTemplate);
+    cacheInvalidationBus.addCacheInvalidationListener(cacheInvalidationListener);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void testPublish() {
+    cacheInvalidationBus.publish(CacheInvalidation.createInvalidateAll());
+    verify(jdbcTemplate)
+        .execute(eq("SELECT pg_notify(?, ?)"), any(PreparedStatementCallback.class));
+  }
+
+  @Test
+  void testHandleNotificationFromOtherNode() {
+    CacheInvalidation cacheInvalidation =
+        CacheInvalidation.create(
+            singleton("MyEntityType"),
+            ImmutableSet.of(
+                EntityKey.create("MyStringIdEntityType", "id0"),
+                EntityKey.create("MyIntIdEntityType", 1),
+                EntityKey.create("MyLongIdEntityType", 2L)));
+    String payload =
+        new PostgreSqlCacheInvalidationBus(dataSource, jdbcTemplate).toPayload(cacheInvalidation);
+
+    cacheInvalidationBus.handleNotification(payload);
+
+    InOrder inOrder = inOrder(cacheInvalidationListener);
+    inOrder.verify(cacheInvalidationListener).onCacheInvalidation(cacheInvalidation);
+    inOrder.verify(cacheInvalidationListener).afterCacheInvalidation(cacheInvalidation);
+  }
+
+  @Test
+  void testHandleNotificationFromSameNode() {
+    String payload = cacheInvalidationBus.toPayload(CacheInvalidation.createInvalidateAll());
+    cacheInvalidationBus.handleNotification(payload);
+    verifyNoInteractions(cacheInvalidationListener);
+  }
+
+  @Test
+  void testHandleNotificationInvalidPayload() {
+    cacheInvalidationBus.handleNotification("invalid");
+    verify(cacheInvalidationListener).onCacheInvalidation(CacheInvalidation.createInvalidateAll());
+  }
+
+  @Test
+  void testToPayloadTooManyEntities() {
+    Set<EntityKey> entityKeys =
+        IntStream.range(0, MAX_PAYLOAD_BYTES)
+            .mapToObj(i -> EntityKey.create("MyEntityType", i))
+            .collect(toSet());
+    CacheInvalidation cacheInvalidation = CacheInvalidation.create(emptySet(), entityKeys);
+    String payload =
+        new PostgreSqlCacheInvalidationBus(dataSource, jdbcTemplate).toPayload(cacheInvalidation);
+    assertTrue(payload.length() <= MAX_PAYLOAD_BYTES);
+
+    cacheInvalidationBus.handleNotification(payload);
+
+    verify(cacheInvalidationListener)
+        .onCacheInvalidation(CacheInvalidation.create(singleton("MyEntityType"), emptySet()));
+  }
+}
@@ -0,0 +1,46 @@
+package org.molgenis.data.security;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
+import static org.molgenis.data.meta.model.TagMetadata.TAG;
+
+import java.util.Set;
+import java.util.stream.Stream;
+import org.molgenis.data.meta.MetaDataReadPermissionChecker;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the permission checks of the metadata repository security decorators to metadata that is
+ * not retrieved through these repositories.
+ */
+@Component
+public class MetaDataReadPermissionCheckerImpl implements MetaDataReadPermissionChecker {
+  private final UserPermissionEvaluator userPermissionEvaluator;
+
+  MetaDataReadPermissionCheckerImpl(UserPermissionEvaluator userPermissionEvaluator) {
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+  }
+
+  @Override
+  public boolean isReadAllowed(Set<String> entityTypeIds, Set<String> packageIds) {
+    return Stream.of(ENTITY_TYPE_META_DATA, ATTRIBUTE_META_DATA, PACKAGE, TAG)
+            .allMatch(
+                metadataEntityTypeId ->
+                    userPermissionEvaluator.hasPermission(
+                        new EntityTypeIdentity(metadataEntityTypeId),
+                        EntityTypePermission.READ_DATA))
+        && entityTypeIds.stream()
+            .allMatch(
+                entityTypeId ->
+                    userPermissionEvaluator.hasPermission(
+                        new EntityTypeIdentity(entityTypeId), EntityTypePermission.READ_METADATA))
+        && packageIds.stream()
+            .allMatch(
+                packageId ->
+                    userPermissionEvaluator.hasPermission(
+                        new PackageIdentity(packageId), PackagePermission.VIEW));
+  }
+}
@@ -2,6 +2,7 @@ package org.molgenis.data.security.aggregation;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.List;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
@@ -38,4 +39,9 @@ public class AggregateAnonymizerRepositoryDecorator<E extends Entity>
 
     return result;
   }
+
+  @Override
+  public void upsertBatch(List<E> entities) {
+    delegate().upsertBatch(entities);
+  }
 }
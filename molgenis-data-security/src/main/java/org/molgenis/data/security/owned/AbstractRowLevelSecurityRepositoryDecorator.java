@@ -4,6 +4,7 @@ import static com.google.common.collect.Iterators.partition;
 import static com.google.common.collect.Streams.stream;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.molgenis.data.security.owned.AbstractRowLevelSecurityRepositoryDecorator.Action.COUNT;
 import static org.molgenis.data.security.owned.AbstractRowLevelSecurityRepositoryDecorator.Action.DELETE;
 import static org.molgenis.data.security.owned.AbstractRowLevelSecurityRepositoryDecorator.Action.READ;
@@ -12,12 +13,17 @@ import static org.molgenis.security.core.utils.SecurityUtils.currentUserIsSuOrSy
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
 import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
@@ -30,6 +36,8 @@ import org.springframework.transaction.annotation.Transactional;
 public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Entity>
     extends AbstractRepositoryDecorator<E> {
   private static final int BATCH_SIZE = 1000;
+  /** Maximum number of permitted ids that is pushed down to the repository as query filter */
+  static final int MAX_PERMITTED_IDS_FILTER_SIZE = 10000;
 
   private final MutableAclService mutableAclService;
 
@@ -69,12 +77,12 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
 
   @Override
   public long count() {
-    return findAllPermitted(COUNT).count();
+    return countPermitted(new QueryImpl<>(), COUNT);
   }
 
   @Override
   public long count(Query<E> q) {
-    return findAllPermitted(q, COUNT).count();
+    return countPermitted(q, COUNT);
   }
 
   @Override
@@ -224,15 +232,58 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
                 }));
   }
 
-  private Stream<E> findAllPermitted(Action action) {
-    return findAllPermitted(new QueryImpl<>(), action);
+  @Override
+  public void upsertBatch(List<E> entities) {
+    Set<Object> existingIds =
+        delegate().getExistingIDs(entities.stream().map(Entity::getIdValue).collect(toSet()));
+    entities.forEach(
+        entity -> {
+          if (existingIds.contains(entity.getIdValue())) {
+            if (isActionPermitted(entity, UPDATE)) {
+              updateAcl(entity);
+            } else {
+              throwPermissionException(entity, UPDATE);
+            }
+          } else {
+            // throws exception if no permission on the containing package
+            isActionPermitted(entity, Action.CREATE);
+            createAcl(entity);
+          }
+        });
+    delegate().upsertBatch(entities);
+  }
+
+  private long countPermitted(Query<E> query, Action action) {
+    if (isActionPermittedOnAll(action)) {
+      return delegate().count(query);
+    }
+    Set<Object> permittedIds = getPermittedIds(action);
+    if (permittedIds != null && permittedIds.size() <= MAX_PERMITTED_IDS_FILTER_SIZE) {
+      return permittedIds.isEmpty() ? 0L : delegate().count(createQuery(query, permittedIds));
+    }
+    return findAllPermitted(query, action).count();
   }
 
   private Stream<E> findAllPermitted(Query<E> query, Action action) {
+    if (isActionPermittedOnAll(action)) {
+      return delegate().findAll(query);
+    }
+    Set<Object> permittedIds = getPermittedIds(action);
+    if (permittedIds != null && permittedIds.size() <= MAX_PERMITTED_IDS_FILTER_SIZE) {
+      return permittedIds.isEmpty()
+          ? Stream.empty()
+          : delegate().findAll(createQuery(query, permittedIds));
+    }
+
+    Predicate<E> isPermitted;
+    if (permittedIds != null) {
+      isPermitted = entity -> permittedIds.contains(entity.getIdValue());
+    } else {
+      isPermitted = entity -> isActionPermitted(entity, action);
+    }
     Query<E> qWithoutLimitOffset = new QueryImpl<>(query);
     qWithoutLimitOffset.offset(0).pageSize(Integer.MAX_VALUE);
-    Stream<E> permittedEntityStream =
-        delegate().findAll(qWithoutLimitOffset).filter(entity -> isActionPermitted(entity, action));
+    Stream<E> permittedEntityStream = delegate().findAll(qWithoutLimitOffset).filter(isPermitted);
     if (query.getOffset() > 0) {
       permittedEntityStream = permittedEntityStream.skip(query.getOffset());
     }
@@ -242,6 +293,41 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
     return permittedEntityStream;
   }
 
+  /** Returns a copy of the query that only matches entities with one of the given ids. */
+  private Query<E> createQuery(Query<E> query, Set<Object> ids) {
+    QueryImpl<E> idsQuery = new QueryImpl<>();
+    idsQuery.in(getEntityType().getIdAttribute().getName(), ids);
+    if (!query.getRules().isEmpty()) {
+      idsQuery.and();
+      idsQuery.addRule(new QueryRule(query.getRules()));
+    }
+    idsQuery.setOffset(query.getOffset());
+    idsQuery.setPageSize(query.getPageSize());
+    idsQuery.sort(query.getSort());
+    idsQuery.fetch(query.getFetch());
+    return idsQuery;
+  }
+
+  /**
+   * Returns whether the action is permitted on all entities in this repository, in which case
+   * queries are delegated without filtering.
+   */
+  protected boolean isActionPermittedOnAll(Action action) {
+    return false;
+  }
+
+  /**
+   * Returns the ids of the entities on which the action is permitted, so that queries can be
+   * filtered by the delegate repository instead of checking the permission for each entity.
+   *
+   * @return permitted entity ids or <code>null</code> if the permitted ids can not be determined
+   */
+  @Nullable
+  @CheckForNull
+  protected Set<Object> getPermittedIds(Action action) {
+    return null;
+  }
+
   void deleteAcl(ObjectIdentity objectIdentity) {
     mutableAclService.deleteAcl(objectIdentity, true);
   }
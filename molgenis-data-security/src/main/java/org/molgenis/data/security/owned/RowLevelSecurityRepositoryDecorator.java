@@ -1,10 +1,16 @@
 package org.molgenis.data.security.owned;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
+import static org.molgenis.data.DataConverter.convert;
+import static org.molgenis.data.security.EntityIdentityUtils.toType;
+import static org.molgenis.security.core.utils.SecurityUtils.currentUserIsSuOrSystem;
 
+import java.util.Set;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityAlreadyExistsException;
 import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.security.EntityIdentity;
 import org.molgenis.data.security.EntityPermission;
 import org.molgenis.data.security.exception.EntityPermissionDeniedException;
@@ -45,6 +51,30 @@ public class RowLevelSecurityRepositoryDecorator
     return isActionPermitted(toEntityIdentity(id), operation);
   }
 
+  @Override
+  protected boolean isActionPermittedOnAll(Action action) {
+    return currentUserIsSuOrSystem();
+  }
+
+  /**
+   * Resolves the permitted entity ids for the current user with a single query on the access
+   * control lists instead of evaluating the access control list of each entity.
+   */
+  @Override
+  protected Set<Object> getPermittedIds(Action action) {
+    Attribute idAttribute = getEntityType().getIdAttribute();
+    // no identifiers are returned if the action is permitted on all entities, in which case
+    // isActionPermittedOnAll already prevents filtering
+    return userPermissionEvaluator
+        .getPermittedObjectIdentifiers(toType(getEntityType()), getPermission(action))
+        .map(
+            identifiers ->
+                identifiers.stream()
+                    .map(identifier -> convert(identifier, idAttribute))
+                    .collect(toSet()))
+        .orElse(null);
+  }
+
   @Override
   public void throwPermissionException(Entity entity, Action action) {
     throw new EntityPermissionDeniedException(getPermission(action), entity);
@@ -38,7 +38,8 @@ public class RowLevelSecurityRepositoryDecoratorFactory {
     return decoratedRepository;
   }
 
-  private boolean isRowLevelSecured(Repository<Entity> repository) {
+  /** Returns whether row level security is enabled for the entity type of the repository. */
+  public boolean isRowLevelSecured(Repository<Entity> repository) {
     String aclClass = EntityIdentityUtils.toType(repository.getEntityType());
     return mutableAclClassService.hasAclClass(aclClass);
   }
@@ -0,0 +1,67 @@
+package org.molgenis.data.security;
+
+import static java.util.Collections.singleton;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.molgenis.test.AbstractMockitoTest;
+
+class MetaDataReadPermissionCheckerImplTest extends AbstractMockitoTest {
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+
+  private MetaDataReadPermissionCheckerImpl metaDataReadPermissionChecker;
+
+  @BeforeEach
+  void setUpBeforeMethod() {
+    metaDataReadPermissionChecker = new MetaDataReadPermissionCheckerImpl(userPermissionEvaluator);
+  }
+
+  @Test
+  void testMetaDataReadPermissionCheckerImpl() {
+    assertThrows(NullPointerException.class, () -> new MetaDataReadPermissionCheckerImpl(null));
+  }
+
+  @Test
+  void testIsReadAllowed() {
+    when(userPermissionEvaluator.hasPermission(
+            any(EntityTypeIdentity.class), eq(EntityTypePermission.READ_DATA)))
+        .thenReturn(true);
+    when(userPermissionEvaluator.hasPermission(
+            new EntityTypeIdentity("entityTypeId"), EntityTypePermission.READ_METADATA))
+        .thenReturn(true);
+    when(userPermissionEvaluator.hasPermission(
+            new PackageIdentity("packageId"), PackagePermission.VIEW))
+        .thenReturn(true);
+    assertTrue(
+        metaDataReadPermissionChecker.isReadAllowed(
+            singleton("entityTypeId"), singleton("packageId")));
+  }
+
+  @Test
+  void testIsReadAllowedNoMetadataPermission() {
+    assertFalse(
+        metaDataReadPermissionChecker.isReadAllowed(
+            singleton("entityTypeId"), singleton("packageId")));
+  }
+
+  @Test
+  void testIsReadAllowedNoPackagePermission() {
+    when(userPermissionEvaluator.hasPermission(
+            any(EntityTypeIdentity.class), eq(EntityTypePermission.READ_DATA)))
+        .thenReturn(true);
+    when(userPermissionEvaluator.hasPermission(
+            new EntityTypeIdentity("entityTypeId"), EntityTypePermission.READ_METADATA))
+        .thenReturn(true);
+    assertFalse(
+        metaDataReadPermissionChecker.isReadAllowed(
+            singleton("entityTypeId"), singleton("packageId")));
+  }
+}
@@ -10,6 +10,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -22,7 +23,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.test.AbstractMockitoTest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -158,4 +162,24 @@ class UserRepositoryDecoratorTest extends AbstractMockitoTest {
     verify(user).setPassword("currentPasswordHash");
     verify(user).setActivationCode(null);
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void upsertBatchEncodesPassword() {
+    Attribute idAttribute = when(mock(Attribute.class).getName()).thenReturn("id").getMock();
+    EntityType entityType =
+        when(mock(EntityType.class).getIdAttribute()).thenReturn(idAttribute).getMock();
+    when(delegateRepository.getEntityType()).thenReturn(entityType);
+    when(delegateRepository.findAll(any(Stream.class), any(Fetch.class)))
+        .thenReturn(Stream.empty());
+    when(delegateRepository.add(any(Stream.class))).thenReturn(1);
+
+    User user = mock(User.class);
+    when(user.getIdValue()).thenReturn("1");
+    when(user.getPassword()).thenReturn("password");
+    userRepositoryDecorator.upsertBatch(singletonList(user));
+
+    verify(passwordEncoder).encode("password");
+    verify(delegateRepository, never()).upsertBatch(any());
+  }
 }
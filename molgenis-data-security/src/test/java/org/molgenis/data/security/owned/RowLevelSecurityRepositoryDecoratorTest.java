@@ -3,6 +3,7 @@ package org.molgenis.data.security.owned;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Stream.of;
@@ -14,13 +15,19 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.molgenis.data.security.EntityPermission.READ;
+import static org.molgenis.data.security.owned.AbstractRowLevelSecurityRepositoryDecorator.MAX_PERMITTED_IDS_FILTER_SIZE;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
@@ -32,8 +39,10 @@ import org.molgenis.data.EntityAlreadyExistsException;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.Sort;
 import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.security.EntityIdentity;
 import org.molgenis.data.security.EntityPermission;
@@ -58,6 +67,7 @@ class RowLevelSecurityRepositoryDecoratorTest extends AbstractMockitoSpringConte
   @Mock private Repository<Entity> delegateRepository;
   @Mock private UserPermissionEvaluator userPermissionEvaluator;
   @Mock private MutableAclService mutableAclService;
+  @Mock private Attribute idAttribute;
   private RowLevelSecurityRepositoryDecorator rowLevelSecurityRepositoryDecorator;
 
   @BeforeEach
@@ -166,6 +176,46 @@ class RowLevelSecurityRepositoryDecoratorTest extends AbstractMockitoSpringConte
         .containsPattern("permission:UPDATE entityTypeId:entityTypeId entityId:entityId");
   }
 
+  @WithMockUser(username = USERNAME)
+  @Test
+  void testUpsertBatch() {
+    Entity existingEntity = getEntityMock();
+    EntityType entityType = existingEntity.getEntityType();
+    Entity newEntity = mock(Entity.class);
+    when(newEntity.getEntityType()).thenReturn(entityType);
+    when(newEntity.getIdValue()).thenReturn("newEntityId");
+    when(delegateRepository.getExistingIDs(ImmutableSet.of("entityId", "newEntityId")))
+        .thenReturn(singleton("entityId"));
+    when(userPermissionEvaluator.hasPermission(
+            new EntityIdentity(existingEntity), EntityPermission.UPDATE))
+        .thenReturn(true);
+    MutableAcl acl = mock(MutableAcl.class);
+    when(mutableAclService.createAcl(new EntityIdentity(newEntity))).thenReturn(acl);
+
+    List<Entity> entities = asList(existingEntity, newEntity);
+    rowLevelSecurityRepositoryDecorator.upsertBatch(entities);
+
+    verify(acl).insertAce(0, PermissionSet.WRITE, new PrincipalSid(USERNAME), true);
+    verify(mutableAclService, never()).createAcl(new EntityIdentity(existingEntity));
+    verify(delegateRepository).upsertBatch(entities);
+  }
+
+  @Test
+  void testUpsertBatchPermissionDenied() {
+    Entity entity = getEntityMock();
+    when(delegateRepository.getExistingIDs(singleton("entityId")))
+        .thenReturn(singleton("entityId"));
+
+    List<Entity> entities = singletonList(entity);
+    Exception exception =
+        assertThrows(
+            EntityPermissionDeniedException.class,
+            () -> rowLevelSecurityRepositoryDecorator.upsertBatch(entities));
+    assertThat(exception.getMessage())
+        .containsPattern("permission:UPDATE entityTypeId:entityTypeId entityId:entityId");
+    verify(delegateRepository, never()).upsertBatch(any());
+  }
+
   @Test
   void testDelete() {
     Entity entity = getEntityMock();
@@ -375,33 +425,46 @@ class RowLevelSecurityRepositoryDecoratorTest extends AbstractMockitoSpringConte
 
   @Test
   void testFindOne() {
-    @SuppressWarnings("unchecked")
-    Query<Entity> query = mock(Query.class);
-    Entity entity = getEntityMock();
-    when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
+    when(idAttribute.getName()).thenReturn("id");
+    Entity entity = mock(Entity.class);
+    setUpPermittedIds("entityId");
+    Query<Entity> query = new QueryImpl<Entity>().eq("attr", "value");
+    when(delegateRepository.findAll(
+            new QueryImpl<>()
+                .in("id", singleton("entityId"))
+                .and()
+                .nest()
+                .eq("attr", "value")
+                .unnest()))
         .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), READ)).thenReturn(true);
     assertEquals(rowLevelSecurityRepositoryDecorator.findOne(query), entity);
   }
 
   @Test
   void testFindOnePermissionDenied() {
-    @SuppressWarnings("unchecked")
-    Query<Entity> query = mock(Query.class);
-    Entity entity = getEntityMock();
-    when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
-        .thenAnswer(invocation -> Stream.of(entity));
-    assertNull(rowLevelSecurityRepositoryDecorator.findOne(query));
+    setUpPermittedIds();
+    assertNull(rowLevelSecurityRepositoryDecorator.findOne(new QueryImpl<>()));
   }
 
   @Test
   void testFindAllQuery() {
-    @SuppressWarnings("unchecked")
-    Query<Entity> query = mock(Query.class);
-    Entity entity = getEntityMock();
-    when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
+    when(idAttribute.getName()).thenReturn("id");
+    Entity entity = mock(Entity.class);
+    setUpPermittedIds("entityId");
+    Query<Entity> query = new QueryImpl<Entity>().eq("attr", "value").offset(10).pageSize(20);
+    Sort sort = new Sort("attr");
+    query.sort(sort);
+    when(delegateRepository.findAll(
+            new QueryImpl<>()
+                .in("id", singleton("entityId"))
+                .and()
+                .nest()
+                .eq("attr", "value")
+                .unnest()
+                .offset(10)
+                .pageSize(20)
+                .sort(sort)))
         .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), READ)).thenReturn(true);
     assertEquals(
         singletonList(entity),
         rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()));
@@ -409,12 +472,35 @@ class RowLevelSecurityRepositoryDecoratorTest extends AbstractMockitoSpringConte
 
   @Test
   void testFindAllQueryPermissionDenied() {
-    @SuppressWarnings("unchecked")
-    Query<Entity> query = mock(Query.class);
-    Entity entity = getEntityMock();
+    setUpPermittedIds();
+    assertEquals(
+        emptyList(),
+        rowLevelSecurityRepositoryDecorator.findAll(new QueryImpl<>()).collect(toList()));
+  }
+
+  @Test
+  void testFindAllQueryManyPermittedIds() {
+    String[] permittedIds = new String[MAX_PERMITTED_IDS_FILTER_SIZE + 1];
+    Arrays.setAll(permittedIds, Integer::toString);
+    setUpPermittedIds(permittedIds);
+    Entity permittedEntity = when(mock(Entity.class).getIdValue()).thenReturn("1").getMock();
+    Entity entity = when(mock(Entity.class).getIdValue()).thenReturn("entityId").getMock();
     when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
-        .thenAnswer(invocation -> Stream.of(entity));
-    assertEquals(emptyList(), rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()));
+        .thenAnswer(invocation -> Stream.of(permittedEntity, entity));
+    assertEquals(
+        singletonList(permittedEntity),
+        rowLevelSecurityRepositoryDecorator.findAll(new QueryImpl<>()).collect(toList()));
+  }
+
+  @WithMockUser(username = USERNAME, roles = "SU")
+  @Test
+  void testFindAllQuerySuperuser() {
+    Entity entity = mock(Entity.class);
+    Query<Entity> query = new QueryImpl<Entity>().setPageSize(10);
+    when(delegateRepository.findAll(query)).thenAnswer(invocation -> Stream.of(entity));
+    assertEquals(
+        singletonList(entity),
+        rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()));
   }
 
   @SuppressWarnings("unchecked")
@@ -468,42 +554,46 @@ class RowLevelSecurityRepositoryDecoratorTest extends AbstractMockitoSpringConte
 
   @Test
   void testCount() {
-    Entity entity = getEntityMock();
-    when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
-        .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), EntityPermission.READ))
-        .thenReturn(true);
+    when(idAttribute.getName()).thenReturn("id");
+    setUpPermittedIds("entityId");
+    when(delegateRepository.count(new QueryImpl<>().in("id", singleton("entityId"))))
+        .thenReturn(1L);
     assertEquals(1L, rowLevelSecurityRepositoryDecorator.count());
   }
 
   @Test
   void testCountPermissionDenied() {
-    Entity entity = getEntityMock();
-    when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
-        .thenAnswer(invocation -> Stream.of(entity));
+    setUpPermittedIds();
     assertEquals(0L, rowLevelSecurityRepositoryDecorator.count());
   }
 
   @Test
   void testCountQuery() {
-    @SuppressWarnings("unchecked")
-    Query<Entity> query = mock(Query.class);
-    Entity entity = getEntityMock();
-    when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
-        .thenAnswer(invocation -> Stream.of(entity));
-    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), EntityPermission.READ))
-        .thenReturn(true);
+    when(idAttribute.getName()).thenReturn("id");
+    setUpPermittedIds("entityId");
+    Query<Entity> query = new QueryImpl<Entity>().eq("attr", "value");
+    when(delegateRepository.count(
+            new QueryImpl<>()
+                .in("id", singleton("entityId"))
+                .and()
+                .nest()
+                .eq("attr", "value")
+                .unnest()))
+        .thenReturn(1L);
     assertEquals(1L, rowLevelSecurityRepositoryDecorator.count(query));
   }
 
   @Test
   void testCountQueryPermissionDenied() {
-    @SuppressWarnings("unchecked")
-    Query<Entity> query = mock(Query.class);
-    Entity entity = getEntityMock();
-    when(delegateRepository.findAll(new QueryImpl<>().setOffset(0).setPageSize(Integer.MAX_VALUE)))
-        .thenAnswer(invocation -> Stream.of(entity));
-    assertEquals(0L, rowLevelSecurityRepositoryDecorator.count(query));
+    setUpPermittedIds();
+    assertEquals(0L, rowLevelSecurityRepositoryDecorator.count(new QueryImpl<>()));
+  }
+
+  @WithMockUser(username = USERNAME, roles = "SU")
+  @Test
+  void testCountSuperuser() {
+    when(delegateRepository.count(new QueryImpl<>())).thenReturn(3L);
+    assertEquals(3L, rowLevelSecurityRepositoryDecorator.count());
   }
 
   @Test
@@ -575,6 +665,18 @@ class RowLevelSecurityRepositoryDecoratorTest extends AbstractMockitoSpringConte
         () -> rowLevelSecurityRepositoryDecorator.aggregate(aggregateQuery));
   }
 
+  private void setUpPermittedIds(String... ids) {
+    if (ids.length > 0) {
+      when(idAttribute.getDataType()).thenReturn(STRING);
+    }
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(delegateRepository.getEntityType()).thenReturn(entityType);
+    when(userPermissionEvaluator.getPermittedObjectIdentifiers("entity-entityTypeId", READ))
+        .thenReturn(Optional.of(ImmutableSet.copyOf(ids)));
+  }
+
   private Entity getEntityMock() {
     EntityType entityType = mock(EntityType.class);
     when(entityType.getId()).thenReturn("entityTypeId");
@@ -52,8 +52,7 @@ public class ExpressionValidator {
     if (expressions.isEmpty()) {
       return Collections.emptyList();
     }
-    return expressions.stream()
-        .map(expression -> jsMagmaScriptEvaluator.eval(expression, entity))
+    return jsMagmaScriptEvaluator.eval(expressions, entity).stream()
         .map(this::convertToBoolean)
         .collect(toList());
   }
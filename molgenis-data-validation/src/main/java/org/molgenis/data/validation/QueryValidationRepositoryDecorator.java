@@ -68,4 +68,9 @@ public class QueryValidationRepositoryDecorator<E extends Entity>
     Fetch validFetch = fetch != null ? fetchValidator.validateFetch(fetch, getEntityType()) : null;
     return super.findAll(ids, validFetch);
   }
+
+  @Override
+  public void upsertBatch(List<E> entities) {
+    delegate().upsertBatch(entities);
+  }
 }
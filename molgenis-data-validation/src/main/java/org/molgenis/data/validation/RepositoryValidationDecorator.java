@@ -6,6 +6,7 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.Collections.unmodifiableSet;
@@ -19,6 +20,11 @@ import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
+import com.google.common.collect.Iterators;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -34,19 +40,33 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.util.HugeMap;
 import org.molgenis.util.HugeSet;
+import org.molgenis.util.OffHeapHashMap;
+import org.molgenis.util.OffHeapHashSet;
+import org.molgenis.util.OffHeapValueType;
 import org.molgenis.validation.ConstraintViolation;
 
 public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<Entity> {
   private enum ValidationMode {
     ADD,
-    UPDATE
+    UPDATE,
+    UPSERT
   }
 
+  /** Number of entities in a stream that are validated together */
+  static final int BATCH_SIZE = 1000;
+
+  /**
+   * Existing ids or unique values are loaded up front if a repository contains at most this many
+   * rows per validated batch entity, otherwise the values of each batch are looked up.
+   */
+  static final int MAX_PRELOAD_ROWS_PER_ENTITY = 10;
+
   private final DataService dataService;
   private final EntityAttributesValidator entityAttributesValidator;
   private final DefaultValueReferenceValidator defaultValueReferenceValidator;
@@ -94,6 +114,16 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    try (ValidationResource validationResource = new ValidationResource()) {
+      List<Entity> validatedEntities =
+          validate(entities.stream(), validationResource, ValidationMode.UPSERT)
+              .collect(toList());
+      delegate().upsertBatch(validatedEntities);
+    }
+  }
+
   @Override
   public void delete(Entity entity) {
     defaultValueReferenceValidator.validateEntityNotReferenced(entity);
@@ -132,22 +162,40 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       ValidationResource validationResource,
       ValidationMode validationMode) {
     // prepare validation
-    initValidation(validationResource, validationMode);
+    initValidation(validationResource, validationMode, BATCH_SIZE);
 
     ValidationProfile validationProfile = new ValidationProfile().invoke();
 
-    // add validation operation to stream
-    return entities.filter(
-        entity -> {
-          validate(entity, validationResource, validationMode, validationProfile);
+    if (!validationResource.hasLookups()) {
+      // add validation operation to stream
+      return entities.filter(
+          entity -> {
+            validate(entity, validationResource, validationMode, validationProfile);
 
-          return true;
-        });
+            return true;
+          });
+    }
+
+    // look up existing ids and unique values per batch and validate the batch
+    Iterator<List<Entity>> batches = Iterators.partition(entities.iterator(), BATCH_SIZE);
+    return stream(batches)
+        .flatMap(
+            batch -> {
+              lookupExistingValues(batch, validationResource);
+              batch.forEach(
+                  entity ->
+                      validate(entity, validationResource, validationMode, validationProfile));
+              return batch.stream();
+            })
+        .onClose(entities::close);
   }
 
   private void validate(
       Entity entity, ValidationResource validationResource, ValidationMode validationMode) {
-    initValidation(validationResource, validationMode);
+    initValidation(validationResource, validationMode, 1);
+    if (validationResource.hasLookups()) {
+      lookupExistingValues(singletonList(entity), validationResource);
+    }
     validate(entity, validationResource, validationMode, new ValidationProfile().invoke());
   }
 
@@ -175,7 +223,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
     validateEntityValueReferences(entity, validationResource);
 
-    if (validationProfile.isValidateReadonly() && validationMode == ValidationMode.UPDATE) {
+    if (validationProfile.isValidateReadonly() && validationMode != ValidationMode.ADD) {
       validateEntityValueReadOnly(entity, validationResource);
     }
 
@@ -185,11 +233,11 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
   }
 
   private void initValidation(
-      ValidationResource validationResource, ValidationMode validationMode) {
+      ValidationResource validationResource, ValidationMode validationMode, int batchSize) {
     initRequiredValueValidation(validationResource);
-    initReferenceValidation(validationResource);
-    initUniqueValidation(validationResource);
-    if (validationMode == ValidationMode.UPDATE) {
+    initReferenceValidation(validationResource, batchSize);
+    initUniqueValidation(validationResource, batchSize);
+    if (validationMode != ValidationMode.ADD) {
       initReadonlyValidation(validationResource);
     }
   }
@@ -205,7 +253,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
   }
 
-  private void initReferenceValidation(ValidationResource validationResource) {
+  private void initReferenceValidation(ValidationResource validationResource, int batchSize) {
     // get reference attrs
     List<Attribute> refAttrs;
     if (!getCapabilities().contains(VALIDATE_REFERENCE_CONSTRAINT)) {
@@ -231,15 +279,25 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
     // get referenced entity ids
     if (!refAttrs.isEmpty()) {
-      Map<String, HugeSet<Object>> refEntitiesIds = new HashMap<>();
+      Map<String, Set<Object>> refEntitiesIds = new HashMap<>();
+      List<EntityType> lookupRefEntityTypes = new ArrayList<>();
       refAttrs.forEach(
           refAttr -> {
             EntityType refEntityType = refAttr.getRefEntity();
             String refEntityName = refEntityType.getId();
-            HugeSet<Object> refEntityIds = refEntitiesIds.get(refEntityName);
+            Set<Object> refEntityIds = refEntitiesIds.get(refEntityName);
             if (refEntityIds == null) {
-              refEntityIds = new HugeSet<>();
+              long count = dataService.count(refEntityName);
+              boolean preload = isPreload(count, batchSize);
+              refEntityIds =
+                  createSet(
+                      getOffHeapValueType(refEntityType.getIdAttribute()),
+                      preload ? count : batchSize);
               refEntitiesIds.put(refEntityName, refEntityIds);
+              if (!preload) {
+                lookupRefEntityTypes.add(refEntityType);
+                return;
+              }
 
               Query<Entity> q =
                   new QueryImpl<>()
@@ -252,6 +310,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
           });
 
       validationResource.setRefEntitiesIds(refEntitiesIds);
+      validationResource.setLookupRefEntityTypes(lookupRefEntityTypes);
     }
 
     validationResource.setSelfReferencing(
@@ -266,7 +325,11 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     return !backend.equals(refEntityBackend);
   }
 
-  private void initUniqueValidation(ValidationResource validationResource) {
+  private static boolean isPreload(long count, int batchSize) {
+    return count <= (long) MAX_PRELOAD_ROWS_PER_ENTITY * batchSize;
+  }
+
+  private void initUniqueValidation(ValidationResource validationResource, int batchSize) {
     if (!getCapabilities().contains(VALIDATE_UNIQUE_CONSTRAINT)) {
       // get unique attributes
       List<Attribute> uniqueAttrs =
@@ -276,40 +339,178 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
       // get existing values for each attributes
       if (!uniqueAttrs.isEmpty()) {
-        Map<String, HugeMap<Object, Object>> uniqueAttrsValues = new HashMap<>();
+        Map<String, Map<Object, Object>> uniqueAttrsValues = new HashMap<>();
 
+        long count = delegate().count();
+        boolean preload = isPreload(count, batchSize);
+        long expectedSize = preload ? count : batchSize;
+        OffHeapValueType idValueType = getOffHeapValueType(getEntityType().getIdAttribute());
         Fetch fetch = new Fetch();
         uniqueAttrs.forEach(
             uniqueAttr -> {
-              uniqueAttrsValues.put(uniqueAttr.getName(), new HugeMap<>());
+              uniqueAttrsValues.put(
+                  uniqueAttr.getName(),
+                  createMap(getOffHeapValueType(uniqueAttr), idValueType, expectedSize));
               fetch.field(uniqueAttr.getName());
             });
 
-        Query<Entity> q = new QueryImpl<>().fetch(fetch);
+        if (preload) {
+          Query<Entity> q = new QueryImpl<>().fetch(fetch);
+          delegate()
+              .findAll(q)
+              .forEach(entity -> putUniqueAttrsValues(entity, uniqueAttrs, uniqueAttrsValues));
+        } else {
+          validationResource.setLookupUniqueAttrs(uniqueAttrs);
+        }
+
+        validationResource.setUniqueAttrsValues(uniqueAttrsValues);
+      }
+
+      validationResource.setUniqueAttrs(uniqueAttrs);
+    }
+  }
+
+  private static void putUniqueAttrsValues(
+      Entity entity,
+      List<Attribute> uniqueAttrs,
+      Map<String, Map<Object, Object>> uniqueAttrsValues) {
+    uniqueAttrs.forEach(
+        uniqueAttr -> {
+          Object attrValue = getUniqueAttrValue(entity, uniqueAttr);
+          if (attrValue != null) {
+            uniqueAttrsValues.get(uniqueAttr.getName()).put(attrValue, entity.getIdValue());
+          }
+        });
+  }
+
+  private static Object getUniqueAttrValue(Entity entity, Attribute uniqueAttr) {
+    Object attrValue = entity.get(uniqueAttr.getName());
+    if (attrValue != null && isSingleReferenceType(uniqueAttr)) {
+      attrValue = ((Entity) attrValue).getIdValue();
+    }
+    return attrValue;
+  }
+
+  /**
+   * Looks up the referenced ids and unique values of a batch of entities that were not loaded up
+   * front, so that only the values that occur in the batch are retrieved from the repositories.
+   */
+  private void lookupExistingValues(List<Entity> entities, ValidationResource validationResource) {
+    validationResource
+        .getLookupRefEntityTypes()
+        .forEach(refEntityType -> lookupRefEntityIds(entities, refEntityType, validationResource));
+    if (!validationResource.getLookupUniqueAttrs().isEmpty()) {
+      lookupUniqueAttrsValues(entities, validationResource);
+    }
+  }
+
+  private void lookupRefEntityIds(
+      List<Entity> entities, EntityType refEntityType, ValidationResource validationResource) {
+    String refEntityTypeId = refEntityType.getId();
+    Set<Object> refEntityIds = validationResource.getRefEntitiesIds().get(refEntityTypeId);
+
+    Set<Object> lookupIds = new LinkedHashSet<>();
+    for (Attribute refAttr : validationResource.getRefAttrs()) {
+      if (!refAttr.getRefEntity().getId().equals(refEntityTypeId)) {
+        continue;
+      }
+      for (Entity entity : entities) {
+        Iterable<Entity> refEntities;
+        if (isSingleReferenceType(refAttr)) {
+          Entity refEntity = entity.getEntity(refAttr.getName());
+          refEntities = refEntity != null ? singleton(refEntity) : emptyList();
+        } else {
+          refEntities = entity.getEntities(refAttr.getName());
+        }
+        for (Entity refEntity : refEntities) {
+          Object refEntityId = refEntity.getIdValue();
+          if (refEntity.getEntityType().getId().equals(refEntityTypeId)
+              && !refEntityIds.contains(refEntityId)) {
+            lookupIds.add(refEntityId);
+          }
+        }
+      }
+    }
+
+    if (!lookupIds.isEmpty()) {
+      Fetch fetch = new Fetch().field(refEntityType.getIdAttribute().getName());
+      dataService
+          .findAll(refEntityTypeId, lookupIds.stream(), fetch)
+          .forEach(refEntity -> refEntityIds.add(refEntity.getIdValue()));
+    }
+  }
+
+  private void lookupUniqueAttrsValues(
+      List<Entity> entities, ValidationResource validationResource) {
+    List<Attribute> uniqueAttrs = validationResource.getLookupUniqueAttrs();
+    Map<String, Map<Object, Object>> uniqueAttrsValues = validationResource.getUniqueAttrsValues();
+    for (Attribute uniqueAttr : uniqueAttrs) {
+      Map<Object, Object> uniqueAttrValues = uniqueAttrsValues.get(uniqueAttr.getName());
+      Set<Object> lookupValues = new LinkedHashSet<>();
+      for (Entity entity : entities) {
+        Object attrValue = getUniqueAttrValue(entity, uniqueAttr);
+        if (attrValue != null && !uniqueAttrValues.containsKey(attrValue)) {
+          lookupValues.add(attrValue);
+        }
+      }
+
+      if (!lookupValues.isEmpty()) {
+        Fetch fetch =
+            new Fetch()
+                .field(getEntityType().getIdAttribute().getName())
+                .field(uniqueAttr.getName());
+        Query<Entity> q = new QueryImpl<>().in(uniqueAttr.getName(), lookupValues).fetch(fetch);
         delegate()
             .findAll(q)
             .forEach(
                 entity ->
-                    uniqueAttrs.forEach(
-                        uniqueAttr -> {
-                          HugeMap<Object, Object> uniqueAttrValues =
-                              uniqueAttrsValues.get(uniqueAttr.getName());
-                          Object attrValue = entity.get(uniqueAttr.getName());
-                          if (attrValue != null) {
-                            if (isSingleReferenceType(uniqueAttr)) {
-                              attrValue = ((Entity) attrValue).getIdValue();
-                            }
-                            uniqueAttrValues.put(attrValue, entity.getIdValue());
-                          }
-                        }));
-
-        validationResource.setUniqueAttrsValues(uniqueAttrsValues);
+                    putUniqueAttrsValues(entity, singletonList(uniqueAttr), uniqueAttrsValues));
       }
+    }
+  }
 
-      validationResource.setUniqueAttrs(uniqueAttrs);
+  /**
+   * Returns the off-heap type to store attribute values of the given attribute in, or <tt>null</tt>
+   * if values of the attribute can only be stored on-heap.
+   */
+  private static OffHeapValueType getOffHeapValueType(Attribute attr) {
+    AttributeType attrType = attr.getDataType();
+    switch (attrType) {
+      case EMAIL:
+      case ENUM:
+      case HTML:
+      case HYPERLINK:
+      case SCRIPT:
+      case STRING:
+      case TEXT:
+        return OffHeapValueType.STRING;
+      case INT:
+        return OffHeapValueType.INT;
+      case LONG:
+        return OffHeapValueType.LONG;
+      case CATEGORICAL:
+      case FILE:
+      case XREF:
+        // unique reference values are stored as referenced entity ids
+        return getOffHeapValueType(attr.getRefEntity().getIdAttribute());
+      default:
+        return null;
     }
   }
 
+  /** Creates a set that is stored off-heap if possible and on disk otherwise */
+  private static Set<Object> createSet(OffHeapValueType valueType, long expectedSize) {
+    return valueType != null ? new OffHeapHashSet<>(valueType, expectedSize) : new HugeSet<>();
+  }
+
+  /** Creates a map that is stored off-heap if possible and on disk otherwise */
+  private static Map<Object, Object> createMap(
+      OffHeapValueType keyType, OffHeapValueType valueType, long expectedSize) {
+    return keyType != null && valueType != null
+        ? new OffHeapHashMap<>(keyType, valueType, expectedSize)
+        : new HugeMap<>();
+  }
+
   private void initReadonlyValidation(ValidationResource validationResource) {
     if (!getCapabilities().contains(VALIDATE_READONLY_CONSTRAINT)) {
       String idAttrName = getEntityType().getIdAttribute().getName();
@@ -368,11 +569,11 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
                   attrValue = ((Entity) attrValue).getIdValue();
                 }
 
-                HugeMap<Object, Object> uniqueAttrValues =
+                Map<Object, Object> uniqueAttrValues =
                     validationResource.getUniqueAttrsValues().get(uniqueAttr.getName());
                 Object existingEntityId = uniqueAttrValues.get(attrValue);
                 if ((validationMode == ValidationMode.ADD && existingEntityId != null)
-                    || (validationMode == ValidationMode.UPDATE
+                    || (validationMode != ValidationMode.ADD
                         && existingEntityId != null
                         && !existingEntityId.equals(entity.getIdValue()))) {
                   ConstraintViolation constraintViolation =
@@ -394,7 +595,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
         .getRefAttrs()
         .forEach(
             refAttr -> {
-              HugeSet<Object> refEntityIds =
+              Set<Object> refEntityIds =
                   validationResource.getRefEntitiesIds().get(refAttr.getRefEntity().getId());
 
               Iterable<Entity> refEntities;
@@ -442,6 +643,10 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
 
     Entity entityToUpdate = findOneById(entity.getIdValue());
+    if (entityToUpdate == null) {
+      // entity is added by an upsert
+      return;
+    }
     validationResource
         .getReadonlyAttrs()
         .forEach(
@@ -485,9 +690,11 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     private AtomicInteger rowNr;
     private List<Attribute> requiredValueAttrs;
     private List<Attribute> refAttrs;
-    private Map<String, HugeSet<Object>> refEntitiesIds;
+    private Map<String, Set<Object>> refEntitiesIds;
+    private List<EntityType> lookupRefEntityTypes;
     private List<Attribute> uniqueAttrs;
-    private Map<String, HugeMap<Object, Object>> uniqueAttrsValues;
+    private Map<String, Map<Object, Object>> uniqueAttrsValues;
+    private List<Attribute> lookupUniqueAttrs;
     private List<Attribute> readonlyAttrs;
     private boolean selfReferencing;
     private Set<ConstraintViolation> violations;
@@ -520,16 +727,37 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       this.refAttrs = refAttrs;
     }
 
-    Map<String, HugeSet<Object>> getRefEntitiesIds() {
+    Map<String, Set<Object>> getRefEntitiesIds() {
       return refEntitiesIds != null ? unmodifiableMap(refEntitiesIds) : emptyMap();
     }
 
-    void setRefEntitiesIds(Map<String, HugeSet<Object>> refEntitiesIds) {
+    void setRefEntitiesIds(Map<String, Set<Object>> refEntitiesIds) {
       this.refEntitiesIds = refEntitiesIds;
     }
 
+    List<EntityType> getLookupRefEntityTypes() {
+      return lookupRefEntityTypes != null ? unmodifiableList(lookupRefEntityTypes) : emptyList();
+    }
+
+    void setLookupRefEntityTypes(List<EntityType> lookupRefEntityTypes) {
+      this.lookupRefEntityTypes = lookupRefEntityTypes;
+    }
+
+    List<Attribute> getLookupUniqueAttrs() {
+      return lookupUniqueAttrs != null ? unmodifiableList(lookupUniqueAttrs) : emptyList();
+    }
+
+    void setLookupUniqueAttrs(List<Attribute> lookupUniqueAttrs) {
+      this.lookupUniqueAttrs = lookupUniqueAttrs;
+    }
+
+    /** @return whether existing values have to be looked up for each batch of entities */
+    boolean hasLookups() {
+      return !getLookupRefEntityTypes().isEmpty() || !getLookupUniqueAttrs().isEmpty();
+    }
+
     void addRefEntityId(String name, Object idValue) {
-      HugeSet<Object> refEntityIds = refEntitiesIds.get(name);
+      Set<Object> refEntityIds = refEntitiesIds.get(name);
       // only add entity id if this validation run requires entity
       if (refEntityIds != null) {
         refEntityIds.add(idValue);
@@ -544,11 +772,11 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       this.uniqueAttrs = uniqueAttrs;
     }
 
-    Map<String, HugeMap<Object, Object>> getUniqueAttrsValues() {
+    Map<String, Map<Object, Object>> getUniqueAttrsValues() {
       return uniqueAttrsValues != null ? unmodifiableMap(uniqueAttrsValues) : emptyMap();
     }
 
-    void setUniqueAttrsValues(Map<String, HugeMap<Object, Object>> uniqueAttrsValues) {
+    void setUniqueAttrsValues(Map<String, Map<Object, Object>> uniqueAttrsValues) {
       this.uniqueAttrsValues = uniqueAttrsValues;
     }
 
@@ -586,14 +814,19 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     @Override
     public void close() {
       if (refEntitiesIds != null) {
-        for (HugeSet<Object> refEntityIds : refEntitiesIds.values()) {
-          refEntityIds.close();
-        }
+        refEntitiesIds.values().forEach(ValidationResource::close);
       }
       if (uniqueAttrsValues != null) {
-        for (HugeMap<Object, Object> uniqueAttrValues : uniqueAttrsValues.values()) {
-          uniqueAttrValues.close();
-        }
+        uniqueAttrsValues.values().forEach(ValidationResource::close);
+      }
+    }
+
+    /** Closes a set or map created by {@link #createSet} or {@link #createMap} */
+    private static void close(Object closeable) {
+      try {
+        ((Closeable) closeable).close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
       }
     }
   }
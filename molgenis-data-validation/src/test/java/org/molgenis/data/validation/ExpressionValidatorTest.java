@@ -2,6 +2,7 @@ package org.molgenis.data.validation;
 
 import static java.lang.Boolean.FALSE;
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.when;
 
@@ -28,8 +29,7 @@ class ExpressionValidatorTest extends AbstractMockitoTest {
 
   @Test
   void testResolveBooleanExpressions() {
-    when(jsMagmaScriptEvaluator.eval("a", entity)).thenReturn(true);
-    when(jsMagmaScriptEvaluator.eval("b", entity)).thenReturn(false);
+    when(jsMagmaScriptEvaluator.eval(asList("a", "b"), entity)).thenReturn(asList(true, false));
     assertEquals(
         asList(true, false),
         expressionValidator.resolveBooleanExpressions(Arrays.asList("a", "b"), entity));
@@ -54,7 +54,8 @@ class ExpressionValidatorTest extends AbstractMockitoTest {
   @ParameterizedTest
   @MethodSource("resultProvider")
   void testResolveBooleanExpression(Object result, boolean expected) {
-    when(jsMagmaScriptEvaluator.eval("expression", entity)).thenReturn(result);
+    when(jsMagmaScriptEvaluator.eval(singletonList("expression"), entity))
+        .thenReturn(singletonList(result));
     assertEquals(expected, expressionValidator.resolveBooleanExpression("expression", entity));
   }
 }
@@ -7,8 +7,11 @@ import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -18,6 +21,7 @@ import static org.molgenis.data.meta.AttributeType.XREF;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -3710,6 +3714,55 @@ class RepositoryValidationDecoratorTest {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  void upsertBatch() {
+    Entity entity0 = createEntity("id0", refEntity0, "unique0");
+
+    List<Entity> entities = singletonList(entity0);
+    repositoryValidationDecorator.upsertBatch(entities);
+
+    verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
+    verify(delegateRepository, times(1)).upsertBatch(entities);
+    verify(delegateRepository, never()).add(any(Stream.class));
+    verify(delegateRepository, never()).update(any(Stream.class));
+  }
+
+  @Test
+  void upsertBatchReadOnlyStringAttrValidationError() {
+    String attrReadonlyStringName = initReadonlyStringAttr();
+
+    Entity existingEntity0 = mock(Entity.class);
+    when(existingEntity0.get(attrReadonlyStringName)).thenReturn("str0");
+    when(delegateRepository.findOneById("id0")).thenReturn(existingEntity0);
+
+    Entity entity0 = createEntity("id0", refEntity0, "unique0");
+    when(entity0.get(attrReadonlyStringName)).thenReturn("updatedstr0");
+
+    List<Entity> entities = singletonList(entity0);
+    Exception exception =
+        assertThrows(
+            MolgenisValidationException.class,
+            () -> repositoryValidationDecorator.upsertBatch(entities));
+    assertEquals(
+        "The attribute 'readonlyStringAttr' of entity 'entity' can not be changed it is readonly. (entity 1)",
+        exception.getMessage());
+    verify(delegateRepository, never()).upsertBatch(entities);
+  }
+
+  @Test
+  void upsertBatchReadOnlyStringAttrNewEntity() {
+    String attrReadonlyStringName = initReadonlyStringAttr();
+
+    // entity that does not exist yet is added, so its read-only values can be set
+    Entity entity0 = createEntity("id0", refEntity0, "unique0");
+    when(entity0.get(attrReadonlyStringName)).thenReturn("str0");
+
+    List<Entity> entities = singletonList(entity0);
+    repositoryValidationDecorator.upsertBatch(entities);
+    verify(delegateRepository).upsertBatch(entities);
+  }
+
   @Test
   void findAllStream() {
     Object id0 = "id0";
@@ -3884,4 +3937,112 @@ class RepositoryValidationDecoratorTest {
         MolgenisValidationException.class,
         () -> repositoryValidationDecorator.deleteAll(entityIdStream));
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void addStreamReferenceLookup() {
+    when(dataService.count(refEntityName)).thenReturn(1000000L);
+    when(dataService.findAll(
+            eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName))))
+        .thenAnswer(invocation -> Stream.of(refEntity0));
+
+    Entity entity0 = createEntity("id0", refEntity0, "unique0");
+    repositoryValidationDecorator.add(Stream.of(entity0));
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository).add(captor.capture());
+    assertEquals(singletonList(entity0), captor.getValue().collect(toList()));
+
+    verify(dataService, never())
+        .findAll(refEntityName, new QueryImpl<>().fetch(new Fetch().field(refAttrIdName)));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void addStreamReferenceLookupDoesNotExistValidationError() {
+    when(dataService.count(refEntityName)).thenReturn(1000000L);
+    when(dataService.findAll(
+            eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName))))
+        .thenAnswer(invocation -> Stream.of(refEntity0));
+
+    Entity entity0 = createEntity("id0", refEntity1, "unique0");
+    repositoryValidationDecorator.add(Stream.of(entity0));
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository).add(captor.capture());
+    Stream<Entity> stream = captor.getValue();
+    Exception exception =
+        assertThrows(MolgenisValidationException.class, () -> stream.collect(toList()));
+    assertEquals(
+        "Unknown xref value 'idref1' for attribute 'xrefAttr' of entity 'entity'. (entity 1)."
+            + "Unknown xref value 'idref1' for attribute 'mrefAttr' of entity 'entity'. (entity 1)."
+            + "Unknown xref value 'idref1' for attribute 'uniqueXrefAttr' of entity 'entity'. (entity 1)",
+        exception.getMessage());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void addStreamUniqueLookupValidationError() {
+    when(delegateRepository.count()).thenReturn(1000000L);
+    Entity entityInBackend0 = createEntity("idbackend0", refEntity1, "unique0");
+    when(delegateRepository.findAll(any(Query.class)))
+        .thenAnswer(invocation -> Stream.of(entityInBackend0));
+
+    Entity entity0 = createEntity("id0", refEntity0, "unique0");
+    repositoryValidationDecorator.add(Stream.of(entity0));
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository).add(captor.capture());
+    Stream<Entity> stream = captor.getValue();
+    Exception exception =
+        assertThrows(MolgenisValidationException.class, () -> stream.collect(toList()));
+    assertEquals(
+        "Duplicate value 'unique0' for unique attribute 'uniqueStringAttr' from entity 'entity' (entity 1)",
+        exception.getMessage());
+    verify(delegateRepository)
+        .findAll(
+            new QueryImpl<>()
+                .in(attrUniqueStringName, new LinkedHashSet<>(singletonList("unique0")))
+                .fetch(new Fetch().field(attrIdName).field(attrUniqueStringName)));
+  }
+
+  private Entity createEntity(String id, Entity refEntity, String uniqueValue) {
+    Entity entity = mock(Entity.class);
+    when(entity.getEntityType()).thenReturn(entityType);
+    when(entity.getIdValue()).thenReturn(id);
+    when(entity.getEntity(attrXrefName)).thenReturn(refEntity);
+    when(entity.getEntities(attrMrefName)).thenReturn(singletonList(refEntity));
+    when(entity.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity.getEntity(attrUniqueXrefName)).thenReturn(refEntity);
+    when(entity.get(attrIdName)).thenReturn(id);
+    when(entity.get(attrXrefName)).thenReturn(refEntity);
+    when(entity.get(attrMrefName)).thenReturn(singletonList(refEntity));
+    when(entity.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity.get(attrUniqueStringName)).thenReturn(uniqueValue);
+    when(entity.get(attrUniqueXrefName)).thenReturn(refEntity);
+    return entity;
+  }
+
+  private String initReadonlyStringAttr() {
+    String attrReadonlyStringName = "readonlyStringAttr";
+
+    Attribute readonlyStringAttr =
+        when(mock(Attribute.class).getName()).thenReturn(attrReadonlyStringName).getMock();
+    when(readonlyStringAttr.getDataType()).thenReturn(STRING);
+    when(readonlyStringAttr.isReadOnly()).thenReturn(true);
+
+    when(entityType.getAttribute(attrReadonlyStringName)).thenReturn(readonlyStringAttr);
+    when(entityType.getAtomicAttributes())
+        .thenReturn(
+            Arrays.asList(
+                idAttr,
+                xrefAttr,
+                nillableXrefAttr,
+                mrefAttr,
+                nillableMrefAttr,
+                uniqueStringAttr,
+                uniqueXrefAttr,
+                readonlyStringAttr));
+    return attrReadonlyStringName;
+  }
 }
@@ -0,0 +1,114 @@
+package org.molgenis.data.support;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.molgenis.data.meta.AttributeType.STRING;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.molgenis.data.Entity;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares creating and reading {@link ArrayEntity array entities} with {@link DynamicEntity
+ * dynamic entities} of the same entity type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayEntityBenchmark {
+  @Param({"10", "50"})
+  private int attributeCount;
+
+  private EntityType entityType;
+  private String[] attributeNames;
+  private String[] values;
+  private Entity dynamicEntity;
+  private Entity arrayEntity;
+
+  @Setup
+  public void setUp() {
+    // bootstrap entities do not validate values, so no entity type metadata is required
+    EntityType entityTypeMeta = new EntityType() {};
+
+    attributeNames = new String[attributeCount];
+    values = new String[attributeCount];
+    List<Attribute> attributes = new ArrayList<>(attributeCount);
+    for (int i = 0; i < attributeCount; i++) {
+      attributeNames[i] = "attr" + i;
+      values[i] = "value" + i;
+      Attribute attribute =
+          new Attribute(new BootstrapEntity(entityTypeMeta))
+              .setName(attributeNames[i])
+              .setDataType(STRING);
+      attributes.add(attribute);
+    }
+    attributes.get(0).setIdAttribute(true);
+    attributes.get(1).setLabelAttribute(true);
+
+    entityType = new EntityType(new BootstrapEntity(entityTypeMeta));
+    entityType.setId("benchmark");
+    entityType.setOwnAllAttributes(attributes);
+
+    dynamicEntity = createDynamicEntity();
+    arrayEntity = createArrayEntity();
+  }
+
+  @Benchmark
+  public Entity createDynamicEntity() {
+    return populate(new DynamicEntity(entityType));
+  }
+
+  @Benchmark
+  public Entity createArrayEntity() {
+    return populate(new ArrayEntity(entityType));
+  }
+
+  @Benchmark
+  public void getDynamicEntity(Blackhole blackhole) {
+    consume(dynamicEntity, blackhole);
+  }
+
+  @Benchmark
+  public void getArrayEntity(Blackhole blackhole) {
+    consume(arrayEntity, blackhole);
+  }
+
+  @Benchmark
+  public Object getIdValueDynamicEntity() {
+    return dynamicEntity.getIdValue();
+  }
+
+  @Benchmark
+  public Object getIdValueArrayEntity() {
+    return arrayEntity.getIdValue();
+  }
+
+  private Entity populate(Entity entity) {
+    for (int i = 0; i < attributeCount; i++) {
+      entity.set(attributeNames[i], values[i]);
+    }
+    return entity;
+  }
+
+  private void consume(Entity entity, Blackhole blackhole) {
+    for (String attributeName : attributeNames) {
+      blackhole.consume(entity.get(attributeName));
+    }
+  }
+}
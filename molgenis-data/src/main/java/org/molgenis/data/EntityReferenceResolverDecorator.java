@@ -81,6 +81,11 @@ public class EntityReferenceResolverDecorator extends AbstractRepositoryDecorato
     return resolveEntityReferences(entities, fetch);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   private Entity resolveEntityReferences(Entity entity) {
     return entityManager.resolveReferences(getEntityType(), entity, null);
   }
@@ -104,4 +104,17 @@ public interface RepositoryCollection extends Iterable<Repository<Entity>> {
    *     RepositoryCollectionCapability#UPDATABLE}
    */
   void deleteAttribute(EntityType entityType, Attribute attr);
+
+  /**
+   * Copies all entities of a repository to another repository in this collection without retrieving
+   * them. Attributes of the target entity type are matched with attributes of the source entity
+   * type by name. Only supported by repository collections with the {@link
+   * RepositoryCollectionCapability#COPYABLE} capability.
+   *
+   * @param sourceEntityType entity type of the repository to copy entities from
+   * @param targetEntityType entity type of the empty repository to copy entities to
+   */
+  default void copyEntities(EntityType sourceEntityType, EntityType targetEntityType) {
+    throw new UnsupportedOperationException();
+  }
 }
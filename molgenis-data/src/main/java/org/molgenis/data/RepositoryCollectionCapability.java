@@ -8,5 +8,8 @@ public enum RepositoryCollectionCapability {
   UPDATABLE,
 
   /** Repository collections persist meta data */
-  META_DATA_PERSISTABLE
+  META_DATA_PERSISTABLE,
+
+  /** Repository collections can copy entities between their repositories */
+  COPYABLE
 }
@@ -12,9 +12,9 @@ import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FIN
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
@@ -26,12 +26,17 @@ import org.molgenis.data.event.BootstrappingEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+/**
+ * Registry of dynamic decorator factories. The registry does not lock, so that repositories can be
+ * decorated concurrently.
+ */
 @Component
 public class DynamicRepositoryDecoratorRegistryImpl implements DynamicRepositoryDecoratorRegistry {
-  private final Map<String, DynamicRepositoryDecoratorFactory> factories = new HashMap<>();
+  private final Map<String, DynamicRepositoryDecoratorFactory> factories =
+      new ConcurrentHashMap<>();
   private final DataService dataService;
   private final Gson gson;
-  private boolean bootstrappingDone = false;
+  private volatile boolean bootstrappingDone = false;
 
   private static final Type MAP_TOKEN = new TypeToken<Map<String, Object>>() {}.getType();
 
@@ -41,12 +46,11 @@ public class DynamicRepositoryDecoratorRegistryImpl implements DynamicRepository
   }
 
   @Override
-  public synchronized void addFactory(DynamicRepositoryDecoratorFactory factory) {
+  public void addFactory(DynamicRepositoryDecoratorFactory factory) {
     String factoryId = factory.getId();
-    if (factories.containsKey(factoryId)) {
+    if (factories.putIfAbsent(factoryId, factory) != null) {
       throw new IllegalArgumentException(format("Duplicate decorator id [%s]", factoryId));
     }
-    factories.put(factoryId, factory);
   }
 
   @Override
@@ -56,10 +60,11 @@ public class DynamicRepositoryDecoratorRegistryImpl implements DynamicRepository
 
   @Override
   public DynamicRepositoryDecoratorFactory getFactory(String id) {
-    if (!factories.containsKey(id)) {
+    DynamicRepositoryDecoratorFactory factory = factories.get(id);
+    if (factory == null) {
       throw new IllegalArgumentException(format("Decorator [%s] does not exist", id));
     }
-    return factories.get(id);
+    return factory;
   }
 
   /**
@@ -67,7 +72,7 @@ public class DynamicRepositoryDecoratorRegistryImpl implements DynamicRepository
    * repository.
    */
   @Override
-  public synchronized Repository<Entity> decorate(Repository<Entity> repository) {
+  public Repository<Entity> decorate(Repository<Entity> repository) {
     String entityTypeId = repository.getEntityType().getId();
 
     if (!entityTypeId.equals(DECORATOR_CONFIGURATION) && bootstrappingDone) {
@@ -2,6 +2,7 @@ package org.molgenis.data.listeners;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.List;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
@@ -28,4 +29,14 @@ public class EntityListenerRepositoryDecorator extends AbstractRepositoryDecorat
     entities = entityListenersService.updateEntities(delegate().getName(), entities);
     delegate().update(entities);
   }
+
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    if (entityListenersService.isEmpty(delegate().getName())) {
+      delegate().upsertBatch(entities);
+    } else {
+      // listeners are only notified of updated entities
+      super.upsertBatch(entities);
+    }
+  }
 }
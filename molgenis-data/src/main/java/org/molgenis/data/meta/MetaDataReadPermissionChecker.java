@@ -0,0 +1,16 @@
+package org.molgenis.data.meta;
+
+import java.util.Set;
+
+/**
+ * Checks whether the current user is allowed to read metadata without retrieving it through the
+ * secured metadata repositories.
+ */
+public interface MetaDataReadPermissionChecker {
+  /**
+   * @param entityTypeIds entity type identifiers
+   * @param packageIds package identifiers
+   * @return whether the current user is allowed to read all of the given entity types and packages
+   */
+  boolean isReadAllowed(Set<String> entityTypeIds, Set<String> packageIds);
+}
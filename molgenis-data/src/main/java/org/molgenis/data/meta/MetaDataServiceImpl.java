@@ -66,18 +66,21 @@ public class MetaDataServiceImpl implements MetaDataService {
   private final SystemEntityTypeRegistry systemEntityTypeRegistry;
   private final EntityTypeDependencyResolver entityTypeDependencyResolver;
   private final PackagePersister packagePersister;
+  private final MetaDataSnapshotService metaDataSnapshotService;
 
   MetaDataServiceImpl(
       DataService dataService,
       RepositoryCollectionRegistry repoCollectionRegistry,
       SystemEntityTypeRegistry systemEntityTypeRegistry,
       EntityTypeDependencyResolver entityTypeDependencyResolver,
-      PackagePersister packagePersister) {
+      PackagePersister packagePersister,
+      MetaDataSnapshotService metaDataSnapshotService) {
     this.dataService = requireNonNull(dataService);
     this.repoCollectionRegistry = requireNonNull(repoCollectionRegistry);
     this.systemEntityTypeRegistry = requireNonNull(systemEntityTypeRegistry);
     this.entityTypeDependencyResolver = requireNonNull(entityTypeDependencyResolver);
     this.packagePersister = requireNonNull(packagePersister);
+    this.metaDataSnapshotService = requireNonNull(metaDataSnapshotService);
   }
 
   @Override
@@ -363,12 +366,17 @@ public class MetaDataServiceImpl implements MetaDataService {
   @Override
   public boolean hasEntityType(String entityTypeId) {
     return systemEntityTypeRegistry.hasSystemEntityType(entityTypeId)
+        || metaDataSnapshotService.getEntityType(entityTypeId) != null
         || getEntityTypeBypassingRegistry(entityTypeId) != null;
   }
 
   @Override
   public Optional<EntityType> getEntityType(String entityTypeId) {
     EntityType entityType = systemEntityTypeRegistry.getSystemEntityType(entityTypeId);
+    if (entityType != null) {
+      return Optional.of(entityType);
+    }
+    entityType = metaDataSnapshotService.getEntityType(entityTypeId);
     if (entityType != null) {
       return Optional.of(entityType);
     } else {
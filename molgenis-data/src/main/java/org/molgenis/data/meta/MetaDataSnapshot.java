@@ -0,0 +1,115 @@
+package org.molgenis.data.meta;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * Immutable version of the entity types known to a node. Each entry contains a fully resolved
+ * entity type and the identifiers of all metadata it was resolved from, so that entries can be
+ * evicted when that metadata changes.
+ */
+final class MetaDataSnapshot {
+  private final long version;
+  private final ImmutableMap<String, Entry> entries;
+
+  private MetaDataSnapshot(long version, ImmutableMap<String, Entry> entries) {
+    this.version = version;
+    this.entries = requireNonNull(entries);
+  }
+
+  static MetaDataSnapshot create() {
+    return new MetaDataSnapshot(0L, ImmutableMap.of());
+  }
+
+  long getVersion() {
+    return version;
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  @Nullable
+  @CheckForNull
+  Entry getEntry(String entityTypeId) {
+    return entries.get(entityTypeId);
+  }
+
+  /** Returns a snapshot of the same version that also contains the given entry. */
+  MetaDataSnapshot with(Entry entry) {
+    Map<String, Entry> newEntries = new HashMap<>(entries);
+    newEntries.put(entry.getEntityType().getId(), entry);
+    return new MetaDataSnapshot(version, ImmutableMap.copyOf(newEntries));
+  }
+
+  /** Returns a snapshot of the next version without the entries that match the predicate. */
+  MetaDataSnapshot without(Predicate<Entry> predicate) {
+    ImmutableMap.Builder<String, Entry> builder = ImmutableMap.builder();
+    entries.forEach(
+        (entityTypeId, entry) -> {
+          if (!predicate.test(entry)) {
+            builder.put(entityTypeId, entry);
+          }
+        });
+    return new MetaDataSnapshot(version + 1, builder.build());
+  }
+
+  /** Returns an empty snapshot of the next version. */
+  MetaDataSnapshot clear() {
+    return new MetaDataSnapshot(version + 1, ImmutableMap.of());
+  }
+
+  static final class Entry {
+    private final EntityType entityType;
+    private final ImmutableSet<String> entityTypeIds;
+    private final ImmutableSet<String> attributeIds;
+    private final ImmutableSet<String> packageIds;
+    private final ImmutableSet<String> tagIds;
+
+    Entry(
+        EntityType entityType,
+        Collection<String> entityTypeIds,
+        Collection<String> attributeIds,
+        Collection<String> packageIds,
+        Collection<String> tagIds) {
+      this.entityType = requireNonNull(entityType);
+      this.entityTypeIds = ImmutableSet.copyOf(entityTypeIds);
+      this.attributeIds = ImmutableSet.copyOf(attributeIds);
+      this.packageIds = ImmutableSet.copyOf(packageIds);
+      this.tagIds = ImmutableSet.copyOf(tagIds);
+    }
+
+    EntityType getEntityType() {
+      return entityType;
+    }
+
+    /** @return ids of the entity type and of all entity types it (indirectly) refers to */
+    ImmutableSet<String> getEntityTypeIds() {
+      return entityTypeIds;
+    }
+
+    /** @return ids of the attributes of all entity types in {@link #getEntityTypeIds()} */
+    ImmutableSet<String> getAttributeIds() {
+      return attributeIds;
+    }
+
+    /** @return ids of the packages, including parents, of all entity types */
+    ImmutableSet<String> getPackageIds() {
+      return packageIds;
+    }
+
+    /** @return ids of the tags of all entity types and attributes */
+    ImmutableSet<String> getTagIds() {
+      return tagIds;
+    }
+  }
+}
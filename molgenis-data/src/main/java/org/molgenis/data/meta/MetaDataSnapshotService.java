@@ -0,0 +1,318 @@
+package org.molgenis.data.meta;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
+import static org.molgenis.data.meta.model.TagMetadata.TAG;
+import static org.molgenis.data.util.EntityTypeUtils.getEntityTypeFetch;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.DataService;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.Package;
+import org.molgenis.data.meta.model.Tag;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionListener;
+import org.molgenis.data.transaction.TransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Serves entity types from an immutable, versioned {@link MetaDataSnapshot} so that metadata
+ * lookups do not query and hydrate the metadata repositories.
+ *
+ * <p>Entity types are resolved as the system user on first lookup and added to the snapshot. When a
+ * transaction on this or another node changes metadata, a new snapshot version without the affected
+ * entity types is swapped in. Entity types are only served from the snapshot outside read-write
+ * transactions, because entity types in the snapshot are shared and therefore {@link
+ * EntityType#freeze() frozen}.
+ */
+@Component
+public class MetaDataSnapshotService implements TransactionListener, CacheInvalidationListener {
+  private static final Set<String> METADATA_ENTITY_TYPE_IDS =
+      ImmutableSet.of(ENTITY_TYPE_META_DATA, ATTRIBUTE_META_DATA, PACKAGE, TAG);
+
+  private final DataService dataService;
+  private final MetaDataReadPermissionChecker metaDataReadPermissionChecker;
+  private final TransactionInformation transactionInformation;
+  private final int maxSize;
+
+  private final AtomicReference<MetaDataSnapshot> snapshot;
+  /** Evictions that have to be repeated after all transaction or invalidation listeners ran */
+  private final ThreadLocal<Predicate<MetaDataSnapshot.Entry>> pendingEviction;
+
+  private volatile boolean bootstrappingDone = false;
+
+  MetaDataSnapshotService(
+      DataService dataService,
+      MetaDataReadPermissionChecker metaDataReadPermissionChecker,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus,
+      @Value("${metadata.snapshot.size:10000}") int maxSize) {
+    this.dataService = requireNonNull(dataService);
+    this.metaDataReadPermissionChecker = requireNonNull(metaDataReadPermissionChecker);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Metadata snapshot size must be at least 1");
+    }
+    this.maxSize = maxSize;
+    this.snapshot = new AtomicReference<>(MetaDataSnapshot.create());
+    this.pendingEviction = new ThreadLocal<>();
+    requireNonNull(transactionManager).addTransactionListener(this);
+    requireNonNull(cacheInvalidationBus).addCacheInvalidationListener(this);
+  }
+
+  /**
+   * Returns the entity type with the given identifier from the snapshot.
+   *
+   * @return entity type or <tt>null</tt> if the entity type does not exist or cannot be served from
+   *     the snapshot to the current user in the current transaction
+   */
+  @Nullable
+  @CheckForNull
+  public EntityType getEntityType(String entityTypeId) {
+    if (entityTypeId == null || !isSnapshotReadable()) {
+      return null;
+    }
+
+    MetaDataSnapshot currentSnapshot = snapshot.get();
+    MetaDataSnapshot.Entry entry = currentSnapshot.getEntry(entityTypeId);
+    if (entry == null) {
+      entry = runAsSystem(() -> createEntry(entityTypeId));
+      if (entry == null) {
+        return null;
+      }
+      // the entry is discarded if a newer snapshot version was created in the meantime
+      if (currentSnapshot.size() < maxSize) {
+        snapshot.compareAndSet(currentSnapshot, currentSnapshot.with(entry));
+      }
+    }
+
+    return metaDataReadPermissionChecker.isReadAllowed(
+            entry.getEntityTypeIds(), entry.getPackageIds())
+        ? entry.getEntityType()
+        : null;
+  }
+
+  long getVersion() {
+    return snapshot.get().getVersion();
+  }
+
+  private boolean isSnapshotReadable() {
+    return bootstrappingDone
+        && (!TransactionSynchronizationManager.isActualTransactionActive()
+            || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+  }
+
+  /**
+   * Retrieves an entity type and resolves everything it refers to, so that the shared entity type
+   * does not lazy load metadata in the security context of the caller. The entity types and their
+   * attributes, packages and tags are frozen before they are published, so that readers on other
+   * threads never observe partially computed attribute caches and cannot modify the shared
+   * metadata.
+   */
+  @Nullable
+  @CheckForNull
+  private MetaDataSnapshot.Entry createEntry(String entityTypeId) {
+    EntityType entityType =
+        dataService.findOneById(
+            ENTITY_TYPE_META_DATA, entityTypeId, getEntityTypeFetch(), EntityType.class);
+    if (entityType == null) {
+      return null;
+    }
+
+    Set<String> entityTypeIds = new HashSet<>();
+    Set<String> attributeIds = new HashSet<>();
+    Set<String> packageIds = new HashSet<>();
+    Set<String> tagIds = new HashSet<>();
+
+    List<EntityType> resolvedEntityTypes = new ArrayList<>();
+    Deque<EntityType> entityTypes = new ArrayDeque<>();
+    entityTypes.add(entityType);
+    while (!entityTypes.isEmpty()) {
+      EntityType currentEntityType = entityTypes.remove();
+      if (!entityTypeIds.add(currentEntityType.getId())) {
+        continue;
+      }
+      resolvedEntityTypes.add(currentEntityType);
+
+      Package aPackage = currentEntityType.getPackage();
+      while (aPackage != null && packageIds.add(aPackage.getId())) {
+        aPackage = aPackage.getParent();
+      }
+      currentEntityType.getTags().forEach(tag -> tagIds.add(tag.getId()));
+
+      EntityType parentEntityType = currentEntityType.getExtends();
+      if (parentEntityType != null) {
+        entityTypes.add(parentEntityType);
+      }
+
+      for (Attribute attribute : currentEntityType.getOwnAllAttributes()) {
+        attributeIds.add(attribute.getIdentifier());
+        attribute.getDataType();
+        attribute.getTags().forEach(tag -> tagIds.add(tag.getId()));
+        if (attribute.hasRefEntity()) {
+          attribute.getMappedBy();
+          entityTypes.add(attribute.getRefEntity());
+        }
+      }
+    }
+
+    // system entity types are owned by the system entity type registry
+    resolvedEntityTypes.stream()
+        .filter(resolvedEntityType -> !(resolvedEntityType instanceof SystemEntityType))
+        .forEach(MetaDataSnapshotService::freeze);
+    return new MetaDataSnapshot.Entry(entityType, entityTypeIds, attributeIds, packageIds, tagIds);
+  }
+
+  /**
+   * Freezes an entity type together with its attributes, tags and packages. System packages are
+   * owned by the system package registry.
+   */
+  private static void freeze(EntityType entityType) {
+    Package aPackage = entityType.getPackage();
+    while (aPackage != null && !(aPackage instanceof SystemPackage)) {
+      aPackage.freeze();
+      aPackage = aPackage.getParent();
+    }
+    entityType.getTags().forEach(Tag::freeze);
+    for (Attribute attribute : entityType.getOwnAllAttributes()) {
+      attribute.getTags().forEach(Tag::freeze);
+      attribute.freeze();
+    }
+    entityType.freeze();
+  }
+
+  @Override
+  public void afterCommitTransaction(String transactionId) {
+    Predicate<MetaDataSnapshot.Entry> staleEntries =
+        getStaleEntries(
+            transactionInformation.getEntirelyDirtyRepositories(),
+            transactionInformation.getDirtyEntities());
+    if (staleEntries != null) {
+      evict(staleEntries);
+      pendingEviction.set(staleEntries);
+    }
+  }
+
+  /**
+   * Evicts again after all transaction listeners ran, because other threads could have added entity
+   * types based on metadata from a cache that was not yet evicted.
+   */
+  @Override
+  public void doCleanupAfterCompletion(String transactionId) {
+    evictPending();
+  }
+
+  @Override
+  public void onCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    Predicate<MetaDataSnapshot.Entry> staleEntries;
+    if (cacheInvalidation.isInvalidateAll()) {
+      staleEntries = entry -> true;
+    } else {
+      staleEntries =
+          getStaleEntries(
+              cacheInvalidation.getEntirelyDirtyRepositories(),
+              cacheInvalidation.getDirtyEntities());
+    }
+    if (staleEntries != null) {
+      evict(staleEntries);
+      pendingEviction.set(staleEntries);
+    }
+  }
+
+  @Override
+  public void afterCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    evictPending();
+  }
+
+  @EventListener
+  public void onApplicationEvent(BootstrappingEvent bootstrappingEvent) {
+    bootstrappingDone = bootstrappingEvent.getStatus() == FINISHED;
+    snapshot.updateAndGet(MetaDataSnapshot::clear);
+  }
+
+  /** @return predicate that matches stale entries or <tt>null</tt> if metadata did not change */
+  @Nullable
+  @CheckForNull
+  private static Predicate<MetaDataSnapshot.Entry> getStaleEntries(
+      Set<String> entirelyDirtyRepositories, Set<EntityKey> dirtyEntities) {
+    if (entirelyDirtyRepositories.stream().anyMatch(METADATA_ENTITY_TYPE_IDS::contains)) {
+      return entry -> true;
+    }
+
+    Set<String> entityTypeIds = new HashSet<>();
+    Set<String> attributeIds = new HashSet<>();
+    Set<String> packageIds = new HashSet<>();
+    Set<String> tagIds = new HashSet<>();
+    for (EntityKey entityKey : dirtyEntities) {
+      String id = entityKey.getId().toString();
+      switch (entityKey.getEntityTypeId()) {
+        case ENTITY_TYPE_META_DATA:
+          entityTypeIds.add(id);
+          break;
+        case ATTRIBUTE_META_DATA:
+          attributeIds.add(id);
+          break;
+        case PACKAGE:
+          packageIds.add(id);
+          break;
+        case TAG:
+          tagIds.add(id);
+          break;
+        default:
+          break;
+      }
+    }
+    if (entityTypeIds.isEmpty()
+        && attributeIds.isEmpty()
+        && packageIds.isEmpty()
+        && tagIds.isEmpty()) {
+      return null;
+    }
+
+    return entry ->
+        containsAny(entry.getEntityTypeIds(), entityTypeIds)
+            || containsAny(entry.getAttributeIds(), attributeIds)
+            || containsAny(entry.getPackageIds(), packageIds)
+            || containsAny(entry.getTagIds(), tagIds);
+  }
+
+  private static boolean containsAny(Set<String> ids, Set<String> staleIds) {
+    return staleIds.stream().anyMatch(ids::contains);
+  }
+
+  private void evict(Predicate<MetaDataSnapshot.Entry> staleEntries) {
+    snapshot.updateAndGet(currentSnapshot -> currentSnapshot.without(staleEntries));
+  }
+
+  private void evictPending() {
+    Predicate<MetaDataSnapshot.Entry> staleEntries = pendingEviction.get();
+    if (staleEntries != null) {
+      evict(staleEntries);
+      pendingEviction.remove();
+    }
+  }
+}
@@ -302,9 +302,8 @@ public class Attribute extends StaticEntity implements Labeled {
   }
 
   public Attribute setDataType(AttributeType dataType) {
-    invalidateCachedDataType();
-
     set(TYPE, AttributeType.getValueString(dataType));
+    invalidateCachedDataType();
     return this;
   }
 
@@ -731,6 +730,19 @@ public class Attribute extends StaticEntity implements Labeled {
     cachedDataType = null;
   }
 
+  /**
+   * Makes this attribute read-only so that it can be shared between threads, see {@link
+   * StaticEntity#freeze()}.
+   *
+   * @return this attribute
+   */
+  @Override
+  public Attribute freeze() {
+    getCachedDataType();
+    super.freeze();
+    return this;
+  }
+
   @Override
   public String toString() {
     return "Attribute{" + "name=" + getName() + " id=" + getIdValue() + '}';
@@ -7,6 +7,7 @@ import static com.google.common.collect.Streams.stream;
 import static java.lang.Boolean.TRUE;
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 import static org.molgenis.data.meta.AttributeType.COMPOUND;
@@ -36,6 +37,7 @@ import javax.annotation.Nullable;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.UnknownAttributeException;
+import org.molgenis.data.support.AttributeSlots;
 import org.molgenis.data.support.StaticEntity;
 import org.molgenis.util.UnexpectedEnumException;
 import org.molgenis.util.i18n.Labeled;
@@ -46,8 +48,11 @@ import org.molgenis.util.i18n.Labeled;
  * frontends, including Repository instances.
  */
 public class EntityType extends StaticEntity implements Labeled {
-  private Map<String, Attribute> cachedOwnAttrs;
-  private Boolean cachedHasAttrWithExpression;
+  // lazily computed caches are built locally before they are assigned, so that threads sharing a
+  // frozen entity type never observe a partially filled cache
+  private volatile Map<String, Attribute> cachedOwnAttrs;
+  private volatile Boolean cachedHasAttrWithExpression;
+  private volatile AttributeSlots cachedAttributeSlots;
 
   public EntityType(Entity entity) {
     super(entity);
@@ -636,17 +641,19 @@ public class EntityType extends StaticEntity implements Labeled {
   }
 
   private boolean getCachedHasAttrWithExpession() {
-    if (cachedHasAttrWithExpression == null) {
-      cachedHasAttrWithExpression =
+    Boolean hasAttrWithExpression = cachedHasAttrWithExpression;
+    if (hasAttrWithExpression == null) {
+      hasAttrWithExpression =
           stream(getAtomicAttributes()).anyMatch(attr -> attr.getExpression() != null);
+      cachedHasAttrWithExpression = hasAttrWithExpression;
     }
-    return cachedHasAttrWithExpression;
+    return hasAttrWithExpression;
   }
 
   public void removeAttribute(Attribute attr) {
-    Map<String, Attribute> cachedOwnAttributes = getCachedOwnAttrs();
-    removeAttributeRecursive(attr, cachedOwnAttributes);
-    set(ATTRIBUTES, cachedOwnAttributes.values());
+    Map<String, Attribute> ownAttributes = new LinkedHashMap<>(getCachedOwnAttrs());
+    removeAttributeRecursive(attr, ownAttributes);
+    set(ATTRIBUTES, newArrayList(ownAttributes.values()));
   }
 
   private void removeAttributeRecursive(Attribute attr, Map<String, Attribute> attributes) {
@@ -722,6 +729,22 @@ public class EntityType extends StaticEntity implements Labeled {
             .iterator();
   }
 
+  /**
+   * Returns the table that maps the atomic attributes, including the attributes of its parent
+   * class, to value slots of {@link org.molgenis.data.support.ArrayEntity array entities}. The
+   * table is rebuilt after the attributes or the parent class of this entity type change.
+   *
+   * @return attribute slots
+   */
+  public AttributeSlots getAttributeSlots() {
+    AttributeSlots attributeSlots = cachedAttributeSlots;
+    if (attributeSlots == null) {
+      attributeSlots = AttributeSlots.create(this);
+      cachedAttributeSlots = attributeSlots;
+    }
+    return attributeSlots;
+  }
+
   public boolean hasBidirectionalAttributes() {
     return hasMappedByAttributes() || hasInversedByAttributes();
   }
@@ -746,30 +769,58 @@ public class EntityType extends StaticEntity implements Labeled {
     return stream(getAtomicAttributes()).filter(Attribute::isInversedBy);
   }
 
+  /**
+   * Makes this entity type read-only so that it can be shared between threads: computes the lazily
+   * computed attribute caches and rejects subsequent changes with an {@link
+   * UnsupportedOperationException}. Entity types that this entity type refers to are not frozen.
+   *
+   * @return this entity type
+   */
+  @Override
+  public EntityType freeze() {
+    getCachedOwnAttrs();
+    getCachedHasAttrWithExpession();
+    getAttributeSlots();
+    super.freeze();
+    return this;
+  }
+
   @Override
   public void set(String attributeName, Object value) {
     super.set(attributeName, value);
     if (ATTRIBUTES.equals(attributeName)) {
       invalidateCachedOwnAttrs();
+    } else if (EXTENDS.equals(attributeName)) {
+      cachedAttributeSlots = null;
     }
   }
 
+  @Override
+  public void set(Entity values) {
+    super.set(values);
+    invalidateCachedOwnAttrs();
+    cachedHasAttrWithExpression = null;
+  }
+
   protected void setDefaultValues() {
     setAbstract(false);
     setIndexingDepth(1);
   }
 
   private Map<String, Attribute> getCachedOwnAttrs() {
-    if (cachedOwnAttrs == null) {
-      cachedOwnAttrs = new LinkedHashMap<>();
-      getEntities(ATTRIBUTES, Attribute.class)
-          .forEach(attr -> cachedOwnAttrs.put(attr.getName(), attr));
+    Map<String, Attribute> ownAttrs = cachedOwnAttrs;
+    if (ownAttrs == null) {
+      Map<String, Attribute> attrs = new LinkedHashMap<>();
+      getEntities(ATTRIBUTES, Attribute.class).forEach(attr -> attrs.put(attr.getName(), attr));
+      ownAttrs = unmodifiableMap(attrs);
+      cachedOwnAttrs = ownAttrs;
     }
-    return cachedOwnAttrs;
+    return ownAttrs;
   }
 
   private void invalidateCachedOwnAttrs() {
     cachedOwnAttrs = null;
+    cachedAttributeSlots = null;
   }
 
   public enum AttributeRole {
@@ -11,9 +11,13 @@ import static org.molgenis.data.meta.AttributeType.STRING;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
 import org.molgenis.data.Entity;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.util.UnexpectedEnumException;
 import org.springframework.stereotype.Component;
 
@@ -37,14 +41,38 @@ public class AutoValuePopulator {
 
     // auto id
     Attribute idAttr = entity.getEntityType().getIdAttribute();
-    if (idAttr != null
-        && idAttr.isAuto()
-        && entity.getIdValue() == null
-        && (idAttr.getDataType() == STRING)) {
+    if (isAutoStringIdAttribute(idAttr) && entity.getIdValue() == null) {
       entity.set(idAttr.getName(), idGenerator.generateId());
     }
   }
 
+  /**
+   * Populates entities of the same entity type with auto values. The auto ids of all entities are
+   * generated at once.
+   *
+   * @param entityType entity type of the entities
+   * @param entities populated entities
+   */
+  public void populate(EntityType entityType, List<? extends Entity> entities) {
+    // auto date
+    generateAutoDateOrDateTime(entities, entityType.getAttributes());
+
+    // auto id
+    Attribute idAttr = entityType.getIdAttribute();
+    if (isAutoStringIdAttribute(idAttr)) {
+      List<Entity> entitiesWithoutId =
+          entities.stream().filter(entity -> entity.getIdValue() == null).collect(toList());
+      if (!entitiesWithoutId.isEmpty()) {
+        Iterator<String> ids = idGenerator.generateIds(entitiesWithoutId.size()).iterator();
+        entitiesWithoutId.forEach(entity -> entity.set(idAttr.getName(), ids.next()));
+      }
+    }
+  }
+
+  private static boolean isAutoStringIdAttribute(@Nullable Attribute idAttr) {
+    return idAttr != null && idAttr.isAuto() && idAttr.getDataType() == STRING;
+  }
+
   private static void generateAutoDateOrDateTime(
       Iterable<? extends Entity> entities, Iterable<Attribute> attrs) {
     // get auto date and datetime attributes
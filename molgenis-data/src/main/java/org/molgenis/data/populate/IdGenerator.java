@@ -1,5 +1,7 @@
 package org.molgenis.data.populate;
 
+import java.util.List;
+
 /** Generates identifiers. */
 public interface IdGenerator {
   /**
@@ -44,4 +46,22 @@ public interface IdGenerator {
    * @return the generated String
    */
   String generateId(Strategy strategy);
+
+  /**
+   * Generates a number of unique ids using the {@link Strategy#SEQUENTIAL_UUID} strategy. Faster
+   * than generating the ids one by one.
+   *
+   * @param n number of ids
+   * @return the generated Strings in order of generation
+   */
+  List<String> generateIds(int n);
+
+  /**
+   * Generates a number of unique ids using the given strategy.
+   *
+   * @param strategy the {@link Strategy} to use
+   * @param n number of ids
+   * @return the generated Strings in order of generation
+   */
+  List<String> generateIds(Strategy strategy, int n);
 }
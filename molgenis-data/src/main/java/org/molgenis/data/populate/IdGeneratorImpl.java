@@ -4,9 +4,14 @@ import static org.molgenis.data.populate.IdGenerator.Strategy.SEQUENTIAL_UUID;
 
 import com.google.common.io.BaseEncoding;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nullable;
 import org.molgenis.data.util.UniqueId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /** Generates identifiers. */
@@ -19,6 +24,22 @@ public class IdGeneratorImpl implements IdGenerator {
     static final UniqueId UNIQUE_ID = new UniqueId();
   }
 
+  @Nullable private final UniqueId uniqueId;
+
+  /** Creates an id generator that identifies this node by its MAC address */
+  public IdGeneratorImpl() {
+    this(null);
+  }
+
+  /**
+   * @param nodeId 48-bit node identifier that must be unique for each node that shares a database,
+   *     if <code>null</code> the node is identified by its MAC address
+   */
+  @Autowired
+  public IdGeneratorImpl(@Value("${id.node:#{null}}") @Nullable Long nodeId) {
+    this.uniqueId = nodeId != null ? new UniqueId(nodeId) : null;
+  }
+
   @Override
   public String generateId() {
     return generateId(SEQUENTIAL_UUID);
@@ -30,6 +51,26 @@ public class IdGeneratorImpl implements IdGenerator {
     return BASE_ENCODING.encode(bytes);
   }
 
+  @Override
+  public List<String> generateIds(int n) {
+    return generateIds(SEQUENTIAL_UUID, n);
+  }
+
+  @Override
+  public List<String> generateIds(Strategy strategy, int n) {
+    List<String> ids = new ArrayList<>(n);
+    if (strategy == SEQUENTIAL_UUID) {
+      for (byte[] bytes : getUniqueId().getIds(n)) {
+        ids.add(BASE_ENCODING.encode(bytes));
+      }
+    } else {
+      for (int i = 0; i < n; i++) {
+        ids.add(generateId(strategy));
+      }
+    }
+    return ids;
+  }
+
   private byte[] generateBytes(Strategy strategy) {
     switch (strategy) {
       case SECURE_RANDOM:
@@ -42,10 +83,14 @@ public class IdGeneratorImpl implements IdGenerator {
         return generateRandomBytes(5, ThreadLocalRandom.current());
       case SEQUENTIAL_UUID:
       default:
-        return Holder.UNIQUE_ID.getId();
+        return getUniqueId().getId();
     }
   }
 
+  private UniqueId getUniqueId() {
+    return uniqueId != null ? uniqueId : Holder.UNIQUE_ID;
+  }
+
   /**
    * Generates a number of random bytes.
    *
@@ -0,0 +1,69 @@
+package org.molgenis.data.support;
+
+import static org.molgenis.data.support.AttributeSlots.NO_SLOT;
+
+import java.util.Map;
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * {@link DynamicEntity} that stores the values of the atomic attributes in an array instead of a
+ * map. The array index of each attribute is defined by the {@link AttributeSlots} of the entity
+ * type. Values of attributes that were added to the entity type after this entity was created are
+ * stored like in a dynamic entity, which only allocates its value map for such attributes.
+ */
+public class ArrayEntity extends DynamicEntity {
+  private final AttributeSlots attributeSlots;
+  private final Object[] slotValues;
+
+  /**
+   * Constructs an entity with the given entity meta data.
+   *
+   * @param entityType entity meta
+   */
+  public ArrayEntity(EntityType entityType) {
+    super(entityType);
+    this.attributeSlots = entityType.getAttributeSlots();
+    this.slotValues = new Object[attributeSlots.size()];
+  }
+
+  /**
+   * Constructs an entity with the given entity meta data and initialized the entity with the given
+   * data.
+   *
+   * @param entityType entity meta
+   * @param values map with attribute name-value pairs
+   */
+  public ArrayEntity(EntityType entityType, Map<String, Object> values) {
+    this(entityType);
+    values.forEach(this::set);
+  }
+
+  @Override
+  public Object getIdValue() {
+    int idSlot = attributeSlots.getIdSlot();
+    return idSlot != NO_SLOT ? slotValues[idSlot] : super.getIdValue();
+  }
+
+  @Override
+  public Object getLabelValue() {
+    int labelSlot = attributeSlots.getLabelSlot();
+    return labelSlot != NO_SLOT ? slotValues[labelSlot] : super.getLabelValue();
+  }
+
+  @Override
+  public Object get(String attrName) {
+    int slot = attributeSlots.getSlot(attrName);
+    return slot != NO_SLOT ? slotValues[slot] : super.get(attrName);
+  }
+
+  @Override
+  public void set(String attrName, Object value) {
+    int slot = attributeSlots.getSlot(attrName);
+    if (slot != NO_SLOT) {
+      validateValueType(attrName, value);
+      slotValues[slot] = value;
+    } else {
+      super.set(attrName, value);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.molgenis.data.support;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * Compiled table that maps the atomic attributes of an entity type to slots in an array of values.
+ * A table is shared by all {@link ArrayEntity array entities} of an entity type.
+ *
+ * @see EntityType#getAttributeSlots()
+ */
+public final class AttributeSlots {
+  public static final int NO_SLOT = -1;
+
+  private final ImmutableMap<String, Integer> slots;
+  private final int idSlot;
+  private final int labelSlot;
+
+  private AttributeSlots(ImmutableMap<String, Integer> slots, int idSlot, int labelSlot) {
+    this.slots = slots;
+    this.idSlot = idSlot;
+    this.labelSlot = labelSlot;
+  }
+
+  public static AttributeSlots create(EntityType entityType) {
+    Map<String, Integer> attributeSlots = new LinkedHashMap<>();
+    for (Attribute attribute : entityType.getAtomicAttributes()) {
+      attributeSlots.putIfAbsent(attribute.getName(), attributeSlots.size());
+    }
+    ImmutableMap<String, Integer> slots = ImmutableMap.copyOf(attributeSlots);
+    return new AttributeSlots(
+        slots,
+        getSlot(slots, entityType.getIdAttribute()),
+        getSlot(slots, entityType.getLabelAttribute()));
+  }
+
+  private static int getSlot(Map<String, Integer> slots, Attribute attribute) {
+    return attribute != null ? slots.getOrDefault(attribute.getName(), NO_SLOT) : NO_SLOT;
+  }
+
+  /** @return number of slots */
+  public int size() {
+    return slots.size();
+  }
+
+  /** @return slot of the attribute with the given name or {@link #NO_SLOT} */
+  public int getSlot(String attributeName) {
+    Integer slot = slots.get(attributeName);
+    return slot != null ? slot : NO_SLOT;
+  }
+
+  /** @return slot of the id attribute or {@link #NO_SLOT} */
+  public int getIdSlot() {
+    return idSlot;
+  }
+
+  /** @return slot of the label attribute or {@link #NO_SLOT} */
+  public int getLabelSlot() {
+    return labelSlot;
+  }
+}
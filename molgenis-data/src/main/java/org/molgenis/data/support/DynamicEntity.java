@@ -29,8 +29,12 @@ public class DynamicEntity implements Entity {
   /** Entity meta data */
   private final EntityType entityType;
 
-  /** Maps attribute names to values. Value class types are determined by attribute data type. */
-  private final Map<String, Object> values;
+  /**
+   * Maps attribute names to values. Value class types are determined by attribute data type. The
+   * map is created on first write, so that subclasses that store values elsewhere do not allocate
+   * it.
+   */
+  private Map<String, Object> values;
 
   /**
    * Constructs an entity with the given entity meta data.
@@ -39,7 +43,6 @@ public class DynamicEntity implements Entity {
    */
   public DynamicEntity(EntityType entityType) {
     this.entityType = requireNonNull(entityType);
-    this.values = newHashMap();
   }
 
   /**
@@ -89,7 +92,7 @@ public class DynamicEntity implements Entity {
 
   @Override
   public Object get(String attrName) {
-    return values.get(attrName);
+    return values != null ? values.get(attrName) : null;
   }
 
   @Override
@@ -155,6 +158,9 @@ public class DynamicEntity implements Entity {
   @Override
   public void set(String attrName, Object value) {
     validateValueType(attrName, value);
+    if (values == null) {
+      values = newHashMap();
+    }
     values.put(attrName, value);
   }
 
@@ -9,6 +9,7 @@ import org.molgenis.data.meta.MetaDataService;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.Package;
+import org.molgenis.data.transaction.QueryCursors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -45,7 +46,8 @@ public class RepositoryCopier {
     // create repository for copied entity meta data
     Repository<Entity> repositoryCopy = metaDataService.createRepository(emd);
 
-    // copy data to new repository
+    // copy data to new repository, the source is read within this transaction
+    QueryCursors.allowInCurrentTransaction();
     repositoryCopy.add(repository.query().findAll());
     return repositoryCopy;
   }
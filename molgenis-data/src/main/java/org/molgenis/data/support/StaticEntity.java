@@ -1,5 +1,6 @@
 package org.molgenis.data.support;
 
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 import java.time.Instant;
@@ -10,6 +11,7 @@ import org.molgenis.data.meta.model.EntityType;
 /** Base class for entities defined in pre-existing Java classes */
 public abstract class StaticEntity implements Entity {
   private Entity entity;
+  private volatile boolean frozen;
 
   public StaticEntity(Entity entity) {
     this.entity = requireNonNull(entity);
@@ -112,19 +114,45 @@ public abstract class StaticEntity implements Entity {
 
   @Override
   public void set(String attributeName, Object value) {
+    validateNotFrozen();
     entity.set(attributeName, value);
   }
 
   @Override
   public void set(Entity values) {
+    validateNotFrozen();
     entity.set(values);
   }
 
   @Override
   public void setIdValue(Object id) {
+    validateNotFrozen();
     entity.setIdValue(id);
   }
 
+  /**
+   * Makes this entity read-only so that it can be shared between threads. Subsequent changes are
+   * rejected with an {@link UnsupportedOperationException}. Entities that this entity refers to are
+   * not frozen.
+   *
+   * @return this entity
+   */
+  public StaticEntity freeze() {
+    frozen = true;
+    return this;
+  }
+
+  /** @return whether this entity is read-only */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  private void validateNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException(format("Entity '%s' is read-only", getIdValue()));
+    }
+  }
+
   @Override
   public String toString() {
     // TODO modify to 'return entity.toString()' once protected protected StaticEntity() constructor
@@ -0,0 +1,59 @@
+package org.molgenis.data.transaction;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.molgenis.data.EntityKey;
+
+/**
+ * Value object describing which cached data became stale after a committed transaction. Shared
+ * between nodes by a {@link CacheInvalidationBus}.
+ */
+@AutoValue
+@SuppressWarnings("java:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class CacheInvalidation {
+  /** @return whether all cached data became stale, e.g. because invalidations were missed */
+  public abstract boolean isInvalidateAll();
+
+  /** @return ids of entity types of which all cached data became stale */
+  public abstract ImmutableSet<String> getEntirelyDirtyRepositories();
+
+  /** @return keys of entities that became stale */
+  public abstract ImmutableSet<EntityKey> getDirtyEntities();
+
+  /**
+   * @return ids of entity types that contain stale data, whether it is one entity or the complete
+   *     repository
+   */
+  public Set<String> getDirtyRepositories() {
+    return Stream.concat(
+            getEntirelyDirtyRepositories().stream(),
+            getDirtyEntities().stream().map(EntityKey::getEntityTypeId))
+        .collect(toImmutableSet());
+  }
+
+  public boolean isEmpty() {
+    return !isInvalidateAll()
+        && getEntirelyDirtyRepositories().isEmpty()
+        && getDirtyEntities().isEmpty();
+  }
+
+  public static CacheInvalidation create(
+      Set<String> entirelyDirtyRepositories, Set<EntityKey> dirtyEntities) {
+    return new AutoValue_CacheInvalidation(
+        false, ImmutableSet.copyOf(entirelyDirtyRepositories), ImmutableSet.copyOf(dirtyEntities));
+  }
+
+  public static CacheInvalidation create(TransactionInformation transactionInformation) {
+    return create(
+        transactionInformation.getEntirelyDirtyRepositories(),
+        transactionInformation.getDirtyEntities());
+  }
+
+  public static CacheInvalidation createInvalidateAll() {
+    return new AutoValue_CacheInvalidation(true, ImmutableSet.of(), ImmutableSet.of());
+  }
+}
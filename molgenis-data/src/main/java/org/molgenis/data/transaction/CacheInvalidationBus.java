@@ -0,0 +1,23 @@
+package org.molgenis.data.transaction;
+
+/**
+ * Broadcasts cache invalidations between the nodes of a MOLGENIS cluster so that each node can
+ * evict the data that was changed by transactions committed on other nodes.
+ */
+public interface CacheInvalidationBus {
+  /**
+   * Publishes a cache invalidation to all other nodes. If a transaction is active the invalidation
+   * is only delivered if and when the transaction commits.
+   *
+   * @param cacheInvalidation description of the stale data
+   */
+  void publish(CacheInvalidation cacheInvalidation);
+
+  /**
+   * Registers a listener that is notified of cache invalidations published by other nodes.
+   * Invalidations published by this node are not delivered to its own listeners.
+   *
+   * @param cacheInvalidationListener listener to register
+   */
+  void addCacheInvalidationListener(CacheInvalidationListener cacheInvalidationListener);
+}
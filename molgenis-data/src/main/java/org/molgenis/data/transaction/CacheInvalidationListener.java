@@ -0,0 +1,18 @@
+package org.molgenis.data.transaction;
+
+/** Listener for cache invalidations published by other nodes on a {@link CacheInvalidationBus}. */
+public interface CacheInvalidationListener {
+  /**
+   * Invoked when a transaction committed by another node made cached data stale.
+   *
+   * @param cacheInvalidation description of the stale data
+   */
+  void onCacheInvalidation(CacheInvalidation cacheInvalidation);
+
+  /**
+   * Invoked after all listeners were notified of a cache invalidation.
+   *
+   * @param cacheInvalidation description of the stale data
+   */
+  default void afterCacheInvalidation(CacheInvalidation cacheInvalidation) {}
+}
@@ -0,0 +1,51 @@
+package org.molgenis.data.transaction;
+
+import static org.springframework.transaction.support.TransactionSynchronizationManager.bindResource;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.hasResource;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isActualTransactionActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.unbindResourceIfPossible;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+
+/**
+ * Controls whether unpaged query results may be streamed from a database cursor. A cursor is closed
+ * when the transaction that opened it completes, so it may only be used if the caller consumes the
+ * stream before its own transaction completes. Repositories read query results in batches unless
+ * the caller allowed cursors for the current transaction.
+ */
+public final class QueryCursors {
+  static final String CURSORS_ALLOWED_RESOURCE_NAME = "queryCursorsAllowed";
+
+  private QueryCursors() {}
+
+  /**
+   * Allows query results to be streamed from cursors until the current transaction completes. Only
+   * call this method if all streams are consumed or closed within the current transaction. Does
+   * nothing if no transaction is active, query results are then read in batches.
+   */
+  public static void allowInCurrentTransaction() {
+    if (!isActualTransactionActive() || !isSynchronizationActive()) {
+      return;
+    }
+    if (hasResource(CURSORS_ALLOWED_RESOURCE_NAME)) {
+      return;
+    }
+    bindResource(CURSORS_ALLOWED_RESOURCE_NAME, Boolean.TRUE);
+    registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            unbindResourceIfPossible(CURSORS_ALLOWED_RESOURCE_NAME);
+          }
+        });
+  }
+
+  /** Returns whether query results may be streamed from cursors in the current transaction. */
+  public static boolean isAllowed() {
+    return isActualTransactionActive()
+        && isSynchronizationActive()
+        && hasResource(CURSORS_ALLOWED_RESOURCE_NAME);
+  }
+}
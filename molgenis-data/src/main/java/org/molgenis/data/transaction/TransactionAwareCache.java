@@ -0,0 +1,219 @@
+package org.molgenis.data.transaction;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Cache of values that are created from entities. Values are evicted when a transaction on this or
+ * another node changes an entity type that the values depend on. Values are not cached in
+ * transactions that changed such an entity type, since these transactions should read their own
+ * changes.
+ *
+ * <p>Values are created once per key, threads that request a value that is being created wait for
+ * it. The least recently used value is evicted if the cache exceeds its maximum size.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class TransactionAwareCache<K, V>
+    implements TransactionListener, CacheInvalidationListener {
+  private final Predicate<String> dependsOnEntityType;
+  private final TransactionInformation transactionInformation;
+  private final int maxSize;
+
+  private final Map<K, CachedValue<V>> cachedValues = new ConcurrentHashMap<>();
+  /** Incremented on invalidation so that values created from stale data are not cached */
+  private final AtomicLong generation = new AtomicLong();
+  /** Locks that make threads wait for a value that another thread is creating */
+  private final Map<K, Object> loadLocks = new ConcurrentHashMap<>();
+
+  private final AtomicLong accessCounter = new AtomicLong();
+
+  private final ThreadLocal<Boolean> invalidatedByTransaction = new ThreadLocal<>();
+
+  /**
+   * Creates an unbounded cache and registers it with the transaction manager and cache invalidation
+   * bus.
+   *
+   * @param dependsOnEntityType tests whether the cached values depend on an entity type
+   */
+  public TransactionAwareCache(
+      Predicate<String> dependsOnEntityType,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus) {
+    this(
+        dependsOnEntityType,
+        transactionManager,
+        transactionInformation,
+        cacheInvalidationBus,
+        Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a cache and registers it with the transaction manager and cache invalidation bus.
+   *
+   * @param dependsOnEntityType tests whether the cached values depend on an entity type
+   * @param maxSize maximum number of cached values
+   */
+  public TransactionAwareCache(
+      Predicate<String> dependsOnEntityType,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus,
+      int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Maximum cache size must be at least 1");
+    }
+    this.dependsOnEntityType = requireNonNull(dependsOnEntityType);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    this.maxSize = maxSize;
+    requireNonNull(transactionManager).addTransactionListener(this);
+    requireNonNull(cacheInvalidationBus).addCacheInvalidationListener(this);
+  }
+
+  /**
+   * Returns the cached value for a key or creates it.
+   *
+   * @param key cache key
+   * @param loader creates the value if no valid value is cached, <code>null</code> values are not
+   *     cached
+   * @return value or <code>null</code> if the loader returned <code>null</code>
+   */
+  @Nullable
+  @CheckForNull
+  public V get(K key, Function<K, V> loader) {
+    return get(key, value -> true, loader);
+  }
+
+  /**
+   * Returns the cached value for a key if it is reusable or creates it.
+   *
+   * @param key cache key
+   * @param isReusable tests whether a cached value of the current generation can be returned
+   * @param loader creates the value if no valid value is cached, <code>null</code> values are not
+   *     cached
+   * @return value or <code>null</code> if the loader returned <code>null</code>
+   */
+  @Nullable
+  @CheckForNull
+  public V get(K key, Predicate<V> isReusable, Function<K, V> loader) {
+    if (isChanged(transactionInformation.getDirtyRepositories())) {
+      return loader.apply(key);
+    }
+
+    V value = getCachedValue(key, isReusable);
+    if (value != null) {
+      return value;
+    }
+
+    synchronized (loadLocks.computeIfAbsent(key, k -> new Object())) {
+      // another thread could have created the value while this thread was waiting
+      value = getCachedValue(key, isReusable);
+      if (value != null) {
+        return value;
+      }
+
+      long currentGeneration = generation.get();
+      value = loader.apply(key);
+      if (value != null) {
+        cachedValues.put(
+            key, new CachedValue<>(value, currentGeneration, accessCounter.incrementAndGet()));
+        evictLeastRecentlyUsed();
+      }
+      return value;
+    }
+  }
+
+  @Nullable
+  @CheckForNull
+  private V getCachedValue(K key, Predicate<V> isReusable) {
+    CachedValue<V> cachedValue = cachedValues.get(key);
+    if (cachedValue != null
+        && cachedValue.generation == generation.get()
+        && isReusable.test(cachedValue.value)) {
+      cachedValue.lastAccess = accessCounter.incrementAndGet();
+      return cachedValue.value;
+    }
+    return null;
+  }
+
+  private void evictLeastRecentlyUsed() {
+    while (cachedValues.size() > maxSize) {
+      cachedValues.entrySet().stream()
+          .min(comparingLong(entry -> entry.getValue().lastAccess))
+          .ifPresent(entry -> cachedValues.remove(entry.getKey(), entry.getValue()));
+    }
+  }
+
+  /** @return values that are currently cached */
+  public Collection<V> getValues() {
+    long currentGeneration = generation.get();
+    return cachedValues.values().stream()
+        .filter(cachedValue -> cachedValue.generation == currentGeneration)
+        .map(cachedValue -> cachedValue.value)
+        .collect(toList());
+  }
+
+  /** Evicts all cached values, values that are being created are not cached. */
+  public void invalidate() {
+    generation.incrementAndGet();
+    cachedValues.clear();
+    loadLocks.clear();
+  }
+
+  @Override
+  public void afterCommitTransaction(String transactionId) {
+    if (isChanged(transactionInformation.getDirtyRepositories())) {
+      invalidate();
+      invalidatedByTransaction.set(true);
+    }
+  }
+
+  /**
+   * Invalidates again after all transaction listeners evicted their caches, because other threads
+   * could have created a value based on entities from a not yet evicted cache.
+   */
+  @Override
+  public void doCleanupAfterCompletion(String transactionId) {
+    if (invalidatedByTransaction.get() != null) {
+      invalidate();
+      invalidatedByTransaction.remove();
+    }
+  }
+
+  @Override
+  public void onCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isInvalidateAll()
+        || isChanged(cacheInvalidation.getDirtyRepositories())) {
+      invalidate();
+    }
+  }
+
+  private boolean isChanged(Set<String> dirtyRepositories) {
+    return dirtyRepositories.stream().anyMatch(dependsOnEntityType);
+  }
+
+  private static class CachedValue<V> {
+    private final V value;
+    private final long generation;
+    private volatile long lastAccess;
+
+    private CachedValue(V value, long generation, long lastAccess) {
+      this.value = value;
+      this.generation = generation;
+      this.lastAccess = lastAccess;
+    }
+  }
+}
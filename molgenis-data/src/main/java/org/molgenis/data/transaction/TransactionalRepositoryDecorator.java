@@ -176,6 +176,20 @@ public class TransactionalRepositoryDecorator<E extends Entity>
     }
   }
 
+  @Override
+  public void upsertBatch(List<E> entities) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      delegate().upsertBatch(entities);
+    } else {
+      createWriteTransactionTemplate()
+          .execute(
+              status -> {
+                delegate().upsertBatch(entities);
+                return null;
+              });
+    }
+  }
+
   @Override
   public void delete(E entity) {
     if (TransactionSynchronizationManager.isSynchronizationActive()) {
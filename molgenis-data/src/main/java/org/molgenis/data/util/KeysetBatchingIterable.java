@@ -0,0 +1,113 @@
+package org.molgenis.data.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+
+/**
+ * Iterable that returns an iterator that retrieves a new batch of objects after a given batchSize.
+ * Unlike {@link BatchingIterable} batches are not retrieved by offset but by the key of the last
+ * element of the previous batch (keyset pagination), so that retrieving a batch does not become
+ * slower the further the iteration progresses.
+ *
+ * @param <T> element type
+ * @param <K> key type
+ */
+public abstract class KeysetBatchingIterable<T, K> implements Iterable<T> {
+  private final int batchSize;
+  /** Limit > 0: Number of elements to retrieve, Limit = 0: Limit undefined */
+  private final int limit;
+
+  public KeysetBatchingIterable(int batchSize, int limit) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("BatchSize must be greater than 0");
+    }
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limit must be larger than or equal to 0");
+    }
+    this.batchSize = batchSize;
+    this.limit = limit;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      /** Number of elements retrieved so far */
+      private int count = 0;
+      /** Key of the last element of the previous batch, null before the first batch */
+      private K key = null;
+      /** Whether the previous batch was the last batch */
+      private boolean lastBatch = false;
+      /** Element iterator for the current batch */
+      private Iterator<T> it;
+
+      @Override
+      public boolean hasNext() {
+        if (it == null || !it.hasNext()) {
+          it = nextBatch();
+        }
+        return it.hasNext();
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return it.next();
+      }
+
+      private Iterator<T> nextBatch() {
+        if (lastBatch) {
+          return Collections.emptyIterator();
+        }
+
+        int nextBatchSize = limit == 0 ? batchSize : Math.min(batchSize, limit - count);
+        if (nextBatchSize == 0) {
+          lastBatch = true;
+          return Collections.emptyIterator();
+        }
+
+        Batch<T, K> batch = getBatch(key, nextBatchSize);
+        List<T> elements = batch.getElements();
+        count += elements.size();
+        key = batch.getLastKey();
+        lastBatch = elements.size() < nextBatchSize;
+        return elements.iterator();
+      }
+    };
+  }
+
+  /**
+   * Returns a new batch, should not return null but an empty batch if no more elements are
+   * available.
+   *
+   * @param key key of the last element of the previous batch or null to retrieve the first batch
+   * @param batchSize maximum number of elements to retrieve
+   */
+  protected abstract Batch<T, K> getBatch(@Nullable K key, int batchSize);
+
+  /** Batch of elements together with the key of the last element in the batch. */
+  public static class Batch<T, K> {
+    private final List<T> elements;
+    private final K lastKey;
+
+    public Batch(List<T> elements, @Nullable K lastKey) {
+      this.elements = requireNonNull(elements);
+      this.lastKey = lastKey;
+    }
+
+    public List<T> getElements() {
+      return elements;
+    }
+
+    @Nullable
+    public K getLastKey() {
+      return lastKey;
+    }
+  }
+}
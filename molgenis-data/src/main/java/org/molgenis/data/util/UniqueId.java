@@ -1,11 +1,20 @@
 package org.molgenis.data.util;
 
+import static java.lang.String.format;
+
 import com.eaio.uuid.UUIDGen;
-import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Unique identifier generator. Important: one instance generates unique identifiers, different
- * instances might generate the same identifiers.
+ * instances might generate the same identifiers. Instances on different nodes generate different
+ * identifiers as long as the nodes have different node identifiers.
+ *
+ * <p>Identifiers consist of a 64-bit timestamp in milliseconds, a 48-bit node identifier and a
+ * 16-bit sequence number and are ordered by time. The timestamp and sequence number of the last
+ * generated identifier are packed in one atomic value, so generating identifiers doesn't require
+ * locking. If the sequence numbers of a millisecond are exhausted, generation waits for the next
+ * millisecond.
  *
  * <p>Derived from https://github.com/mumrah/flake-java/blob/master/src/uniq/UniqueId.java
  *
@@ -13,43 +22,109 @@ import java.nio.ByteBuffer;
  * http://boundary.com/blog/2012/01/12/flake-a-decentralized-k-ordered-unique-id-generator-in-erlang/
  */
 public class UniqueId {
+  private static final int ID_LENGTH = 16;
+  private static final long MAX_NODE = 0xffffffffffffL;
 
-  // Get the MAC address (i.e., the "node" from a UUID1)
-  private static final long CLOCK_SEQ_AND_NODE = UUIDGen.getClockSeqAndNode();
-  private static final byte[] NODE =
-      new byte[] {
-        (byte) ((CLOCK_SEQ_AND_NODE >> 40) & 0xff),
-        (byte) ((CLOCK_SEQ_AND_NODE >> 32) & 0xff),
-        (byte) ((CLOCK_SEQ_AND_NODE >> 24) & 0xff),
-        (byte) ((CLOCK_SEQ_AND_NODE >> 16) & 0xff),
-        (byte) ((CLOCK_SEQ_AND_NODE >> 8) & 0xff),
-        (byte) ((CLOCK_SEQ_AND_NODE) & 0xff),
-      };
+  private static final int SEQUENCE_BITS = 16;
+  private static final long MAX_SEQUENCE = 0xffffL;
 
-  private volatile int seq;
-  private volatile long lastTimestamp;
-  private final Object lock = new Object();
+  private final byte[] node;
+  /** Timestamp of the last generated identifier followed by its sequence number */
+  private final AtomicLong lastTimestampAndSequence = new AtomicLong();
 
-  private static final int MAX_SHORT = 0xffff;
+  /** Creates a generator that identifies this node by its MAC address */
+  public UniqueId() {
+    // the "node" from a UUID1
+    this(UUIDGen.getClockSeqAndNode() & MAX_NODE);
+  }
+
+  /**
+   * Creates a generator for the given node.
+   *
+   * @param nodeId 48-bit node identifier that is unique for each node
+   */
+  public UniqueId(long nodeId) {
+    if (nodeId < 0 || nodeId > MAX_NODE) {
+      throw new IllegalArgumentException(
+          format("Node id [%d] must be between 0 and %d", nodeId, MAX_NODE));
+    }
+    node = new byte[6];
+    for (int i = 0; i < node.length; i++) {
+      node[i] = (byte) (nodeId >> (40 - 8 * i));
+    }
+  }
 
   public byte[] getId() {
-    if (seq == MAX_SHORT) {
-      throw new RuntimeException("Too fast");
+    long timestampAndSequence = reserve(1);
+    return toId(timestampAndSequence);
+  }
+
+  /**
+   * Generates a number of identifiers. Identifiers are reserved per millisecond instead of one by
+   * one.
+   *
+   * @param n number of identifiers
+   * @return ordered identifiers
+   */
+  public byte[][] getIds(int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException(format("Number of ids [%d] must be positive", n));
+    }
+    byte[][] ids = new byte[n][];
+    int index = 0;
+    while (index < n) {
+      long timestampAndSequence = reserve(n - index);
+      int nrReserved = getNumberReservable(timestampAndSequence, n - index);
+      for (int i = 0; i < nrReserved; i++) {
+        ids[index++] = toId(timestampAndSequence + i);
+      }
     }
+    return ids;
+  }
+
+  /**
+   * Reserves at most n consecutive sequence numbers in one millisecond.
+   *
+   * @return timestamp and sequence number of the first reserved identifier
+   */
+  private long reserve(int n) {
+    while (true) {
+      long last = lastTimestampAndSequence.get();
+      long lastTimestamp = last >>> SEQUENCE_BITS;
+      long timestamp = System.currentTimeMillis();
+
+      long first;
+      if (timestamp > lastTimestamp) {
+        first = timestamp << SEQUENCE_BITS;
+      } else if ((last & MAX_SEQUENCE) != MAX_SEQUENCE) {
+        // same millisecond or the clock moved backwards: continue the sequence of the last id
+        first = last + 1;
+      } else {
+        Thread.onSpinWait();
+        continue;
+      }
 
-    long time;
-    synchronized (lock) {
-      time = System.currentTimeMillis();
-      if (time != lastTimestamp) {
-        lastTimestamp = time;
-        seq = 0;
+      long newLast = first + getNumberReservable(first, n) - 1;
+      if (lastTimestampAndSequence.compareAndSet(last, newLast)) {
+        return first;
       }
-      seq++;
-      ByteBuffer bb = ByteBuffer.allocate(16);
-      bb.putLong(time);
-      bb.put(NODE);
-      bb.putShort((short) seq);
-      return bb.array();
     }
   }
+
+  private static int getNumberReservable(long timestampAndSequence, int n) {
+    long available = MAX_SEQUENCE - (timestampAndSequence & MAX_SEQUENCE) + 1;
+    return (int) Math.min(n, available);
+  }
+
+  private byte[] toId(long timestampAndSequence) {
+    long timestamp = timestampAndSequence >>> SEQUENCE_BITS;
+    byte[] id = new byte[ID_LENGTH];
+    for (int i = 0; i < 8; i++) {
+      id[i] = (byte) (timestamp >> (56 - 8 * i));
+    }
+    System.arraycopy(node, 0, id, 8, node.length);
+    id[14] = (byte) (timestampAndSequence >> 8);
+    id[15] = (byte) timestampAndSequence;
+    return id;
+  }
 }
@@ -19,6 +19,8 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
 
 class EntityListenerRepositoryDecoratorTest {
   private Repository<Entity> delegateRepository;
@@ -212,6 +214,44 @@ class EntityListenerRepositoryDecoratorTest {
     assertEquals(asList(entity0, entity1), captor.getValue().collect(toList()));
   }
 
+  @Test
+  void upsertBatchNoListeners() {
+    List<Entity> entities = singletonList(Mockito.mock(Entity.class));
+    entityListenerRepositoryDecorator.upsertBatch(entities);
+    Mockito.verify(delegateRepository).upsertBatch(entities);
+  }
+
+  @SuppressWarnings({"resource", "unchecked", "rawtypes"})
+  @Test
+  void upsertBatchWithListeners() {
+    Repository<Entity> decoratedRepository = Mockito.mock(Repository.class);
+    Mockito.when(decoratedRepository.getName()).thenReturn("entityFullName");
+    EntityType entityType = Mockito.mock(EntityType.class);
+    Attribute idAttribute =
+        Mockito.when(Mockito.mock(Attribute.class).getName()).thenReturn("id").getMock();
+    Mockito.when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    Mockito.when(decoratedRepository.getEntityType()).thenReturn(entityType);
+    EntityListenerRepositoryDecorator entityListenerRepositoryDecorator =
+        new EntityListenerRepositoryDecorator(decoratedRepository, entityListenersService);
+    EntityListener entityListener1 =
+        Mockito.when(Mockito.mock(EntityListener.class).getEntityId()).thenReturn(2).getMock();
+    entityListenersService.addEntityListener("entityFullName", entityListener1);
+
+    Entity entity0 = Mockito.when(Mockito.mock(Entity.class).getIdValue()).thenReturn(1).getMock();
+    Entity entity1 = Mockito.when(Mockito.mock(Entity.class).getIdValue()).thenReturn(2).getMock();
+    Mockito.when(decoratedRepository.findAll(Mockito.any(Stream.class), Mockito.any(Fetch.class)))
+        .thenReturn(Stream.of(entity1));
+    entityListenerRepositoryDecorator.upsertBatch(asList(entity0, entity1));
+
+    ArgumentCaptor<Stream<Entity>> addCaptor = ArgumentCaptor.forClass(Stream.class);
+    Mockito.verify(decoratedRepository).add(addCaptor.capture());
+    assertEquals(singletonList(entity0), addCaptor.getValue().collect(toList()));
+    ArgumentCaptor<Stream<Entity>> updateCaptor = ArgumentCaptor.forClass(Stream.class);
+    Mockito.verify(decoratedRepository).update(updateCaptor.capture());
+    assertEquals(singletonList(entity1), updateCaptor.getValue().collect(toList()));
+    Mockito.verify(entityListener1, Mockito.times(1)).postUpdate(entity1);
+  }
+
   @SuppressWarnings("resource")
   @Test
   void removeEntityListener() {
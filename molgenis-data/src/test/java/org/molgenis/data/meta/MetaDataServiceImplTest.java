@@ -68,6 +68,7 @@ class MetaDataServiceImplTest extends AbstractMockitoTest {
   @Mock private SystemEntityTypeRegistry systemEntityTypeRegistry;
   @Mock private EntityTypeDependencyResolver entityTypeDependencyResolver;
   @Mock private PackagePersister packagePersister;
+  @Mock private MetaDataSnapshotService metaDataSnapshotService;
 
   private MetaDataServiceImpl metaDataServiceImpl;
 
@@ -79,7 +80,8 @@ class MetaDataServiceImplTest extends AbstractMockitoTest {
             repoCollectionRegistry,
             systemEntityTypeRegistry,
             entityTypeDependencyResolver,
-            packagePersister);
+            packagePersister,
+            metaDataSnapshotService);
   }
 
   @Test
@@ -504,6 +506,16 @@ class MetaDataServiceImplTest extends AbstractMockitoTest {
     verify(systemEntityTypeRegistry).getSystemEntityType(entityTypeId);
   }
 
+  @Test
+  void getEntityTypeFromSnapshot() {
+    String entityTypeId = "entity";
+    EntityType entityType = mock(EntityType.class);
+    when(metaDataSnapshotService.getEntityType(entityTypeId)).thenReturn(entityType);
+
+    assertEquals(of(entityType), metaDataServiceImpl.getEntityType(entityTypeId));
+    verifyZeroInteractions(dataService);
+  }
+
   @Test
   void getEntityTypeNull() {
     assertEquals(empty(), metaDataServiceImpl.getEntityType(null));
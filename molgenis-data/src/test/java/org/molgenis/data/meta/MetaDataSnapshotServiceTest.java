@@ -0,0 +1,223 @@
+package org.molgenis.data.meta;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.Package;
+import org.molgenis.data.meta.model.Tag;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.test.AbstractMockitoTest;
+
+class MetaDataSnapshotServiceTest extends AbstractMockitoTest {
+  @Mock private DataService dataService;
+  @Mock private MetaDataReadPermissionChecker metaDataReadPermissionChecker;
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+
+  private MetaDataSnapshotService metaDataSnapshotService;
+
+  @BeforeEach
+  void setUpBeforeMethod() {
+    metaDataSnapshotService =
+        new MetaDataSnapshotService(
+            dataService,
+            metaDataReadPermissionChecker,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus,
+            100);
+  }
+
+  @Test
+  void testMetaDataSnapshotService() {
+    verify(transactionManager).addTransactionListener(metaDataSnapshotService);
+    verify(cacheInvalidationBus).addCacheInvalidationListener(metaDataSnapshotService);
+  }
+
+  @Test
+  void testMetaDataSnapshotServiceInvalidSize() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new MetaDataSnapshotService(
+                dataService,
+                metaDataReadPermissionChecker,
+                transactionManager,
+                transactionInformation,
+                cacheInvalidationBus,
+                0));
+  }
+
+  @Test
+  void testGetEntityTypeDuringBootstrapping() {
+    assertNull(metaDataSnapshotService.getEntityType("entityTypeId"));
+    verifyNoInteractions(dataService);
+  }
+
+  @Test
+  void testGetEntityType() {
+    EntityType entityType = setUpEntityType("entityTypeId");
+    finishBootstrapping();
+    when(metaDataReadPermissionChecker.isReadAllowed(singleton("entityTypeId"), emptySet()))
+        .thenReturn(true);
+
+    assertSame(entityType, metaDataSnapshotService.getEntityType("entityTypeId"));
+    assertSame(entityType, metaDataSnapshotService.getEntityType("entityTypeId"));
+    verify(dataService)
+        .findOneById(
+            eq(ENTITY_TYPE_META_DATA), eq("entityTypeId"), any(Fetch.class), eq(EntityType.class));
+    verify(entityType).freeze();
+  }
+
+  @Test
+  void testGetEntityTypeFreezesMetadata() {
+    EntityType entityType = setUpEntityType("entityTypeId");
+    Package parentPackage = when(mock(Package.class).getId()).thenReturn("parent").getMock();
+    Package aPackage = when(mock(Package.class).getId()).thenReturn("package").getMock();
+    when(aPackage.getParent()).thenReturn(parentPackage);
+    when(entityType.getPackage()).thenReturn(aPackage);
+    Tag entityTypeTag = when(mock(Tag.class).getId()).thenReturn("entityTypeTag").getMock();
+    when(entityType.getTags()).thenReturn(singletonList(entityTypeTag));
+    Tag attributeTag = when(mock(Tag.class).getId()).thenReturn("attributeTag").getMock();
+    Attribute attribute = when(mock(Attribute.class).getIdentifier()).thenReturn("attr").getMock();
+    when(attribute.getTags()).thenReturn(singletonList(attributeTag));
+    when(entityType.getOwnAllAttributes()).thenReturn(singletonList(attribute));
+    finishBootstrapping();
+    when(metaDataReadPermissionChecker.isReadAllowed(
+            singleton("entityTypeId"), Set.of("package", "parent")))
+        .thenReturn(true);
+
+    assertSame(entityType, metaDataSnapshotService.getEntityType("entityTypeId"));
+    verify(entityType).freeze();
+    verify(attribute).freeze();
+    verify(aPackage).freeze();
+    verify(parentPackage).freeze();
+    verify(entityTypeTag).freeze();
+    verify(attributeTag).freeze();
+  }
+
+  @Test
+  void testGetEntityTypeSystemPackageNotFrozen() {
+    EntityType entityType = setUpEntityType("entityTypeId");
+    SystemPackage systemPackage =
+        when(mock(SystemPackage.class).getId()).thenReturn("sys").getMock();
+    when(entityType.getPackage()).thenReturn(systemPackage);
+    finishBootstrapping();
+    when(metaDataReadPermissionChecker.isReadAllowed(singleton("entityTypeId"), singleton("sys")))
+        .thenReturn(true);
+
+    assertSame(entityType, metaDataSnapshotService.getEntityType("entityTypeId"));
+    verify(entityType).freeze();
+    verify(systemPackage, never()).freeze();
+  }
+
+  @Test
+  void testGetEntityTypeUnknown() {
+    finishBootstrapping();
+    assertNull(metaDataSnapshotService.getEntityType("unknownEntityTypeId"));
+  }
+
+  @Test
+  void testGetEntityTypeReadNotAllowed() {
+    setUpEntityType("entityTypeId");
+    finishBootstrapping();
+
+    assertNull(metaDataSnapshotService.getEntityType("entityTypeId"));
+  }
+
+  @Test
+  void testAfterCommitTransaction() {
+    setUpEntityType("entityTypeId");
+    finishBootstrapping();
+    metaDataSnapshotService.getEntityType("entityTypeId");
+
+    long version = metaDataSnapshotService.getVersion();
+    when(transactionInformation.getDirtyEntities())
+        .thenReturn(singleton(EntityKey.create(ENTITY_TYPE_META_DATA, "entityTypeId")));
+    metaDataSnapshotService.afterCommitTransaction("transactionId");
+    metaDataSnapshotService.doCleanupAfterCompletion("transactionId");
+    assertEquals(version + 2, metaDataSnapshotService.getVersion());
+
+    metaDataSnapshotService.getEntityType("entityTypeId");
+    verify(dataService, times(2))
+        .findOneById(
+            eq(ENTITY_TYPE_META_DATA), eq("entityTypeId"), any(Fetch.class), eq(EntityType.class));
+  }
+
+  @Test
+  void testAfterCommitTransactionDataChanged() {
+    setUpEntityType("entityTypeId");
+    finishBootstrapping();
+    metaDataSnapshotService.getEntityType("entityTypeId");
+
+    long version = metaDataSnapshotService.getVersion();
+    when(transactionInformation.getEntirelyDirtyRepositories())
+        .thenReturn(singleton("entityTypeId"));
+    metaDataSnapshotService.afterCommitTransaction("transactionId");
+    metaDataSnapshotService.doCleanupAfterCompletion("transactionId");
+    assertEquals(version, metaDataSnapshotService.getVersion());
+
+    metaDataSnapshotService.getEntityType("entityTypeId");
+    verify(dataService)
+        .findOneById(
+            eq(ENTITY_TYPE_META_DATA), eq("entityTypeId"), any(Fetch.class), eq(EntityType.class));
+  }
+
+  @Test
+  void testOnCacheInvalidation() {
+    setUpEntityType("entityTypeId");
+    finishBootstrapping();
+    metaDataSnapshotService.getEntityType("entityTypeId");
+
+    CacheInvalidation cacheInvalidation = CacheInvalidation.createInvalidateAll();
+    metaDataSnapshotService.onCacheInvalidation(cacheInvalidation);
+    metaDataSnapshotService.afterCacheInvalidation(cacheInvalidation);
+
+    metaDataSnapshotService.getEntityType("entityTypeId");
+    verify(dataService, times(2))
+        .findOneById(
+            eq(ENTITY_TYPE_META_DATA), eq("entityTypeId"), any(Fetch.class), eq(EntityType.class));
+  }
+
+  private void finishBootstrapping() {
+    metaDataSnapshotService.onApplicationEvent(new BootstrappingEvent(FINISHED));
+  }
+
+  private EntityType setUpEntityType(String entityTypeId) {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn(entityTypeId);
+    when(dataService.findOneById(
+            eq(ENTITY_TYPE_META_DATA), eq(entityTypeId), any(Fetch.class), eq(EntityType.class)))
+        .thenReturn(entityType);
+    return entityType;
+  }
+}
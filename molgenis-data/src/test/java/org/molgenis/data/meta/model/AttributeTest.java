@@ -4,6 +4,8 @@ import static java.util.Collections.singletonList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -11,6 +13,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.BOOL;
+import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.molgenis.data.meta.AttributeType.XREF;
@@ -108,6 +111,20 @@ class AttributeTest extends AbstractSystemEntityTest {
     assertTrue(attribute.hasRefEntity());
   }
 
+  @Test
+  void testFreeze() {
+    EntityType entityType = createAttributeMetadataMock();
+    Attribute frozenAttribute = new Attribute(entityType);
+    frozenAttribute.setDataType(STRING);
+
+    assertSame(frozenAttribute, frozenAttribute.freeze());
+    assertTrue(frozenAttribute.isFrozen());
+    assertEquals(STRING, frozenAttribute.getDataType());
+    assertThrows(UnsupportedOperationException.class, () -> frozenAttribute.setDataType(INT));
+    assertThrows(UnsupportedOperationException.class, () -> frozenAttribute.setLabel("label"));
+    assertEquals(STRING, frozenAttribute.getDataType());
+  }
+
   private EntityType createAttributeMetadataMock() {
     EntityType entityType = mock(EntityType.class);
     Attribute typeAttr = when(mock(Attribute.class).getDataType()).thenReturn(STRING).getMock();
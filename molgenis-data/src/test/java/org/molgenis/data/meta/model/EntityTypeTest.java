@@ -10,6 +10,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -290,6 +291,37 @@ class EntityTypeTest extends AbstractSystemEntityTest {
         () -> entityType.getAttributeByName("UnknownAttributeName"));
   }
 
+  @Test
+  void testFreeze() {
+    String attributeName = "MyAttributeName";
+    Attribute attribute = mock(Attribute.class);
+    when(attribute.getName()).thenReturn(attributeName);
+
+    Entity entity = mock(Entity.class);
+    when(entity.getEntities(ATTRIBUTES, Attribute.class)).thenReturn(singletonList(attribute));
+    EntityType entityType = new EntityType(entity);
+
+    assertSame(entityType, entityType.freeze());
+    assertTrue(entityType.isFrozen());
+    assertEquals(attribute, entityType.getAttributeByName(attributeName));
+    assertEquals(0, entityType.getAttributeSlots().getSlot(attributeName));
+    assertThrows(UnsupportedOperationException.class, () -> entityType.setLabel("label"));
+    assertThrows(
+        UnsupportedOperationException.class, () -> entityType.removeAttribute(attribute));
+    verify(entity).getEntities(ATTRIBUTES, Attribute.class);
+  }
+
+  @Test
+  void testGetOwnAllAttributesUnmodifiable() {
+    Entity entity = mock(Entity.class);
+    when(entity.getEntities(ATTRIBUTES, Attribute.class))
+        .thenReturn(singletonList(mock(Attribute.class)));
+    EntityType entityType = new EntityType(entity);
+
+    Iterable<Attribute> attributes = entityType.getOwnAllAttributes();
+    assertThrows(UnsupportedOperationException.class, () -> attributes.iterator().remove());
+  }
+
   private EntityType mockEntityTypeMeta() {
     EntityType entityTypeMeta = mock(EntityType.class);
     Attribute intAttr = when(mock(Attribute.class).getDataType()).thenReturn(INT).getMock();
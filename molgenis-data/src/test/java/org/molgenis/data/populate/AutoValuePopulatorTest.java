@@ -1,6 +1,7 @@
 package org.molgenis.data.populate;
 
 import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.mock;
@@ -27,6 +28,7 @@ class AutoValuePopulatorTest {
   private static final String ATTR_DATETIME_AUTO_TRUE = "datetime_auto-true";
 
   private EntityType entityType;
+  private IdGenerator idGenerator;
   private AutoValuePopulator autoValuePopulator;
 
   @BeforeEach
@@ -85,13 +87,13 @@ class AutoValuePopulatorTest {
     when(entityType.getAttribute(ATTR_DATETIME_AUTO_DEFAULT)).thenReturn(attrDateTimeAutoDefault);
     when(entityType.getAttribute(ATTR_DATETIME_AUTO_FALSE)).thenReturn(attrDateTimeAutoFalse);
     when(entityType.getAttribute(ATTR_DATETIME_AUTO_TRUE)).thenReturn(attrDateTimeAutoTrue);
-    IdGenerator idGenerator = mock(IdGenerator.class);
-    Mockito.when(idGenerator.generateId()).thenReturn("ID1").thenReturn("ID2");
+    idGenerator = mock(IdGenerator.class);
     autoValuePopulator = new AutoValuePopulator(idGenerator);
   }
 
   @Test
   void populateAutoValues() {
+    Mockito.when(idGenerator.generateId()).thenReturn("ID1").thenReturn("ID2");
     Entity entity = new DynamicEntity(entityType);
     autoValuePopulator.populate(entity);
 
@@ -103,4 +105,21 @@ class AutoValuePopulatorTest {
     assertNull(entity.getInstant(ATTR_DATETIME_AUTO_FALSE));
     assertNotNull(entity.getInstant(ATTR_DATETIME_AUTO_TRUE));
   }
+
+  @Test
+  void populateAutoValuesBatch() {
+    Mockito.when(idGenerator.generateIds(2)).thenReturn(asList("ID1", "ID2"));
+    Entity entity0 = new DynamicEntity(entityType);
+    Entity entity1 = new DynamicEntity(entityType);
+    entity1.setIdValue("id");
+    Entity entity2 = new DynamicEntity(entityType);
+    autoValuePopulator.populate(entityType, asList(entity0, entity1, entity2));
+
+    assertEquals("ID1", entity0.getIdValue());
+    assertEquals("id", entity1.getIdValue());
+    assertEquals("ID2", entity2.getIdValue());
+    assertNotNull(entity0.getLocalDate(ATTR_DATE_AUTO_TRUE));
+    assertNotNull(entity2.getInstant(ATTR_DATETIME_AUTO_TRUE));
+    assertNull(entity2.getInstant(ATTR_DATETIME_AUTO_FALSE));
+  }
 }
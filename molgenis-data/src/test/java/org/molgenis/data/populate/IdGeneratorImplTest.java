@@ -1,5 +1,6 @@
 package org.molgenis.data.populate;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.molgenis.data.populate.IdGenerator.Strategy.LONG_SECURE_RANDOM;
 import static org.molgenis.data.populate.IdGenerator.Strategy.SECURE_RANDOM;
@@ -8,9 +9,12 @@ import static org.molgenis.data.populate.IdGenerator.Strategy.SHORT_RANDOM;
 import static org.molgenis.data.populate.IdGenerator.Strategy.SHORT_SECURE_RANDOM;
 
 import com.google.common.base.Stopwatch;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.slf4j.Logger;
@@ -45,4 +49,20 @@ class IdGeneratorImplTest {
     assertTrue(ids.size() == numIds);
     assertTrue(ids.stream().allMatch(id -> id.length() == expectedLength));
   }
+
+  @ParameterizedTest
+  @MethodSource("generateIdDataProvider")
+  void testGenerateIdsBatch(IdGenerator.Strategy strategy, int numIds, int expectedLength) {
+    List<String> ids = idGeneratorImpl.generateIds(strategy, numIds);
+    assertEquals(numIds, new HashSet<>(ids).size());
+    assertTrue(ids.stream().allMatch(id -> id.length() == expectedLength));
+  }
+
+  @Test
+  void testGenerateIdsNode() {
+    IdGeneratorImpl idGenerator = new IdGeneratorImpl(123L);
+    Set<String> ids = new HashSet<>(idGenerator.generateIds(100000));
+    ids.add(idGenerator.generateId());
+    assertEquals(100001, ids.size());
+  }
 }
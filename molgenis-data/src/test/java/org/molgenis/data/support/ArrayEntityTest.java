@@ -0,0 +1,85 @@
+package org.molgenis.data.support;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.INT;
+import static org.molgenis.data.meta.AttributeType.STRING;
+
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+
+class ArrayEntityTest {
+  private EntityType entityType;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    Attribute idAttribute = createAttribute("id", STRING);
+    Attribute labelAttribute = createAttribute("label", STRING);
+    Attribute heightAttribute = createAttribute("height", INT);
+
+    entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes())
+        .thenReturn(asList(idAttribute, labelAttribute, heightAttribute));
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(entityType.getLabelAttribute()).thenReturn(labelAttribute);
+    when(entityType.getAttribute("id")).thenReturn(idAttribute);
+    when(entityType.getAttribute("label")).thenReturn(labelAttribute);
+    when(entityType.getAttribute("height")).thenReturn(heightAttribute);
+    AttributeSlots attributeSlots = AttributeSlots.create(entityType);
+    when(entityType.getAttributeSlots()).thenReturn(attributeSlots);
+  }
+
+  @Test
+  void testGet() {
+    ArrayEntity arrayEntity = new ArrayEntity(entityType, Map.of("id", "id0", "height", 180));
+    assertEquals("id0", arrayEntity.get("id"));
+    assertEquals(180, arrayEntity.get("height"));
+    assertNull(arrayEntity.get("label"));
+  }
+
+  @Test
+  void testGetIdValue() {
+    ArrayEntity arrayEntity = new ArrayEntity(entityType);
+    arrayEntity.setIdValue("id0");
+    assertEquals("id0", arrayEntity.getIdValue());
+  }
+
+  @Test
+  void testGetLabelValue() {
+    ArrayEntity arrayEntity = new ArrayEntity(entityType);
+    arrayEntity.set("label", "label0");
+    assertEquals("label0", arrayEntity.getLabelValue());
+  }
+
+  @Test
+  void testSetAttributeWithoutSlot() {
+    Attribute weightAttribute = createAttribute("weight", INT);
+    when(entityType.getAttribute("weight")).thenReturn(weightAttribute);
+
+    ArrayEntity arrayEntity = new ArrayEntity(entityType);
+    arrayEntity.set("weight", 75);
+    assertEquals(75, arrayEntity.get("weight"));
+  }
+
+  @Test
+  void testSetInvalidValue() {
+    ArrayEntity arrayEntity = new ArrayEntity(entityType);
+    assertThrows(MolgenisDataException.class, () -> arrayEntity.set("height", "tall"));
+  }
+
+  private static Attribute createAttribute(String name, AttributeType type) {
+    Attribute attribute = mock(Attribute.class);
+    when(attribute.getName()).thenReturn(name);
+    when(attribute.getDataType()).thenReturn(type);
+    return attribute;
+  }
+}
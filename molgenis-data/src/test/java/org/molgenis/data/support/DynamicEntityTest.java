@@ -2,6 +2,8 @@ package org.molgenis.data.support;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -10,6 +12,7 @@ import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.meta.AttributeType.XREF;
 
 import java.util.Iterator;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.molgenis.data.Entity;
@@ -46,6 +49,21 @@ class DynamicEntityTest {
     assertThrows(MolgenisDataException.class, () -> set(attrType, value));
   }
 
+  @Test
+  void getNoValues() {
+    assertNull(new DynamicEntity(mock(EntityType.class)).get("attr"));
+  }
+
+  @Test
+  void getAfterSet() {
+    EntityType entityType = mock(EntityType.class);
+    Attribute attr = when(mock(Attribute.class).getDataType()).thenReturn(DECIMAL).getMock();
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+    DynamicEntity dynamicEntity = new DynamicEntity(entityType);
+    dynamicEntity.set("attr", 1.23);
+    assertEquals(1.23, dynamicEntity.get("attr"));
+  }
+
   private static void set(AttributeType attrType, Object value) {
     EntityType entityType = mock(EntityType.class);
     Attribute attr = mock(Attribute.class);
@@ -3,6 +3,7 @@ package org.molgenis.data.support;
 import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -13,6 +14,7 @@ import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.MREF;
 import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.molgenis.data.meta.AttributeType.XREF;
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_COMMITTED;
 
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
@@ -28,7 +30,9 @@ import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeMetadata;
 import org.molgenis.data.meta.model.Package;
+import org.molgenis.data.transaction.QueryCursors;
 import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 class RepositoryCopierTest extends AbstractMockitoTest {
   private RepositoryCopier repositoryCopier;
@@ -63,9 +67,18 @@ class RepositoryCopierTest extends AbstractMockitoTest {
     Repository<Entity> copiedRepository = mock(Repository.class);
     when(metaDataService.createRepository(any(EntityType.class))).thenReturn(copiedRepository);
 
-    assertEquals(
-        copiedRepository,
-        repositoryCopier.copyRepository(repository, entityTypeId, package_, entityTypeLabel));
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      assertEquals(
+          copiedRepository,
+          repositoryCopier.copyRepository(repository, entityTypeId, package_, entityTypeLabel));
+      assertTrue(QueryCursors.isAllowed());
+    } finally {
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(synchronization -> synchronization.afterCompletion(STATUS_COMMITTED));
+      TransactionSynchronizationManager.clear();
+    }
 
     ArgumentCaptor<EntityType> entityTypeCaptor = ArgumentCaptor.forClass(EntityType.class);
     verify(metaDataService).createRepository(entityTypeCaptor.capture());
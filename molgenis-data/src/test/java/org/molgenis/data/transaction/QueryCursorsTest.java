@@ -0,0 +1,66 @@
+package org.molgenis.data.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_COMMITTED;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class QueryCursorsTest {
+  @AfterEach
+  void tearDownAfterEach() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clear();
+    }
+    TransactionSynchronizationManager.unbindResourceIfPossible(
+        QueryCursors.CURSORS_ALLOWED_RESOURCE_NAME);
+  }
+
+  @Test
+  void testAllowInCurrentTransactionNoTransaction() {
+    QueryCursors.allowInCurrentTransaction();
+    assertFalse(QueryCursors.isAllowed());
+  }
+
+  @Test
+  void testIsAllowedNoTransaction() {
+    assertFalse(QueryCursors.isAllowed());
+  }
+
+  @Test
+  void testIsAllowedNotAllowed() {
+    startTransaction();
+    assertFalse(QueryCursors.isAllowed());
+  }
+
+  @Test
+  void testAllowInCurrentTransaction() {
+    startTransaction();
+    QueryCursors.allowInCurrentTransaction();
+    QueryCursors.allowInCurrentTransaction();
+    assertTrue(QueryCursors.isAllowed());
+  }
+
+  @Test
+  void testAllowInCurrentTransactionUntilCompletion() {
+    startTransaction();
+    QueryCursors.allowInCurrentTransaction();
+    completeTransaction();
+
+    startTransaction();
+    assertFalse(QueryCursors.isAllowed());
+  }
+
+  private static void startTransaction() {
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+  }
+
+  private static void completeTransaction() {
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.afterCompletion(STATUS_COMMITTED));
+    TransactionSynchronizationManager.clear();
+  }
+}
@@ -0,0 +1,247 @@
+package org.molgenis.data.transaction;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.molgenis.test.AbstractMockitoTest;
+
+class TransactionAwareCacheTest extends AbstractMockitoTest {
+  private static final String ENTITY_TYPE_ID = "entityTypeId";
+
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+  @Mock private Function<String, String> loader;
+  private TransactionAwareCache<String, String> transactionAwareCache;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    transactionAwareCache =
+        new TransactionAwareCache<>(
+            ENTITY_TYPE_ID::equals,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus);
+  }
+
+  @Test
+  void testTransactionAwareCache() {
+    verify(transactionManager).addTransactionListener(transactionAwareCache);
+    verify(cacheInvalidationBus).addCacheInvalidationListener(transactionAwareCache);
+  }
+
+  @Test
+  void testTransactionAwareCacheInvalidMaxSize() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new TransactionAwareCache<>(
+                ENTITY_TYPE_ID::equals,
+                transactionManager,
+                transactionInformation,
+                cacheInvalidationBus,
+                0));
+  }
+
+  @Test
+  void testGet() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+
+    assertEquals("value", transactionAwareCache.get("key", loader));
+    assertEquals("value", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testGetNull() {
+    when(loader.apply("key")).thenReturn(null, "value");
+
+    assertNull(transactionAwareCache.get("key", loader));
+    assertEquals("value", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testGetNotReusable() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+
+    assertEquals("value", transactionAwareCache.get("key", loader));
+    assertEquals("otherValue", transactionAwareCache.get("key", value -> false, loader));
+    assertEquals("otherValue", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testGetChangedInTransaction() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ENTITY_TYPE_ID));
+
+    assertEquals("value", transactionAwareCache.get("key", loader));
+    assertEquals("otherValue", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testGetValues() {
+    when(loader.apply("key")).thenReturn("value");
+
+    transactionAwareCache.get("key", loader);
+
+    assertEquals(singletonList("value"), transactionAwareCache.getValues());
+  }
+
+  @Test
+  void testInvalidate() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+
+    transactionAwareCache.get("key", loader);
+    transactionAwareCache.invalidate();
+
+    assertTrue(transactionAwareCache.getValues().isEmpty());
+    assertEquals("otherValue", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testAfterCommitTransaction() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+
+    transactionAwareCache.get("key", loader);
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(ENTITY_TYPE_ID), Set.of());
+    transactionAwareCache.afterCommitTransaction("transactionId");
+    transactionAwareCache.doCleanupAfterCompletion("transactionId");
+
+    assertEquals("otherValue", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testAfterCommitTransactionOtherEntityType() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+
+    transactionAwareCache.get("key", loader);
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton("otherEntityTypeId"), Set.of());
+    transactionAwareCache.afterCommitTransaction("transactionId");
+    transactionAwareCache.doCleanupAfterCompletion("transactionId");
+
+    assertEquals("value", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testDoCleanupAfterCompletionInvalidatesAgain() {
+    when(loader.apply("key")).thenReturn("value", "staleValue", "otherValue");
+
+    transactionAwareCache.get("key", loader);
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(ENTITY_TYPE_ID), Set.of());
+    transactionAwareCache.afterCommitTransaction("transactionId");
+    // cached by another thread before the other transaction listeners evicted their caches
+    transactionAwareCache.get("key", loader);
+    transactionAwareCache.doCleanupAfterCompletion("transactionId");
+
+    assertEquals("otherValue", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testOnCacheInvalidation() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+
+    transactionAwareCache.get("key", loader);
+    transactionAwareCache.onCacheInvalidation(
+        CacheInvalidation.create(singleton(ENTITY_TYPE_ID), Set.of()));
+
+    assertEquals("otherValue", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testOnCacheInvalidationOtherEntityType() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+
+    transactionAwareCache.get("key", loader);
+    transactionAwareCache.onCacheInvalidation(
+        CacheInvalidation.create(singleton("otherEntityTypeId"), Set.of()));
+
+    assertEquals("value", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testOnCacheInvalidationAll() {
+    when(loader.apply("key")).thenReturn("value", "otherValue");
+
+    transactionAwareCache.get("key", loader);
+    transactionAwareCache.onCacheInvalidation(CacheInvalidation.createInvalidateAll());
+
+    assertEquals("otherValue", transactionAwareCache.get("key", loader));
+  }
+
+  @Test
+  void testGetConcurrentLoadsOnce() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch loaded = new CountDownLatch(1);
+    AtomicInteger loadCount = new AtomicInteger();
+    Function<String, String> blockingLoader =
+        key -> {
+          loadCount.incrementAndGet();
+          loading.countDown();
+          try {
+            loaded.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "value";
+        };
+
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> firstValue =
+          executorService.submit(() -> transactionAwareCache.get("key", blockingLoader));
+      loading.await();
+      Future<String> secondValue =
+          executorService.submit(() -> transactionAwareCache.get("key", blockingLoader));
+      loaded.countDown();
+
+      assertEquals("value", firstValue.get());
+      assertEquals("value", secondValue.get());
+    } finally {
+      executorService.shutdownNow();
+    }
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  void testGetMaxSize() {
+    TransactionAwareCache<String, String> boundedCache =
+        new TransactionAwareCache<>(
+            ENTITY_TYPE_ID::equals,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus,
+            2);
+    when(loader.apply("key0")).thenReturn("value0");
+    when(loader.apply("key1")).thenReturn("value1");
+    when(loader.apply("key2")).thenReturn("value2");
+
+    boundedCache.get("key0", loader);
+    boundedCache.get("key1", loader);
+    boundedCache.get("key0", loader);
+    boundedCache.get("key2", loader);
+
+    assertEquals(Set.of("value0", "value2"), Set.copyOf(boundedCache.getValues()));
+    boundedCache.get("key1", loader);
+    verify(loader, times(2)).apply("key1");
+    verify(loader).apply("key0");
+  }
+}
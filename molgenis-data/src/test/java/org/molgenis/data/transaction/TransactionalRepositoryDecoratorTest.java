@@ -1,5 +1,6 @@
 package org.molgenis.data.transaction;
 
+import static java.util.Collections.singletonList;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -147,6 +148,14 @@ class TransactionalRepositoryDecoratorTest {
     verify(delegateRepository).update(entityStream);
   }
 
+  @Test
+  void upsertBatch() {
+    List<Entity> entities = singletonList(mock(Entity.class));
+    transactionalRepo.upsertBatch(entities);
+    verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+    verify(delegateRepository).upsertBatch(entities);
+  }
+
   @Test
   void delete() {
     Entity entity = mock(Entity.class);
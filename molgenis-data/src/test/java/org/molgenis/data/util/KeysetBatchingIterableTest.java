@@ -0,0 +1,72 @@
+package org.molgenis.data.util;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class KeysetBatchingIterableTest {
+  private static final List<Integer> ITEMS_LIST = newArrayList(10, 20, 30, 40);
+
+  // parameterized test testing combinations of limit and batchSize
+  static Iterator<Object[]> createData() {
+    List<Object[]> paramList = new ArrayList<>();
+    for (int batchSize = 1; batchSize < ITEMS_LIST.size() + 2; ++batchSize) {
+      for (int limit = 0; limit < ITEMS_LIST.size() + 2; ++limit) {
+        paramList.add(new Object[] {limit, batchSize});
+      }
+    }
+    return paramList.iterator();
+  }
+
+  @ParameterizedTest
+  @MethodSource("createData")
+  void iterator(int limit, int batchSize) {
+    List<Integer> keys = new ArrayList<>();
+    Iterable<Integer> iterable =
+        new KeysetBatchingIterable<Integer, Integer>(batchSize, limit) {
+          @Override
+          protected Batch<Integer, Integer> getBatch(Integer key, int batchSize) {
+            keys.add(key);
+            List<Integer> batch =
+                ITEMS_LIST.stream()
+                    .filter(item -> key == null || item > key)
+                    .limit(batchSize)
+                    .collect(toList());
+            return new Batch<>(batch, batch.isEmpty() ? null : batch.get(batch.size() - 1));
+          }
+        };
+
+    int expectedNrItems = limit == 0 ? ITEMS_LIST.size() : Math.min(limit, ITEMS_LIST.size());
+    assertEquals(ITEMS_LIST.subList(0, expectedNrItems), newArrayList(iterable));
+
+    // batches after the first batch are retrieved by the key of the last item of the batch before
+    List<Integer> expectedKeys = new ArrayList<>();
+    expectedKeys.add(null);
+    IntStream.iterate(batchSize, index -> index + batchSize)
+        .takeWhile(index -> index < expectedNrItems)
+        .forEach(index -> expectedKeys.add(ITEMS_LIST.get(index - 1)));
+    List<Integer> retrievedKeys = keys.stream().limit(expectedKeys.size()).collect(toList());
+    assertEquals(expectedKeys, retrievedKeys);
+  }
+
+  @ParameterizedTest
+  @MethodSource("createData")
+  void iteratorNoResults(int limit, int batchSize) {
+    Iterable<Integer> iterable =
+        new KeysetBatchingIterable<Integer, Integer>(batchSize, limit) {
+          @Override
+          protected Batch<Integer, Integer> getBatch(Integer key, int batchSize) {
+            return new Batch<>(new ArrayList<>(), null);
+          }
+        };
+    assertFalse(iterable.iterator().hasNext());
+  }
+}
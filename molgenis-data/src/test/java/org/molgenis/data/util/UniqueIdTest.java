@@ -1,7 +1,17 @@
 package org.molgenis.data.util;
 
+import static java.util.Arrays.copyOfRange;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 
 class UniqueIdTest {
@@ -10,4 +20,48 @@ class UniqueIdTest {
     UniqueId uniqueId = new UniqueId();
     assertNotEquals(uniqueId.getId(), uniqueId.getId());
   }
+
+  @Test
+  void testGetIdNode() {
+    UniqueId uniqueId = new UniqueId(0x0102030405L);
+    byte[] id = uniqueId.getId();
+    assertEquals(16, id.length);
+    assertArrayEquals(new byte[] {0, 1, 2, 3, 4, 5}, copyOfRange(id, 8, 14));
+  }
+
+  @Test
+  void testGetIdNodeInvalid() {
+    assertThrows(IllegalArgumentException.class, () -> new UniqueId(1L << 48));
+  }
+
+  @Test
+  void testGetIdsOrdered() {
+    UniqueId uniqueId = new UniqueId(1L);
+    // more ids than sequence numbers in one millisecond
+    byte[][] ids = uniqueId.getIds(200000);
+    assertEquals(200000, ids.length);
+    for (int i = 1; i < ids.length; i++) {
+      assertTrue(Arrays.compareUnsigned(ids[i - 1], ids[i]) < 0);
+    }
+    assertTrue(Arrays.compareUnsigned(ids[ids.length - 1], uniqueId.getId()) < 0);
+  }
+
+  @Test
+  void testGetIdConcurrent() {
+    UniqueId uniqueId = new UniqueId(1L);
+    Set<String> ids = ConcurrentHashMap.newKeySet();
+    IntStream.range(0, 200000).parallel().forEach(i -> ids.add(Arrays.toString(uniqueId.getId())));
+    assertEquals(200000, ids.size());
+  }
+
+  @Test
+  void testGetIdsUnique() {
+    UniqueId uniqueId = new UniqueId(1L);
+    Set<String> ids = new HashSet<>();
+    for (byte[] id : uniqueId.getIds(10)) {
+      ids.add(Arrays.toString(id));
+    }
+    ids.add(Arrays.toString(uniqueId.getId()));
+    assertEquals(11, ids.size());
+  }
 }
@@ -23,6 +23,10 @@ import org.molgenis.data.support.AbstractWritable.EntityWriteMode;
 import org.molgenis.dataexplorer.controller.DataRequest;
 import org.molgenis.util.UnexpectedEnumException;
 
+/**
+ * Writes query results to a download. Downloads are not written in a transaction, because a client
+ * that reads slowly would keep its database connection in use. Query results are read in batches.
+ */
 public class DataExplorerDownloadHandler {
   // Magic value: https://github.com/molgenis/molgenis/issues/6687
   private static final long MAX_EXCEL_CELLS = 500000L;
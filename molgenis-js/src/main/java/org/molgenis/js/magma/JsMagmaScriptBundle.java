@@ -0,0 +1,49 @@
+package org.molgenis.js.magma;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.graalvm.polyglot.Source;
+
+/**
+ * Ordered expressions that are evaluated together for the same bound entity. A {@link
+ * JsMagmaScriptContext} parses the expressions of a bundle once and keeps the parsed expressions as
+ * long as the bundle is in use, regardless of the number of expressions in the bundle.
+ */
+public final class JsMagmaScriptBundle {
+  private final List<Source> sources;
+
+  private JsMagmaScriptBundle(List<Source> sources) {
+    this.sources = requireNonNull(sources);
+  }
+
+  /**
+   * Creates a bundle of expressions.
+   *
+   * @param expressions expressions, <code>null</code> or empty expressions evaluate to <code>null
+   *     </code>
+   */
+  public static JsMagmaScriptBundle create(List<String> expressions) {
+    List<Source> sources = new ArrayList<>(expressions.size());
+    for (String expression : expressions) {
+      sources.add(createSource(expression));
+    }
+    return new JsMagmaScriptBundle(Collections.unmodifiableList(sources));
+  }
+
+  @Nullable
+  private static Source createSource(@Nullable String expression) {
+    return expression != null && !expression.isEmpty() ? Source.create("js", expression) : null;
+  }
+
+  public int size() {
+    return sources.size();
+  }
+
+  List<Source> getSources() {
+    return sources;
+  }
+}
@@ -6,7 +6,9 @@ import static org.molgenis.js.graal.GraalScriptEngine.convertGraalValue;
 import static org.molgenis.util.ResourceUtils.getString;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Stream;
 import org.graalvm.polyglot.Context;
@@ -27,8 +29,13 @@ public class JsMagmaScriptContext {
   private static final String BIND = "bind";
   public static final String KEY_ID_VALUE = "_idValue";
   private static final List<Source> SOURCES;
+  private static final int MAX_PARSED_SOURCES = 100;
+  private static final int MAX_PARSED_BUNDLES = 4;
 
   private final Context context;
+  private final Map<Source, Value> parsedSources;
+  private final Map<JsMagmaScriptBundle, Value[]> parsedBundles;
+  private Value dollarFunction;
 
   static {
     SOURCES = Stream.of("/js/magma.js").map(JsMagmaScriptContext::getSource).collect(toList());
@@ -45,6 +52,8 @@ public class JsMagmaScriptContext {
 
   JsMagmaScriptContext(Context context) {
     this.context = Objects.requireNonNull(context);
+    this.parsedSources = createParsedSources();
+    this.parsedBundles = createParsedBundles();
     prepare(context);
   }
 
@@ -55,6 +64,27 @@ public class JsMagmaScriptContext {
     Value magmaScript = bindings.getMember(KEY_MAGMA_SCRIPT);
     bindings.putMember(KEY_NEW_VALUE, magmaScript.getMember(KEY_NEW_VALUE));
     bindings.putMember(KEY_IS_NULL, magmaScript.getMember(KEY_IS_NULL));
+    dollarFunction = magmaScript.getMember(KEY_DOLLAR);
+  }
+
+  /** Least recently used parsed sources, parsed sources can only be executed in this context. */
+  private static Map<Source, Value> createParsedSources() {
+    return new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Source, Value> eldest) {
+        return size() > MAX_PARSED_SOURCES;
+      }
+    };
+  }
+
+  /** Least recently used parsed bundles, bundles are identified by identity. */
+  private static Map<JsMagmaScriptBundle, Value[]> createParsedBundles() {
+    return new LinkedHashMap<>(4, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<JsMagmaScriptBundle, Value[]> eldest) {
+        return size() > MAX_PARSED_BUNDLES;
+      }
+    };
   }
 
   public Object tryEval(String expression) {
@@ -66,7 +96,39 @@ public class JsMagmaScriptContext {
   }
 
   public Object eval(String expression) {
-    return convertGraalValue(context.eval("js", expression));
+    return eval(Source.create("js", expression));
+  }
+
+  /**
+   * Evaluates a source. The source is parsed once for this context, subsequent evaluations of an
+   * equal source execute the parsed source.
+   */
+  public Object eval(Source source) {
+    Value parsedSource = parsedSources.computeIfAbsent(source, context::parse);
+    return convertGraalValue(parsedSource.execute());
+  }
+
+  /**
+   * Evaluates all expressions of a bundle in order. The expressions are parsed once for this
+   * context, subsequent evaluations of the same bundle execute the parsed expressions.
+   *
+   * @return results in the order of the expressions of the bundle
+   */
+  public Object[] eval(JsMagmaScriptBundle bundle) {
+    Value[] parsedExpressions = parsedBundles.computeIfAbsent(bundle, this::parse);
+    Object[] results = new Object[parsedExpressions.length];
+    for (int i = 0; i < parsedExpressions.length; i++) {
+      if (parsedExpressions[i] != null) {
+        results[i] = convertGraalValue(parsedExpressions[i].execute());
+      }
+    }
+    return results;
+  }
+
+  private Value[] parse(JsMagmaScriptBundle bundle) {
+    return bundle.getSources().stream()
+        .map(source -> source != null ? context.parse(source) : null)
+        .toArray(Value[]::new);
   }
 
   /**
@@ -76,8 +138,6 @@ public class JsMagmaScriptContext {
    */
   public void bind(Entity entity) {
     var bindings = context.getBindings("js");
-    Value magmaScript = bindings.getMember(KEY_MAGMA_SCRIPT);
-    Value dollarFunction = magmaScript.getMember(KEY_DOLLAR);
     Value boundDollar = dollarFunction.invokeMember(BIND, new EntityProxy(entity));
     bindings.putMember(KEY_DOLLAR, boundDollar);
   }
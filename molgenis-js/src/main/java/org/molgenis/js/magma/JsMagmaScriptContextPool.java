@@ -0,0 +1,101 @@
+package org.molgenis.js.magma;
+
+import static java.util.Objects.requireNonNull;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.molgenis.js.graal.GraalScriptEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded pool of prepared {@link JsMagmaScriptContext}s created on the shared engine of the {@link
+ * GraalScriptEngine}. Each borrower gets a new context that is closed when it is released, since
+ * expressions can change builtins and globals of a context that would otherwise leak to the next
+ * borrower. Contexts share the code of the engine, so preparing a context does not parse magma.js
+ * again. Threads wait for a context if the maximum number of contexts is in use.
+ */
+@Component
+public class JsMagmaScriptContextPool {
+  private static final Logger LOG = LoggerFactory.getLogger(JsMagmaScriptContextPool.class);
+
+  private final GraalScriptEngine engine;
+  private final Semaphore permits;
+  private final AtomicInteger size;
+  private final Timer waitTimer;
+
+  public JsMagmaScriptContextPool(
+      GraalScriptEngine engine,
+      MeterRegistry meterRegistry,
+      @Value("${js.context.pool.size:16}") int maxSize) {
+    this.engine = requireNonNull(engine);
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Script context pool size must be at least 1");
+    }
+    this.permits = new Semaphore(maxSize, true);
+    this.size = new AtomicInteger();
+
+    Gauge.builder("js.context.pool.size", size, AtomicInteger::get)
+        .description("Number of script contexts in use")
+        .register(meterRegistry);
+    this.waitTimer =
+        Timer.builder("js.context.pool.wait")
+            .description("Time spent waiting for a script context")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Borrows a new context from the pool. The context must be returned with {@link
+   * #release(JsMagmaScriptContext)}.
+   */
+  JsMagmaScriptContext borrow() {
+    acquirePermit();
+    try {
+      return createContext();
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /** Returns a borrowed context to the pool, the context is closed. */
+  void release(JsMagmaScriptContext context) {
+    try {
+      discard(context);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private void acquirePermit() {
+    Timer.Sample sample = Timer.start();
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a script context", e);
+    } finally {
+      sample.stop(waitTimer);
+    }
+  }
+
+  private JsMagmaScriptContext createContext() {
+    JsMagmaScriptContext context = new JsMagmaScriptContext(engine.createContext());
+    size.incrementAndGet();
+    return context;
+  }
+
+  private void discard(JsMagmaScriptContext context) {
+    size.decrementAndGet();
+    try {
+      context.close();
+    } catch (RuntimeException e) {
+      LOG.warn("Error closing script context", e);
+    }
+  }
+}
@@ -1,11 +1,33 @@
 package org.molgenis.js.magma;
 
+import static java.util.stream.Collectors.toList;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.List;
+import java.util.stream.Stream;
+import org.graalvm.polyglot.Source;
 import org.molgenis.data.Entity;
 import org.springframework.stereotype.Component;
 
-/** MagmaScript evaluator using the Graal script engine. */
+/**
+ * MagmaScript evaluator using the Graal script engine.
+ *
+ * <p>Expression sources are cached, so that an expression is only parsed once per script context
+ * and the script engine can reuse the code compiled for an expression across script contexts.
+ */
 @Component
 public class JsMagmaScriptEvaluator {
+  private static final int MAX_CACHED_EXPRESSIONS = 1000;
+
+  private final Cache<String, Source> sources;
+
+  public JsMagmaScriptEvaluator(MeterRegistry meterRegistry) {
+    this.sources = Caffeine.newBuilder().maximumSize(MAX_CACHED_EXPRESSIONS).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, sources, "js.expressions");
+  }
 
   /**
    * Evaluate a single expression for a given entity.
@@ -18,6 +40,44 @@ public class JsMagmaScriptEvaluator {
   public Object eval(String expression, Entity entity) {
     JsMagmaScriptContext context = JsMagmaScriptContextHolder.getContext();
     context.bind(entity);
-    return context.eval(expression);
+    return context.eval(getSource(expression));
+  }
+
+  /**
+   * Evaluate expressions for a given entity.
+   *
+   * @param expressions JavaScript expressions
+   * @param entity entity
+   * @return evaluated expression results in the order of the expressions
+   */
+  @WithJsMagmaScriptContext
+  public List<Object> eval(List<String> expressions, Entity entity) {
+    JsMagmaScriptContext context = JsMagmaScriptContextHolder.getContext();
+    context.bind(entity);
+    return expressions.stream().map(this::getSource).map(context::eval).collect(toList());
+  }
+
+  /**
+   * Evaluate a single expression for each of the given entities.
+   *
+   * @param expression JavaScript expression
+   * @param entities entities
+   * @return evaluated expression results in the order of the entities
+   */
+  @WithJsMagmaScriptContext
+  public List<Object> eval(String expression, Stream<Entity> entities) {
+    JsMagmaScriptContext context = JsMagmaScriptContextHolder.getContext();
+    Source source = getSource(expression);
+    return entities
+        .map(
+            entity -> {
+              context.bind(entity);
+              return context.eval(source);
+            })
+        .collect(toList());
+  }
+
+  private Source getSource(String expression) {
+    return sources.get(expression, key -> Source.create("js", key));
   }
 }
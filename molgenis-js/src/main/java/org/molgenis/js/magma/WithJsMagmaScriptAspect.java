@@ -5,6 +5,8 @@ import static org.molgenis.js.magma.JsMagmaScriptContextHolder.clearContext;
 import static org.molgenis.js.magma.JsMagmaScriptContextHolder.getContext;
 import static org.molgenis.js.magma.JsMagmaScriptContextHolder.setContext;
 
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -12,34 +14,58 @@ import org.molgenis.js.graal.GraalScriptEngine;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.stereotype.Component;
 
-/** Proxy that keeps a {@link JsMagmaScriptContext} around for the duration of the call. */
+/**
+ * Proxy that keeps a {@link JsMagmaScriptContext} from the {@link JsMagmaScriptContextPool} around
+ * for the duration of the call.
+ */
 @Aspect
 @EnableAspectJAutoProxy
 @Component
 public class WithJsMagmaScriptAspect {
 
-  private final GraalScriptEngine engine;
+  private final JsMagmaScriptContextPool contextPool;
 
-  public WithJsMagmaScriptAspect(GraalScriptEngine engine) {
-    this.engine = requireNonNull(engine);
+  public WithJsMagmaScriptAspect(JsMagmaScriptContextPool contextPool) {
+    this.contextPool = requireNonNull(contextPool);
   }
 
   @SuppressWarnings("java:S00112") // generic exceptions should never be thrown
   @Around("@annotation(org.molgenis.js.magma.WithJsMagmaScriptContext)")
   public Object aroundAdvice(ProceedingJoinPoint joinPoint) throws Throwable {
-    return withJsMagmaScriptContext(engine, joinPoint::proceed);
+    return withJsMagmaScriptContext(contextPool, joinPoint::proceed);
   }
 
   public interface RunnableWithJsContext<T, U extends Throwable> {
     T run() throws U;
   }
 
+  /** Runs within the context of the current thread or within a new context that is closed after. */
   public static <T, U extends Throwable> T withJsMagmaScriptContext(
       GraalScriptEngine engine, RunnableWithJsContext<T, U> runnable) throws U {
+    return withJsMagmaScriptContext(
+        () -> new JsMagmaScriptContext(engine.createContext()),
+        JsMagmaScriptContext::close,
+        runnable);
+  }
+
+  /**
+   * Runs within the context of the current thread or within a context borrowed from the pool that
+   * is released after.
+   */
+  public static <T, U extends Throwable> T withJsMagmaScriptContext(
+      JsMagmaScriptContextPool contextPool, RunnableWithJsContext<T, U> runnable) throws U {
+    return withJsMagmaScriptContext(contextPool::borrow, contextPool::release, runnable);
+  }
+
+  private static <T, U extends Throwable> T withJsMagmaScriptContext(
+      Supplier<JsMagmaScriptContext> contextSupplier,
+      Consumer<JsMagmaScriptContext> contextReleaser,
+      RunnableWithJsContext<T, U> runnable)
+      throws U {
     JsMagmaScriptContext context = getContext();
     boolean createAndClose = context == null;
     if (createAndClose) {
-      context = new JsMagmaScriptContext(engine.createContext());
+      context = contextSupplier.get();
       setContext(context);
     }
     try {
@@ -48,7 +74,7 @@ public class WithJsMagmaScriptAspect {
     } finally {
       context.leave();
       if (createAndClose) {
-        context.close();
+        contextReleaser.accept(context);
         clearContext();
       }
     }
@@ -0,0 +1,76 @@
+package org.molgenis.js.magma;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.graalvm.polyglot.PolyglotException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.molgenis.js.graal.GraalScriptEngine;
+
+class JsMagmaScriptContextPoolTest {
+  private MeterRegistry meterRegistry;
+  private JsMagmaScriptContextPool contextPool;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    meterRegistry = new SimpleMeterRegistry();
+    contextPool = new JsMagmaScriptContextPool(new GraalScriptEngine(), meterRegistry, 2);
+  }
+
+  @Test
+  void testJsMagmaScriptContextPoolInvalidSize() {
+    GraalScriptEngine engine = new GraalScriptEngine();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new JsMagmaScriptContextPool(engine, meterRegistry, 0));
+  }
+
+  @Test
+  void testBorrowCreatesContext() {
+    JsMagmaScriptContext context = contextPool.borrow();
+    JsMagmaScriptContext otherContext = contextPool.borrow();
+    assertNotSame(context, otherContext);
+    assertEquals(2.0, meterRegistry.get("js.context.pool.size").gauge().value());
+    assertEquals(2L, meterRegistry.get("js.context.pool.wait").timer().count());
+    contextPool.release(context);
+    contextPool.release(otherContext);
+  }
+
+  @Test
+  void testReleaseClosesContext() {
+    JsMagmaScriptContext context = contextPool.borrow();
+    contextPool.release(context);
+
+    assertThrows(IllegalStateException.class, () -> context.eval("1"));
+    assertEquals(0.0, meterRegistry.get("js.context.pool.size").gauge().value());
+  }
+
+  @Test
+  void testReleaseDoesNotLeakGlobals() {
+    JsMagmaScriptContext context = contextPool.borrow();
+    context.eval("piet = 3; const klaas = 4; newValue = null");
+    contextPool.release(context);
+
+    JsMagmaScriptContext nextContext = contextPool.borrow();
+    assertThrows(PolyglotException.class, () -> nextContext.eval("piet"));
+    assertEquals(4, nextContext.eval("const klaas = 4; klaas"));
+    assertEquals(true, nextContext.eval("typeof newValue === 'function'"));
+    contextPool.release(nextContext);
+  }
+
+  @Test
+  void testReleaseDoesNotLeakBuiltinChanges() {
+    JsMagmaScriptContext context = contextPool.borrow();
+    context.eval("Array.prototype.piet = 3; Math.round = function() { return 42; }");
+    contextPool.release(context);
+
+    JsMagmaScriptContext nextContext = contextPool.borrow();
+    assertEquals("undefined", nextContext.eval("typeof [].piet"));
+    assertEquals(2, nextContext.eval("Math.round(1.6)"));
+    contextPool.release(nextContext);
+  }
+}
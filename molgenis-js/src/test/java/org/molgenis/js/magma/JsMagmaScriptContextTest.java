@@ -613,6 +613,24 @@ class JsMagmaScriptContextTest {
     assertEquals(asList(80, 400), result);
   }
 
+  @Test
+  void evalBundle() {
+    JsMagmaScriptBundle bundle =
+        JsMagmaScriptBundle.create(
+            asList("$('weight').value()", null, "$('height').pow(2).value()"));
+
+    Entity person = new DynamicEntity(personWeightAndHeightEntityType);
+    person.set("weight", 80);
+    person.set("height", 20);
+    magmaContext.bind(person);
+    assertEquals(asList(80, null, 400), asList(magmaContext.eval(bundle)));
+
+    person.set("weight", 70);
+    person.set("height", 10);
+    magmaContext.bind(person);
+    assertEquals(asList(70, null, 100), asList(magmaContext.eval(bundle)));
+  }
+
   @Disabled
   @Test
   void testPerformance() {
@@ -0,0 +1,106 @@
+package org.molgenis.js.magma;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.INT;
+import static org.molgenis.js.magma.WithJsMagmaScriptAspect.withJsMagmaScriptContext;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.molgenis.data.Entity;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.DynamicEntity;
+import org.molgenis.js.graal.GraalScriptEngine;
+
+class JsMagmaScriptEvaluatorTest {
+  private GraalScriptEngine graalScriptEngine;
+  private MeterRegistry meterRegistry;
+  private JsMagmaScriptEvaluator jsMagmaScriptEvaluator;
+  private EntityType entityType;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    graalScriptEngine = new GraalScriptEngine();
+    meterRegistry = new SimpleMeterRegistry();
+    jsMagmaScriptEvaluator = new JsMagmaScriptEvaluator(meterRegistry);
+
+    Attribute heightAttribute = mock(Attribute.class);
+    when(heightAttribute.getName()).thenReturn("height");
+    when(heightAttribute.getDataType()).thenReturn(INT);
+    entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(heightAttribute));
+    when(entityType.getAttribute("height")).thenReturn(heightAttribute);
+  }
+
+  @Test
+  void testEval() {
+    Object result =
+        withJsMagmaScriptContext(
+            graalScriptEngine,
+            () -> jsMagmaScriptEvaluator.eval("$('height').value() * 2", createEntity(180)));
+    assertEquals(360, result);
+  }
+
+  @Test
+  void testEvalExpressions() {
+    Object result =
+        withJsMagmaScriptContext(
+            graalScriptEngine,
+            () ->
+                jsMagmaScriptEvaluator.eval(
+                    asList("$('height').value() > 170", "$('height').value() > 190"),
+                    createEntity(180)));
+    assertEquals(asList(true, false), result);
+  }
+
+  @Test
+  void testEvalEntities() {
+    Object result =
+        withJsMagmaScriptContext(
+            graalScriptEngine,
+            () ->
+                jsMagmaScriptEvaluator.eval(
+                    "$('height').value() + 1",
+                    Stream.of(createEntity(150), createEntity(160), createEntity(170))));
+    assertEquals(asList(151, 161, 171), result);
+  }
+
+  @Test
+  void testEvalCachesExpressions() {
+    withJsMagmaScriptContext(
+        graalScriptEngine,
+        () -> {
+          jsMagmaScriptEvaluator.eval("$('height').value()", createEntity(150));
+          return jsMagmaScriptEvaluator.eval("$('height').value()", createEntity(160));
+        });
+
+    assertEquals(
+        1.0,
+        meterRegistry
+            .get("cache.gets")
+            .tag("cache", "js.expressions")
+            .tag("result", "hit")
+            .functionCounter()
+            .count());
+    assertEquals(
+        1.0,
+        meterRegistry
+            .get("cache.gets")
+            .tag("cache", "js.expressions")
+            .tag("result", "miss")
+            .functionCounter()
+            .count());
+  }
+
+  private Entity createEntity(int height) {
+    Entity entity = new DynamicEntity(entityType);
+    entity.set("height", height);
+    return entity;
+  }
+}
@@ -2,6 +2,8 @@ package org.molgenis.js.magma;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.graalvm.polyglot.PolyglotException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,10 +15,15 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 
 @ContextConfiguration(
-    classes = {WithJsMagmaScriptAspect.class, WithJsMagmaScriptAspectTest.Config.class})
+    classes = {
+      WithJsMagmaScriptAspect.class,
+      JsMagmaScriptContextPool.class,
+      WithJsMagmaScriptAspectTest.Config.class
+    })
 class WithJsMagmaScriptAspectTest extends AbstractMockitoSpringContextTests {
 
   @Autowired TestBean testBean;
+  @Autowired MeterRegistry meterRegistry;
 
   @BeforeEach
   void beforeEach() {
@@ -35,6 +42,13 @@ class WithJsMagmaScriptAspectTest extends AbstractMockitoSpringContextTests {
     assertNull(JsMagmaScriptContextHolder.getContext());
   }
 
+  @Test
+  void testReleasesContext() {
+    testBean.execute("piet = 'Hello'", "piet");
+    assertThrows(PolyglotException.class, () -> testBean.execute("'Hello'", "piet"));
+    assertEquals(0.0, meterRegistry.get("js.context.pool.size").gauge().value());
+  }
+
   @Test
   void testContextIsEntered() {
     assertDoesNotThrow(testBean::checkThatContextIsEntered);
@@ -47,6 +61,11 @@ class WithJsMagmaScriptAspectTest extends AbstractMockitoSpringContextTests {
       return new GraalScriptEngine();
     }
 
+    @Bean
+    public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+
     @Bean
     public TestBean testBean() {
       return new TestBean();
@@ -5,7 +5,9 @@ import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.Stream.concat;
+import static org.molgenis.data.RepositoryCollectionCapability.COPYABLE;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
 import static org.molgenis.navigator.copy.service.RelationTransformer.transformExtends;
 import static org.molgenis.navigator.copy.service.RelationTransformer.transformMappedBys;
 import static org.molgenis.navigator.copy.service.RelationTransformer.transformPackage;
@@ -16,13 +18,18 @@ import java.util.Set;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.RepositoryCollection;
 import org.molgenis.data.meta.EntityTypeDependencyResolver;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeMetadata;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.populate.IdGenerator;
+import org.molgenis.data.security.EntityIdentityUtils;
+import org.molgenis.data.security.EntityTypeIdentity;
 import org.molgenis.data.util.EntityTypeUtils;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -34,16 +41,22 @@ public class EntityTypeCopier {
   private final IdGenerator idGenerator;
   private final EntityTypeDependencyResolver entityTypeDependencyResolver;
   private final EntityTypeMetadataCopier entityTypeMetadataCopier;
+  private final UserPermissionEvaluator userPermissionEvaluator;
+  private final MutableAclClassService mutableAclClassService;
 
   EntityTypeCopier(
       DataService dataService,
       IdGenerator idGenerator,
       EntityTypeDependencyResolver entityTypeDependencyResolver,
-      EntityTypeMetadataCopier entityTypeMetadataCopier) {
+      EntityTypeMetadataCopier entityTypeMetadataCopier,
+      UserPermissionEvaluator userPermissionEvaluator,
+      MutableAclClassService mutableAclClassService) {
     this.dataService = requireNonNull(dataService);
     this.idGenerator = requireNonNull(idGenerator);
     this.entityTypeDependencyResolver = requireNonNull(entityTypeDependencyResolver);
     this.entityTypeMetadataCopier = requireNonNull(entityTypeMetadataCopier);
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    this.mutableAclClassService = requireNonNull(mutableAclClassService);
   }
 
   public void copy(List<EntityType> entityTypes, CopyState state) {
@@ -166,13 +179,32 @@ public class EntityTypeCopier {
   private EntityType copyEntities(EntityType copy, CopyState state) {
     String originalEntityTypeId = state.originalEntityTypeIds().get(copy.getId());
     if (!copy.isAbstract()) {
-      dataService
-          .getRepository(originalEntityTypeId)
-          .forEachBatched(batch -> addEntityBatch(copy, state, batch), BATCH_SIZE);
+      EntityType original = dataService.getEntityType(originalEntityTypeId);
+      RepositoryCollection backend = dataService.getMeta().getBackend(copy);
+      if (isCopyableInBackend(original, backend)) {
+        backend.copyEntities(original, copy);
+      } else {
+        dataService
+            .getRepository(originalEntityTypeId)
+            .forEachBatched(batch -> addEntityBatch(copy, state, batch), BATCH_SIZE);
+      }
     }
     return copy;
   }
 
+  /**
+   * Entities can be copied by the backend of the copy if the original is stored in the same backend
+   * and if the current user can read all entities of the original. The entities of row level
+   * secured entity types are always copied one by one, since the user might not be allowed to read
+   * some of them.
+   */
+  private boolean isCopyableInBackend(EntityType original, RepositoryCollection backend) {
+    return backend.getCapabilities().contains(COPYABLE)
+        && backend.getName().equals(dataService.getMeta().getBackend(original).getName())
+        && userPermissionEvaluator.hasPermission(new EntityTypeIdentity(original), READ_DATA)
+        && !mutableAclClassService.hasAclClass(EntityIdentityUtils.toType(original));
+  }
+
   private void addEntityBatch(EntityType copy, CopyState state, List<Entity> batch) {
     dataService.add(
         copy.getId(),
@@ -3,6 +3,7 @@ package org.molgenis.navigator.copy.service;
 import static com.google.common.collect.ImmutableMap.of;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Answers.RETURNS_DEEP_STUBS;
@@ -10,9 +11,11 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.RepositoryCollectionCapability.COPYABLE;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
 import static org.molgenis.navigator.copy.service.CopyTestUtils.setupPredictableIdGeneratorMock;
 
@@ -29,6 +32,7 @@ import org.mockito.Mock;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
+import org.molgenis.data.RepositoryCollection;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.EntityTypeDependencyResolver;
 import org.molgenis.data.meta.model.Attribute;
@@ -36,7 +40,11 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeMetadata;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.populate.IdGenerator;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.security.EntityTypePermission;
 import org.molgenis.jobs.Progress;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.test.AbstractMockitoTest;
 
 class EntityTypeCopierTest extends AbstractMockitoTest {
@@ -47,6 +55,8 @@ class EntityTypeCopierTest extends AbstractMockitoTest {
   @Mock private IdGenerator idGenerator;
   @Mock private EntityTypeDependencyResolver entityTypeDependencyResolver;
   @Mock private EntityTypeMetadataCopier entityTypeMetadataCopier;
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+  @Mock private MutableAclClassService mutableAclClassService;
 
   private EntityTypeCopier copier;
 
@@ -54,7 +64,12 @@ class EntityTypeCopierTest extends AbstractMockitoTest {
   void beforeMethod() {
     copier =
         new EntityTypeCopier(
-            dataService, idGenerator, entityTypeDependencyResolver, entityTypeMetadataCopier);
+            dataService,
+            idGenerator,
+            entityTypeDependencyResolver,
+            entityTypeMetadataCopier,
+            userPermissionEvaluator,
+            mutableAclClassService);
   }
 
   @Test
@@ -247,6 +262,71 @@ class EntityTypeCopierTest extends AbstractMockitoTest {
     assertEquals(entityTypeCopy, entities.get(1).getEntityType());
   }
 
+  @Test
+  void copyDataInBackend() {
+    setupPredictableIdGeneratorMock(idGenerator);
+    EntityType entityType = mockEntityType("A");
+    when(entityType.getId()).thenReturn("originalId");
+    when(dataService.getEntityType("originalId")).thenReturn(entityType);
+    EntityType entityTypeCopy = mock(EntityType.class);
+    when(entityTypeCopy.getId()).thenReturn("id1");
+    when(entityTypeCopy.isAbstract()).thenReturn(false);
+    RepositoryCollection backend = mock(RepositoryCollection.class);
+    when(backend.getName()).thenReturn("PostgreSQL");
+    when(backend.getCapabilities()).thenReturn(singleton(COPYABLE));
+    when(dataService.getMeta().getBackend(entityTypeCopy)).thenReturn(backend);
+    when(dataService.getMeta().getBackend(entityType)).thenReturn(backend);
+    when(userPermissionEvaluator.hasPermission(
+            new EntityTypeIdentity("originalId"), EntityTypePermission.READ_DATA))
+        .thenReturn(true);
+    when(mutableAclClassService.hasAclClass("entity-originalId")).thenReturn(false);
+    Package targetPackage = mock(Package.class);
+    Progress progress = mock(Progress.class);
+    CopyState state = CopyState.create(targetPackage, progress);
+    when(entityTypeMetadataCopier.copy(entityType, state)).thenReturn(entityTypeCopy);
+    when(entityTypeDependencyResolver.resolve(singletonList(entityTypeCopy)))
+        .thenReturn(singletonList(entityTypeCopy));
+
+    copier.copy(singletonList(entityType), state);
+
+    verify(backend).copyEntities(entityType, entityTypeCopy);
+    verify(dataService, never()).getRepository("originalId");
+  }
+
+  @Test
+  void copyDataRowLevelSecured() {
+    setupPredictableIdGeneratorMock(idGenerator);
+    EntityType entityType = mockEntityType("A");
+    when(entityType.getId()).thenReturn("originalId");
+    when(dataService.getEntityType("originalId")).thenReturn(entityType);
+    EntityType entityTypeCopy = mock(EntityType.class);
+    when(entityTypeCopy.getId()).thenReturn("id1");
+    when(entityTypeCopy.isAbstract()).thenReturn(false);
+    RepositoryCollection backend = mock(RepositoryCollection.class);
+    when(backend.getName()).thenReturn("PostgreSQL");
+    when(backend.getCapabilities()).thenReturn(singleton(COPYABLE));
+    when(dataService.getMeta().getBackend(entityTypeCopy)).thenReturn(backend);
+    when(dataService.getMeta().getBackend(entityType)).thenReturn(backend);
+    when(userPermissionEvaluator.hasPermission(
+            new EntityTypeIdentity("originalId"), EntityTypePermission.READ_DATA))
+        .thenReturn(true);
+    when(mutableAclClassService.hasAclClass("entity-originalId")).thenReturn(true);
+    @SuppressWarnings("unchecked")
+    Repository<Entity> repository = mock(Repository.class);
+    when(dataService.getRepository("originalId")).thenReturn(repository);
+    Package targetPackage = mock(Package.class);
+    Progress progress = mock(Progress.class);
+    CopyState state = CopyState.create(targetPackage, progress);
+    when(entityTypeMetadataCopier.copy(entityType, state)).thenReturn(entityTypeCopy);
+    when(entityTypeDependencyResolver.resolve(singletonList(entityTypeCopy)))
+        .thenReturn(singletonList(entityTypeCopy));
+
+    copier.copy(singletonList(entityType), state);
+
+    verify(repository).forEachBatched(any(), eq(1000));
+    verify(backend, never()).copyEntities(any(), any());
+  }
+
   private void setupMetadataCopierAnswers(Map<EntityType, EntityType> mocks) {
     when(entityTypeMetadataCopier.copy(any(EntityType.class), any(CopyState.class)))
         .thenAnswer(
@@ -6,6 +6,7 @@ import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
 import static org.molgenis.data.meta.model.EntityType.AttributeRole.ROLE_ID;
 import static org.molgenis.data.util.AttributeUtils.getValidIdAttributeTypes;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import org.molgenis.data.DataService;
@@ -131,11 +132,12 @@ public class EntityServiceImpl implements EntityService {
     List<Entity> rows = newArrayList();
     int numberOfRows = dataCollection.getColumns().get(0).getDataValues().size();
 
+    Iterator<String> autoIds = useAutoId ? idGenerator.generateIds(numberOfRows).iterator() : null;
     for (int index = 0; index < numberOfRows; index++) {
       Entity row = entityManager.create(entityType, NO_POPULATE);
 
-      if (useAutoId) {
-        row.setIdValue(idGenerator.generateId());
+      if (autoIds != null) {
+        row.setIdValue(autoIds.next());
       }
 
       for (Column column : columns) {
@@ -83,6 +83,7 @@ class EntityServiceImplTest {
     // mock auto id
     String generatedId = "id_0";
     when(idGenerator.generateId()).thenReturn(generatedId);
+    when(idGenerator.generateIds(3)).thenReturn(Arrays.asList("id_1", "id_2", "id_3"));
 
     // mock attributes
     Attribute idAttr = mock(Attribute.class);
@@ -158,6 +159,9 @@ class EntityServiceImplTest {
 
     verify(table).setPackage(package_);
     verify(table).setId(generatedId);
+    verify(row1).setIdValue("id_1");
+    verify(row2).setIdValue("id_2");
+    verify(row3).setIdValue("id_3");
     verify(table).setLabel(tableName);
     verify(permissionSystemService).giveUserWriteMetaPermissions(table);
   }
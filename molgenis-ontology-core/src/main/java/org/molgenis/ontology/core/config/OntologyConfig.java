@@ -3,6 +3,7 @@ package org.molgenis.ontology.core.config;
 import org.molgenis.data.DataService;
 import org.molgenis.ontology.core.ic.OntologyTermFrequencyServiceImpl;
 import org.molgenis.ontology.core.ic.TermFrequencyService;
+import org.molgenis.ontology.core.repository.OntologyHierarchyIndexCache;
 import org.molgenis.ontology.core.repository.OntologyRepository;
 import org.molgenis.ontology.core.repository.OntologyTermRepository;
 import org.molgenis.ontology.core.service.OntologyService;
@@ -14,6 +15,7 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class OntologyConfig {
   @Autowired DataService dataService;
+  @Autowired OntologyHierarchyIndexCache ontologyHierarchyIndexCache;
 
   @Bean
   public OntologyService ontologyService() {
@@ -27,7 +29,7 @@ public class OntologyConfig {
 
   @Bean
   public OntologyTermRepository ontologyTermRepository() {
-    return new OntologyTermRepository(dataService);
+    return new OntologyTermRepository(dataService, ontologyHierarchyIndexCache);
   }
 
   @Bean
@@ -0,0 +1,250 @@
+package org.molgenis.ontology.core.repository;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable hierarchy of one ontology in which every node path is numbered in pre-order. A node
+ * covers the interval from its own number up to the number of its last descendant, so that ancestor
+ * tests take constant time and the descendants of a node are a contiguous range.
+ *
+ * <p>Node paths have the format <tt>0[0].1[1].0[2]</tt>, where each fragment contains the position
+ * of a node within its parent followed by its depth.
+ */
+final class OntologyHierarchyIndex {
+  private static final int[] NO_NODES = new int[0];
+
+  /** positions of the node path fragments, sorted in pre-order */
+  private final int[][] positions;
+
+  private final String[] nodePaths;
+  private final Object[] termIds;
+  private final int[] parents;
+  private final int[] lastDescendants;
+  private final ImmutableMap<String, int[]> nodesByIri;
+
+  private OntologyHierarchyIndex(
+      int[][] positions,
+      String[] nodePaths,
+      Object[] termIds,
+      int[] parents,
+      int[] lastDescendants,
+      ImmutableMap<String, int[]> nodesByIri) {
+    this.positions = positions;
+    this.nodePaths = nodePaths;
+    this.termIds = termIds;
+    this.parents = parents;
+    this.lastDescendants = lastDescendants;
+    this.nodesByIri = nodesByIri;
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  int size() {
+    return nodePaths.length;
+  }
+
+  boolean containsTerm(String iri) {
+    return nodesByIri.containsKey(iri);
+  }
+
+  /** @return nodes of the ontology term in the order of its node paths */
+  int[] getNodes(String iri) {
+    return nodesByIri.getOrDefault(iri, NO_NODES);
+  }
+
+  /** @return node with the given node path or <tt>-1</tt> if the node path does not exist */
+  int getNode(String nodePath) {
+    int[] nodePositions = parseNodePath(nodePath);
+    int node = Arrays.binarySearch(positions, nodePositions, OntologyHierarchyIndex::compare);
+    return node >= 0 ? node : -1;
+  }
+
+  String getNodePath(int node) {
+    return nodePaths[node];
+  }
+
+  int getDepth(int node) {
+    return positions[node].length;
+  }
+
+  /** @return whether the first node is a proper ancestor of the second node */
+  boolean isAncestor(int ancestor, int node) {
+    return ancestor < node && node <= lastDescendants[ancestor];
+  }
+
+  /** @return identifiers of the ontology terms of all descendants of the node in pre-order */
+  Set<Object> getDescendantTermIds(int node) {
+    Set<Object> descendantTermIds = new LinkedHashSet<>();
+    for (int descendant = node + 1; descendant <= lastDescendants[node]; descendant++) {
+      descendantTermIds.add(termIds[descendant]);
+    }
+    return descendantTermIds;
+  }
+
+  /**
+   * Calculates the number of edges between two nodes via their lowest common ancestor. Equivalent
+   * to {@link OntologyTermRepository#calculateNodePathDistance(String, String)}.
+   */
+  int getDistance(int node1, int node2) {
+    int depth1 = getDepth(node1);
+    int depth2 = getDepth(node2);
+
+    int commonAncestor = depth1 >= depth2 ? node2 : node1;
+    int other = depth1 >= depth2 ? node1 : node2;
+    while (commonAncestor != -1 && commonAncestor != other && !isAncestor(commonAncestor, other)) {
+      commonAncestor = parents[commonAncestor];
+    }
+
+    // the ancestors of a node are not necessarily part of the ontology, e.g. the pseudo root
+    int commonDepth =
+        commonAncestor != -1
+            ? getDepth(commonAncestor)
+            : getCommonPrefixLength(positions[node1], positions[node2]);
+    return depth1 + depth2 - 2 * commonDepth;
+  }
+
+  private static int getCommonPrefixLength(int[] positions1, int[] positions2) {
+    int length = 0;
+    while (length < positions1.length
+        && length < positions2.length
+        && positions1[length] == positions2[length]) {
+      length++;
+    }
+    return length;
+  }
+
+  /** Lexicographic order of node positions, which is the pre-order of the hierarchy */
+  private static int compare(int[] positions1, int[] positions2) {
+    int commonPrefixLength = getCommonPrefixLength(positions1, positions2);
+    if (commonPrefixLength < positions1.length && commonPrefixLength < positions2.length) {
+      return Integer.compare(positions1[commonPrefixLength], positions2[commonPrefixLength]);
+    }
+    return Integer.compare(positions1.length, positions2.length);
+  }
+
+  private static boolean isPrefix(int[] prefix, int[] positions) {
+    return prefix.length < positions.length
+        && getCommonPrefixLength(prefix, positions) == prefix.length;
+  }
+
+  static int[] parseNodePath(String nodePath) {
+    int nrFragments = 1;
+    for (int i = 0; i < nodePath.length(); i++) {
+      if (nodePath.charAt(i) == '.') {
+        nrFragments++;
+      }
+    }
+
+    int[] nodePositions = new int[nrFragments];
+    int fragment = 0;
+    int position = 0;
+    boolean inPosition = true;
+    for (int i = 0; i < nodePath.length(); i++) {
+      char c = nodePath.charAt(i);
+      if (c == '.') {
+        nodePositions[fragment++] = position;
+        position = 0;
+        inPosition = true;
+      } else if (c == '[') {
+        inPosition = false;
+      } else if (inPosition) {
+        if (c < '0' || c > '9') {
+          throw new IllegalArgumentException("Invalid node path '" + nodePath + "'");
+        }
+        position = position * 10 + (c - '0');
+      }
+    }
+    nodePositions[fragment] = position;
+    return nodePositions;
+  }
+
+  static class Builder {
+    private final List<Node> nodes = new ArrayList<>();
+
+    private Builder() {}
+
+    Builder addNodePath(Object termId, String iri, String nodePath) {
+      nodes.add(
+          new Node(requireNonNull(termId), requireNonNull(iri), parseNodePath(nodePath), nodePath));
+      return this;
+    }
+
+    OntologyHierarchyIndex build() {
+      int[] order = new int[nodes.size()];
+      Integer[] sortedNodes = new Integer[nodes.size()];
+      for (int i = 0; i < sortedNodes.length; i++) {
+        sortedNodes[i] = i;
+      }
+      Arrays.sort(
+          sortedNodes,
+          Comparator.comparing(i -> nodes.get(i).positions, OntologyHierarchyIndex::compare));
+
+      int[][] positions = new int[sortedNodes.length][];
+      String[] nodePaths = new String[sortedNodes.length];
+      Object[] termIds = new Object[sortedNodes.length];
+      for (int node = 0; node < sortedNodes.length; node++) {
+        Node builderNode = nodes.get(sortedNodes[node]);
+        order[sortedNodes[node]] = node;
+        positions[node] = builderNode.positions;
+        nodePaths[node] = builderNode.nodePath;
+        termIds[node] = builderNode.termId;
+      }
+
+      // ancestors of the current node are on the stack
+      int[] parents = new int[positions.length];
+      int[] lastDescendants = new int[positions.length];
+      int[] ancestors = new int[positions.length];
+      int nrAncestors = 0;
+      for (int node = 0; node < positions.length; node++) {
+        while (nrAncestors > 0
+            && !isPrefix(positions[ancestors[nrAncestors - 1]], positions[node])) {
+          lastDescendants[ancestors[--nrAncestors]] = node - 1;
+        }
+        parents[node] = nrAncestors > 0 ? ancestors[nrAncestors - 1] : -1;
+        ancestors[nrAncestors++] = node;
+      }
+      while (nrAncestors > 0) {
+        lastDescendants[ancestors[--nrAncestors]] = positions.length - 1;
+      }
+
+      // nodes per term in the order in which the node paths were added
+      Map<String, List<Integer>> nodeListsByIri = new LinkedHashMap<>();
+      for (int i = 0; i < nodes.size(); i++) {
+        nodeListsByIri.computeIfAbsent(nodes.get(i).iri, iri -> new ArrayList<>()).add(order[i]);
+      }
+      ImmutableMap.Builder<String, int[]> nodesByIri = ImmutableMap.builder();
+      nodeListsByIri.forEach(
+          (iri, nodeList) ->
+              nodesByIri.put(iri, nodeList.stream().mapToInt(Integer::intValue).toArray()));
+
+      return new OntologyHierarchyIndex(
+          positions, nodePaths, termIds, parents, lastDescendants, nodesByIri.build());
+    }
+
+    private static class Node {
+      private final Object termId;
+      private final String iri;
+      private final int[] positions;
+      private final String nodePath;
+
+      private Node(Object termId, String iri, int[] positions, String nodePath) {
+        this.termId = termId;
+        this.iri = iri;
+        this.positions = positions;
+        this.nodePath = nodePath;
+      }
+    }
+  }
+}
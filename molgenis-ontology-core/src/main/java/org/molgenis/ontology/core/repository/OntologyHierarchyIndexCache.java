@@ -0,0 +1,86 @@
+package org.molgenis.ontology.core.repository;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.ontology.core.meta.OntologyMetadata.ONTOLOGY;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_IRI;
+import static org.molgenis.ontology.core.meta.OntologyTermNodePathMetadata.NODE_PATH;
+import static org.molgenis.ontology.core.meta.OntologyTermNodePathMetadata.ONTOLOGY_TERM_NODE_PATH;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.Set;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.ontology.core.meta.OntologyTermMetadata;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lazily builds {@link OntologyHierarchyIndex}es from the node paths that the ontology importer
+ * persisted and keeps them until a transaction on this or another node changes ontology data.
+ */
+@Component
+public class OntologyHierarchyIndexCache {
+  private static final Set<String> HIERARCHY_ENTITY_TYPE_IDS =
+      ImmutableSet.of(ONTOLOGY, ONTOLOGY_TERM, ONTOLOGY_TERM_NODE_PATH);
+
+  private final DataService dataService;
+  private final TransactionAwareCache<String, OntologyHierarchyIndex> cachedIndices;
+
+  OntologyHierarchyIndexCache(
+      DataService dataService,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus) {
+    this.dataService = requireNonNull(dataService);
+    this.cachedIndices =
+        new TransactionAwareCache<>(
+            HIERARCHY_ENTITY_TYPE_IDS::contains,
+            transactionManager,
+            transactionInformation,
+            cacheInvalidationBus);
+  }
+
+  /**
+   * Returns the hierarchy index of an ontology. Indices are not cached in transactions that changed
+   * ontology data, since the cache would otherwise contain uncommitted node paths.
+   */
+  OntologyHierarchyIndex getIndex(String ontologyId) {
+    return cachedIndices.get(ontologyId, this::createIndex);
+  }
+
+  /** @return indices that are currently cached, used to resolve terms without a query */
+  Collection<OntologyHierarchyIndex> getCachedIndices() {
+    return cachedIndices.getValues();
+  }
+
+  private OntologyHierarchyIndex createIndex(String ontologyId) {
+    Fetch fetch =
+        new Fetch()
+            .field(OntologyTermMetadata.ID)
+            .field(ONTOLOGY_TERM_IRI)
+            .field(OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH, new Fetch().field(NODE_PATH));
+
+    OntologyHierarchyIndex.Builder builder = OntologyHierarchyIndex.builder();
+    dataService
+        .findAll(
+            ONTOLOGY_TERM,
+            new QueryImpl<>().eq(OntologyTermMetadata.ONTOLOGY, ontologyId).fetch(fetch))
+        .forEach(
+            ontologyTermEntity -> {
+              Object termId = ontologyTermEntity.getIdValue();
+              String iri = ontologyTermEntity.getString(ONTOLOGY_TERM_IRI);
+              for (Entity nodePathEntity :
+                  ontologyTermEntity.getEntities(OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH)) {
+                builder.addNodePath(termId, iri, nodePathEntity.getString(NODE_PATH));
+              }
+            });
+    return builder.build();
+  }
+}
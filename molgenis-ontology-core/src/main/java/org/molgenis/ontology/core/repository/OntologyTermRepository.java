@@ -7,18 +7,19 @@ import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM
 import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_IRI;
 import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_NAME;
 
-import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataAccessException;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.QueryRule.Operator;
@@ -33,9 +34,12 @@ import org.molgenis.ontology.core.model.OntologyTerm;
 /** Maps {@link OntologyTermMetadata} {@link Entity} <-> {@link OntologyTerm} */
 public class OntologyTermRepository {
   private final DataService dataService;
+  private final OntologyHierarchyIndexCache ontologyHierarchyIndexCache;
 
-  public OntologyTermRepository(DataService dataService) {
+  public OntologyTermRepository(
+      DataService dataService, OntologyHierarchyIndexCache ontologyHierarchyIndexCache) {
     this.dataService = requireNonNull(dataService);
+    this.ontologyHierarchyIndexCache = requireNonNull(ontologyHierarchyIndexCache);
   }
 
   /**
@@ -154,42 +158,53 @@ public class OntologyTermRepository {
   }
 
   /**
-   * Calculate the distance between any two ontology terms in the ontology tree structure by
-   * calculating the difference in nodePaths.
+   * Calculate the distance between any two ontology terms in the ontology tree structure via the
+   * lowest common ancestor of their first node paths.
    *
    * @return the distance between two ontology terms
    */
   public int getOntologyTermDistance(OntologyTerm ontologyTerm1, OntologyTerm ontologyTerm2) {
-    String nodePath1 = getOntologyTermNodePath(ontologyTerm1);
-    String nodePath2 = getOntologyTermNodePath(ontologyTerm2);
-
-    if (StringUtils.isEmpty(nodePath1)) {
-      throw new MolgenisDataAccessException(
-          "The nodePath cannot be null : " + ontologyTerm1.toString());
+    for (OntologyHierarchyIndex index : ontologyHierarchyIndexCache.getCachedIndices()) {
+      if (index.containsTerm(ontologyTerm1.getIRI())
+          && index.containsTerm(ontologyTerm2.getIRI())) {
+        return index.getDistance(
+            index.getNodes(ontologyTerm1.getIRI())[0], index.getNodes(ontologyTerm2.getIRI())[0]);
+      }
     }
 
-    if (StringUtils.isEmpty(nodePath2)) {
-      throw new MolgenisDataAccessException(
-          "The nodePath cannot be null : " + ontologyTerm2.toString());
+    OntologyHierarchyIndex index1 = getOntologyHierarchyIndex(ontologyTerm1);
+    OntologyHierarchyIndex index2 = getOntologyHierarchyIndex(ontologyTerm2);
+    int node1 = index1.getNodes(ontologyTerm1.getIRI())[0];
+    int node2 = index2.getNodes(ontologyTerm2.getIRI())[0];
+    if (index1 == index2) {
+      return index1.getDistance(node1, node2);
     }
-
-    return calculateNodePathDistance(nodePath1, nodePath2);
+    return calculateNodePathDistance(index1.getNodePath(node1), index2.getNodePath(node2));
   }
 
-  private String getOntologyTermNodePath(OntologyTerm ontologyTerm) {
+  /** Returns the hierarchy index of the ontology that contains the ontology term. */
+  private OntologyHierarchyIndex getOntologyHierarchyIndex(OntologyTerm ontologyTerm) {
+    for (OntologyHierarchyIndex index : ontologyHierarchyIndexCache.getCachedIndices()) {
+      if (index.containsTerm(ontologyTerm.getIRI())) {
+        return index;
+      }
+    }
+
     Entity ontologyTermEntity =
         dataService.findOne(
-            ONTOLOGY_TERM, new QueryImpl<>().eq(ONTOLOGY_TERM_IRI, ontologyTerm.getIRI()));
-
-    Iterable<Entity> ontologyTermNodePathEntities =
+            ONTOLOGY_TERM,
+            new QueryImpl<>()
+                .eq(ONTOLOGY_TERM_IRI, ontologyTerm.getIRI())
+                .fetch(new Fetch().field(OntologyTermMetadata.ID).field(ONTOLOGY)));
+    OntologyHierarchyIndex index =
         ontologyTermEntity != null
-            ? ontologyTermEntity.getEntities(OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH)
-            : emptyList();
-
-    return ontologyTermNodePathEntities
-        .iterator()
-        .next()
-        .getString(OntologyTermNodePathMetadata.NODE_PATH);
+            ? ontologyHierarchyIndexCache.getIndex(getOntologyId(ontologyTermEntity))
+            : null;
+    if (index == null || !index.containsTerm(ontologyTerm.getIRI())) {
+      throw new MolgenisDataAccessException(
+          "The nodePath cannot be null : " + ontologyTerm.toString());
+    }
+    return index;
   }
 
   /**
@@ -223,59 +238,43 @@ public class OntologyTermRepository {
             dataService
                 .query(ONTOLOGY_TERM, org.molgenis.ontology.core.meta.OntologyTerm.class)
                 .eq(ONTOLOGY_TERM_IRI, ontologyTerm.getIRI())
+                .fetch(new Fetch().field(OntologyTermMetadata.ID).field(ONTOLOGY))
                 .findAll()
                 .iterator();
 
-    List<OntologyTerm> children = new ArrayList<>();
+    Set<Object> childTermIds = new LinkedHashSet<>();
     for (Entity ontologyTermEntity : ontologyTermEntities) {
-      Entity ontologyEntity = ontologyTermEntity.getEntity(OntologyTermMetadata.ONTOLOGY);
-      ontologyTermEntity
-          .getEntities(OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH)
-          .forEach(
-              ontologyTermNodePathEntity ->
-                  children.addAll(
-                      getChildOntologyTermsByNodePath(ontologyEntity, ontologyTermNodePathEntity)));
+      OntologyHierarchyIndex index =
+          ontologyHierarchyIndexCache.getIndex(getOntologyId(ontologyTermEntity));
+      for (int node : index.getNodes(ontologyTerm.getIRI())) {
+        childTermIds.addAll(index.getDescendantTermIds(node));
+      }
     }
-    return children;
+    return getOntologyTerms(childTermIds);
   }
 
   public List<OntologyTerm> getChildOntologyTermsByNodePath(
       Entity ontologyEntity, Entity nodePathEntity) {
     String nodePath = nodePathEntity.getString(OntologyTermNodePathMetadata.NODE_PATH);
 
-    Iterable<Entity> relatedOntologyTermEntities =
-        () ->
-            dataService
-                .findAll(
-                    OntologyTermMetadata.ONTOLOGY_TERM,
-                    new QueryImpl<>(
-                            new QueryRule(
-                                OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH,
-                                Operator.FUZZY_MATCH,
-                                "\"" + nodePath + "\""))
-                        .and()
-                        .eq(OntologyTermMetadata.ONTOLOGY, ontologyEntity))
-                .iterator();
-    Iterable<Entity> childOntologyTermEntities =
-        FluentIterable.from(relatedOntologyTermEntities)
-            .filter(entity -> qualifiedNodePath(nodePath, entity))
-            .toList();
+    OntologyHierarchyIndex index =
+        ontologyHierarchyIndexCache.getIndex(ontologyEntity.getIdValue().toString());
+    int node = index.getNode(nodePath);
+    return node != -1 ? getOntologyTerms(index.getDescendantTermIds(node)) : emptyList();
+  }
 
-    return Lists.newArrayList(
-        Iterables.transform(childOntologyTermEntities, OntologyTermRepository::toOntologyTerm));
+  private List<OntologyTerm> getOntologyTerms(Set<Object> ontologyTermIds) {
+    if (ontologyTermIds.isEmpty()) {
+      return emptyList();
+    }
+    return dataService
+        .findAll(ONTOLOGY_TERM, ontologyTermIds.stream())
+        .map(OntologyTermRepository::toOntologyTerm)
+        .collect(Collectors.toList());
   }
 
-  private boolean qualifiedNodePath(String nodePath, Entity entity) {
-    Iterable<Entity> nodePathEntities =
-        entity.getEntities(OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH);
-    return Lists.newArrayList(nodePathEntities).stream()
-        .anyMatch(
-            nodePathEntity -> {
-              String childNodePath =
-                  nodePathEntity.getString(OntologyTermNodePathMetadata.NODE_PATH);
-              return !StringUtils.equals(nodePath, childNodePath)
-                  && childNodePath.startsWith(nodePath);
-            });
+  private static String getOntologyId(Entity ontologyTermEntity) {
+    return ontologyTermEntity.getEntity(ONTOLOGY).getIdValue().toString();
   }
 
   private static OntologyTerm toOntologyTerm(Entity entity) {
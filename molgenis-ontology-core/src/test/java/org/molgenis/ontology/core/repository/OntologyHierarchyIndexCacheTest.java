@@ -0,0 +1,113 @@
+package org.molgenis.ontology.core.repository;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_IRI;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH;
+import static org.molgenis.ontology.core.meta.OntologyTermNodePathMetadata.NODE_PATH;
+
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.test.AbstractMockitoTest;
+
+class OntologyHierarchyIndexCacheTest extends AbstractMockitoTest {
+  @Mock private DataService dataService;
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+  private OntologyHierarchyIndexCache ontologyHierarchyIndexCache;
+  private TransactionAwareCache<?, ?> cachedIndices;
+
+  @SuppressWarnings("unchecked")
+  @BeforeEach
+  void setUpBeforeEach() {
+    ontologyHierarchyIndexCache =
+        new OntologyHierarchyIndexCache(
+            dataService, transactionManager, transactionInformation, cacheInvalidationBus);
+
+    ArgumentCaptor<TransactionAwareCache<?, ?>> cacheCaptor =
+        ArgumentCaptor.forClass(TransactionAwareCache.class);
+    verify(transactionManager).addTransactionListener(cacheCaptor.capture());
+    cachedIndices = cacheCaptor.getValue();
+  }
+
+  @Test
+  void testGetIndex() {
+    setUpOntologyTerms();
+
+    OntologyHierarchyIndex index = ontologyHierarchyIndexCache.getIndex("ontologyId");
+    assertEquals(1, index.size());
+    assertEquals("0[0].1[1]", index.getNodePath(index.getNodes("iri")[0]));
+    assertSame(index, ontologyHierarchyIndexCache.getIndex("ontologyId"));
+  }
+
+  @Test
+  void testGetIndexOntologyChangedInTransaction() {
+    setUpOntologyTerms();
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ONTOLOGY_TERM));
+
+    assertNotSame(
+        ontologyHierarchyIndexCache.getIndex("ontologyId"),
+        ontologyHierarchyIndexCache.getIndex("ontologyId"));
+  }
+
+  @Test
+  void testAfterCommitTransaction() {
+    setUpOntologyTerms();
+
+    OntologyHierarchyIndex index = ontologyHierarchyIndexCache.getIndex("ontologyId");
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(ONTOLOGY_TERM), Set.of());
+    cachedIndices.afterCommitTransaction("transactionId");
+    cachedIndices.doCleanupAfterCompletion("transactionId");
+
+    assertNotSame(index, ontologyHierarchyIndexCache.getIndex("ontologyId"));
+  }
+
+  @Test
+  void testOnCacheInvalidation() {
+    setUpOntologyTerms();
+
+    OntologyHierarchyIndex index = ontologyHierarchyIndexCache.getIndex("ontologyId");
+    cachedIndices.onCacheInvalidation(
+        CacheInvalidation.create(singleton(ONTOLOGY_TERM), Set.of()));
+
+    assertNotSame(index, ontologyHierarchyIndexCache.getIndex("ontologyId"));
+  }
+
+  private void setUpOntologyTerms() {
+    when(dataService.findAll(eq(ONTOLOGY_TERM), any(Query.class)))
+        .thenAnswer(invocation -> Stream.of(createOntologyTerm()));
+  }
+
+  private Entity createOntologyTerm() {
+    Entity nodePath = mock(Entity.class);
+    when(nodePath.getString(NODE_PATH)).thenReturn("0[0].1[1]");
+    Entity ontologyTerm = mock(Entity.class);
+    when(ontologyTerm.getIdValue()).thenReturn("termId");
+    when(ontologyTerm.getString(ONTOLOGY_TERM_IRI)).thenReturn("iri");
+    when(ontologyTerm.getEntities(ONTOLOGY_TERM_NODE_PATH)).thenReturn(singletonList(nodePath));
+    return ontologyTerm;
+  }
+}
@@ -0,0 +1,99 @@
+package org.molgenis.ontology.core.repository;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OntologyHierarchyIndexTest {
+  private OntologyHierarchyIndex index;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    // term d has two parents, term a is not part of the ontology index
+    index =
+        OntologyHierarchyIndex.builder()
+            .addNodePath("d", "iri d", "0[0].1[1].0[2]")
+            .addNodePath("e", "iri e", "0[0].10[1]")
+            .addNodePath("b", "iri b", "0[0].0[1]")
+            .addNodePath("c", "iri c", "0[0].1[1]")
+            .addNodePath("d", "iri d", "0[0].0[1].0[2]")
+            .addNodePath("f", "iri f", "0[0].0[1].0[2].0[3]")
+            .build();
+  }
+
+  @Test
+  void testSize() {
+    assertEquals(6, index.size());
+  }
+
+  @Test
+  void testGetNodes() {
+    int[] nodes = index.getNodes("iri d");
+    assertEquals(2, nodes.length);
+    assertEquals("0[0].1[1].0[2]", index.getNodePath(nodes[0]));
+    assertEquals("0[0].0[1].0[2]", index.getNodePath(nodes[1]));
+  }
+
+  @Test
+  void testGetNodesUnknownTerm() {
+    assertArrayEquals(new int[0], index.getNodes("iri a"));
+    assertFalse(index.containsTerm("iri a"));
+  }
+
+  @Test
+  void testGetNode() {
+    assertEquals("0[0].10[1]", index.getNodePath(index.getNode("0[0].10[1]")));
+    assertEquals(-1, index.getNode("0[0].2[1]"));
+  }
+
+  @Test
+  void testIsAncestor() {
+    int b = index.getNode("0[0].0[1]");
+    int d = index.getNode("0[0].0[1].0[2]");
+    int f = index.getNode("0[0].0[1].0[2].0[3]");
+    int c = index.getNode("0[0].1[1]");
+    assertTrue(index.isAncestor(b, d));
+    assertTrue(index.isAncestor(b, f));
+    assertFalse(index.isAncestor(f, b));
+    assertFalse(index.isAncestor(b, b));
+    assertFalse(index.isAncestor(b, c));
+  }
+
+  @Test
+  void testGetDescendantTermIds() {
+    assertEquals(of("d", "f"), index.getDescendantTermIds(index.getNode("0[0].0[1]")));
+    assertEquals(of("d"), index.getDescendantTermIds(index.getNode("0[0].1[1]")));
+    assertEquals(of(), index.getDescendantTermIds(index.getNode("0[0].10[1]")));
+  }
+
+  @Test
+  void testGetDistance() {
+    int b = index.getNode("0[0].0[1]");
+    int c = index.getNode("0[0].1[1]");
+    int f = index.getNode("0[0].0[1].0[2].0[3]");
+    int d = index.getNode("0[0].1[1].0[2]");
+    assertEquals(0, index.getDistance(f, f));
+    assertEquals(2, index.getDistance(b, f));
+    assertEquals(2, index.getDistance(f, b));
+    assertEquals(2, index.getDistance(b, c));
+    assertEquals(5, index.getDistance(f, d));
+  }
+
+  @Test
+  void testParseNodePath() {
+    assertArrayEquals(
+        new int[] {0, 12, 3}, OntologyHierarchyIndex.parseNodePath("0[0].12[1].3[2]"));
+  }
+
+  @Test
+  void testParseNodePathInvalid() {
+    assertThrows(
+        IllegalArgumentException.class, () -> OntologyHierarchyIndex.parseNodePath("0[0].a[1]"));
+  }
+}
@@ -4,11 +4,14 @@ import static com.google.common.collect.ImmutableSet.of;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentCaptor.forClass;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.RETURNS_SELF;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ID;
@@ -30,9 +33,10 @@ import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Query;
-import org.molgenis.data.QueryRule;
 import org.molgenis.data.support.DynamicEntity;
-import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.ontology.core.config.OntologyTestConfig;
 import org.molgenis.ontology.core.meta.OntologyMetadata;
 import org.molgenis.ontology.core.meta.OntologyTermMetadata;
@@ -62,6 +66,8 @@ class OntologyTermRepositoryTest extends AbstractMolgenisSpringTest {
 
   @BeforeEach
   void beforeTest() {
+    reset(dataService);
+
     Entity ontologyEntity = mock(Entity.class);
     when(ontologyEntity.getString(OntologyMetadata.ID)).thenReturn("34");
 
@@ -153,46 +159,31 @@ class OntologyTermRepositoryTest extends AbstractMolgenisSpringTest {
   @Test
   void testGetChildOntologyTermsByNodePath() {
     Entity ontologyEntity = new DynamicEntity(ontologyMetadata);
+    ontologyEntity.set(OntologyMetadata.ID, "ontologyId");
     ontologyEntity.set(OntologyMetadata.ONTOLOGY_IRI, "http://www.molgenis.org");
     ontologyEntity.set(OntologyMetadata.ONTOLOGY_NAME, "molgenis");
 
-    Entity nodePathEntity_1 = new DynamicEntity(ontologyTermNodePathMetadata);
-    nodePathEntity_1.set(OntologyTermNodePathMetadata.NODE_PATH, "0[0].1[1]");
-    Entity nodePathEntity_2 = new DynamicEntity(ontologyTermNodePathMetadata);
-    nodePathEntity_2.set(OntologyTermNodePathMetadata.NODE_PATH, "0[0].1[1].0[2]");
-    Entity nodePathEntity_3 = new DynamicEntity(ontologyTermNodePathMetadata);
-    nodePathEntity_3.set(OntologyTermNodePathMetadata.NODE_PATH, "0[0].1[1].1[2]");
-
-    Entity ontologyTerm_2 = new DynamicEntity(ontologyTermMetadata);
-    ontologyTerm_2.set(ONTOLOGY, ontologyEntity);
-    ontologyTerm_2.set(ONTOLOGY_TERM_IRI, "iri 2");
-    ontologyTerm_2.set(ONTOLOGY_TERM_NAME, "name 2");
-    ontologyTerm_2.set(
-        OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH, asList(nodePathEntity_1, nodePathEntity_2));
-    ontologyTerm_2.set(ONTOLOGY_TERM_SYNONYM, emptyList());
-
-    Entity ontologyTerm_3 = new DynamicEntity(ontologyTermMetadata);
-    ontologyTerm_3.set(ONTOLOGY, ontologyEntity);
-    ontologyTerm_3.set(ONTOLOGY_TERM_IRI, "iri 3");
-    ontologyTerm_3.set(ONTOLOGY_TERM_NAME, "name 3");
-    ontologyTerm_3.set(
-        OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH, singletonList(nodePathEntity_3));
-    ontologyTerm_3.set(ONTOLOGY_TERM_SYNONYM, emptyList());
-
-    when(dataService.findAll(
-            ONTOLOGY_TERM,
-            new QueryImpl<>(
-                    new QueryRule(
-                        OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH,
-                        QueryRule.Operator.FUZZY_MATCH,
-                        "\"0[0].1[1]\""))
-                .and()
-                .eq(ONTOLOGY, ontologyEntity)))
+    Entity nodePathEntity_1 = createNodePath("0[0].1[1]");
+    Entity nodePathEntity_2 = createNodePath("0[0].1[1].0[2]");
+    Entity nodePathEntity_3 = createNodePath("0[0].1[1].1[2]");
+    Entity nodePathEntity_4 = createNodePath("0[0].2[1]");
+
+    Entity ontologyTerm_1 = createOntologyTerm("1", ontologyEntity, "iri 1", nodePathEntity_1);
+    Entity ontologyTerm_2 = createOntologyTerm("2", ontologyEntity, "iri 2", nodePathEntity_2);
+    Entity ontologyTerm_3 = createOntologyTerm("3", ontologyEntity, "iri 3", nodePathEntity_3);
+    Entity ontologyTerm_4 = createOntologyTerm("4", ontologyEntity, "iri 4", nodePathEntity_4);
+
+    when(dataService.findAll(eq(ONTOLOGY_TERM), any(Query.class)))
+        .thenReturn(Stream.of(ontologyTerm_4, ontologyTerm_3, ontologyTerm_1, ontologyTerm_2));
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Stream<Object>> idsCaptor = forClass(Stream.class);
+    when(dataService.findAll(eq(ONTOLOGY_TERM), idsCaptor.capture()))
         .thenReturn(Stream.of(ontologyTerm_2, ontologyTerm_3));
 
     List<OntologyTerm> childOntologyTermsByNodePath =
         ontologyTermRepository.getChildOntologyTermsByNodePath(ontologyEntity, nodePathEntity_1);
 
+    assertEquals(asList("2", "3"), idsCaptor.getValue().collect(toList()));
     assertEquals(2, childOntologyTermsByNodePath.size());
     assertEquals(
         create("iri 2", "name 2", null, singletonList("name 2")),
@@ -202,6 +193,44 @@ class OntologyTermRepositoryTest extends AbstractMolgenisSpringTest {
         childOntologyTermsByNodePath.get(1));
   }
 
+  @Test
+  void testGetOntologyTermDistance() {
+    Entity ontologyEntity = new DynamicEntity(ontologyMetadata);
+    ontologyEntity.set(OntologyMetadata.ID, "otherOntologyId");
+
+    Entity ontologyTerm_5 =
+        createOntologyTerm("5", ontologyEntity, "iri 5", createNodePath("0[0].0[1].1[2].2[3]"));
+    Entity ontologyTerm_6 =
+        createOntologyTerm("6", ontologyEntity, "iri 6", createNodePath("0[0].0[1].0[2].2[3]"));
+
+    when(dataService.findOne(eq(ONTOLOGY_TERM), any(Query.class))).thenReturn(ontologyTerm_5);
+    when(dataService.findAll(eq(ONTOLOGY_TERM), any(Query.class)))
+        .thenReturn(Stream.of(ontologyTerm_5, ontologyTerm_6));
+
+    assertEquals(
+        4,
+        ontologyTermRepository.getOntologyTermDistance(
+            create("iri 5", "name 5"), create("iri 6", "name 6")));
+  }
+
+  private Entity createNodePath(String nodePath) {
+    Entity nodePathEntity = new DynamicEntity(ontologyTermNodePathMetadata);
+    nodePathEntity.set(OntologyTermNodePathMetadata.NODE_PATH, nodePath);
+    return nodePathEntity;
+  }
+
+  private Entity createOntologyTerm(
+      String id, Entity ontologyEntity, String iri, Entity nodePathEntity) {
+    Entity ontologyTerm = new DynamicEntity(ontologyTermMetadata);
+    ontologyTerm.set(ID, id);
+    ontologyTerm.set(ONTOLOGY, ontologyEntity);
+    ontologyTerm.set(ONTOLOGY_TERM_IRI, iri);
+    ontologyTerm.set(ONTOLOGY_TERM_NAME, "name " + id);
+    ontologyTerm.set(OntologyTermMetadata.ONTOLOGY_TERM_NODE_PATH, singletonList(nodePathEntity));
+    ontologyTerm.set(ONTOLOGY_TERM_SYNONYM, emptyList());
+    return ontologyTerm;
+  }
+
   @Test
   void testCalculateNodePathDistance() {
     // Case 1
@@ -254,9 +283,18 @@ class OntologyTermRepositoryTest extends AbstractMolgenisSpringTest {
       return mock(DataService.class);
     }
 
+    @Bean
+    OntologyHierarchyIndexCache ontologyHierarchyIndexCache() {
+      return new OntologyHierarchyIndexCache(
+          dataService,
+          mock(TransactionManager.class),
+          mock(TransactionInformation.class),
+          mock(CacheInvalidationBus.class));
+    }
+
     @Bean
     OntologyTermRepository ontologyTermRepository() {
-      return new OntologyTermRepository(dataService);
+      return new OntologyTermRepository(dataService, ontologyHierarchyIndexCache());
     }
   }
 }
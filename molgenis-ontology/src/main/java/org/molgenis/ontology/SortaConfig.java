@@ -3,6 +3,7 @@ package org.molgenis.ontology;
 import static java.util.Objects.requireNonNull;
 
 import org.molgenis.data.DataService;
+import org.molgenis.data.index.SearchService;
 import org.molgenis.ontology.core.ic.OntologyTermFrequencyServiceImpl;
 import org.molgenis.ontology.core.meta.OntologyTermSynonymFactory;
 import org.molgenis.ontology.roc.InformationContentService;
@@ -17,15 +18,18 @@ import org.springframework.context.annotation.Import;
 @Configuration
 public class SortaConfig {
   private final DataService dataService;
+  private final SearchService searchService;
   private final OntologyTermHitMetaData ontologyTermHitMetaData;
   private final OntologyTermSynonymFactory ontologyTermSynonymFactory;
 
   public SortaConfig(
       DataService dataService,
+      SearchService searchService,
       OntologyTermHitMetaData ontologyTermHitMetaData,
       OntologyTermSynonymFactory ontologyTermSynonymFactory) {
     System.setProperty("jdk.xml.entityExpansionLimit", "1280000");
     this.dataService = requireNonNull(dataService);
+    this.searchService = requireNonNull(searchService);
     this.ontologyTermHitMetaData = requireNonNull(ontologyTermHitMetaData);
     this.ontologyTermSynonymFactory = requireNonNull(ontologyTermSynonymFactory);
   }
@@ -34,6 +38,7 @@ public class SortaConfig {
   public SortaService sortaService() {
     return new SortaServiceImpl(
         dataService,
+        searchService,
         informationContentService(),
         ontologyTermHitMetaData,
         ontologyTermSynonymFactory);
@@ -1,15 +1,27 @@
 package org.molgenis.ontology.sorta.job;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.ontology.sorta.meta.OntologyTermHitMetaData.SCORE;
 import static org.molgenis.util.ApplicationContextProvider.getApplicationContext;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.populate.IdGenerator;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.support.QueryImpl;
@@ -19,30 +31,56 @@ import org.molgenis.ontology.sorta.controller.SortaController;
 import org.molgenis.ontology.sorta.meta.MatchingTaskContentMetaData;
 import org.molgenis.ontology.sorta.service.SortaService;
 import org.molgenis.security.core.runas.RunAsSystemAspect;
+import org.molgenis.util.ExecutorServiceUtils;
 import org.molgenis.web.menu.MenuReaderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.stereotype.Component;
 
+/**
+ * Matches the input terms of a SORTA job against an ontology. Batches of input rows are matched in
+ * parallel by a worker pool, while the job thread writes the results in input order. The number of
+ * batches in flight is bounded, so that a large input does not have to fit in memory.
+ */
 @Component
 public class SortaJobProcessor {
   private static final int ADD_BATCH_SIZE = 1000;
-  private static final int PROGRESS_UPDATE_BATCH_SIZE = 50;
+  private static final int MATCH_BATCH_SIZE = 50;
 
   private final DataService dataService;
   private final SortaService sortaService;
   private final IdGenerator idGenerator;
-  private final AtomicInteger counter;
   private final MenuReaderService menuReaderService;
+  private final int maxBatchesInFlight;
+  private final ExecutorService executorService;
 
   SortaJobProcessor(
       DataService dataService,
       SortaService sortaService,
       IdGenerator idGenerator,
-      MenuReaderService menuReaderService) {
+      MenuReaderService menuReaderService,
+      @Value("${sorta.matching.threads:4}") int nrThreads) {
     this.dataService = requireNonNull(dataService);
     this.sortaService = requireNonNull(sortaService);
     this.idGenerator = requireNonNull(idGenerator);
-    this.counter = new AtomicInteger(0);
     this.menuReaderService = requireNonNull(menuReaderService);
+    if (nrThreads < 1) {
+      throw new IllegalArgumentException("Number of matching threads must be at least 1");
+    }
+    this.maxBatchesInFlight = 2 * nrThreads;
+    this.executorService =
+        new DelegatingSecurityContextExecutorService(
+            Executors.newFixedThreadPool(
+                nrThreads,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("molgenis-sorta-matching-%d")
+                    .setDaemon(true)
+                    .build()));
+  }
+
+  @PreDestroy
+  void preDestroy() {
+    ExecutorServiceUtils.shutdownAndAwaitTermination(executorService);
   }
 
   public Void process(
@@ -67,60 +105,16 @@ public class SortaJobProcessor {
           MatchingTaskContentMetaData matchingTaskContentMetaData =
               getApplicationContext().getBean(MatchingTaskContentMetaData.class);
 
-          // Match input terms with code
-          List<Entity> entitiesToAdd = newArrayList();
-          dataService
-              .findAll(inputRepositoryName)
-              .forEach(
-                  inputRow -> {
-                    Entity resultEntity =
-                        new DynamicEntity(matchingTaskContentMetaData) {
-                          @Override
-                          protected void validateValueType(String attrName, Object value) {
-                            // FIXME enable validation by not overriding this method
-                          }
-                        };
-                    resultEntity.set(MatchingTaskContentMetaData.INPUT_TERM, inputRow);
-                    resultEntity.set(
-                        MatchingTaskContentMetaData.IDENTIFIER, idGenerator.generateId());
-                    resultEntity.set(MatchingTaskContentMetaData.VALIDATED, false);
-                    resultEntity.set(MatchingTaskContentMetaData.REVIEW, false);
-                    entitiesToAdd.add(resultEntity);
-
-                    Iterable<Entity> ontologyTermEntities =
-                        sortaService.findOntologyTermEntities(ontologyIri, inputRow);
-                    if (Iterables.size(ontologyTermEntities) > 0) {
-                      Entity firstMatchedOntologyTerm =
-                          Iterables.getFirst(
-                              ontologyTermEntities, new DynamicEntity(matchingTaskContentMetaData));
-                      resultEntity.set(
-                          MatchingTaskContentMetaData.MATCHED_TERM,
-                          firstMatchedOntologyTerm.get(OntologyTermMetadata.ONTOLOGY_TERM_IRI));
-                      resultEntity.set(
-                          MatchingTaskContentMetaData.SCORE, firstMatchedOntologyTerm.get(SCORE));
-                    } else {
-                      resultEntity.set(MatchingTaskContentMetaData.SCORE, 0.0);
-                    }
-
-                    // Add entity in batch
-                    if (entitiesToAdd.size() >= ADD_BATCH_SIZE) {
-                      dataService.add(resultRepositoryName, entitiesToAdd.stream());
-                      entitiesToAdd.clear();
-                    }
-
-                    // Increase the number of the progress
-                    counter.incrementAndGet();
-
-                    // Update the progress only when the progress proceeds the threshold
-                    if (counter.get() % PROGRESS_UPDATE_BATCH_SIZE == 0) {
-                      progress.progress(counter.get(), "Processed " + counter + " input terms.");
-                    }
-                  });
-          // Add the rest
-          if (!entitiesToAdd.isEmpty()) {
-            dataService.add(resultRepositoryName, entitiesToAdd.stream());
+          int count;
+          try (Stream<Entity> inputRows = dataService.findAll(inputRepositoryName)) {
+            count =
+                matchInputRows(
+                    inputRows,
+                    batch -> createResultEntities(ontologyIri, batch, matchingTaskContentMetaData),
+                    resultRepositoryName,
+                    progress);
           }
-          progress.progress(counter.get(), "Processed " + counter + " input terms.");
+          progress.progress(count, "Processed " + count + " input terms.");
           progress.setResultUrl(
               menuReaderService.findMenuItemPath(SortaController.ID)
                   + "/result/"
@@ -128,4 +122,106 @@ public class SortaJobProcessor {
         });
     return null;
   }
+
+  /**
+   * Matches batches of input rows in the worker pool and adds the results in input order.
+   *
+   * @return number of processed input rows
+   */
+  private int matchInputRows(
+      Stream<Entity> inputRows,
+      Function<List<Entity>, List<Entity>> matcher,
+      String resultRepositoryName,
+      Progress progress) {
+    Deque<Future<List<Entity>>> batchesInFlight = new ArrayDeque<>(maxBatchesInFlight);
+    List<Entity> entitiesToAdd = new ArrayList<>(ADD_BATCH_SIZE);
+    int count = 0;
+    try {
+      Iterator<List<Entity>> batches = Iterators.partition(inputRows.iterator(), MATCH_BATCH_SIZE);
+      while (batches.hasNext() || !batchesInFlight.isEmpty()) {
+        if (batches.hasNext() && batchesInFlight.size() < maxBatchesInFlight) {
+          List<Entity> batch = batches.next();
+          batchesInFlight.add(executorService.submit(() -> matcher.apply(batch)));
+          continue;
+        }
+
+        List<Entity> resultEntities = getResult(batchesInFlight.remove());
+        entitiesToAdd.addAll(resultEntities);
+        if (entitiesToAdd.size() >= ADD_BATCH_SIZE) {
+          dataService.add(resultRepositoryName, entitiesToAdd.stream());
+          entitiesToAdd.clear();
+        }
+
+        count += resultEntities.size();
+        progress.progress(count, "Processed " + count + " input terms.");
+      }
+    } finally {
+      batchesInFlight.forEach(future -> future.cancel(true));
+    }
+
+    // Add the rest
+    if (!entitiesToAdd.isEmpty()) {
+      dataService.add(resultRepositoryName, entitiesToAdd.stream());
+    }
+    return count;
+  }
+
+  private static List<Entity> getResult(Future<List<Entity>> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException("Interrupted while matching input terms", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new MolgenisDataException(e.getCause());
+    }
+  }
+
+  /** Matches a batch of input rows with a single ontology term search. */
+  private List<Entity> createResultEntities(
+      String ontologyIri,
+      List<Entity> inputRows,
+      MatchingTaskContentMetaData matchingTaskContentMetaData) {
+    List<Iterable<Entity>> ontologyTermEntitiesList =
+        sortaService.findOntologyTermEntities(ontologyIri, inputRows);
+    List<Entity> resultEntities = new ArrayList<>(inputRows.size());
+    for (int i = 0; i < inputRows.size(); i++) {
+      resultEntities.add(
+          createResultEntity(
+              inputRows.get(i), ontologyTermEntitiesList.get(i), matchingTaskContentMetaData));
+    }
+    return resultEntities;
+  }
+
+  private Entity createResultEntity(
+      Entity inputRow,
+      Iterable<Entity> ontologyTermEntities,
+      MatchingTaskContentMetaData matchingTaskContentMetaData) {
+    Entity resultEntity =
+        new DynamicEntity(matchingTaskContentMetaData) {
+          @Override
+          protected void validateValueType(String attrName, Object value) {
+            // FIXME enable validation by not overriding this method
+          }
+        };
+    resultEntity.set(MatchingTaskContentMetaData.INPUT_TERM, inputRow);
+    resultEntity.set(MatchingTaskContentMetaData.IDENTIFIER, idGenerator.generateId());
+    resultEntity.set(MatchingTaskContentMetaData.VALIDATED, false);
+    resultEntity.set(MatchingTaskContentMetaData.REVIEW, false);
+
+    if (Iterables.size(ontologyTermEntities) > 0) {
+      Entity firstMatchedOntologyTerm =
+          Iterables.getFirst(ontologyTermEntities, new DynamicEntity(matchingTaskContentMetaData));
+      resultEntity.set(
+          MatchingTaskContentMetaData.MATCHED_TERM,
+          firstMatchedOntologyTerm.get(OntologyTermMetadata.ONTOLOGY_TERM_IRI));
+      resultEntity.set(MatchingTaskContentMetaData.SCORE, firstMatchedOntologyTerm.get(SCORE));
+    } else {
+      resultEntity.set(MatchingTaskContentMetaData.SCORE, 0.0);
+    }
+    return resultEntity;
+  }
 }
@@ -1,5 +1,6 @@
 package org.molgenis.ontology.sorta.service;
 
+import java.util.List;
 import org.molgenis.data.Entity;
 
 public interface SortaService {
@@ -32,4 +33,13 @@ public interface SortaService {
    * @return a list of ontologyterm entities in generic type
    */
   Iterable<Entity> findOntologyTermEntities(String ontologyIri, Entity inputEntity);
+
+  /**
+   * Find the relevant ontologyterm typed entities for each of the given query inputs, see {@link
+   * #findOntologyTermEntities(String, Entity)}, searching the ontologyterms of all inputs at once.
+   *
+   * @return a list of ontologyterm entities in generic type for each input, in the order of the
+   *     inputs
+   */
+  List<Iterable<Entity>> findOntologyTermEntities(String ontologyIri, List<Entity> inputEntities);
 }
@@ -1,6 +1,9 @@
 package org.molgenis.ontology.sorta.service.impl;
 
+import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static org.molgenis.data.QueryRule.Operator.AND;
 import static org.molgenis.data.QueryRule.Operator.DIS_MAX;
 import static org.molgenis.data.QueryRule.Operator.EQUALS;
@@ -14,11 +17,15 @@ import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM
 import static org.molgenis.ontology.sorta.meta.OntologyTermHitMetaData.COMBINED_SCORE;
 import static org.molgenis.ontology.sorta.meta.OntologyTermHitMetaData.SCORE;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,7 +34,9 @@ import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
+import org.molgenis.data.index.SearchService;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.ontology.core.meta.OntologyMetadata;
 import org.molgenis.ontology.core.meta.OntologyTermDynamicAnnotationMetadata;
@@ -39,6 +48,7 @@ import org.molgenis.ontology.sorta.bean.OntologyTermHitEntity;
 import org.molgenis.ontology.sorta.meta.OntologyTermHitMetaData;
 import org.molgenis.ontology.sorta.service.SortaService;
 import org.molgenis.semanticsearch.string.NGramDistanceAlgorithm;
+import org.molgenis.semanticsearch.string.NGramProfile;
 import org.molgenis.semanticsearch.string.Stemmer;
 
 public class SortaServiceImpl implements SortaService {
@@ -50,6 +60,7 @@ public class SortaServiceImpl implements SortaService {
   private static final String SINGLE_WHITESPACE = " ";
   private static final int MAX_NUMBER_MATCHES = 50;
   private static final int NUMBER_NGRAM_MATCHES = 10;
+  private static final int MAX_NUMBER_SYNONYM_PROFILES = 100000;
 
   // Global fields that are used by other classes
   public static final Character DEFAULT_SEPARATOR = ';';
@@ -58,16 +69,30 @@ public class SortaServiceImpl implements SortaService {
   public static final String DEFAULT_MATCHING_IDENTIFIER = "Identifier";
 
   private final DataService dataService;
+  private final SearchService searchService;
   private final InformationContentService informationContentService;
   private final OntologyTermHitMetaData ontologyTermHitMetaData;
   private final OntologyTermSynonymFactory ontologyTermSynonymFactory;
 
+  /**
+   * N-gram profiles of ontology term synonyms. Profiles only depend on the synonym, so they do not
+   * have to be evicted when ontologies change.
+   */
+  private final LoadingCache<String, NGramProfile> synonymProfiles =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_NUMBER_SYNONYM_PROFILES)
+          .build(
+              CacheLoader.from(
+                  synonym -> NGramProfile.create(removeIllegalCharWithSingleWhiteSpace(synonym))));
+
   public SortaServiceImpl(
       DataService dataService,
+      SearchService searchService,
       InformationContentService informationContentService,
       OntologyTermHitMetaData ontologyTermHitMetaData,
       OntologyTermSynonymFactory ontologyTermSynonymFactory) {
     this.dataService = requireNonNull(dataService);
+    this.searchService = requireNonNull(searchService);
     this.informationContentService = requireNonNull(informationContentService);
     this.ontologyTermHitMetaData = requireNonNull(ontologyTermHitMetaData);
     this.ontologyTermSynonymFactory = requireNonNull(ontologyTermSynonymFactory);
@@ -101,10 +126,7 @@ public class SortaServiceImpl implements SortaService {
 
   @Override
   public Iterable<Entity> findOntologyTermEntities(String ontologyIri, Entity inputEntity) {
-    Entity ontologyEntity = getOntologyEntity(ontologyIri);
-    if (ontologyEntity == null)
-      throw new IllegalArgumentException(
-          "Ontology IRI " + ontologyIri + " does not exist in the database!");
+    Entity ontologyEntity = getExistingOntologyEntity(ontologyIri);
 
     // a list to store most relevant entities
     List<Entity> relevantEntities = new ArrayList<>();
@@ -115,6 +137,161 @@ public class SortaServiceImpl implements SortaService {
 
     List<QueryRule> rulesForOntologyTermFieldsNGram = new ArrayList<>();
 
+    createQueryRules(
+        inputEntity,
+        rulesForOtherFields,
+        rulesForOntologyTermFields,
+        rulesForOntologyTermFieldsNGram);
+
+    // Find the ontology terms that have the same annotations as the input ontology annotations
+    if (!rulesForOtherFields.isEmpty()) {
+      annotationMatchOntologyTerms(
+          inputEntity, ontologyEntity, relevantEntities, rulesForOtherFields);
+    }
+
+    // Find the ontology terms based on the lexical similarities
+    if (!rulesForOntologyTermFields.isEmpty()) {
+      int pageSize = MAX_NUMBER_MATCHES - relevantEntities.size();
+      lexicalMatchOntologyTerms(
+          ontologyIri,
+          inputEntity,
+          ontologyEntity,
+          pageSize,
+          rulesForOntologyTermFields,
+          relevantEntities);
+    }
+
+    if (!rulesForOntologyTermFieldsNGram.isEmpty()) {
+      lexicalMatchOntologyTerms(
+          ontologyIri,
+          inputEntity,
+          ontologyEntity,
+          NUMBER_NGRAM_MATCHES,
+          rulesForOntologyTermFieldsNGram,
+          relevantEntities);
+    }
+
+    sortByCombinedScore(relevantEntities);
+    return relevantEntities;
+  }
+
+  /**
+   * Executes the lexical matching queries of all input entities in a single search request and
+   * retrieves the matched ontology terms at once, instead of querying per input entity.
+   */
+  @Override
+  public List<Iterable<Entity>> findOntologyTermEntities(
+      String ontologyIri, List<Entity> inputEntities) {
+    Entity ontologyEntity = getExistingOntologyEntity(ontologyIri);
+
+    List<List<Entity>> relevantEntitiesList = new ArrayList<>(inputEntities.size());
+    List<Query<Entity>> lexicalMatchQueries = new ArrayList<>();
+    // index of the input entity for each lexical match query
+    List<Integer> lexicalMatchQueryInputIndexes = new ArrayList<>();
+
+    for (int i = 0; i < inputEntities.size(); i++) {
+      Entity inputEntity = inputEntities.get(i);
+      List<Entity> relevantEntities = new ArrayList<>();
+      List<QueryRule> rulesForOtherFields = new ArrayList<>();
+      List<QueryRule> rulesForOntologyTermFields = new ArrayList<>();
+      List<QueryRule> rulesForOntologyTermFieldsNGram = new ArrayList<>();
+
+      createQueryRules(
+          inputEntity,
+          rulesForOtherFields,
+          rulesForOntologyTermFields,
+          rulesForOntologyTermFieldsNGram);
+
+      if (!rulesForOtherFields.isEmpty()) {
+        annotationMatchOntologyTerms(
+            inputEntity, ontologyEntity, relevantEntities, rulesForOtherFields);
+      }
+
+      int pageSize = MAX_NUMBER_MATCHES - relevantEntities.size();
+      if (!rulesForOntologyTermFields.isEmpty() && pageSize > 0) {
+        lexicalMatchQueries.add(
+            createLexicalMatchQuery(ontologyEntity, pageSize, rulesForOntologyTermFields));
+        lexicalMatchQueryInputIndexes.add(i);
+      }
+      if (!rulesForOntologyTermFieldsNGram.isEmpty()) {
+        lexicalMatchQueries.add(
+            createLexicalMatchQuery(
+                ontologyEntity, NUMBER_NGRAM_MATCHES, rulesForOntologyTermFieldsNGram));
+        lexicalMatchQueryInputIndexes.add(i);
+      }
+      relevantEntitiesList.add(relevantEntities);
+    }
+
+    if (!lexicalMatchQueries.isEmpty()) {
+      List<List<Object>> matchedIdsList =
+          searchService.multiSearch(
+              dataService.getEntityType(ONTOLOGY_TERM), lexicalMatchQueries);
+      Map<Object, Entity> ontologyTerms = findOntologyTermsById(matchedIdsList);
+
+      for (int i = 0; i < matchedIdsList.size(); i++) {
+        int inputIndex = lexicalMatchQueryInputIndexes.get(i);
+        Entity inputEntity = inputEntities.get(inputIndex);
+        List<Entity> relevantEntities = relevantEntitiesList.get(inputIndex);
+        for (Object matchedId : matchedIdsList.get(i)) {
+          // ontology terms that are not readable are not returned
+          Entity ontologyTerm = ontologyTerms.get(matchedId);
+          if (ontologyTerm != null) {
+            addRelevantEntity(
+                relevantEntities,
+                addLexicalScoreToMatchedEntity(inputEntity, ontologyTerm, ontologyIri));
+          }
+        }
+      }
+    }
+
+    List<Iterable<Entity>> results = new ArrayList<>(relevantEntitiesList.size());
+    for (List<Entity> relevantEntities : relevantEntitiesList) {
+      sortByCombinedScore(relevantEntities);
+      results.add(relevantEntities);
+    }
+    return results;
+  }
+
+  private Entity getExistingOntologyEntity(String ontologyIri) {
+    Entity ontologyEntity = getOntologyEntity(ontologyIri);
+    if (ontologyEntity == null)
+      throw new IllegalArgumentException(
+          "Ontology IRI " + ontologyIri + " does not exist in the database!");
+    return ontologyEntity;
+  }
+
+  private Map<Object, Entity> findOntologyTermsById(List<List<Object>> idsList) {
+    Set<Object> ids = new LinkedHashSet<>();
+    idsList.forEach(ids::addAll);
+    if (ids.isEmpty()) {
+      return emptyMap();
+    }
+    return dataService
+        .findAll(ONTOLOGY_TERM, ids.stream())
+        .collect(toMap(Entity::getIdValue, identity()));
+  }
+
+  private static void sortByCombinedScore(List<Entity> relevantEntities) {
+    relevantEntities.sort(
+        (entity1, entity2) ->
+            entity2.getDouble(COMBINED_SCORE).compareTo(entity1.getDouble(COMBINED_SCORE)));
+  }
+
+  private static void addRelevantEntity(List<Entity> relevantEntities, Entity matchedEntity) {
+    if (!relevantEntities.contains(matchedEntity)) {
+      relevantEntities.add(matchedEntity);
+    }
+  }
+
+  /**
+   * Creates the query rules for the ontology annotations, the lexical match and the n-gram match of
+   * an input entity.
+   */
+  private void createQueryRules(
+      Entity inputEntity,
+      List<QueryRule> rulesForOtherFields,
+      List<QueryRule> rulesForOntologyTermFields,
+      List<QueryRule> rulesForOntologyTermFieldsNGram) {
     for (String attributeName : inputEntity.getAttributeNames()) {
       if (StringUtils.isNotEmpty(inputEntity.getString(attributeName))
           && !attributeName.equalsIgnoreCase(DEFAULT_MATCHING_IDENTIFIER)) {
@@ -152,40 +329,6 @@ public class SortaServiceImpl implements SortaService {
         }
       }
     }
-
-    // Find the ontology terms that have the same annotations as the input ontology annotations
-    if (!rulesForOtherFields.isEmpty()) {
-      annotationMatchOntologyTerms(
-          inputEntity, ontologyEntity, relevantEntities, rulesForOtherFields);
-    }
-
-    // Find the ontology terms based on the lexical similarities
-    if (!rulesForOntologyTermFields.isEmpty()) {
-      int pageSize = MAX_NUMBER_MATCHES - relevantEntities.size();
-      lexicalMatchOntologyTerms(
-          ontologyIri,
-          inputEntity,
-          ontologyEntity,
-          pageSize,
-          rulesForOntologyTermFields,
-          relevantEntities);
-    }
-
-    if (!rulesForOntologyTermFieldsNGram.isEmpty()) {
-      lexicalMatchOntologyTerms(
-          ontologyIri,
-          inputEntity,
-          ontologyEntity,
-          NUMBER_NGRAM_MATCHES,
-          rulesForOntologyTermFieldsNGram,
-          relevantEntities);
-    }
-
-    relevantEntities.sort(
-        (entity1, entity2) ->
-            entity2.getDouble(COMBINED_SCORE).compareTo(entity1.getDouble(COMBINED_SCORE)));
-
-    return relevantEntities;
   }
 
   private void annotationMatchOntologyTerms(
@@ -231,18 +374,11 @@ public class SortaServiceImpl implements SortaService {
       int pageSize,
       List<QueryRule> rulesForOntologyTermFields,
       List<Entity> relevantEntities) {
-    QueryRule disMaxQueryRule = new QueryRule(rulesForOntologyTermFields);
-    disMaxQueryRule.setOperator(DIS_MAX);
-
-    List<QueryRule> finalQueryRules =
-        Arrays.asList(
-            new QueryRule(OntologyTermMetadata.ONTOLOGY, EQUALS, ontologyEntity),
-            new QueryRule(AND),
-            disMaxQueryRule);
-
     Stream<Entity> lexicalMatchedOntologyTermEntities =
         dataService
-            .findAll(ONTOLOGY_TERM, new QueryImpl<>(finalQueryRules).pageSize(pageSize))
+            .findAll(
+                ONTOLOGY_TERM,
+                createLexicalMatchQuery(ontologyEntity, pageSize, rulesForOntologyTermFields))
             .map(
                 ontologyTerm ->
                     addLexicalScoreToMatchedEntity(
@@ -251,11 +387,20 @@ public class SortaServiceImpl implements SortaService {
                         ontologyIri)); // TODO use findAll(ONTOLOGY_TERM, ..., OntologyTerm.class)
 
     lexicalMatchedOntologyTermEntities.forEach(
-        matchedEntity -> {
-          if (!relevantEntities.contains(matchedEntity)) {
-            relevantEntities.add(matchedEntity);
-          }
-        });
+        matchedEntity -> addRelevantEntity(relevantEntities, matchedEntity));
+  }
+
+  private Query<Entity> createLexicalMatchQuery(
+      Entity ontologyEntity, int pageSize, List<QueryRule> rulesForOntologyTermFields) {
+    QueryRule disMaxQueryRule = new QueryRule(rulesForOntologyTermFields);
+    disMaxQueryRule.setOperator(DIS_MAX);
+
+    List<QueryRule> finalQueryRules =
+        Arrays.asList(
+            new QueryRule(OntologyTermMetadata.ONTOLOGY, EQUALS, ontologyEntity),
+            new QueryRule(AND),
+            disMaxQueryRule);
+    return new QueryImpl<>(finalQueryRules).pageSize(pageSize);
   }
 
   Entity addLexicalScoreToMatchedEntity(
@@ -322,6 +467,7 @@ public class SortaServiceImpl implements SortaService {
         ontologyTermEntity.getEntities(OntologyTermMetadata.ONTOLOGY_TERM_SYNONYM);
     if (Iterables.size(entities) > 0) {
       String cleanedQueryString = removeIllegalCharWithSingleWhiteSpace(queryString);
+      NGramProfile queryProfile = NGramProfile.create(cleanedQueryString);
 
       // Calculate the Ngram silmiarity score for all the synonyms and sort them in descending order
       List<Entity> synonymEntities =
@@ -331,13 +477,11 @@ public class SortaServiceImpl implements SortaService {
                     Entity mapEntity = ontologyTermSynonymFactory.create();
                     mapEntity.set(ontologyTermSynonymEntity);
                     String ontologyTermSynonym =
-                        removeIllegalCharWithSingleWhiteSpace(
-                            ontologyTermSynonymEntity.getString(
-                                OntologyTermSynonymMetadata.ONTOLOGY_TERM_SYNONYM_ATTR));
+                        ontologyTermSynonymEntity.getString(
+                            OntologyTermSynonymMetadata.ONTOLOGY_TERM_SYNONYM_ATTR);
                     mapEntity.set(
                         SCORE,
-                        NGramDistanceAlgorithm.stringMatching(
-                            cleanedQueryString, ontologyTermSynonym));
+                        queryProfile.score(synonymProfiles.getUnchecked(ontologyTermSynonym)));
                     return mapEntity;
                   })
               .toSortedList(
@@ -384,9 +528,9 @@ public class SortaServiceImpl implements SortaService {
             .append(nextMatchedSynonym);
 
         double newScore =
-            NGramDistanceAlgorithm.stringMatching(
-                cleanedQueryString,
-                removeIllegalCharWithSingleWhiteSpace(tempCombinedSynonym.toString()));
+            queryProfile.score(
+                NGramProfile.create(
+                    removeIllegalCharWithSingleWhiteSpace(tempCombinedSynonym.toString())));
 
         if (newScore > topNgramScore) {
           topNgramScore = newScore;
@@ -0,0 +1,234 @@
+package org.molgenis.ontology.sorta.job;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.populate.IdGenerator;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.jobs.Progress;
+import org.molgenis.ontology.sorta.controller.SortaController;
+import org.molgenis.ontology.sorta.meta.MatchingTaskContentMetaData;
+import org.molgenis.ontology.sorta.service.SortaService;
+import org.molgenis.test.AbstractMockitoTest;
+import org.molgenis.util.ApplicationContextProvider;
+import org.molgenis.web.menu.MenuReaderService;
+import org.springframework.context.ApplicationContext;
+
+class SortaJobProcessorTest extends AbstractMockitoTest {
+  private static final String ONTOLOGY_IRI = "http://www.molgenis.org/";
+  private static final String INPUT_REPOSITORY_NAME = "input";
+  private static final String RESULT_REPOSITORY_NAME = "result";
+
+  @Mock private DataService dataService;
+  @Mock private SortaService sortaService;
+  @Mock private IdGenerator idGenerator;
+  @Mock private MenuReaderService menuReaderService;
+  @Mock private ApplicationContext applicationContext;
+  @Mock private MatchingTaskContentMetaData matchingTaskContentMetaData;
+  @Mock private Progress progress;
+
+  private SortaJobProcessor sortaJobProcessor;
+
+  @BeforeEach
+  void setUpBeforeEach() {
+    new ApplicationContextProvider().setApplicationContext(applicationContext);
+    sortaJobProcessor =
+        new SortaJobProcessor(dataService, sortaService, idGenerator, menuReaderService, 4);
+  }
+
+  @AfterEach
+  void tearDownAfterEach() {
+    sortaJobProcessor.preDestroy();
+    new ApplicationContextProvider().setApplicationContext(null);
+  }
+
+  @Test
+  void testSortaJobProcessorInvalidNrThreads() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new SortaJobProcessor(dataService, sortaService, idGenerator, menuReaderService, 0));
+  }
+
+  @Test
+  void testProcessAddsResultsInInputOrder() {
+    List<Entity> inputRows = createInputRows(150);
+    when(menuReaderService.findMenuItemPath(SortaController.ID)).thenReturn("/menu/sorta");
+
+    // the first batch finishes after the other batches
+    CountDownLatch otherBatchesMatched = new CountDownLatch(2);
+    when(sortaService.findOntologyTermEntities(eq(ONTOLOGY_IRI), anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Entity> batch = invocation.getArgument(1);
+              if (batch.get(0) == inputRows.get(0)) {
+                assertTrue(otherBatchesMatched.await(10, SECONDS));
+              } else {
+                otherBatchesMatched.countDown();
+              }
+              return noMatches(batch);
+            });
+    List<List<Entity>> addedBatches = captureAddedBatches();
+
+    sortaJobProcessor.process(
+        ONTOLOGY_IRI, INPUT_REPOSITORY_NAME, RESULT_REPOSITORY_NAME, progress);
+
+    assertEquals(1, addedBatches.size());
+    assertEquals(
+        inputRows,
+        addedBatches.get(0).stream()
+            .map(entity -> entity.getEntity(MatchingTaskContentMetaData.INPUT_TERM))
+            .collect(toList()));
+  }
+
+  @Test
+  void testProcessAddsResultsInBatches() {
+    createInputRows(2500);
+    when(menuReaderService.findMenuItemPath(SortaController.ID)).thenReturn("/menu/sorta");
+    when(sortaService.findOntologyTermEntities(eq(ONTOLOGY_IRI), anyList()))
+        .thenAnswer(invocation -> noMatches(invocation.getArgument(1)));
+    List<List<Entity>> addedBatches = captureAddedBatches();
+
+    sortaJobProcessor.process(
+        ONTOLOGY_IRI, INPUT_REPOSITORY_NAME, RESULT_REPOSITORY_NAME, progress);
+
+    assertEquals(
+        List.of(1000, 1000, 500), addedBatches.stream().map(List::size).collect(toList()));
+    verify(sortaService, times(50)).findOntologyTermEntities(eq(ONTOLOGY_IRI), anyList());
+  }
+
+  @Test
+  void testProcessProgress() {
+    createInputRows(120);
+    when(menuReaderService.findMenuItemPath(SortaController.ID)).thenReturn("/menu/sorta");
+    when(sortaService.findOntologyTermEntities(eq(ONTOLOGY_IRI), anyList()))
+        .thenAnswer(invocation -> noMatches(invocation.getArgument(1)));
+
+    sortaJobProcessor.process(
+        ONTOLOGY_IRI, INPUT_REPOSITORY_NAME, RESULT_REPOSITORY_NAME, progress);
+
+    InOrder inOrder = inOrder(progress);
+    inOrder
+        .verify(progress)
+        .status("Matching 120 input terms from input.\nStoring results in result");
+    inOrder.verify(progress).setProgressMax(120);
+    inOrder.verify(progress).progress(50, "Processed 50 input terms.");
+    inOrder.verify(progress).progress(100, "Processed 100 input terms.");
+    inOrder.verify(progress, times(2)).progress(120, "Processed 120 input terms.");
+    inOrder.verify(progress).setResultUrl("/menu/sorta/result/result");
+  }
+
+  @Test
+  void testProcessMatchingFailureCancelsBatchesInFlight() throws InterruptedException {
+    List<Entity> inputRows = createInputRows(100);
+
+    CountDownLatch secondBatchStarted = new CountDownLatch(1);
+    CountDownLatch secondBatchInterrupted = new CountDownLatch(1);
+    when(sortaService.findOntologyTermEntities(eq(ONTOLOGY_IRI), anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Entity> batch = invocation.getArgument(1);
+              if (batch.get(0) == inputRows.get(0)) {
+                assertTrue(secondBatchStarted.await(10, SECONDS));
+                throw new IllegalStateException("matching failed");
+              }
+              secondBatchStarted.countDown();
+              try {
+                new CountDownLatch(1).await(10, SECONDS);
+              } catch (InterruptedException e) {
+                secondBatchInterrupted.countDown();
+              }
+              return noMatches(batch);
+            });
+
+    Exception exception =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                sortaJobProcessor.process(
+                    ONTOLOGY_IRI, INPUT_REPOSITORY_NAME, RESULT_REPOSITORY_NAME, progress));
+    assertEquals("matching failed", exception.getMessage());
+    assertTrue(secondBatchInterrupted.await(10, SECONDS));
+    verify(dataService, never()).add(anyString(), any(Stream.class));
+    verify(progress, never()).setResultUrl(anyString());
+  }
+
+  @Test
+  void testProcessCountResetsBetweenJobs() {
+    createInputRows(100);
+    when(menuReaderService.findMenuItemPath(SortaController.ID)).thenReturn("/menu/sorta");
+    when(sortaService.findOntologyTermEntities(eq(ONTOLOGY_IRI), anyList()))
+        .thenAnswer(invocation -> noMatches(invocation.getArgument(1)));
+    Progress otherProgress = mock(Progress.class);
+
+    sortaJobProcessor.process(
+        ONTOLOGY_IRI, INPUT_REPOSITORY_NAME, RESULT_REPOSITORY_NAME, progress);
+    sortaJobProcessor.process(
+        ONTOLOGY_IRI, INPUT_REPOSITORY_NAME, RESULT_REPOSITORY_NAME, otherProgress);
+
+    InOrder inOrder = inOrder(otherProgress);
+    inOrder.verify(otherProgress).progress(50, "Processed 50 input terms.");
+    inOrder.verify(otherProgress, times(2)).progress(100, "Processed 100 input terms.");
+    verify(otherProgress, times(3)).progress(anyInt(), anyString());
+  }
+
+  private List<Entity> createInputRows(int nrInputRows) {
+    List<Entity> inputRows =
+        IntStream.range(0, nrInputRows).mapToObj(i -> mock(Entity.class)).collect(toList());
+    when(applicationContext.getBean(MatchingTaskContentMetaData.class))
+        .thenReturn(matchingTaskContentMetaData);
+    when(dataService.count(INPUT_REPOSITORY_NAME, new QueryImpl<>()))
+        .thenReturn((long) nrInputRows);
+    when(dataService.findAll(INPUT_REPOSITORY_NAME)).thenAnswer(invocation -> inputRows.stream());
+    return inputRows;
+  }
+
+  /** Collects the added entities when they are added, since the job reuses the added list. */
+  @SuppressWarnings("unchecked")
+  private List<List<Entity>> captureAddedBatches() {
+    List<List<Entity>> addedBatches = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              Stream<Entity> entities = invocation.getArgument(1);
+              List<Entity> batch = entities.collect(toList());
+              addedBatches.add(batch);
+              return batch.size();
+            })
+        .when(dataService)
+        .add(eq(RESULT_REPOSITORY_NAME), any(Stream.class));
+    return addedBatches;
+  }
+
+  private static List<Iterable<Entity>> noMatches(List<Entity> batch) {
+    List<Iterable<Entity>> matches = new ArrayList<>(batch.size());
+    batch.forEach(inputRow -> matches.add(emptyList()));
+    return matches;
+  }
+}
@@ -3,8 +3,13 @@ package org.molgenis.ontology.sorta.services;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.QueryRule.Operator.AND;
 import static org.molgenis.data.QueryRule.Operator.DIS_MAX;
@@ -26,12 +31,15 @@ import java.util.List;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
+import org.molgenis.data.index.SearchService;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.DynamicEntity;
@@ -66,6 +74,8 @@ class SortaServiceImplTest extends AbstractMolgenisSpringTest {
 
   @Autowired private DataService dataService;
 
+  @Autowired private SearchService searchService;
+
   @Autowired private OntologyFactory ontologyFactory;
 
   @Autowired private OntologyTermFactory ontologyTermFactory;
@@ -74,6 +84,10 @@ class SortaServiceImplTest extends AbstractMolgenisSpringTest {
 
   @Autowired private OntologyTermDynamicAnnotationFactory ontologyTermDynamicAnnotationFactory;
 
+  private OntologyTerm ontologyTerm0;
+  private OntologyTerm ontologyTerm1;
+  private OntologyTerm ontologyTermEntity_4;
+
   @BeforeEach
   void beforeMethod() {
     // Mock ontology entity
@@ -111,7 +125,7 @@ class SortaServiceImplTest extends AbstractMolgenisSpringTest {
     OntologyTermSynonym ontologyTermSynonym0 = ontologyTermSynonymFactory.create();
     ontologyTermSynonym0.setOntologyTermSynonym("hearing impairment");
 
-    OntologyTerm ontologyTerm0 = ontologyTermFactory.create();
+    ontologyTerm0 = ontologyTermFactory.create();
     ontologyTerm0.setId("1");
     ontologyTerm0.setOntology(ontology);
     ontologyTerm0.setOntologyTermName("hearing impairment");
@@ -123,7 +137,7 @@ class SortaServiceImplTest extends AbstractMolgenisSpringTest {
     OntologyTermSynonym ontologyTermSynonym1 = ontologyTermSynonymFactory.create();
     ontologyTermSynonym1.setOntologyTermSynonym("mixed hearing impairment");
 
-    OntologyTerm ontologyTerm1 = ontologyTermFactory.create();
+    ontologyTerm1 = ontologyTermFactory.create();
     ontologyTerm1.setId("2");
     ontologyTerm1.setOntology(ontology);
     ontologyTerm1.setOntologyTermName("mixed hearing impairment");
@@ -283,7 +297,7 @@ class SortaServiceImplTest extends AbstractMolgenisSpringTest {
     ontologyTermSynonym_4_3.setOntologyTermSynonym("Exophthalmos");
 
     // Mock ontologyTerm entity based on the previous entities defined
-    OntologyTerm ontologyTermEntity_4 = ontologyTermFactory.create();
+    ontologyTermEntity_4 = ontologyTermFactory.create();
     ontologyTermEntity_4.setId("4");
     ontologyTermEntity_4.setOntology(ontology);
     ontologyTermEntity_4.setOntologyTermName("protruding eye");
@@ -395,6 +409,49 @@ class SortaServiceImplTest extends AbstractMolgenisSpringTest {
     assertEquals(false, iterator_test3.hasNext());
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  void findOntologyTermEntitiesBatch() {
+    Attribute nameAttr = when(mock(Attribute.class).getName()).thenReturn("Name").getMock();
+    when(nameAttr.getDataType()).thenReturn(STRING);
+
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(nameAttr));
+    when(entityType.getAttribute("Name")).thenReturn(nameAttr);
+
+    Entity firstInput = new DynamicEntity(entityType);
+    firstInput.set("Name", "hearing impairment");
+    Entity secondInput = new DynamicEntity(entityType);
+    secondInput.set("Name", "proptosis, protruding eye, Exophthalmos ");
+
+    EntityType ontologyTermEntityType = mock(EntityType.class);
+    when(dataService.getEntityType(ONTOLOGY_TERM)).thenReturn(ontologyTermEntityType);
+    when(searchService.multiSearch(eq(ontologyTermEntityType), any(List.class)))
+        .thenReturn(
+            asList(asList("1", "2"), asList("2", "1"), singletonList("4"), singletonList("4")));
+    when(dataService.findAll(eq(ONTOLOGY_TERM), any(Stream.class)))
+        .thenReturn(Stream.of(ontologyTerm0, ontologyTerm1, ontologyTermEntity_4));
+
+    List<Iterable<Entity>> ontologyTerms =
+        sortaServiceImpl.findOntologyTermEntities(ONTOLOGY_IRI, asList(firstInput, secondInput));
+
+    assertEquals(2, ontologyTerms.size());
+    Iterator<Entity> firstIterator = ontologyTerms.get(0).iterator();
+    assertEquals(100, firstIterator.next().getDouble(COMBINED_SCORE).intValue());
+    assertEquals(85, firstIterator.next().getDouble(COMBINED_SCORE).intValue());
+    assertFalse(firstIterator.hasNext());
+
+    Iterator<Entity> secondIterator = ontologyTerms.get(1).iterator();
+    assertEquals(100, secondIterator.next().getDouble(COMBINED_SCORE).intValue());
+    assertFalse(secondIterator.hasNext());
+
+    ArgumentCaptor<List<Query<Entity>>> queriesCaptor = ArgumentCaptor.forClass(List.class);
+    verify(searchService).multiSearch(eq(ontologyTermEntityType), queriesCaptor.capture());
+    assertEquals(
+        asList(50, 10, 50, 10),
+        queriesCaptor.getValue().stream().map(Query::getPageSize).collect(toList()));
+  }
+
   @Test
   void getAllOntologyEntities() {
     Iterable<Entity> allOntologyEntities = sortaServiceImpl.getAllOntologyEntities();
@@ -442,10 +499,16 @@ class SortaServiceImplTest extends AbstractMolgenisSpringTest {
       return mock(InformationContentService.class);
     }
 
+    @Bean
+    SearchService searchService() {
+      return mock(SearchService.class);
+    }
+
     @Bean
     SortaServiceImpl sortaServiceImpl() {
       return new SortaServiceImpl(
           dataService,
+          searchService(),
           informationContentService(),
           ontologyTermHitMetaData,
           ontologyTermSynonymFactory);
@@ -8,6 +8,7 @@ import org.molgenis.jobs.model.ScheduledJobTypeFactory;
 import org.molgenis.jobs.model.ScheduledJobTypeMetadata;
 import org.molgenis.jobs.schedule.JobScheduler;
 import org.molgenis.jobs.scheduler.SchedulerConfig;
+import org.molgenis.settings.SettingsSnapshotCache;
 import org.molgenis.settings.mail.JavaMailPropertyType;
 import org.molgenis.settings.mail.MailPackage;
 import org.molgenis.settings.mail.MailSettingsImpl;
@@ -26,6 +27,7 @@ import org.springframework.context.annotation.Import;
   JobExecutionUpdaterImpl.class,
   MailSenderImpl.class,
   MailSettingsImpl.class,
+  SettingsSnapshotCache.class,
   JavaMailSenderFactory.class,
   JobScheduler.class,
   JobFactoryRegistrar.class,
@@ -22,6 +22,7 @@ import org.molgenis.security.settings.AuthenticationSettingsImpl;
 import org.molgenis.security.token.DataServiceTokenService;
 import org.molgenis.security.token.TokenGenerator;
 import org.molgenis.security.user.UserAccountServiceImpl;
+import org.molgenis.settings.SettingsSnapshotCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -52,6 +53,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
   RoleHierarchyAuthoritiesMapper.class,
   RoleMetadata.class,
   AuthenticationSettingsImpl.class,
+  SettingsSnapshotCache.class,
   PrincipalSecurityContextRegistryImpl.class,
   SecurityContextRegistryImpl.class,
   AuthenticationAuthoritiesUpdaterImpl.class
@@ -6,6 +6,7 @@ import org.molgenis.settings.PropertyType;
 import org.molgenis.settings.SettingsEntityType;
 import org.molgenis.settings.SettingsPackage;
 import org.molgenis.settings.SettingsPopulator;
+import org.molgenis.settings.SettingsSnapshotCache;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
@@ -15,6 +16,7 @@ import org.springframework.context.annotation.Import;
   SettingsPackage.class,
   SettingsPopulator.class,
   SettingsEntityType.class,
+  SettingsSnapshotCache.class,
   PropertyType.class,
   MenuManagerServiceImpl.class
 })
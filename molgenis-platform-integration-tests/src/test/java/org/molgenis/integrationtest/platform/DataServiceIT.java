@@ -40,6 +40,7 @@ import static org.molgenis.data.util.MolgenisDateFormat.parseInstant;
 import static org.molgenis.data.util.MolgenisDateFormat.parseLocalDate;
 import static org.molgenis.integrationtest.utils.AbstractMolgenisIntegrationTests.cleanupUserPermissions;
 import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
+import static org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED;
 
 import java.time.Instant;
 import java.time.LocalDate;
@@ -83,6 +84,7 @@ import org.molgenis.data.staticentity.TestEntityStaticMetaData;
 import org.molgenis.data.staticentity.TestRefEntityStaticMetaData;
 import org.molgenis.data.support.AggregateQueryImpl;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.QueryCursors;
 import org.molgenis.data.util.EntityUtils;
 import org.molgenis.security.core.PermissionSet;
 import org.molgenis.security.core.SidUtils;
@@ -992,6 +994,30 @@ public class DataServiceIT extends AbstractMockitoSpringContextTests {
     assertEquals(0, dataService.count(entityType.getId()));
   }
 
+  /**
+   * Unpaged query results are consumed after the read-only transaction of the data service
+   * completed, so they must not be streamed from a cursor that is closed on transaction completion.
+   */
+  @WithMockUser(username = USERNAME_READ)
+  @Test
+  @Order(56)
+  @Transactional(propagation = NOT_SUPPORTED)
+  public void testFindAllOutsideTransaction() {
+    List<Object> ids =
+        dataService.findAll(refEntityType.getId()).map(Entity::getIdValue).collect(toList());
+    assertEquals(refEntities.stream().map(Entity::getIdValue).collect(toList()), ids);
+  }
+
+  @WithMockUser(username = USERNAME_READ)
+  @Test
+  @Order(57)
+  public void testFindAllCursorInTransaction() {
+    QueryCursors.allowInCurrentTransaction();
+    List<Object> ids =
+        dataService.findAll(refEntityType.getId()).map(Entity::getIdValue).collect(toList());
+    assertEquals(refEntities.stream().map(Entity::getIdValue).collect(toList()), ids);
+  }
+
   private static void populate(ApplicationContext applicationContext) {
     populateData(applicationContext);
     populateDataPermissions(applicationContext);
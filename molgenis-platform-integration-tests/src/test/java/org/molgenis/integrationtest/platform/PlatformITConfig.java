@@ -15,6 +15,7 @@ import org.molgenis.data.postgresql.DatabaseConfig;
 import org.molgenis.data.postgresql.PostgreSqlConfiguration;
 import org.molgenis.data.postgresql.identifier.EntityTypeRegistryPopulator;
 import org.molgenis.data.security.GroupPackageServiceImpl;
+import org.molgenis.data.security.MetaDataReadPermissionCheckerImpl;
 import org.molgenis.data.security.SessionSecurityContextUpdaterImpl;
 import org.molgenis.data.security.SystemEntityTypeRegistryImpl;
 import org.molgenis.data.security.auth.GroupPackageService;
@@ -30,6 +31,7 @@ import org.molgenis.jobs.JobExecutionConfig;
 import org.molgenis.jobs.JobFactoryRegistrar;
 import org.molgenis.ontology.core.config.OntologyConfig;
 import org.molgenis.ontology.core.config.OntologyTestConfig;
+import org.molgenis.ontology.core.repository.OntologyHierarchyIndexCache;
 import org.molgenis.security.acl.AclConfig;
 import org.molgenis.security.acl.DataSourceAclTablesPopulator;
 import org.molgenis.security.acl.MutableAclClassServiceImpl;
@@ -132,9 +134,11 @@ in org.molgenis.data and subpackages from included modules
   SystemRepositoryDecoratorFactoryRegistrar.class,
   SemanticSearchConfig.class,
   OntologyConfig.class,
+  OntologyHierarchyIndexCache.class,
   JobExecutionConfig.class,
   JobFactoryRegistrar.class,
   SystemEntityTypeRegistryImpl.class,
+  MetaDataReadPermissionCheckerImpl.class,
   ScriptTestConfig.class,
   RoleHierarchyTestConfig.class,
   AclConfig.class,
@@ -60,4 +60,17 @@ public interface ObjectIdentityService {
    *     sids have one or more permissions on.
    */
   public List<ObjectIdentity> getObjectIdentities(String typeId, Set<Sid> sids);
+
+  /**
+   * Get the identifiers of the object identities of a type on which a list of sids is granted a
+   * permission. For each object identity the first entry of the first sid with an entry matching
+   * the permission mask decides whether the permission is granted, similar to {@code
+   * BitMaskPermissionGrantingStrategy}. Entries inherited from parent object identities are not
+   * taken into account.
+   *
+   * @param typeId the identifier for the type/class for of the requested objectIdentities.
+   * @param sids the sids {@link Sid} in order of precedence.
+   * @param mask the permission mask, an entry matches if it shares a bit with this mask.
+   */
+  Set<String> getGrantedObjectIdentifiers(String typeId, List<Sid> sids, int mask);
 }
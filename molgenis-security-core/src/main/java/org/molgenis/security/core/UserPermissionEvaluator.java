@@ -1,6 +1,7 @@
 package org.molgenis.security.core;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import org.springframework.security.acls.model.ObjectIdentity;
 
@@ -31,4 +32,16 @@ public interface UserPermissionEvaluator {
   boolean hasPermission(ObjectIdentity objectIdentity, List<Permission> permissions);
 
   Set<Permission> getPermissions(ObjectIdentity objectIdentity, Permission[] permissions);
+
+  /**
+   * Returns the identifiers of the domain objects of a type on which the currently authenticated
+   * user has a given {@link Permission}, as granted by the access control entries of the objects.
+   *
+   * @param type domain object type
+   * @param permission the {@link Permission} to check.
+   * @return identifiers of the domain objects on which the permission is granted or an empty
+   *     optional if the current user is a superuser or the system user, who have permission on all
+   *     domain objects
+   */
+  Optional<Set<String>> getPermittedObjectIdentifiers(String type, Permission permission);
 }
@@ -1,9 +1,12 @@
 package org.molgenis.security.acl;
 
+import static java.util.Collections.emptySet;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,6 +28,15 @@ public class ObjectIdentityServiceImpl implements ObjectIdentityService {
       "SELECT DISTINCT acl_object_identity.object_id_identity, acl_class.class"
           + " FROM acl_object_identity LEFT JOIN acl_class ON acl_object_identity.object_id_class = acl_class.id LEFT JOIN acl_entry ON acl_entry.acl_object_identity = acl_object_identity.id LEFT JOIN acl_sid ON acl_entry.sid = acl_sid.id";
 
+  // the first entry of the first sid with an entry matching the mask decides per object identity
+  private static final String SQL_SELECT_GRANTED_OBJECT_IDENTIFIERS =
+      "SELECT object_id_identity FROM ("
+          + "SELECT DISTINCT ON (acl_object_identity.id) acl_object_identity.object_id_identity, acl_entry.granting"
+          + " FROM acl_object_identity JOIN acl_class ON acl_object_identity.object_id_class = acl_class.id JOIN acl_entry ON acl_entry.acl_object_identity = acl_object_identity.id JOIN acl_sid ON acl_entry.sid = acl_sid.id"
+          + " WHERE acl_class.class = :classId AND acl_sid.sid IN (:sids) AND (acl_entry.mask & :mask) <> 0"
+          + " ORDER BY acl_object_identity.id, array_position(ARRAY[:sids]::varchar[], acl_sid.sid), acl_entry.ace_order"
+          + ") AS decisive_entry WHERE granting";
+
   private static final String WHERE_CLASS = " WHERE acl_class.class = :classId";
   private static final String AND_SID = " AND acl_sid.sid IN (:sids)";
   private static final String ORDER_BY = " ORDER BY acl_object_identity.object_id_identity ASC";
@@ -38,6 +50,7 @@ public class ObjectIdentityServiceImpl implements ObjectIdentityService {
   public static final String LIMIT = "limit";
   public static final String OFFSET = "offset";
   public static final String SIDS = "sids";
+  public static final String MASK = "mask";
 
   private JdbcTemplate jdbcTemplate;
   private EntityHelper entityHelper;
@@ -153,7 +166,20 @@ public class ObjectIdentityServiceImpl implements ObjectIdentityService {
     return parseToStringList(result);
   }
 
-  private List<String> getSidIdentifiers(Set<Sid> sids) {
+  @Override
+  public Set<String> getGrantedObjectIdentifiers(String classId, List<Sid> sids, int mask) {
+    if (sids.isEmpty()) {
+      return emptySet();
+    }
+    Map<String, Object> paramMap = new HashMap<>();
+    paramMap.put(SIDS, getSidIdentifiers(sids));
+    paramMap.put(CLASS_ID, classId);
+    paramMap.put(MASK, mask);
+    return new HashSet<>(
+        getTemplate().queryForList(SQL_SELECT_GRANTED_OBJECT_IDENTIFIERS, paramMap, String.class));
+  }
+
+  private List<String> getSidIdentifiers(Collection<Sid> sids) {
     List<String> sidStrings = new ArrayList<>();
     for (Sid sid : sids) {
       sidStrings.add(getSidString(sid));
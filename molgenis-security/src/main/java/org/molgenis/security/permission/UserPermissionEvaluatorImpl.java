@@ -1,11 +1,14 @@
 package org.molgenis.security.permission;
 
+import static java.util.Collections.emptySet;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.molgenis.security.acl.ObjectIdentityService;
 import org.molgenis.security.core.Permission;
 import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.PermissionSet;
@@ -14,6 +17,7 @@ import org.molgenis.security.core.utils.SecurityUtils;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.acls.domain.CumulativePermission;
 import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -22,11 +26,18 @@ import org.springframework.stereotype.Component;
 public class UserPermissionEvaluatorImpl implements UserPermissionEvaluator {
   private final PermissionEvaluator permissionEvaluator;
   private final PermissionRegistry permissionRegistry;
+  private final ObjectIdentityService objectIdentityService;
+  private final SidRetrievalStrategy sidRetrievalStrategy;
 
   UserPermissionEvaluatorImpl(
-      PermissionEvaluator permissionEvaluator, PermissionRegistry permissionRegistry) {
+      PermissionEvaluator permissionEvaluator,
+      PermissionRegistry permissionRegistry,
+      ObjectIdentityService objectIdentityService,
+      SidRetrievalStrategy sidRetrievalStrategy) {
     this.permissionEvaluator = requireNonNull(permissionEvaluator);
     this.permissionRegistry = requireNonNull(permissionRegistry);
+    this.objectIdentityService = requireNonNull(objectIdentityService);
+    this.sidRetrievalStrategy = requireNonNull(sidRetrievalStrategy);
   }
 
   @Override
@@ -56,6 +67,22 @@ public class UserPermissionEvaluatorImpl implements UserPermissionEvaluator {
         .collect(Collectors.toSet());
   }
 
+  @Override
+  public Optional<Set<String>> getPermittedObjectIdentifiers(String type, Permission permission) {
+    if (SecurityUtils.currentUserIsSuOrSystem()) {
+      return Optional.empty();
+    }
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null) {
+      return Optional.of(emptySet());
+    }
+    return Optional.of(
+        objectIdentityService.getGrantedObjectIdentifiers(
+            type,
+            sidRetrievalStrategy.getSids(authentication),
+            getCumulativePermissionToCheck(permission).getMask()));
+  }
+
   private CumulativePermission getCumulativePermissionToCheck(Permission permission) {
     CumulativePermission result = new CumulativePermission();
     Set<PermissionSet> permissionSets = permissionRegistry.getPermissions(permission);
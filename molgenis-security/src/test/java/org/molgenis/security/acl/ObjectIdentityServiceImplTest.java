@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
@@ -189,4 +190,30 @@ class ObjectIdentityServiceImplTest extends AbstractMolgenisSpringTest {
     List<ObjectIdentity> expected = Arrays.asList(identity1, identity2);
     assertEquals(expected, objectIdentityService.getObjectIdentities("classId", singleton(sid)));
   }
+
+  @Test
+  void testGetGrantedObjectIdentifiers() {
+    Map<String, Object> paramMap = new HashMap<>();
+    paramMap.put("classId", "classId");
+    paramMap.put("sids", Arrays.asList("user1", "ROLE_role1"));
+    paramMap.put("mask", 3);
+    doReturn(Arrays.asList("test1", "test2"))
+        .when(jdbcTemplate)
+        .queryForList(
+            "SELECT object_id_identity FROM (SELECT DISTINCT ON (acl_object_identity.id) acl_object_identity.object_id_identity, acl_entry.granting FROM acl_object_identity JOIN acl_class ON acl_object_identity.object_id_class = acl_class.id JOIN acl_entry ON acl_entry.acl_object_identity = acl_object_identity.id JOIN acl_sid ON acl_entry.sid = acl_sid.id WHERE acl_class.class = :classId AND acl_sid.sid IN (:sids) AND (acl_entry.mask & :mask) <> 0 ORDER BY acl_object_identity.id, array_position(ARRAY[:sids]::varchar[], acl_sid.sid), acl_entry.ace_order) AS decisive_entry WHERE granting",
+            paramMap,
+            String.class);
+    List<Sid> sids =
+        Arrays.asList(new PrincipalSid("user1"), new GrantedAuthoritySid("ROLE_role1"));
+    assertEquals(
+        new HashSet<>(Arrays.asList("test1", "test2")),
+        objectIdentityService.getGrantedObjectIdentifiers("classId", sids, 3));
+  }
+
+  @Test
+  void testGetGrantedObjectIdentifiersNoSids() {
+    assertEquals(
+        Collections.emptySet(),
+        objectIdentityService.getGrantedObjectIdentifiers("classId", Collections.emptyList(), 3));
+  }
 }
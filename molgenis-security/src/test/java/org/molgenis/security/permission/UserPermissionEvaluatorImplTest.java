@@ -1,5 +1,9 @@
 package org.molgenis.security.permission;
 
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
@@ -10,6 +14,9 @@ import static org.molgenis.security.core.PermissionSet.WRITE;
 import static org.molgenis.security.core.PermissionSet.WRITEMETA;
 
 import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -17,10 +24,14 @@ import org.molgenis.data.plugin.model.PluginIdentity;
 import org.molgenis.data.plugin.model.PluginPermission;
 import org.molgenis.data.security.EntityTypeIdentity;
 import org.molgenis.data.security.EntityTypePermission;
+import org.molgenis.security.acl.ObjectIdentityService;
 import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.test.AbstractMockitoSpringContextTests;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.acls.domain.CumulativePermission;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.annotation.SecurityTestExecutionListeners;
@@ -32,13 +43,16 @@ import org.springframework.test.context.ContextConfiguration;
 class UserPermissionEvaluatorImplTest extends AbstractMockitoSpringContextTests {
   @Mock private PermissionEvaluator permissionEvaluator;
   @Mock private PermissionRegistry permissionRegistry;
+  @Mock private ObjectIdentityService objectIdentityService;
+  @Mock private SidRetrievalStrategy sidRetrievalStrategy;
 
   private UserPermissionEvaluatorImpl userPermissionEvaluator;
 
   @BeforeEach
   void setUpBeforeMethod() {
     userPermissionEvaluator =
-        new UserPermissionEvaluatorImpl(permissionEvaluator, permissionRegistry);
+        new UserPermissionEvaluatorImpl(
+            permissionEvaluator, permissionRegistry, objectIdentityService, sidRetrievalStrategy);
   }
 
   @WithMockUser(username = "USER")
@@ -196,5 +210,47 @@ class UserPermissionEvaluatorImplTest extends AbstractMockitoSpringContextTests
     assertTrue(userPermissionEvaluator.hasPermission(new PluginIdentity("plugin1"), VIEW_PLUGIN));
   }
 
+  @WithMockUser(username = "USER")
+  @Test
+  void getPermittedObjectIdentifiers() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    List<Sid> sids = singletonList(new PrincipalSid("USER"));
+    when(sidRetrievalStrategy.getSids(authentication)).thenReturn(sids);
+    when(permissionRegistry.getPermissions(VIEW_PLUGIN)).thenReturn(ImmutableSet.of(READ));
+    Set<String> identifiers = singleton("plugin1");
+    when(objectIdentityService.getGrantedObjectIdentifiers("plugin", sids, READ.getMask()))
+        .thenReturn(identifiers);
+    assertEquals(
+        Optional.of(identifiers),
+        userPermissionEvaluator.getPermittedObjectIdentifiers("plugin", VIEW_PLUGIN));
+  }
+
+  @Test
+  void getPermittedObjectIdentifiersUnauthenticated() {
+    assertEquals(
+        Optional.of(emptySet()),
+        userPermissionEvaluator.getPermittedObjectIdentifiers("plugin", VIEW_PLUGIN));
+  }
+
+  @WithMockUser(
+      username = "USER",
+      authorities = {"ROLE_SU"})
+  @Test
+  void getPermittedObjectIdentifiersSuperuser() {
+    assertEquals(
+        Optional.empty(),
+        userPermissionEvaluator.getPermittedObjectIdentifiers("plugin", VIEW_PLUGIN));
+  }
+
+  @WithMockUser(
+      username = "USER",
+      authorities = {"ROLE_SYSTEM"})
+  @Test
+  void getPermittedObjectIdentifiersSystemUser() {
+    assertEquals(
+        Optional.empty(),
+        userPermissionEvaluator.getPermittedObjectIdentifiers("plugin", VIEW_PLUGIN));
+  }
+
   static class Config {}
 }
@@ -13,17 +13,27 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.security.oidc.model.OidcClient;
+import org.molgenis.settings.SettingsSnapshotCache;
 import org.molgenis.test.AbstractMockitoTest;
 
 class AuthenticationSettingsImplTest extends AbstractMockitoTest {
   @Mock private DataService dataService;
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
   private AuthenticationSettingsImpl authenticationSettingsImpl;
 
   @BeforeEach
   void setUpBeforeMethod() {
     authenticationSettingsImpl = new AuthenticationSettingsImpl();
     authenticationSettingsImpl.setDataService(dataService);
+    authenticationSettingsImpl.setSettingsSnapshotCache(
+        new SettingsSnapshotCache(
+            transactionManager, transactionInformation, cacheInvalidationBus));
   }
 
   @Test
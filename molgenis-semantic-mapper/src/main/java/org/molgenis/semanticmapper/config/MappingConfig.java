@@ -7,6 +7,7 @@ import org.molgenis.data.EntityManager;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.populate.IdGenerator;
 import org.molgenis.data.security.permission.PermissionSystemService;
+import org.molgenis.js.graal.GraalScriptEngine;
 import org.molgenis.ontology.core.config.OntologyConfig;
 import org.molgenis.ontology.core.service.OntologyService;
 import org.molgenis.semanticmapper.algorithmgenerator.service.AlgorithmGeneratorService;
@@ -26,6 +27,7 @@ import org.molgenis.semanticmapper.service.impl.AlgorithmTemplateServiceImpl;
 import org.molgenis.semanticmapper.service.impl.MappingServiceImpl;
 import org.molgenis.semanticmapper.service.impl.UnitResolverImpl;
 import org.molgenis.semanticsearch.service.SemanticSearchService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -42,6 +44,8 @@ public class MappingConfig {
   private final AttributeFactory attrMetaFactory;
   private final MappingProjectMetadata mappingProjectMeta;
   private final EntityManager entityManager;
+  private final GraalScriptEngine scriptEngine;
+  private final int mappingThreads;
 
   public MappingConfig(
       PermissionSystemService permissionSystemService,
@@ -52,7 +56,9 @@ public class MappingConfig {
       AttributeMappingMetadata attributeMappingMetaData,
       AttributeFactory attrMetaFactory,
       MappingProjectMetadata mappingProjectMeta,
-      EntityManager entityManager) {
+      EntityManager entityManager,
+      GraalScriptEngine scriptEngine,
+      @Value("${mapping.threads:4}") int mappingThreads) {
     this.permissionSystemService = requireNonNull(permissionSystemService);
     this.dataService = requireNonNull(dataService);
     this.semanticSearchService = requireNonNull(semanticSearchService);
@@ -62,6 +68,8 @@ public class MappingConfig {
     this.attrMetaFactory = requireNonNull(attrMetaFactory);
     this.mappingProjectMeta = requireNonNull(mappingProjectMeta);
     this.entityManager = requireNonNull(entityManager);
+    this.scriptEngine = requireNonNull(scriptEngine);
+    this.mappingThreads = mappingThreads;
   }
 
   @Bean
@@ -72,7 +80,9 @@ public class MappingConfig {
         mappingProjectRepository(),
         permissionSystemService,
         attrMetaFactory,
-        entityManager);
+        entityManager,
+        scriptEngine,
+        mappingThreads);
   }
 
   @Bean
@@ -0,0 +1,23 @@
+package org.molgenis.semanticmapper.mapping.model;
+
+import com.google.auto.value.AutoValue;
+import java.util.List;
+import org.molgenis.js.magma.JsMagmaScriptBundle;
+
+/**
+ * Algorithms of all attribute mappings of an {@link EntityMapping} compiled into one script bundle
+ * that is parsed once per script context and applied to every source entity.
+ */
+@AutoValue
+@SuppressWarnings("java:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class CompiledAlgorithms {
+  public abstract List<AttributeMapping> getAttributeMappings();
+
+  /** @return bundle with the algorithms in the order of the attribute mappings */
+  public abstract JsMagmaScriptBundle getBundle();
+
+  public static CompiledAlgorithms create(
+      List<AttributeMapping> attributeMappings, JsMagmaScriptBundle bundle) {
+    return new AutoValue_CompiledAlgorithms(List.copyOf(attributeMappings), bundle);
+  }
+}
@@ -6,6 +6,7 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping;
+import org.molgenis.semanticmapper.mapping.model.CompiledAlgorithms;
 import org.molgenis.semanticmapper.mapping.model.EntityMapping;
 import org.molgenis.semanticmapper.service.impl.AlgorithmEvaluation;
 
@@ -34,6 +35,23 @@ public interface AlgorithmService {
    */
   Object apply(AttributeMapping attributeMapping);
 
+  /**
+   * Compiles the algorithms of all attribute mappings of an {@link EntityMapping} so that they can
+   * be applied to many source entities at once.
+   *
+   * @param entityMapping {@link EntityMapping} with the attribute mappings to compile
+   * @return compiled algorithms
+   */
+  CompiledAlgorithms compileAlgorithms(EntityMapping entityMapping);
+
+  /**
+   * Applies compiled algorithms to the source {@link Entity} currently bound to the context.
+   *
+   * @param compiledAlgorithms {@link CompiledAlgorithms} to apply
+   * @return mapped values in the order of the compiled attribute mappings
+   */
+  Object[] apply(CompiledAlgorithms compiledAlgorithms);
+
   /**
    * Retrieves the names of the source attributes in an algorithm
    *
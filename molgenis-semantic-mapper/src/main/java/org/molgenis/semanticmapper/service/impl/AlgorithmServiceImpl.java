@@ -35,6 +35,7 @@ import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.js.magma.JsMagmaScriptBundle;
 import org.molgenis.js.magma.JsMagmaScriptContext;
 import org.molgenis.js.magma.JsMagmaScriptContextHolder;
 import org.molgenis.js.magma.WithJsMagmaScriptContext;
@@ -43,6 +44,7 @@ import org.molgenis.semanticmapper.algorithmgenerator.bean.GeneratedAlgorithm;
 import org.molgenis.semanticmapper.algorithmgenerator.service.AlgorithmGeneratorService;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping.AlgorithmState;
+import org.molgenis.semanticmapper.mapping.model.CompiledAlgorithms;
 import org.molgenis.semanticmapper.mapping.model.EntityMapping;
 import org.molgenis.semanticmapper.service.AlgorithmService;
 import org.molgenis.semanticsearch.explain.bean.EntityTypeSearchResults;
@@ -174,6 +176,32 @@ public class AlgorithmServiceImpl implements AlgorithmService {
     }
   }
 
+  @Override
+  public CompiledAlgorithms compileAlgorithms(EntityMapping entityMapping) {
+    List<AttributeMapping> attributeMappings = List.copyOf(entityMapping.getAttributeMappings());
+    JsMagmaScriptBundle bundle =
+        JsMagmaScriptBundle.create(
+            attributeMappings.stream().map(AttributeMapping::getAlgorithm).collect(toList()));
+    return CompiledAlgorithms.create(attributeMappings, bundle);
+  }
+
+  @Override
+  public Object[] apply(CompiledAlgorithms compiledAlgorithms) {
+    var context = JsMagmaScriptContextHolder.getContext();
+    List<AttributeMapping> attributeMappings = compiledAlgorithms.getAttributeMappings();
+    try {
+      Object[] values = context.eval(compiledAlgorithms.getBundle());
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != null) {
+          values[i] = convert(values[i], attributeMappings.get(i).getTargetAttribute());
+        }
+      }
+      return values;
+    } catch (Exception thrown) {
+      throw new AlgorithmException(Throwables.getRootCause(thrown));
+    }
+  }
+
   @Override
   public Collection<String> getSourceAttributeNames(String algorithmScript) {
     Collection<String> result = emptyList();
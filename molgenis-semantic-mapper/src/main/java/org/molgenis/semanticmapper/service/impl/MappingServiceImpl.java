@@ -4,23 +4,35 @@ import static com.google.common.collect.Maps.newHashMap;
 import static java.lang.Boolean.TRUE;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.stream.Collectors.toList;
 import static org.molgenis.data.EntityManager.CreationMode.POPULATE;
 import static org.molgenis.data.meta.model.EntityType.AttributeCopyMode.DEEP_COPY_ATTRS;
 import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
 import static org.molgenis.data.util.EntityTypeUtils.hasSelfReferences;
 import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
+import static org.molgenis.js.magma.WithJsMagmaScriptAspect.withJsMagmaScriptContext;
 import static org.molgenis.semanticmapper.meta.MappingProjectMetadata.MAPPING_PROJECT;
 import static org.molgenis.semanticmapper.meta.MappingProjectMetadata.NAME;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Repository;
 import org.molgenis.data.UnknownEntityException;
@@ -32,16 +44,22 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.security.permission.PermissionSystemService;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.QueryCursors;
 import org.molgenis.jobs.Progress;
+import org.molgenis.js.graal.GraalScriptEngine;
 import org.molgenis.js.magma.WithJsMagmaScriptContext;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping;
+import org.molgenis.semanticmapper.mapping.model.CompiledAlgorithms;
 import org.molgenis.semanticmapper.mapping.model.EntityMapping;
 import org.molgenis.semanticmapper.mapping.model.MappingProject;
 import org.molgenis.semanticmapper.mapping.model.MappingTarget;
 import org.molgenis.semanticmapper.repository.MappingProjectRepository;
 import org.molgenis.semanticmapper.service.AlgorithmService;
 import org.molgenis.semanticmapper.service.MappingService;
+import org.molgenis.util.ExecutorServiceUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.transaction.annotation.Transactional;
 
 @PreAuthorize("hasAnyRole('ROLE_SU')")
@@ -57,6 +75,9 @@ public class MappingServiceImpl implements MappingService {
   private final PermissionSystemService permissionSystemService;
   private final AttributeFactory attrMetaFactory;
   private final EntityManager entityManager;
+  private final GraalScriptEngine scriptEngine;
+  private final int maxBatchesInFlight;
+  private final ExecutorService executorService;
 
   public MappingServiceImpl(
       DataService dataService,
@@ -64,13 +85,33 @@ public class MappingServiceImpl implements MappingService {
       MappingProjectRepository mappingProjectRepository,
       PermissionSystemService permissionSystemService,
       AttributeFactory attrMetaFactory,
-      EntityManager entityManager) {
+      EntityManager entityManager,
+      GraalScriptEngine scriptEngine,
+      @Value("${mapping.threads:4}") int nrThreads) {
     this.dataService = requireNonNull(dataService);
     this.algorithmService = requireNonNull(algorithmService);
     this.mappingProjectRepository = requireNonNull(mappingProjectRepository);
     this.permissionSystemService = requireNonNull(permissionSystemService);
     this.attrMetaFactory = requireNonNull(attrMetaFactory);
     this.entityManager = requireNonNull(entityManager);
+    this.scriptEngine = requireNonNull(scriptEngine);
+    if (nrThreads < 1) {
+      throw new IllegalArgumentException("Number of mapping threads must be at least 1");
+    }
+    this.maxBatchesInFlight = 2 * nrThreads;
+    this.executorService =
+        new DelegatingSecurityContextExecutorService(
+            Executors.newFixedThreadPool(
+                nrThreads,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("molgenis-mapping-%d")
+                    .setDaemon(true)
+                    .build()));
+  }
+
+  @PreDestroy
+  void preDestroy() {
+    ExecutorServiceUtils.shutdownAndAwaitTermination(executorService);
   }
 
   @Override
@@ -333,51 +374,136 @@ public class MappingServiceImpl implements MappingService {
         .sum();
   }
 
-  /** Package-private for testability */
+  /**
+   * Package-private for testability.
+   *
+   * <p>Batches of source entities are mapped concurrently, each worker evaluates the compiled
+   * algorithms in its own script context. The workers create their script contexts on the script
+   * engine instead of borrowing them from the shared context pool, so that a mapping job can't
+   * starve other users of the pool. Mapped batches are written in source order by the calling
+   * thread, so that writes take part in its transaction. The number of batches in flight is bounded
+   * to limit memory usage. Source entities are read from a single query cursor, because they are
+   * consumed within the transaction of the calling thread.
+   *
+   * <p>The workers run outside of the transaction of the calling thread. The calling thread
+   * therefore reads the source entities together with their referenced entities. References of
+   * referenced entities are read by the workers and only see committed data.
+   */
   long applyMappingToRepo(
       EntityMapping sourceMapping, Repository<Entity> targetRepo, Progress progress) {
     progress.status(format("Mapping source [%s]...", sourceMapping.getLabel()));
+    Stopwatch stopwatch = Stopwatch.createStarted();
     AtomicLong counter = new AtomicLong();
 
+    CompiledAlgorithms compiledAlgorithms = algorithmService.compileAlgorithms(sourceMapping);
+    EntityType targetMetaData = targetRepo.getEntityType();
     boolean canAdd = targetRepo.count() == 0;
-    dataService
-        .getRepository(sourceMapping.getName())
-        .forEachBatched(
-            entities ->
-                processBatch(sourceMapping, targetRepo, progress, counter, canAdd, entities),
-            MAPPING_BATCH_SIZE);
-
-    progress.status(format("Mapped %s [%s] entities.", counter, sourceMapping.getLabel()));
-    return counter.get();
+    Repository<Entity> sourceRepo = dataService.getRepository(sourceMapping.getName());
+    Fetch sourceFetch = createSourceFetch(sourceRepo.getEntityType());
+    Deque<Future<List<Entity>>> batchesInFlight = new ArrayDeque<>();
+    QueryCursors.allowInCurrentTransaction();
+    try {
+      sourceRepo.forEachBatched(
+          sourceFetch,
+          entities -> {
+            batchesInFlight.add(
+                executorService.submit(
+                    () ->
+                        mapEntities(sourceMapping, compiledAlgorithms, targetMetaData, entities)));
+            if (batchesInFlight.size() >= maxBatchesInFlight) {
+              writeBatch(targetRepo, progress, counter, canAdd, batchesInFlight.remove());
+            }
+          },
+          MAPPING_BATCH_SIZE);
+      while (!batchesInFlight.isEmpty()) {
+        writeBatch(targetRepo, progress, counter, canAdd, batchesInFlight.remove());
+      }
+    } finally {
+      // running batches finish their script evaluations before their contexts are closed
+      batchesInFlight.forEach(future -> future.cancel(false));
+    }
+
+    long nrMappedEntities = counter.get();
+    long elapsedMillis = Math.max(1, stopwatch.elapsed(MILLISECONDS));
+    progress.status(
+        format(
+            "Mapped %s [%s] entities (%d entities/s).",
+            nrMappedEntities, sourceMapping.getLabel(), nrMappedEntities * 1000 / elapsedMillis));
+    return nrMappedEntities;
   }
 
-  private void processBatch(
-      EntityMapping sourceMapping,
+  /**
+   * Creates a fetch for all attributes of the source entity type that resolves the references of
+   * source entities.
+   */
+  private static Fetch createSourceFetch(EntityType sourceEntityType) {
+    Fetch fetch = new Fetch();
+    for (Attribute attr : sourceEntityType.getAtomicAttributes()) {
+      if (attr.hasRefEntity()) {
+        Fetch refFetch = new Fetch();
+        attr.getRefEntity()
+            .getAtomicAttributes()
+            .forEach(refAttr -> refFetch.field(refAttr.getName()));
+        fetch.field(attr.getName(), refFetch);
+      } else {
+        fetch.field(attr.getName());
+      }
+    }
+    return fetch;
+  }
+
+  private void writeBatch(
       Repository<Entity> targetRepo,
       Progress progress,
       AtomicLong counter,
       boolean canAdd,
-      List<Entity> entities) {
-    List<Entity> mappedEntities = mapEntities(sourceMapping, targetRepo.getEntityType(), entities);
+      Future<List<Entity>> mappedBatch) {
+    List<Entity> mappedEntities = getMappedEntities(mappedBatch);
     if (canAdd) {
       targetRepo.add(mappedEntities.stream());
     } else {
       targetRepo.upsertBatch(mappedEntities);
     }
     progress.increment(1);
-    counter.addAndGet(entities.size());
+    counter.addAndGet(mappedEntities.size());
+  }
+
+  private static List<Entity> getMappedEntities(Future<List<Entity>> mappedBatch) {
+    try {
+      return mappedBatch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException("Interrupted while mapping source entities", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new MolgenisDataException(e.getCause());
+    }
   }
 
   private List<Entity> mapEntities(
-      EntityMapping sourceMapping, EntityType targetMetaData, List<Entity> entities) {
-    return entities.stream()
-        .map(sourceEntity -> applyMappingToEntity(sourceMapping, sourceEntity, targetMetaData))
-        .collect(toList());
+      EntityMapping sourceMapping,
+      CompiledAlgorithms compiledAlgorithms,
+      EntityType targetMetaData,
+      List<Entity> entities) {
+    return withJsMagmaScriptContext(
+        scriptEngine,
+        () ->
+            entities.stream()
+                .map(
+                    sourceEntity ->
+                        applyMappingToEntity(
+                            sourceMapping, compiledAlgorithms, sourceEntity, targetMetaData))
+                .collect(toList()));
   }
 
   /** Package-private for testablility */
   Entity applyMappingToEntity(
-      EntityMapping sourceMapping, Entity sourceEntity, EntityType targetMetaData) {
+      EntityMapping sourceMapping,
+      CompiledAlgorithms compiledAlgorithms,
+      Entity sourceEntity,
+      EntityType targetMetaData) {
     Entity target = entityManager.create(targetMetaData, POPULATE);
 
     if (targetMetaData.getAttribute(SOURCE) != null) {
@@ -386,18 +512,14 @@ public class MappingServiceImpl implements MappingService {
 
     algorithmService.bind(sourceEntity);
 
-    sourceMapping
-        .getAttributeMappings()
-        .forEach(attributeMapping -> applyMappingToAttribute(attributeMapping, target));
+    Object[] values = algorithmService.apply(compiledAlgorithms);
+    List<AttributeMapping> attributeMappings = compiledAlgorithms.getAttributeMappings();
+    for (int i = 0; i < values.length; i++) {
+      target.set(attributeMappings.get(i).getTargetAttribute().getName(), values[i]);
+    }
     return target;
   }
 
-  private void applyMappingToAttribute(AttributeMapping attributeMapping, Entity target) {
-    String targetAttributeName = attributeMapping.getTargetAttribute().getName();
-    Object typedValue = algorithmService.apply(attributeMapping);
-    target.set(targetAttributeName, typedValue);
-  }
-
   /** Package-private for testablility */
   int calculateMaxProgress(MappingTarget mappingTarget) {
     int batches = mappingTarget.getEntityMappings().stream().mapToInt(this::countBatches).sum();
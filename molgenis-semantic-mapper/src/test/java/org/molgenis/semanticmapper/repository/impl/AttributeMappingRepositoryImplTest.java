@@ -34,8 +34,10 @@ import org.molgenis.data.security.permission.PermissionSystemService;
 import org.molgenis.data.security.user.UserService;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.util.EntityUtils;
+import org.molgenis.js.graal.GraalScriptEngine;
 import org.molgenis.js.magma.JsMagmaScriptEvaluator;
 import org.molgenis.ontology.core.config.OntologyConfig;
+import org.molgenis.ontology.core.repository.OntologyHierarchyIndexCache;
 import org.molgenis.semanticmapper.config.MapperTestConfig;
 import org.molgenis.semanticmapper.config.MappingConfig;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping;
@@ -277,6 +279,16 @@ class AttributeMappingRepositoryImplTest extends AbstractMolgenisSpringTest {
       return mock(JsMagmaScriptEvaluator.class);
     }
 
+    @Bean
+    GraalScriptEngine graalScriptEngine() {
+      return mock(GraalScriptEngine.class);
+    }
+
+    @Bean
+    OntologyHierarchyIndexCache ontologyHierarchyIndexCache() {
+      return mock(OntologyHierarchyIndexCache.class);
+    }
+
     @Bean
     OntologyTagService ontologyTagService() {
       return mock(OntologyTagService.class);
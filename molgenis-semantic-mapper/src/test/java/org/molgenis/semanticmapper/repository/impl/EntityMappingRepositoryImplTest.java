@@ -26,6 +26,7 @@ import org.molgenis.data.security.permission.PermissionSystemService;
 import org.molgenis.data.security.user.UserService;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.util.EntityUtils;
+import org.molgenis.js.graal.GraalScriptEngine;
 import org.molgenis.js.magma.JsMagmaScriptEvaluator;
 import org.molgenis.semanticmapper.config.MapperTestConfig;
 import org.molgenis.semanticmapper.config.MappingConfig;
@@ -197,6 +198,11 @@ class EntityMappingRepositoryImplTest extends AbstractMolgenisSpringTest {
       return Mockito.mock(JsMagmaScriptEvaluator.class);
     }
 
+    @Bean
+    GraalScriptEngine graalScriptEngine() {
+      return Mockito.mock(GraalScriptEngine.class);
+    }
+
     @Bean
     OntologyTagService ontologyTagService() {
       return Mockito.mock(OntologyTagService.class);
@@ -1,6 +1,9 @@
 package org.molgenis.semanticmapper.service.impl;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -25,12 +28,14 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.js.magma.JsMagmaScriptBundle;
 import org.molgenis.js.magma.JsMagmaScriptContext;
 import org.molgenis.js.magma.JsMagmaScriptContextHolder;
 import org.molgenis.script.core.ScriptException;
 import org.molgenis.semanticmapper.algorithmgenerator.service.AlgorithmGeneratorService;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping.AlgorithmState;
+import org.molgenis.semanticmapper.mapping.model.CompiledAlgorithms;
 import org.molgenis.semanticmapper.mapping.model.EntityMapping;
 import org.molgenis.semanticsearch.service.SemanticSearchService;
 import org.molgenis.test.AbstractMockitoTest;
@@ -158,6 +163,50 @@ class AlgorithmServiceImplTest extends AbstractMockitoTest {
         exception.getMessage());
   }
 
+  @Test
+  void testCompileAlgorithms() {
+    AttributeMapping attributeMapping0 = mock(AttributeMapping.class);
+    when(attributeMapping0.getAlgorithm()).thenReturn("$('a').value()");
+    AttributeMapping attributeMapping1 = mock(AttributeMapping.class);
+    EntityMapping entityMapping = mock(EntityMapping.class);
+    when(entityMapping.getAttributeMappings())
+        .thenReturn(asList(attributeMapping0, attributeMapping1));
+
+    CompiledAlgorithms compiledAlgorithms = algorithmServiceImpl.compileAlgorithms(entityMapping);
+    assertEquals(
+        asList(attributeMapping0, attributeMapping1), compiledAlgorithms.getAttributeMappings());
+    assertEquals(2, compiledAlgorithms.getBundle().size());
+  }
+
+  @Test
+  void testApplyCompiledAlgorithms() {
+    Attribute intAttribute = when(mock(Attribute.class).getDataType()).thenReturn(INT).getMock();
+    AttributeMapping intAttributeMapping = mock(AttributeMapping.class);
+    when(intAttributeMapping.getTargetAttribute()).thenReturn(intAttribute);
+    AttributeMapping emptyAttributeMapping = mock(AttributeMapping.class);
+    JsMagmaScriptBundle bundle = JsMagmaScriptBundle.create(asList("1", null));
+    CompiledAlgorithms compiledAlgorithms =
+        CompiledAlgorithms.create(asList(intAttributeMapping, emptyAttributeMapping), bundle);
+    when(context.eval(bundle)).thenReturn(new Object[] {1.0, null});
+
+    assertArrayEquals(new Object[] {1, null}, algorithmServiceImpl.apply(compiledAlgorithms));
+  }
+
+  @Test
+  void testApplyCompiledAlgorithmsWithInvalidScript() {
+    JsMagmaScriptBundle bundle = JsMagmaScriptBundle.create(singletonList("algorithm"));
+    CompiledAlgorithms compiledAlgorithms =
+        CompiledAlgorithms.create(singletonList(mock(AttributeMapping.class)), bundle);
+    when(context.eval(bundle)).thenThrow(new ScriptException("algorithm is not defined"));
+
+    Exception exception =
+        assertThrows(
+            AlgorithmException.class, () -> algorithmServiceImpl.apply(compiledAlgorithms));
+    assertEquals(
+        "org.molgenis.script.core.ScriptException: algorithm is not defined",
+        exception.getMessage());
+  }
+
   @Test
   void testCopyAlgorithms() {
     EntityMapping sourceEntityMapping = mock(EntityMapping.class);
@@ -13,6 +13,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.DECIMAL;
@@ -26,6 +27,7 @@ import static org.molgenis.semanticmapper.meta.MappingProjectMetadata.MAPPING_TA
 import static org.molgenis.semanticmapper.meta.MappingProjectMetadata.NAME;
 import static org.molgenis.semanticmapper.service.impl.MappingServiceImpl.MAPPING_BATCH_SIZE;
 import static org.molgenis.semanticmapper.service.impl.MappingServiceImpl.SOURCE;
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_COMMITTED;
 
 import com.google.common.collect.Lists;
 import java.util.Collection;
@@ -35,6 +37,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -48,6 +51,7 @@ import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
@@ -62,10 +66,14 @@ import org.molgenis.data.meta.model.PackageFactory;
 import org.molgenis.data.security.config.UserTestConfig;
 import org.molgenis.data.security.permission.PermissionSystemService;
 import org.molgenis.data.support.DynamicEntity;
+import org.molgenis.data.transaction.QueryCursors;
 import org.molgenis.data.util.EntityUtils;
 import org.molgenis.jobs.Progress;
+import org.molgenis.js.graal.GraalScriptEngine;
+import org.molgenis.js.magma.JsMagmaScriptBundle;
 import org.molgenis.js.magma.JsMagmaScriptEvaluator;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping;
+import org.molgenis.semanticmapper.mapping.model.CompiledAlgorithms;
 import org.molgenis.semanticmapper.mapping.model.EntityMapping;
 import org.molgenis.semanticmapper.mapping.model.MappingProject;
 import org.molgenis.semanticmapper.mapping.model.MappingTarget;
@@ -77,6 +85,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @MockitoSettings(strictness = Strictness.LENIENT)
 @ContextConfiguration(
@@ -135,6 +144,18 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.reset(geneRepo);
     Mockito.reset(exonRepo);
     Mockito.reset(progress);
+    Mockito.reset(algorithmService);
+
+    when(algorithmService.compileAlgorithms(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              EntityMapping entityMapping = invocation.getArgument(0);
+              return CompiledAlgorithms.create(
+                  List.copyOf(entityMapping.getAttributeMappings()),
+                  JsMagmaScriptBundle.create(emptyList()));
+            });
+    when(algorithmService.apply(ArgumentMatchers.any(CompiledAlgorithms.class)))
+        .thenReturn(new Object[0]);
 
     package_ = packageFactory.create("package");
 
@@ -184,6 +205,17 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     when(dataService.getRepository(geneMetaData.getId())).thenReturn(geneRepo);
     when(dataService.getEntityType(SOURCE_EXON_ENTITY)).thenReturn(exonMetaData);
     when(dataService.getRepository(SOURCE_EXON_ENTITY)).thenReturn(exonRepo);
+
+    // mappings are applied in a transaction
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+  }
+
+  @AfterEach
+  void afterMethod() {
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.afterCompletion(STATUS_COMMITTED));
+    TransactionSynchronizationManager.clear();
   }
 
   @Test
@@ -191,6 +223,13 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     EntityMapping entityMapping = mock(EntityMapping.class);
     Entity sourceEntity = mock(Entity.class);
     EntityType targetMetaData = mock(EntityType.class);
+    Attribute targetAttribute = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    AttributeMapping attributeMapping = mock(AttributeMapping.class);
+    when(attributeMapping.getTargetAttribute()).thenReturn(targetAttribute);
+    CompiledAlgorithms compiledAlgorithms =
+        CompiledAlgorithms.create(
+            singletonList(attributeMapping), JsMagmaScriptBundle.create(singletonList("1")));
+    when(algorithmService.apply(compiledAlgorithms)).thenReturn(new Object[] {"value"});
 
     Entity mappedEntity = mock(Entity.class);
     when(entityManager.create(targetMetaData, EntityManager.CreationMode.POPULATE))
@@ -198,7 +237,10 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
 
     assertEquals(
         mappedEntity,
-        mappingService.applyMappingToEntity(entityMapping, sourceEntity, targetMetaData));
+        mappingService.applyMappingToEntity(
+            entityMapping, compiledAlgorithms, sourceEntity, targetMetaData));
+    Mockito.verify(algorithmService).bind(sourceEntity);
+    Mockito.verify(mappedEntity).set("attr", "value");
   }
 
   @Test
@@ -360,13 +402,16 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
             invocationOnMock -> {
               @SuppressWarnings("unchecked")
               Consumer<List<Entity>> consumer =
-                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
 
               consumer.accept(sourceGeneEntities);
               return null;
             })
         .when(geneRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+        .forEachBatched(
+            ArgumentMatchers.any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            eq(MAPPING_BATCH_SIZE));
 
     // create project and apply mappings once
     createMappingProjectWithMappings();
@@ -383,7 +428,10 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
         mappingService.applyMappings("TestRun", entityTypeId, true, packageId, "label", progress));
 
     Mockito.verify(geneRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), ArgumentMatchers.any(Integer.class));
+        .forEachBatched(
+            ArgumentMatchers.any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            ArgumentMatchers.any(Integer.class));
 
     ArgumentCaptor<EntityType> entityTypeCaptor = ArgumentCaptor.forClass(EntityType.class);
     Mockito.verify(permissionSystemService)
@@ -394,7 +442,7 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.verify(progress).status("Applying mappings to repository [HopEntity]");
     Mockito.verify(progress).status("Mapping source [Genes]...");
     Mockito.verify(progress).increment(1);
-    Mockito.verify(progress).status("Mapped 4 [Genes] entities.");
+    Mockito.verify(progress).status(startsWith("Mapped 4 [Genes] entities"));
     Mockito.verify(progress).status("Done applying mappings to repository [HopEntity]");
     Mockito.verifyNoMoreInteractions(progress);
   }
@@ -434,12 +482,15 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
             invocationOnMock -> {
               @SuppressWarnings("unchecked")
               Consumer<List<Entity>> consumer =
-                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
               consumer.accept(sourceGeneEntities);
               return null;
             })
         .when(geneRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+        .forEachBatched(
+            ArgumentMatchers.any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            eq(MAPPING_BATCH_SIZE));
 
     // create mapping project and apply mappings once
     createMappingProjectWithMappings();
@@ -453,7 +504,10 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
             "TestRun", entityTypeId, false, "packageId", "label", progress));
 
     Mockito.verify(geneRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), ArgumentMatchers.any(Integer.class));
+        .forEachBatched(
+            ArgumentMatchers.any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            ArgumentMatchers.any(Integer.class));
 
     Mockito.verify(updateEntityRepo).upsertBatch(batchCaptor.capture());
     assertTrue(EntityUtils.equalsEntities(batchCaptor.getValue(), expectedEntities));
@@ -461,7 +515,7 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.verify(progress).status("Applying mappings to repository [HopEntity]");
     Mockito.verify(progress).status("Mapping source [Genes]...");
     Mockito.verify(progress).increment(1);
-    Mockito.verify(progress).status("Mapped 4 [Genes] entities.");
+    Mockito.verify(progress).status(startsWith("Mapped 4 [Genes] entities"));
     Mockito.verify(progress).status("Done applying mappings to repository [HopEntity]");
     Mockito.verifyZeroInteractions(permissionSystemService);
   }
@@ -493,7 +547,7 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.doAnswer(
             invocationOnMock -> {
               Consumer<List<Entity>> consumer =
-                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
 
               consumer.accept(batch);
               consumer.accept(batch);
@@ -501,14 +555,17 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
               return null;
             })
         .when(sourceRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+        .forEachBatched(
+            ArgumentMatchers.any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            eq(MAPPING_BATCH_SIZE));
 
     mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress);
 
     Mockito.verify(targetRepo, Mockito.times(3)).add(ArgumentMatchers.any(Stream.class));
     Mockito.verify(progress, Mockito.times(3)).increment(1);
     Mockito.verify(progress).status("Mapping source [sourceMappingLabel]...");
-    Mockito.verify(progress).status("Mapped 3 [sourceMappingLabel] entities.");
+    Mockito.verify(progress).status(startsWith("Mapped 3 [sourceMappingLabel] entities"));
     Mockito.verifyNoMoreInteractions(progress);
   }
 
@@ -522,6 +579,7 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     when(sourceMapping.getName()).thenReturn("sourceMappingID");
 
     when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
+    when(sourceRepo.getEntityType()).thenReturn(mock(EntityType.class));
     when(targetRepo.count()).thenReturn(3L);
 
     EntityType targetEntityType = mock(EntityType.class);
@@ -537,23 +595,95 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.doAnswer(
             invocationOnMock -> {
               Consumer<List<Entity>> consumer =
-                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
               consumer.accept(batch);
               consumer.accept(batch);
               return null;
             })
         .when(sourceRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+        .forEachBatched(
+            ArgumentMatchers.any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            eq(MAPPING_BATCH_SIZE));
 
     mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress);
 
     Mockito.verify(targetRepo, Mockito.times(2)).upsertBatch(ArgumentMatchers.any(List.class));
     Mockito.verify(progress, Mockito.times(2)).increment(1);
     Mockito.verify(progress).status("Mapping source [sourceMappingLabel]...");
-    Mockito.verify(progress).status("Mapped 4 [sourceMappingLabel] entities.");
+    Mockito.verify(progress).status(startsWith("Mapped 4 [sourceMappingLabel] entities"));
     Mockito.verifyNoMoreInteractions(progress);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  void testApplyMappingsToRepoQueryCursor() {
+    Repository<Entity> targetRepo = mock(Repository.class);
+    Repository<Entity> sourceRepo = mock(Repository.class);
+    EntityMapping sourceMapping = mock(EntityMapping.class);
+    when(sourceMapping.getLabel()).thenReturn("sourceMappingLabel");
+    when(sourceMapping.getName()).thenReturn("sourceMappingID");
+    when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
+    when(sourceRepo.getEntityType()).thenReturn(mock(EntityType.class));
+    when(targetRepo.count()).thenReturn(0L);
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetRepo.getEntityType()).thenReturn(targetEntityType);
+
+    Mockito.doAnswer(
+            invocationOnMock -> {
+              assertTrue(QueryCursors.isAllowed());
+              return null;
+            })
+        .when(sourceRepo)
+        .forEachBatched(
+            ArgumentMatchers.any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            eq(MAPPING_BATCH_SIZE));
+
+    mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress);
+
+    Mockito.verify(sourceRepo).getEntityType();
+    Mockito.verify(sourceRepo)
+        .forEachBatched(
+            ArgumentMatchers.any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            ArgumentMatchers.any(Integer.class));
+    Mockito.verifyNoMoreInteractions(sourceRepo);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testApplyMappingsToRepoResolvesReferences() {
+    Repository<Entity> targetRepo = mock(Repository.class);
+    Repository<Entity> sourceRepo = mock(Repository.class);
+    EntityMapping sourceMapping = mock(EntityMapping.class);
+    when(sourceMapping.getLabel()).thenReturn("sourceMappingLabel");
+    when(sourceMapping.getName()).thenReturn("sourceMappingID");
+    when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
+    when(targetRepo.count()).thenReturn(0L);
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetRepo.getEntityType()).thenReturn(targetEntityType);
+
+    Attribute refLabelAttr = when(mock(Attribute.class).getName()).thenReturn("label").getMock();
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getAtomicAttributes()).thenReturn(singletonList(refLabelAttr));
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("id").getMock();
+    Attribute refAttr = when(mock(Attribute.class).getName()).thenReturn("ref").getMock();
+    when(refAttr.hasRefEntity()).thenReturn(true);
+    when(refAttr.getRefEntity()).thenReturn(refEntityType);
+    EntityType sourceEntityType = mock(EntityType.class);
+    when(sourceEntityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, refAttr));
+    when(sourceRepo.getEntityType()).thenReturn(sourceEntityType);
+
+    mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress);
+
+    // references are resolved by the calling thread that runs in the transaction of the job
+    Fetch expectedFetch = new Fetch().field("id").field("ref", new Fetch().field("label"));
+    Mockito.verify(sourceRepo)
+        .forEachBatched(
+            eq(expectedFetch), ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+  }
+
   @Test
   void testIncompatibleMetaDataUnknownAttribute() {
     String targetRepositoryName = "targetRepository";
@@ -783,13 +913,13 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
       expectedEntity.set("source", geneMetaData.getId());
       expectedEntities.add(expectedEntity);
     }
-    when(algorithmService.apply(
-            argThat(obj -> obj != null && obj.getAlgorithm().equals("$('id').value()"))))
-        .thenReturn("0", "1", "2", "3");
-
-    when(algorithmService.apply(
-            argThat(obj -> obj != null && obj.getAlgorithm().equals("$('length').value()"))))
-        .thenReturn(0d, 2d, 4d, 6d);
+    // attribute mappings are applied in the order 'identifier', 'height'
+    when(algorithmService.apply(ArgumentMatchers.any(CompiledAlgorithms.class)))
+        .thenReturn(
+            new Object[] {"0", 0d},
+            new Object[] {"1", 2d},
+            new Object[] {"2", 4d},
+            new Object[] {"3", 6d});
   }
 
   private MappingTarget getManualMappingTarget(
@@ -838,6 +968,11 @@ class MappingServiceImplTest extends AbstractMolgenisSpringTest {
       return mock(JsMagmaScriptEvaluator.class);
     }
 
+    @Bean
+    GraalScriptEngine graalScriptEngine() {
+      return new GraalScriptEngine();
+    }
+
     @Bean
     MappingProjectRepository mappingProjectRepository() {
       return mock(MappingProjectRepository.class);
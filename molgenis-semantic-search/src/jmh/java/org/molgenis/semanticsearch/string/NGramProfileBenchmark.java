@@ -0,0 +1,109 @@
+package org.molgenis.semanticsearch.string;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares scoring a query against the synonyms of ontology terms with {@link NGramProfile n-gram
+ * profiles} and with the n-gram maps that were used before the profiles were introduced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NGramProfileBenchmark {
+  private static final String[] SYNONYMS = {
+    "hearing impairment",
+    "mixed hearing impairment",
+    "conductive hearing loss",
+    "sensorineural hearing loss",
+    "protruding eye",
+    "proptosis",
+    "Exophthalmos",
+    "abnormality of the outer ear",
+    "Congenital malformation of the inner ear",
+    "Decreased body weight",
+    "Increased circulating cholesterol concentration",
+    "Type II diabetes mellitus"
+  };
+
+  @Param({"hearing impairment", "proptosis, protruding eye, Exophthalmos"})
+  private String query;
+
+  private NGramProfile[] synonymProfiles;
+
+  @Setup
+  public void setUp() {
+    synonymProfiles = new NGramProfile[SYNONYMS.length];
+    for (int i = 0; i < SYNONYMS.length; i++) {
+      synonymProfiles[i] = NGramProfile.create(SYNONYMS[i]);
+    }
+  }
+
+  /** Scoring as done before n-gram profiles: n-gram maps are created for every pair of strings. */
+  @Benchmark
+  public void scoreNGramMaps(Blackhole blackhole) {
+    for (String synonym : SYNONYMS) {
+      blackhole.consume(
+          calculateScore(
+              NGramDistanceAlgorithm.createNGrams(query.toLowerCase().trim(), true),
+              NGramDistanceAlgorithm.createNGrams(synonym.toLowerCase().trim(), true)));
+    }
+  }
+
+  @Benchmark
+  public void scoreNGramProfiles(Blackhole blackhole) {
+    NGramProfile queryProfile = NGramProfile.create(query);
+    for (String synonym : SYNONYMS) {
+      blackhole.consume(queryProfile.score(NGramProfile.create(synonym)));
+    }
+  }
+
+  /** Scoring with cached synonym profiles, as done by SORTA. */
+  @Benchmark
+  public void scoreCachedNGramProfiles(Blackhole blackhole) {
+    NGramProfile queryProfile = NGramProfile.create(query);
+    for (NGramProfile synonymProfile : synonymProfiles) {
+      blackhole.consume(queryProfile.score(synonymProfile));
+    }
+  }
+
+  private static double calculateScore(
+      Map<String, Integer> inputStringTokens, Map<String, Integer> ontologyTermTokens) {
+    if (inputStringTokens.isEmpty() || ontologyTermTokens.isEmpty()) {
+      return 0;
+    }
+    int totalToken = getTotalNumTokens(inputStringTokens) + getTotalNumTokens(ontologyTermTokens);
+    int numMatchedToken = 0;
+    for (Entry<String, Integer> token : inputStringTokens.entrySet()) {
+      if (ontologyTermTokens.containsKey(token.getKey())) {
+        numMatchedToken += Math.min(token.getValue(), ontologyTermTokens.get(token.getKey()));
+      }
+    }
+    return 2.0 * numMatchedToken / totalToken * 100;
+  }
+
+  private static int getTotalNumTokens(Map<String, Integer> tokens) {
+    int totalNum = 0;
+    for (Integer frequency : tokens.values()) {
+      totalNum += frequency;
+    }
+    return totalNum;
+  }
+}
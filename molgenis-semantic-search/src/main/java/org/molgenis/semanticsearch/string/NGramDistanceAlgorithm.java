@@ -5,7 +5,6 @@ import com.google.common.collect.Lists;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
@@ -222,9 +221,7 @@ public class NGramDistanceAlgorithm {
   private NGramDistanceAlgorithm() {}
 
   public static double stringMatching(String queryOne, String queryTwo) {
-    return calculateScore(
-        createNGrams(queryOne.toLowerCase().trim(), true),
-        createNGrams(queryTwo.toLowerCase().trim(), true));
+    return NGramProfile.create(queryOne).score(NGramProfile.create(queryTwo));
   }
 
   /**
@@ -268,35 +265,4 @@ public class NGramDistanceAlgorithm {
 
     return tokens;
   }
-
-  /** Calculate the ngram distance */
-  private static double calculateScore(
-      Map<String, Integer> inputStringTokens, Map<String, Integer> ontologyTermTokens) {
-    if (inputStringTokens.size() == 0 || ontologyTermTokens.size() == 0) {
-      return (double) 0;
-    }
-    int totalToken = getTotalNumTokens(inputStringTokens) + getTotalNumTokens(ontologyTermTokens);
-    int numMatchedToken = 0;
-
-    for (Entry<String, Integer> token : inputStringTokens.entrySet()) {
-      if (ontologyTermTokens.containsKey(token.getKey())) {
-        numMatchedToken += Math.min(token.getValue(), ontologyTermTokens.get(token.getKey()));
-      }
-    }
-
-    if (totalToken == 0) {
-      return 0;
-    } else {
-      return 2.0 * numMatchedToken / totalToken * 100;
-    }
-  }
-
-  private static int getTotalNumTokens(Map<String, Integer> inputStringTokens) {
-    int totalNum = 0;
-
-    for (Integer frequency : inputStringTokens.values()) {
-      totalNum += frequency;
-    }
-    return totalNum;
-  }
 }
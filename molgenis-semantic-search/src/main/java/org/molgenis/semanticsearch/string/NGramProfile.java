@@ -0,0 +1,99 @@
+package org.molgenis.semanticsearch.string;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.semanticsearch.string.NGramDistanceAlgorithm.STOPWORDSLIST;
+
+import java.util.Arrays;
+
+/**
+ * Bigrams of a string as created by {@link NGramDistanceAlgorithm#createNGrams(String, boolean)}
+ * with stop words removed. Each bigram is packed in an int and the bigrams are kept in a sorted
+ * array that contains a bigram as many times as it occurs, so that two profiles can be scored by
+ * merging their arrays without allocating memory.
+ */
+public final class NGramProfile {
+  private static final NGramProfile EMPTY = new NGramProfile(new int[0]);
+
+  private final int[] bigrams;
+
+  private NGramProfile(int[] bigrams) {
+    this.bigrams = requireNonNull(bigrams);
+  }
+
+  public static NGramProfile create(String string) {
+    String[] words = Stemmer.replaceIllegalCharacter(string.toLowerCase().trim()).split(" ");
+
+    int[] bigrams = new int[string.length() + words.length];
+    int nrBigrams = 0;
+    for (String word : words) {
+      if (STOPWORDSLIST.contains(word)) {
+        continue;
+      }
+      String stemmedWord = Stemmer.stem(word).toLowerCase();
+      if (stemmedWord.isEmpty()) {
+        continue;
+      }
+
+      // the word is padded with '^' and '$'
+      if (nrBigrams + stemmedWord.length() + 1 > bigrams.length) {
+        bigrams = Arrays.copyOf(bigrams, 2 * bigrams.length + stemmedWord.length() + 1);
+      }
+      char previous = '^';
+      for (int i = 0; i < stemmedWord.length(); i++) {
+        char current = stemmedWord.charAt(i);
+        bigrams[nrBigrams++] = pack(previous, current);
+        previous = current;
+      }
+      bigrams[nrBigrams++] = pack(previous, '$');
+    }
+
+    if (nrBigrams == 0) {
+      return EMPTY;
+    }
+    int[] sortedBigrams = Arrays.copyOf(bigrams, nrBigrams);
+    Arrays.sort(sortedBigrams);
+    return new NGramProfile(sortedBigrams);
+  }
+
+  private static int pack(char first, char second) {
+    return (first << Character.SIZE) | second;
+  }
+
+  /** @return total number of bigrams, including duplicates */
+  public int size() {
+    return bigrams.length;
+  }
+
+  /**
+   * Calculates the n-gram similarity between two profiles, equal to {@link
+   * NGramDistanceAlgorithm#stringMatching(String, String)} of the strings they were created from.
+   *
+   * @return similarity score between 0 and 100
+   */
+  public double score(NGramProfile other) {
+    int[] otherBigrams = other.bigrams;
+    if (bigrams.length == 0 || otherBigrams.length == 0) {
+      return 0;
+    }
+
+    // bigrams occurring in both profiles count as often as they occur in the profile with the
+    // fewest occurrences
+    int numMatchedBigrams = 0;
+    int i = 0;
+    int j = 0;
+    while (i < bigrams.length && j < otherBigrams.length) {
+      if (bigrams[i] < otherBigrams[j]) {
+        i++;
+      } else if (bigrams[i] > otherBigrams[j]) {
+        j++;
+      } else {
+        numMatchedBigrams++;
+        i++;
+        j++;
+      }
+    }
+
+    int totalNumBigrams = bigrams.length + otherBigrams.length;
+    return 2.0 * numMatchedBigrams / totalNumBigrams * 100;
+  }
+}
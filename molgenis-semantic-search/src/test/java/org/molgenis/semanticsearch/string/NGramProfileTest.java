@@ -0,0 +1,49 @@
+package org.molgenis.semanticsearch.string;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class NGramProfileTest {
+  @Test
+  void testCreate() {
+    assertEquals(10, NGramProfile.create("hypertensions").size());
+    assertEquals(0, NGramProfile.create("where is").size());
+    assertEquals(0, NGramProfile.create("").size());
+  }
+
+  @Test
+  void testCreateEqualsCreateNGrams() {
+    String[] strings = {
+      "hypertensive disorder disorder", "WHERE IS PAitent", "Diet, Reducing", "a (b) c-d"
+    };
+    for (String string : strings) {
+      Map<String, Integer> nGrams = NGramDistanceAlgorithm.createNGrams(string, true);
+      assertEquals(
+          nGrams.values().stream().mapToInt(Integer::intValue).sum(),
+          NGramProfile.create(string).size());
+    }
+  }
+
+  @Test
+  void testScore() {
+    assertEquals(
+        72.727,
+        NGramProfile.create("hypertensive disorder")
+            .score(NGramProfile.create("hypertensive order")),
+        0.001);
+  }
+
+  @Test
+  void testScoreDuplicateBigrams() {
+    // "disorder" is stemmed to "disord", which has 7 bigrams that occur twice in the profile
+    NGramProfile profile = NGramProfile.create("disorder disorder");
+    assertEquals(2 * 7.0 / 21 * 100, profile.score(NGramProfile.create("disorder")), 0.001);
+  }
+
+  @Test
+  void testScoreEmpty() {
+    assertEquals(0.0, NGramProfile.create("").score(NGramProfile.create("hypertensive")));
+  }
+}
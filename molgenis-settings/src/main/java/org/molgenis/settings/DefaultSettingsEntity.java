@@ -15,12 +15,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Base class for application and plugin settings entities. Settings are read/written from/to data
- * source. TODO: Bring this class up to date with 2.0, see http://www.molgenis.org/ticket/4787
+ * source. Settings are read from an in-memory snapshot that is refreshed when the settings change,
+ * see {@link SettingsSnapshotCache}. TODO: Bring this class up to date with 2.0, see
+ * http://www.molgenis.org/ticket/4787
  */
 public abstract class DefaultSettingsEntity implements Entity {
   private final String entityId;
   private final String entityTypeId;
   private DataService dataService;
+  private SettingsSnapshotCache settingsSnapshotCache;
 
   public DefaultSettingsEntity(String entityId) {
     this.entityId = requireNonNull(entityId);
@@ -32,6 +35,11 @@ public abstract class DefaultSettingsEntity implements Entity {
     this.dataService = requireNonNull(dataService);
   }
 
+  @Autowired
+  public void setSettingsSnapshotCache(SettingsSnapshotCache settingsSnapshotCache) {
+    this.settingsSnapshotCache = requireNonNull(settingsSnapshotCache);
+  }
+
   public EntityType getEntityType() {
     return runAsSystem(() -> dataService.getEntityType(entityTypeId));
   }
@@ -118,14 +126,14 @@ public abstract class DefaultSettingsEntity implements Entity {
 
   @Override
   public void set(String attributeName, Object value) {
-    Entity entity = getEntity();
+    Entity entity = loadEntity();
     entity.set(attributeName, value);
     updateEntity(entity);
   }
 
   @Override
   public void set(Entity values) {
-    Entity entity = getEntity();
+    Entity entity = loadEntity();
     entity.set(values);
     updateEntity(entity);
   }
@@ -148,6 +156,11 @@ public abstract class DefaultSettingsEntity implements Entity {
   }
 
   private Entity getEntity() {
+    return settingsSnapshotCache.get(entityTypeId, this::loadEntity);
+  }
+
+  /** Loads the settings entity, the snapshot mustn't be modified when updating settings */
+  private Entity loadEntity() {
     return runAsSystem(() -> dataService.findOneById(entityTypeId, entityId));
   }
 
@@ -0,0 +1,88 @@
+package org.molgenis.settings;
+
+import static org.molgenis.data.meta.model.Package.PACKAGE_SEPARATOR;
+import static org.molgenis.settings.SettingsPackage.PACKAGE_SETTINGS;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.molgenis.data.Entity;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps an in-memory snapshot of each settings entity, so that reading a setting doesn't require a
+ * lookup in the settings repository. Snapshots are discarded when a transaction on this or another
+ * node changes the settings or the entities that they refer to.
+ */
+@Component
+public class SettingsSnapshotCache {
+  private static final String SETTINGS_ENTITY_TYPE_ID_PREFIX = PACKAGE_SETTINGS + PACKAGE_SEPARATOR;
+
+  private final TransactionAwareCache<String, Snapshot> snapshots;
+
+  public SettingsSnapshotCache(
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      CacheInvalidationBus cacheInvalidationBus) {
+    this.snapshots =
+        new TransactionAwareCache<>(
+            this::isSettingsData, transactionManager, transactionInformation, cacheInvalidationBus);
+  }
+
+  /**
+   * Returns the snapshot of a settings entity. Snapshots are not used in transactions that changed
+   * the settings, since these transactions should read their own changes.
+   *
+   * @param entityTypeId settings entity type identifier
+   * @param loader loads the settings entity if no valid snapshot exists
+   * @return settings entity that must not be modified or <code>null</code> if it doesn't exist
+   */
+  @Nullable
+  public Entity get(String entityTypeId, Supplier<Entity> loader) {
+    Snapshot snapshot = snapshots.get(entityTypeId, id -> Snapshot.create(loader.get()));
+    return snapshot != null ? snapshot.entity : null;
+  }
+
+  /** Settings snapshots depend on the settings and the entities that they refer to */
+  private boolean isSettingsData(String entityTypeId) {
+    return entityTypeId.startsWith(SETTINGS_ENTITY_TYPE_ID_PREFIX)
+        || snapshots.getValues().stream()
+            .anyMatch(snapshot -> snapshot.refEntityTypeIds.contains(entityTypeId));
+  }
+
+  private static class Snapshot {
+    private final Entity entity;
+    /** Entity types referred to by the settings, referenced entities are part of the snapshot */
+    private final Set<String> refEntityTypeIds;
+
+    private Snapshot(Entity entity) {
+      this.entity = entity;
+      this.refEntityTypeIds = getRefEntityTypeIds(entity.getEntityType());
+    }
+
+    @Nullable
+    private static Snapshot create(@Nullable Entity entity) {
+      return entity != null ? new Snapshot(entity) : null;
+    }
+
+    private static Set<String> getRefEntityTypeIds(@Nullable EntityType entityType) {
+      Set<String> refEntityTypeIds = new HashSet<>();
+      if (entityType != null) {
+        for (Attribute attribute : entityType.getAtomicAttributes()) {
+          EntityType refEntityType = attribute.getRefEntity();
+          if (refEntityType != null) {
+            refEntityTypeIds.add(refEntityType.getId());
+          }
+        }
+      }
+      return refEntityTypeIds;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package org.molgenis.settings;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationBus;
+import org.molgenis.data.transaction.TransactionAwareCache;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.test.AbstractMockitoTest;
+
+class SettingsSnapshotCacheTest extends AbstractMockitoTest {
+  private static final String SETTINGS_ID = "sys_set_app";
+
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+  @Mock private Supplier<Entity> loader;
+  private SettingsSnapshotCache settingsSnapshotCache;
+  private TransactionAwareCache<?, ?> snapshots;
+
+  @SuppressWarnings("unchecked")
+  @BeforeEach
+  void setUpBeforeEach() {
+    settingsSnapshotCache =
+        new SettingsSnapshotCache(transactionManager, transactionInformation, cacheInvalidationBus);
+
+    ArgumentCaptor<TransactionAwareCache<?, ?>> cacheCaptor =
+        ArgumentCaptor.forClass(TransactionAwareCache.class);
+    verify(transactionManager).addTransactionListener(cacheCaptor.capture());
+    snapshots = cacheCaptor.getValue();
+  }
+
+  @Test
+  void testGet() {
+    Entity entity = mock(Entity.class);
+    when(loader.get()).thenReturn(entity, mock(Entity.class));
+
+    assertSame(entity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+    assertSame(entity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+  }
+
+  @Test
+  void testGetUnknownSettings() {
+    Entity entity = mock(Entity.class);
+    when(loader.get()).thenReturn(null, entity);
+
+    assertNull(settingsSnapshotCache.get(SETTINGS_ID, loader));
+    assertSame(entity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+  }
+
+  @Test
+  void testGetSettingsChangedInTransaction() {
+    Entity entity = mock(Entity.class);
+    Entity changedEntity = mock(Entity.class);
+    when(loader.get()).thenReturn(entity, changedEntity);
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(SETTINGS_ID));
+
+    assertSame(entity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+    assertSame(changedEntity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+  }
+
+  @Test
+  void testAfterCommitTransaction() {
+    Entity entity = mock(Entity.class);
+    Entity changedEntity = mock(Entity.class);
+    when(loader.get()).thenReturn(entity, changedEntity);
+
+    settingsSnapshotCache.get(SETTINGS_ID, loader);
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(SETTINGS_ID));
+    snapshots.afterCommitTransaction("transactionId");
+    snapshots.doCleanupAfterCompletion("transactionId");
+    when(transactionInformation.getDirtyRepositories()).thenReturn(Set.of());
+
+    assertSame(changedEntity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+  }
+
+  @Test
+  void testAfterCommitTransactionOtherEntityType() {
+    Entity entity = mock(Entity.class);
+    when(loader.get()).thenReturn(entity, mock(Entity.class));
+
+    settingsSnapshotCache.get(SETTINGS_ID, loader);
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton("otherEntityType"));
+    snapshots.afterCommitTransaction("transactionId");
+    snapshots.doCleanupAfterCompletion("transactionId");
+    when(transactionInformation.getDirtyRepositories()).thenReturn(Set.of());
+
+    assertSame(entity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+  }
+
+  @Test
+  void testOnCacheInvalidationReferencedEntityType() {
+    EntityType refEntityType = when(mock(EntityType.class).getId()).thenReturn("ref").getMock();
+    Attribute attribute =
+        when(mock(Attribute.class).getRefEntity()).thenReturn(refEntityType).getMock();
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(attribute));
+    Entity entity = when(mock(Entity.class).getEntityType()).thenReturn(entityType).getMock();
+    Entity changedEntity = mock(Entity.class);
+    when(loader.get()).thenReturn(entity, changedEntity);
+
+    settingsSnapshotCache.get(SETTINGS_ID, loader);
+    snapshots.onCacheInvalidation(CacheInvalidation.create(singleton("ref"), Set.of()));
+
+    assertSame(changedEntity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+  }
+
+  @Test
+  void testOnCacheInvalidationAll() {
+    Entity entity = mock(Entity.class);
+    Entity changedEntity = mock(Entity.class);
+    when(loader.get()).thenReturn(entity, changedEntity);
+
+    settingsSnapshotCache.get(SETTINGS_ID, loader);
+    snapshots.onCacheInvalidation(CacheInvalidation.createInvalidateAll());
+
+    assertSame(changedEntity, settingsSnapshotCache.get(SETTINGS_ID, loader));
+  }
+}
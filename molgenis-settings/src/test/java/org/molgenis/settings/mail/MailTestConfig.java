@@ -1,10 +1,14 @@
 package org.molgenis.settings.mail;
 
+import static org.mockito.Mockito.mock;
+
 import org.molgenis.data.EntityManagerImpl;
 import org.molgenis.data.listeners.EntityListenersService;
 import org.molgenis.settings.PropertyType;
 import org.molgenis.settings.SettingsEntityType;
 import org.molgenis.settings.SettingsPackage;
+import org.molgenis.settings.SettingsSnapshotCache;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
@@ -17,4 +21,9 @@ import org.springframework.context.annotation.Import;
   SettingsPackage.class,
   EntityListenersService.class,
 })
-public class MailTestConfig {}
+public class MailTestConfig {
+  @Bean
+  public SettingsSnapshotCache settingsSnapshotCache() {
+    return mock(SettingsSnapshotCache.class);
+  }
+}
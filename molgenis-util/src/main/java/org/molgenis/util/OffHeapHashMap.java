@@ -0,0 +1,74 @@
+package org.molgenis.util;
+
+import java.io.Closeable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Map with integer, long or string keys and values that is stored outside the Java heap. Memory is
+ * sized from the expected number of keys and is memory-mapped from a temporary file for large maps.
+ * Keys cannot be removed.
+ *
+ * @param <K> key type, must match the key {@link OffHeapValueType}
+ * @param <V> value type, must match the value {@link OffHeapValueType}
+ * @see HugeMap
+ */
+public class OffHeapHashMap<K, V> extends AbstractMap<K, V> implements Closeable {
+  private final OffHeapHashTable table;
+
+  /**
+   * @param keyType key type
+   * @param valueType value type
+   * @param expectedSize expected number of keys
+   */
+  public OffHeapHashMap(OffHeapValueType keyType, OffHeapValueType valueType, long expectedSize) {
+    table = new OffHeapHashTable(keyType, valueType, expectedSize);
+  }
+
+  @Override
+  public int size() {
+    return table.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key != null && table.containsKey(key);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(Object key) {
+    return key != null ? (V) table.get(key) : null;
+  }
+
+  @Override
+  public V put(K key, V value) {
+    V previousValue = get(key);
+    table.put(key, value);
+    return previousValue;
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<>() {
+      @SuppressWarnings({"unchecked", "rawtypes"})
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return (Iterator) table.iterator();
+      }
+
+      @Override
+      public int size() {
+        return table.size();
+      }
+    };
+  }
+
+  /** Releases the direct and memory-mapped memory. The map cannot be used after it is closed. */
+  @Override
+  public void close() {
+    table.free();
+  }
+}
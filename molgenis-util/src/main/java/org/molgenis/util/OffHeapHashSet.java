@@ -0,0 +1,64 @@
+package org.molgenis.util;
+
+import java.io.Closeable;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+/**
+ * Set of integers, longs or strings that is stored outside the Java heap. Memory is sized from the
+ * expected number of elements and is memory-mapped from a temporary file for large sets. Elements
+ * cannot be removed.
+ *
+ * @param <E> element type, must match the {@link OffHeapValueType}
+ * @see HugeSet
+ */
+public class OffHeapHashSet<E> extends AbstractSet<E> implements Closeable {
+  private final OffHeapHashTable table;
+
+  /**
+   * @param elementType element type
+   * @param expectedSize expected number of elements
+   */
+  public OffHeapHashSet(OffHeapValueType elementType, long expectedSize) {
+    table = new OffHeapHashTable(elementType, null, expectedSize);
+  }
+
+  @Override
+  public int size() {
+    return table.size();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o != null && table.containsKey(o);
+  }
+
+  @Override
+  public boolean add(E e) {
+    return table.put(e, null);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Iterator<E> iterator() {
+    Iterator<Entry<Object, Object>> iterator = table.iterator();
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public E next() {
+        return (E) iterator.next().getKey();
+      }
+    };
+  }
+
+  /** Releases the direct and memory-mapped memory. The set cannot be used after it is closed. */
+  @Override
+  public void close() {
+    table.free();
+  }
+}
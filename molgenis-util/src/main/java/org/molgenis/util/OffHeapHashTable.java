@@ -0,0 +1,275 @@
+package org.molgenis.util;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.util.OffHeapValueType.STRING;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+/**
+ * Open addressing hash table with linear probing that stores its slots off-heap. Integer keys are
+ * stored in the slots, string keys and values are stored in {@link OffHeapStrings} and referred to
+ * by offset. Zero marks an empty slot, so the numeric key zero is stored on-heap.
+ */
+final class OffHeapHashTable {
+  private static final long EMPTY = 0L;
+  private static final int MIN_SLOTS = 16;
+  private static final int MAX_SLOTS = 1 << 26;
+
+  private final OffHeapValueType keyType;
+  private final OffHeapValueType valueType;
+  private final int slotBytes;
+  private final OffHeapStrings strings;
+
+  private OffHeapMemory memory;
+  private int mask;
+  private int size;
+  private boolean hasZeroKey;
+  private long zeroKeyValue;
+
+  /**
+   * @param keyType key type
+   * @param valueType value type or <tt>null</tt> if the table does not store values
+   * @param expectedSize expected number of keys, used to size the table
+   */
+  OffHeapHashTable(OffHeapValueType keyType, OffHeapValueType valueType, long expectedSize) {
+    this.keyType = requireNonNull(keyType);
+    this.valueType = valueType;
+    this.slotBytes = valueType != null ? 16 : 8;
+    this.strings =
+        keyType == STRING || valueType == STRING ? new OffHeapStrings(expectedSize) : null;
+    allocate(getSlots(expectedSize));
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean containsKey(Object key) {
+    if (!keyType.isInstance(key)) {
+      return false;
+    }
+    if (isZeroKey(key)) {
+      return hasZeroKey;
+    }
+    return findSlot(key) >= 0;
+  }
+
+  Object get(Object key) {
+    if (!keyType.isInstance(key)) {
+      return null;
+    }
+    if (isZeroKey(key)) {
+      return hasZeroKey ? decodeValue(zeroKeyValue) : null;
+    }
+    int slot = findSlot(key);
+    return slot >= 0 ? decodeValue(memory.getLong(slot * slotBytes + 8)) : null;
+  }
+
+  /** @return whether the key was added */
+  boolean put(Object key, Object value) {
+    if (!keyType.isInstance(key)) {
+      throw new IllegalArgumentException(
+          format("Key [%s] is not of type [%s]", key, keyType.name()));
+    }
+    if (valueType != null && !valueType.isInstance(value)) {
+      throw new IllegalArgumentException(
+          format("Value [%s] is not of type [%s]", value, valueType.name()));
+    }
+
+    if (isZeroKey(key)) {
+      boolean added = !hasZeroKey;
+      hasZeroKey = true;
+      zeroKeyValue = encodeValue(value);
+      if (added) {
+        size++;
+      }
+      return added;
+    }
+
+    byte[] keyBytes = keyType == STRING ? OffHeapStrings.toBytes((String) key) : null;
+    int slot = findSlot(key, keyBytes);
+    boolean added = slot < 0;
+    if (added) {
+      slot = -slot - 1;
+      long encodedKey =
+          keyType == STRING ? strings.add((String) key, keyBytes) : ((Number) key).longValue();
+      memory.putLong(slot * slotBytes, encodedKey);
+      size++;
+    }
+    if (valueType != null) {
+      memory.putLong(slot * slotBytes + 8, encodeValue(value));
+    }
+    if (added && size > (mask + 1) / 2) {
+      grow();
+    }
+    return added;
+  }
+
+  /** Releases the off-heap memory, the table cannot be used afterwards. */
+  void free() {
+    memory.free();
+    if (strings != null) {
+      strings.free();
+    }
+  }
+
+  Iterator<Entry<Object, Object>> iterator() {
+    return new Iterator<>() {
+      private boolean zeroKeyReturned = !hasZeroKey;
+      private int slot = nextSlot(0);
+
+      @Override
+      public boolean hasNext() {
+        return !zeroKeyReturned || slot <= mask;
+      }
+
+      @Override
+      public Entry<Object, Object> next() {
+        if (!zeroKeyReturned) {
+          zeroKeyReturned = true;
+          Object zeroKey = keyType == OffHeapValueType.INT ? (Object) 0 : (Object) 0L;
+          return new SimpleImmutableEntry<>(zeroKey, decodeValue(zeroKeyValue));
+        }
+        if (slot > mask) {
+          throw new NoSuchElementException();
+        }
+        int index = slot * slotBytes;
+        Object key = decodeKey(memory.getLong(index));
+        Object value = valueType != null ? decodeValue(memory.getLong(index + 8)) : null;
+        slot = nextSlot(slot + 1);
+        return new SimpleImmutableEntry<>(key, value);
+      }
+    };
+  }
+
+  private int nextSlot(int slot) {
+    while (slot <= mask && memory.getLong(slot * slotBytes) == EMPTY) {
+      slot++;
+    }
+    return slot;
+  }
+
+  private boolean isZeroKey(Object key) {
+    return keyType != STRING && ((Number) key).longValue() == 0L;
+  }
+
+  private int findSlot(Object key) {
+    return findSlot(key, keyType == STRING ? OffHeapStrings.toBytes((String) key) : null);
+  }
+
+  /** @return slot that contains the key or -(empty slot + 1) if the key does not exist */
+  private int findSlot(Object key, byte[] keyBytes) {
+    if (keyType == STRING) {
+      int hashCode = key.hashCode();
+      int slot = spread(hashCode) & mask;
+      while (true) {
+        long storedKey = memory.getLong(slot * slotBytes);
+        if (storedKey == EMPTY) {
+          return -slot - 1;
+        }
+        if (strings.equals(storedKey, hashCode, keyBytes)) {
+          return slot;
+        }
+        slot = (slot + 1) & mask;
+      }
+    } else {
+      long longKey = ((Number) key).longValue();
+      int slot = spread(longKey) & mask;
+      while (true) {
+        long storedKey = memory.getLong(slot * slotBytes);
+        if (storedKey == EMPTY) {
+          return -slot - 1;
+        }
+        if (storedKey == longKey) {
+          return slot;
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+  }
+
+  private int getHash(long storedKey) {
+    return keyType == STRING ? spread(strings.getHashCode(storedKey)) : spread(storedKey);
+  }
+
+  private void grow() {
+    int slots = mask + 1;
+    if (slots == MAX_SLOTS) {
+      throw new IllegalStateException(
+          format("Off-heap hash table cannot contain more than %d keys", MAX_SLOTS / 2));
+    }
+
+    OffHeapMemory oldMemory = memory;
+    allocate(slots * 2);
+    for (int oldSlot = 0; oldSlot < slots; oldSlot++) {
+      long storedKey = oldMemory.getLong(oldSlot * slotBytes);
+      if (storedKey != EMPTY) {
+        int slot = getHash(storedKey) & mask;
+        while (memory.getLong(slot * slotBytes) != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        memory.putLong(slot * slotBytes, storedKey);
+        if (valueType != null) {
+          memory.putLong(slot * slotBytes + 8, oldMemory.getLong(oldSlot * slotBytes + 8));
+        }
+      }
+    }
+    oldMemory.free();
+  }
+
+  private void allocate(int slots) {
+    memory = OffHeapMemory.allocate((long) slots * slotBytes);
+    mask = slots - 1;
+  }
+
+  private long encodeValue(Object value) {
+    if (valueType == null) {
+      return EMPTY;
+    }
+    return valueType == STRING ? strings.add((String) value) : ((Number) value).longValue();
+  }
+
+  private Object decodeKey(long storedKey) {
+    return decode(keyType, storedKey);
+  }
+
+  private Object decodeValue(long storedValue) {
+    return valueType != null ? decode(valueType, storedValue) : null;
+  }
+
+  private Object decode(OffHeapValueType type, long storedValue) {
+    switch (type) {
+      case INT:
+        return (int) storedValue;
+      case LONG:
+        return storedValue;
+      case STRING:
+        return strings.get(storedValue);
+      default:
+        throw new UnexpectedEnumException(type);
+    }
+  }
+
+  private static int getSlots(long expectedSize) {
+    long slots = MIN_SLOTS;
+    while (slots < expectedSize * 2 && slots < MAX_SLOTS) {
+      slots *= 2;
+    }
+    return (int) slots;
+  }
+
+  /** Murmur3 finalizer that spreads the bits of the key over the hash */
+  private static int spread(long key) {
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return (int) hash;
+  }
+}
@@ -0,0 +1,151 @@
+package org.molgenis.util;
+
+import static java.lang.String.format;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Zero-initialized block of memory outside the Java heap. Small blocks are allocated as direct
+ * memory, large blocks are memory-mapped from a temporary file so that the operating system can
+ * page them out. Memory is released by {@link #free()} or, if that is not possible on this JVM,
+ * when the block is garbage collected.
+ */
+final class OffHeapMemory {
+  private static final Logger LOG = LoggerFactory.getLogger(OffHeapMemory.class);
+
+  static final long MAX_BYTES = Integer.MAX_VALUE;
+  private static final long DIRECT_MEMORY_THRESHOLD = 32L * 1024 * 1024;
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+      unsafeField.setAccessible(true);
+      unsafe = unsafeField.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.warn("Off-heap memory will be released on garbage collection instead of on close", e);
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private ByteBuffer buffer;
+
+  private OffHeapMemory(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  static OffHeapMemory allocate(long bytes) {
+    if (bytes > MAX_BYTES) {
+      throw new IllegalArgumentException(
+          format("Cannot allocate more than %d bytes of off-heap memory", MAX_BYTES));
+    }
+    ByteBuffer buffer =
+        bytes <= DIRECT_MEMORY_THRESHOLD
+            ? ByteBuffer.allocateDirect((int) bytes)
+            : map((int) bytes);
+    return new OffHeapMemory(buffer);
+  }
+
+  private static ByteBuffer map(int bytes) {
+    File file;
+    try {
+      file = File.createTempFile("offheap", "temp");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        FileChannel fileChannel = randomAccessFile.getChannel()) {
+      return fileChannel.map(READ_WRITE, 0, bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      // the mapping stays valid after the file is deleted
+      if (!file.delete()) {
+        file.deleteOnExit();
+      }
+    }
+  }
+
+  int size() {
+    return buffer.capacity();
+  }
+
+  long getLong(int index) {
+    return buffer.getLong(index);
+  }
+
+  void putLong(int index, long value) {
+    buffer.putLong(index, value);
+  }
+
+  int getInt(int index) {
+    return buffer.getInt(index);
+  }
+
+  void putInt(int index, int value) {
+    buffer.putInt(index, value);
+  }
+
+  byte getByte(int index) {
+    return buffer.get(index);
+  }
+
+  void get(int index, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(index + i);
+    }
+  }
+
+  void put(int index, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      buffer.put(index + i, bytes[i]);
+    }
+  }
+
+  /**
+   * Releases the direct or memory-mapped memory. Memory-mapped blocks are unmapped, which releases
+   * the disk space of their already deleted file. The memory cannot be used after it is freed.
+   */
+  void free() {
+    ByteBuffer freedBuffer = buffer;
+    if (freedBuffer == null) {
+      return;
+    }
+    // accessing a released buffer crashes the JVM, so fail fast on use after free instead
+    buffer = null;
+    if (INVOKE_CLEANER != null) {
+      try {
+        INVOKE_CLEANER.invoke(UNSAFE, freedBuffer);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        LOG.warn("Off-heap memory will be released on garbage collection", e);
+      }
+    }
+  }
+
+  /** Copies the first bytes of the given memory to the start of this memory. */
+  void copyFrom(OffHeapMemory memory, int length) {
+    ByteBuffer source = memory.buffer.duplicate();
+    source.position(0).limit(length);
+    ByteBuffer target = buffer.duplicate();
+    target.position(0);
+    target.put(source);
+  }
+}
@@ -0,0 +1,88 @@
+package org.molgenis.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Append-only off-heap store of strings. Each string is stored as its hash code, its length and its
+ * UTF-8 encoded bytes and is identified by the offset of its first byte.
+ */
+final class OffHeapStrings {
+  /** Offsets start after a reserved header so that zero can be used as 'no string' */
+  private static final int HEADER_BYTES = 8;
+
+  private static final int MIN_BYTES = 1024;
+
+  private OffHeapMemory memory;
+  private int position;
+
+  OffHeapStrings(long expectedSize) {
+    long expectedBytes = HEADER_BYTES + expectedSize * 32;
+    memory =
+        OffHeapMemory.allocate(
+            Math.min(Math.max(expectedBytes, MIN_BYTES), OffHeapMemory.MAX_BYTES));
+    position = HEADER_BYTES;
+  }
+
+  /** @return offset of the added string */
+  long add(String value, byte[] bytes) {
+    int requiredBytes = 8 + bytes.length;
+    ensureCapacity(requiredBytes);
+
+    int offset = position;
+    memory.putInt(offset, value.hashCode());
+    memory.putInt(offset + 4, bytes.length);
+    memory.put(offset + 8, bytes);
+    position += requiredBytes;
+    return offset;
+  }
+
+  long add(String value) {
+    return add(value, toBytes(value));
+  }
+
+  int getHashCode(long offset) {
+    return memory.getInt((int) offset);
+  }
+
+  String get(long offset) {
+    byte[] bytes = new byte[memory.getInt((int) offset + 4)];
+    memory.get((int) offset + 8, bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  boolean equals(long offset, int hashCode, byte[] bytes) {
+    int index = (int) offset;
+    if (memory.getInt(index) != hashCode || memory.getInt(index + 4) != bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (memory.getByte(index + 8 + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  void free() {
+    memory.free();
+  }
+
+  static byte[] toBytes(String value) {
+    return value.getBytes(UTF_8);
+  }
+
+  private void ensureCapacity(int requiredBytes) {
+    long minSize = (long) position + requiredBytes;
+    if (minSize <= memory.size()) {
+      return;
+    }
+    if (minSize > OffHeapMemory.MAX_BYTES) {
+      throw new IllegalStateException("Off-heap string store is full");
+    }
+    long newSize = Math.min(Math.max(minSize, 2L * memory.size()), OffHeapMemory.MAX_BYTES);
+    OffHeapMemory newMemory = OffHeapMemory.allocate(newSize);
+    newMemory.copyFrom(memory, position);
+    memory.free();
+    memory = newMemory;
+  }
+}
@@ -0,0 +1,18 @@
+package org.molgenis.util;
+
+/** Types of keys and values that can be stored in off-heap sets and maps. */
+public enum OffHeapValueType {
+  INT(Integer.class),
+  LONG(Long.class),
+  STRING(String.class);
+
+  private final Class<?> valueClass;
+
+  OffHeapValueType(Class<?> valueClass) {
+    this.valueClass = valueClass;
+  }
+
+  boolean isInstance(Object value) {
+    return valueClass.isInstance(value);
+  }
+}
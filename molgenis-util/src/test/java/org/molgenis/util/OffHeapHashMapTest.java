@@ -0,0 +1,67 @@
+package org.molgenis.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.molgenis.util.OffHeapValueType.INT;
+import static org.molgenis.util.OffHeapValueType.LONG;
+import static org.molgenis.util.OffHeapValueType.STRING;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class OffHeapHashMapTest {
+  @Test
+  void put() {
+    try (OffHeapHashMap<String, Long> map = new OffHeapHashMap<>(STRING, LONG, 10)) {
+      assertNull(map.put("a", 1L));
+      assertEquals(1L, map.put("a", 2L));
+      assertEquals(2L, map.get("a"));
+      assertEquals(1, map.size());
+      assertTrue(map.containsKey("a"));
+      assertFalse(map.containsKey("b"));
+      assertNull(map.get("b"));
+    }
+  }
+
+  @Test
+  void putZeroKey() {
+    try (OffHeapHashMap<Integer, String> map = new OffHeapHashMap<>(INT, STRING, 10)) {
+      map.put(0, "zero");
+      map.put(1, "one");
+      assertEquals("zero", map.get(0));
+      assertEquals("one", map.get(1));
+      assertEquals(Map.of(0, "zero", 1, "one"), new HashMap<>(map));
+    }
+  }
+
+  @Test
+  void putInvalidValueType() {
+    try (OffHeapHashMap<Object, Object> map = new OffHeapHashMap<>(STRING, INT, 10)) {
+      assertThrows(IllegalArgumentException.class, () -> map.put("a", "b"));
+    }
+  }
+
+  @Test
+  void putBeyondExpectedSize() {
+    try (OffHeapHashMap<Long, String> map = new OffHeapHashMap<>(LONG, STRING, 1)) {
+      IntStream.range(0, 10000).forEach(i -> map.put((long) i, "value" + i));
+      assertEquals(10000, map.size());
+      assertTrue(IntStream.range(0, 10000).allMatch(i -> ("value" + i).equals(map.get((long) i))));
+    }
+  }
+
+  /** Direct memory of the test JVM is limited, so this fails if close does not release memory */
+  @Test
+  void closeReleasesMemory() {
+    for (int i = 0; i < 100; i++) {
+      try (OffHeapHashMap<Long, String> map = new OffHeapHashMap<>(LONG, STRING, 500_000)) {
+        assertNull(map.put((long) i, "value" + i));
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package org.molgenis.util;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.molgenis.util.OffHeapValueType.INT;
+import static org.molgenis.util.OffHeapValueType.LONG;
+import static org.molgenis.util.OffHeapValueType.STRING;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class OffHeapHashSetTest {
+  @Test
+  void addInt() {
+    try (OffHeapHashSet<Integer> set = new OffHeapHashSet<>(INT, 10)) {
+      assertTrue(set.add(0));
+      assertTrue(set.add(-1));
+      assertFalse(set.add(-1));
+      assertEquals(2, set.size());
+      assertTrue(set.contains(0));
+      assertTrue(set.contains(-1));
+      assertFalse(set.contains(1));
+      assertFalse(set.contains(-1L));
+    }
+  }
+
+  @Test
+  void addLong() {
+    try (OffHeapHashSet<Long> set = new OffHeapHashSet<>(LONG, 10)) {
+      assertTrue(set.add(Long.MIN_VALUE));
+      assertTrue(set.add(Long.MAX_VALUE));
+      assertTrue(set.contains(Long.MIN_VALUE));
+      assertTrue(set.contains(Long.MAX_VALUE));
+      assertFalse(set.contains(0L));
+    }
+  }
+
+  @Test
+  void addString() {
+    try (OffHeapHashSet<String> set = new OffHeapHashSet<>(STRING, 10)) {
+      assertTrue(set.add("a"));
+      assertTrue(set.add("éè"));
+      assertFalse(set.add("a"));
+      assertTrue(set.contains("a"));
+      assertTrue(set.contains("éè"));
+      assertFalse(set.contains("b"));
+      assertFalse(set.contains(null));
+    }
+  }
+
+  @Test
+  void addInvalidType() {
+    try (OffHeapHashSet<Object> set = new OffHeapHashSet<>(INT, 10)) {
+      assertThrows(IllegalArgumentException.class, () -> set.add("a"));
+    }
+  }
+
+  @Test
+  void addBeyondExpectedSize() {
+    try (OffHeapHashSet<String> set = new OffHeapHashSet<>(STRING, 1)) {
+      IntStream.range(0, 10000).forEach(i -> set.add("value" + i));
+      assertEquals(10000, set.size());
+      assertTrue(IntStream.range(0, 10000).allMatch(i -> set.contains("value" + i)));
+      assertFalse(set.contains("value10000"));
+    }
+  }
+
+  @Test
+  void addMemoryMapped() {
+    try (OffHeapHashSet<Long> set = new OffHeapHashSet<>(LONG, 5_000_000)) {
+      set.add(1L);
+      assertTrue(set.contains(1L));
+      assertFalse(set.contains(2L));
+    }
+  }
+
+  @Test
+  void iterator() {
+    try (OffHeapHashSet<Integer> set = new OffHeapHashSet<>(INT, 10)) {
+      set.add(0);
+      set.add(1);
+      set.add(2);
+      assertEquals(Set.of(0, 1, 2), new HashSet<>(set));
+    }
+  }
+
+  /** Direct memory of the test JVM is limited, so this fails if close does not release memory */
+  @Test
+  void closeReleasesMemory() {
+    for (int i = 0; i < 100; i++) {
+      try (OffHeapHashSet<Long> set = new OffHeapHashSet<>(LONG, 1_000_000)) {
+        assertTrue(set.add((long) i));
+      }
+    }
+  }
+
+  @Test
+  void closeTwice() {
+    OffHeapHashSet<String> set = new OffHeapHashSet<>(STRING, 10);
+    set.add("a");
+    set.close();
+    assertDoesNotThrow(set::close);
+  }
+}